@@ -0,0 +1,408 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+
+/**
+ * Extracts the text of many documents on a fixed number of worker threads.<p>
+ *
+ * The extractors are created via {@link ExtractorFactory}, so the OOXML and scratchpad formats are
+ * supported, if their jars are on the classpath. Each document is processed independently - a
+ * document, which can't be parsed, is reported in its {@link Result} and doesn't stop the batch.<p>
+ *
+ * The text of a document can be limited by a character budget, which bounds the memory of the
+ * collected text. The extraction of the event based extractors stops early at the budget,
+ * see {@link POITextExtractor#extractTo(Appendable, long)}.<p>
+ *
+ * The time limit of a document is enforced by interrupting the worker and closing the extractor.
+ * A parser, which doesn't react on both, keeps its worker thread busy until it's finished,
+ * but the batch continues with the remaining workers and reports the document as timed out.
+ *
+ * @see ExtractorFactory#extractAll(List, int)
+ * @since POI 4.1.1
+ */
+public final class BatchExtractor {
+    private static final POILogger LOG = POILogFactory.getLogger(BatchExtractor.class);
+
+    private int threads = 1;
+    private long maxChars = -1;
+    private long timeoutMillis;
+    private boolean includeEmbedded;
+    private String password;
+
+    /**
+     * The outcome of the extraction of a single document
+     */
+    public static final class Result {
+        private final File file;
+        private String text;
+        private boolean truncated;
+        private int embeddedDocuments;
+        private long parseTimeNanos;
+        private Exception exception;
+
+        private Result(File file) {
+            this.file = file;
+        }
+
+        /**
+         * @return the input document
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the extracted text including the text of the embedded documents,
+         *  or {@code null} if the extraction failed
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return the length of the extracted text, 0 if the extraction failed
+         */
+        public int getTextLength() {
+            return text == null ? 0 : text.length();
+        }
+
+        /**
+         * @return {@code true}, if the text has been truncated at the character budget
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * @return the number of embedded documents, whose text has been appended
+         */
+        public int getEmbeddedDocuments() {
+            return embeddedDocuments;
+        }
+
+        /**
+         * @return the size of the input document in bytes
+         */
+        public long getFileSize() {
+            return file.length();
+        }
+
+        /**
+         * @return the time spent to open, parse and extract the document in milliseconds
+         */
+        public long getParseTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(parseTimeNanos);
+        }
+
+        /**
+         * @return the cause of the failure, a {@link TimeoutException} if the time limit
+         *  was exceeded, or {@code null} if the extraction succeeded
+         */
+        public Exception getException() {
+            return exception;
+        }
+
+        /**
+         * @return {@code true}, if the text has been extracted
+         */
+        public boolean isSuccess() {
+            return exception == null;
+        }
+    }
+
+    /**
+     * @return the number of worker threads, defaults to 1
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads the number of worker threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one worker thread is needed");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @return the maximum number of characters per document, a negative value for no limit (default)
+     */
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    /**
+     * @param maxChars the maximum number of characters per document, a negative value for no limit
+     */
+    public void setMaxChars(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * @return the time limit per document in milliseconds, 0 for no limit (default)
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @param timeoutMillis the time limit per document in milliseconds, 0 for no limit
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("the time limit can't be negative");
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return {@code true}, if the text of the embedded documents of OLE2 documents is appended
+     */
+    public boolean isIncludeEmbedded() {
+        return includeEmbedded;
+    }
+
+    /**
+     * @param includeEmbedded {@code true}, if the text of the embedded documents of OLE2 documents
+     *  is appended, see {@link ExtractorFactory#getEmbeddedDocsTextExtractors(POIOLE2TextExtractor)}
+     */
+    public void setIncludeEmbedded(boolean includeEmbedded) {
+        this.includeEmbedded = includeEmbedded;
+    }
+
+    /**
+     * @return the password of encrypted documents
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @param password the password of encrypted documents, the thread local password of the
+     *  workers is not used, as the workers are not the calling thread
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Extracts the text of the given documents
+     *
+     * @param files the documents
+     * @return the results in the order of the documents
+     */
+    public List<Result> extract(List<File> files) {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // the workers don't see the thread local setting of the caller
+        final boolean preferEvent = ExtractorFactory.getPreferEventExtractor();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()), daemonThreads("poi-batch-extractor"));
+        ScheduledExecutorService watchdog = (timeoutMillis > 0)
+            ? Executors.newSingleThreadScheduledExecutor(daemonThreads("poi-batch-extractor-watchdog"))
+            : null;
+        try {
+            List<Task> tasks = new ArrayList<>(files.size());
+            for (File file : files) {
+                Task task = new Task(new Result(file), preferEvent, watchdog);
+                // the future is assigned before the worker or its watchdog can access it
+                FutureTask<Void> futureTask = new FutureTask<>(task::run, null);
+                task.future = futureTask;
+                tasks.add(task);
+                pool.execute(futureTask);
+            }
+
+            List<Result> results = new ArrayList<>(files.size());
+            for (Task task : tasks) {
+                task.await();
+                results.add(task.result);
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+            if (watchdog != null) {
+                watchdog.shutdownNow();
+            }
+        }
+    }
+
+    private class Task {
+        private final Result result;
+        private final boolean preferEvent;
+        private final ScheduledExecutorService watchdog;
+        private Future<?> future;
+        private POITextExtractor extractor;
+        /** the number of appended embedded documents, only accessed by the worker */
+        private int embeddedDocuments;
+        private boolean timedOut;
+        private boolean done;
+
+        Task(Result result, boolean preferEvent, ScheduledExecutorService watchdog) {
+            this.result = result;
+            this.preferEvent = preferEvent;
+            this.watchdog = watchdog;
+        }
+
+        void run() {
+            ExtractorFactory.setThreadPrefersEventExtractors(preferEvent);
+            Future<?> timer = (watchdog == null) ? null
+                : watchdog.schedule(this::timeout, timeoutMillis, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            StringBuilder text = new StringBuilder();
+            boolean complete = false;
+            Exception ex = null;
+            try {
+                complete = extractText(text);
+            } catch (IOException | RuntimeException e) {
+                ex = e;
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                closeExtractor();
+            }
+
+            // the result of a timed out document has already been reported
+            synchronized (this) {
+                if (!timedOut) {
+                    done = true;
+                    result.parseTimeNanos = System.nanoTime() - start;
+                    result.exception = ex;
+                    result.embeddedDocuments = embeddedDocuments;
+                    if (ex == null) {
+                        result.text = text.toString();
+                        result.truncated = !complete;
+                    }
+                }
+            }
+        }
+
+        private boolean extractText(StringBuilder text) throws IOException {
+            POITextExtractor ext = ExtractorFactory.createExtractor(result.file, password);
+            setExtractor(ext);
+            // the separators of the embedded documents count against the budget as well
+            LimitedAppendable out = new LimitedAppendable(text, maxChars);
+            if (!ext.extractTo(out, maxChars)) {
+                return false;
+            }
+            if (!includeEmbedded || !(ext instanceof POIOLE2TextExtractor)) {
+                return true;
+            }
+
+            POITextExtractor[] embeddedExtractors = ExtractorFactory.getEmbeddedDocsTextExtractors((POIOLE2TextExtractor)ext);
+            try {
+                for (POITextExtractor embedded : embeddedExtractors) {
+                    embeddedDocuments++;
+                    if (out.getWritten() > 0 && out.getLastChar() != '\n') {
+                        out.append('\n');
+                    }
+                    long remaining = (maxChars < 0) ? -1 : Math.max(0, maxChars - out.getWritten());
+                    if (!embedded.extractTo(out, remaining) || out.isExhausted()) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                for (POITextExtractor embedded : embeddedExtractors) {
+                    IOUtils.closeQuietly(embedded);
+                }
+            }
+        }
+
+        private synchronized void setExtractor(POITextExtractor extractor) throws IOException {
+            if (timedOut) {
+                IOUtils.closeQuietly(extractor);
+                throw new IOException("the time limit was exceeded while opening the document");
+            }
+            this.extractor = extractor;
+        }
+
+        private synchronized void closeExtractor() {
+            IOUtils.closeQuietly(extractor);
+            extractor = null;
+        }
+
+        /**
+         * Called by the watchdog - interrupts the worker and closes the extractor, so a
+         * blocked or reading parser fails
+         */
+        private void timeout() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                timedOut = true;
+            }
+            future.cancel(true);
+            closeExtractor();
+        }
+
+        void await() {
+            try {
+                future.get();
+            } catch (CancellationException e) {
+                // timed out - the worker doesn't touch the result anymore
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the extraction", e);
+            } catch (ExecutionException e) {
+                LOG.log(POILogger.WARN, "extraction of " + result.file + " failed", e.getCause());
+                result.exception = new IOException(e.getCause());
+            }
+            synchronized (this) {
+                if (timedOut) {
+                    result.parseTimeNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                    result.exception = new TimeoutException(
+                        "the extraction of " + result.file + " exceeded " + timeoutMillis + " ms");
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
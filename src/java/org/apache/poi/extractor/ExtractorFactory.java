@@ -296,6 +296,24 @@ public final class ExtractorFactory {
         return textExtractors.toArray(new POITextExtractor[0]);
     }
 
+    /**
+     * Extracts the text of the given files concurrently.
+     * For time and character limits per document and embedded documents, configure
+     * a {@link BatchExtractor} instead.
+     *
+     * @param files the documents
+     * @param threads the number of worker threads
+     * @return the text and metrics of each document in the order of the files
+     *
+     * @since POI 4.1.1
+     */
+    public static List<BatchExtractor.Result> extractAll(List<File> files, int threads) {
+        BatchExtractor batch = new BatchExtractor();
+        batch.setThreads(threads);
+        batch.setPassword(getCurrentUserPassword());
+        return batch.extract(files);
+    }
+
     private static POITextExtractor wp(FileMagic fm, ProviderMethod fun) throws IOException {
         for (ExtractorProvider prov : Singleton.INSTANCE.provider) {
             if (prov.accepts(fm)) {
@@ -0,0 +1,106 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.extractor;
+
+import java.io.IOException;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * An {@link Appendable} used by the text extractors, which forwards the text to the target
+ * until the character budget is used up. The text above the budget is discarded and
+ * the extractors check {@link #isExhausted()} to stop the extraction early.
+ *
+ * @since POI 4.1.1
+ */
+@Internal
+public final class LimitedAppendable implements Appendable {
+    private final Appendable out;
+    private final long maxChars;
+    private long written;
+    private boolean exhausted;
+    private char lastChar;
+
+    /**
+     * @param out the target of the text
+     * @param maxChars the maximum number of characters, a negative value for no limit
+     */
+    public LimitedAppendable(Appendable out, long maxChars) {
+        this.out = out;
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public LimitedAppendable append(CharSequence csq) throws IOException {
+        return (csq == null) ? append("null") : append(csq, 0, csq.length());
+    }
+
+    @Override
+    public LimitedAppendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            return append("null", start, end);
+        }
+        int len = end - start;
+        if (exhausted || len <= 0) {
+            exhausted |= (len > 0);
+            return this;
+        }
+        if (maxChars >= 0 && written + len > maxChars) {
+            len = (int)(maxChars - written);
+            exhausted = true;
+        }
+        if (len > 0) {
+            out.append(csq, start, start + len);
+            written += len;
+            lastChar = csq.charAt(start + len - 1);
+        }
+        return this;
+    }
+
+    @Override
+    public LimitedAppendable append(char c) throws IOException {
+        if (exhausted || (maxChars >= 0 && written >= maxChars)) {
+            exhausted = true;
+        } else {
+            out.append(c);
+            written++;
+            lastChar = c;
+        }
+        return this;
+    }
+
+    /**
+     * @return {@code true}, if text has been discarded, because it exceeded the budget
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return the number of characters written to the target
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return the last character written to the target, or 0 if nothing has been written
+     */
+    public char getLastChar() {
+        return lastChar;
+    }
+}
@@ -40,6 +40,43 @@ public interface POITextExtractor extends Closeable {
 	 */
 	String getText();
 
+	/**
+	 * Writes the text of the document to the given target, e.g. a {@link java.io.Writer}.
+	 * The text is the same as returned by {@link #getText()}, but the event based
+	 * extractors write it incrementally instead of building the whole text in memory.
+	 *
+	 * @param out the target of the text
+	 * @return {@code true}, as the text isn't limited
+	 * @throws IOException if the document can't be read or the text can't be written
+	 *
+	 * @since POI 4.1.1
+	 */
+	default boolean extractTo(Appendable out) throws IOException {
+		return extractTo(out, -1);
+	}
+
+	/**
+	 * Writes the text of the document to the given target, but stops after the
+	 * given number of characters
+	 *
+	 * @param out the target of the text
+	 * @param maxChars the maximum number of characters to write, a negative value for no limit
+	 * @return {@code true}, if the whole text has been written, {@code false} if the text
+	 *  has been truncated at {@code maxChars}
+	 * @throws IOException if the document can't be read or the text can't be written
+	 *
+	 * @see #extractTo(Appendable)
+	 * @since POI 4.1.1
+	 */
+	default boolean extractTo(Appendable out, long maxChars) throws IOException {
+		LimitedAppendable text = new LimitedAppendable(out, maxChars);
+		String str = getText();
+		if (str != null) {
+			text.append(str);
+		}
+		return !text.isExhausted();
+	}
+
 	/**
 	 * Returns another text extractor, which is able to
 	 *  output the textual content of the document
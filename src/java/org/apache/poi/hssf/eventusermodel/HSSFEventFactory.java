@@ -62,23 +62,21 @@ public class HSSFEventFactory {
     * @throws IOException if the workbook contained errors 
     */
     public void processWorkbookEvents(HSSFRequest req, DirectoryNode dir) throws IOException {
+        try (InputStream in = dir.createDocumentInputStream(getWorkbookDirEntryName(dir))) {
+            processEvents(req, in);
+        }
+    }
+
+    private static String getWorkbookDirEntryName(DirectoryNode dir) {
         // some old documents have "WORKBOOK" or "BOOK"
-        String name = null;
         Set<String> entryNames = dir.getEntryNames();
         for (String potentialName : WORKBOOK_DIR_ENTRY_NAMES) {
             if (entryNames.contains(potentialName)) {
-                name = potentialName;
-                break;
+                return potentialName;
             }
         }
         // If in doubt, go for the default
-        if (name == null) {
-            name = WORKBOOK_DIR_ENTRY_NAMES[0];
-        }
-
-        try (InputStream in = dir.createDocumentInputStream(name)) {
-            processEvents(req, in);
-        }
+        return WORKBOOK_DIR_ENTRY_NAMES[0];
     }
 
    /**
@@ -108,7 +106,7 @@ public class HSSFEventFactory {
 	 */
 	public short abortableProcessWorkbookEvents(HSSFRequest req, DirectoryNode dir)
 		throws IOException, HSSFUserException {
-        try (InputStream in = dir.createDocumentInputStream("Workbook")) {
+        try (InputStream in = dir.createDocumentInputStream(getWorkbookDirEntryName(dir))) {
             return abortableProcessEvents(req, in);
         }
 	}
@@ -163,9 +161,20 @@ public class HSSFEventFactory {
 		// Create a new RecordStream and use that
 		RecordFactoryInputStream recordStream = new RecordFactoryInputStream(in, false);
 
+		RawRecordProcessor rawProcessor = new RawRecordProcessor(req);
+		recordStream.setRecordFilter(
+			req.isSkipUnregisteredRecords() ? req::isRegistered : null,
+			req::isRawRegistered, rawProcessor);
+
 		// Process each record as they come in
 		while(true) {
 			org.apache.poi.hssf.record.Record r = recordStream.nextRecord();
+			if (rawProcessor.userException != null) {
+				throw rawProcessor.userException;
+			}
+			if (rawProcessor.userCode != 0) {
+				return rawProcessor.userCode;
+			}
 			if(r == null) {
 				break;
 			}
@@ -178,4 +187,27 @@ public class HSSFEventFactory {
 		// All done, return our last code
 		return userCode;
 	}
+
+	/**
+	 * Passes the raw records to the request and keeps the result for the processing loop
+	 */
+	private static final class RawRecordProcessor implements RecordFactoryInputStream.RawRecordHandler {
+		private final HSSFRequest req;
+		private short userCode;
+		private HSSFUserException userException;
+
+		RawRecordProcessor(HSSFRequest req) {
+			this.req = req;
+		}
+
+		@Override
+		public boolean processRawRecord(short sid, RecordInputStream in) {
+			try {
+				userCode = req.processRawRecord(sid, in);
+			} catch (HSSFUserException e) {
+				userException = e;
+			}
+			return userCode == 0 && userException == null;
+		}
+	}
 }
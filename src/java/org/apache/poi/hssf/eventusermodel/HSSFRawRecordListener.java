@@ -0,0 +1,58 @@
+
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import org.apache.poi.hssf.record.RecordInputStream;
+
+/**
+ * Listener for records in their raw form. Instead of a {@link org.apache.poi.hssf.record.Record}
+ * object, the listener gets a view of the record data, which is only valid during the call.
+ * This avoids the decoding of fields, which aren't needed, and any allocations per record.
+ * Reading a {@link org.apache.poi.hssf.record.NumberRecord} for example looks like:
+ *
+ * <pre>
+ * int row = in.readUShort();
+ * int col = in.readUShort();
+ * int xfIndex = in.readUShort();
+ * double value = in.readDouble();
+ * </pre>
+ *
+ * Register it with {@link HSSFRequest#addRawListener(HSSFRawRecordListener, short)}.
+ *
+ * @see org.apache.poi.hssf.eventusermodel.HSSFEventFactory
+ * @see org.apache.poi.hssf.eventusermodel.HSSFRequest
+ *
+ * @since POI 4.1.1
+ */
+@FunctionalInterface
+public interface HSSFRawRecordListener {
+    /**
+     * Process the data of an HSSF record. Unread bytes are skipped afterwards.
+     * The listener must not call {@link RecordInputStream#nextRecord()}.
+     *
+     * @param sid the type of the record
+     * @param in the record data, the data of following continue records is read transparently
+     *
+     * @return numeric user-specified result code. A value of zero must be returned to continue
+     *  processing, any other value will halt processing like an {@link AbortableHSSFListener}.
+     *
+     * @throws HSSFUserException if the processing should be aborted
+     */
+    short processRawRecord(short sid, RecordInputStream in) throws HSSFUserException;
+}
@@ -17,6 +17,8 @@
 
 package org.apache.poi.hssf.eventusermodel;
 
+import java.io.ByteArrayInputStream;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
@@ -24,6 +26,7 @@ import java.util.Map;
 
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
 
 /**
  * An HSSFRequest object should be constructed registering an instance or multiple
@@ -35,6 +38,11 @@ import org.apache.poi.hssf.record.RecordFactory;
  */
 public class HSSFRequest {
 	private final Map<Short, List<HSSFListener>> _records;
+	private final Map<Short, HSSFRawRecordListener> _rawRecords = new HashMap<>();
+	/** the sids with listeners - checked for each record, so avoid boxing */
+	private final BitSet _registeredSids = new BitSet();
+	private final BitSet _rawSids = new BitSet();
+	private boolean _skipUnregisteredRecords;
 
 	/** Creates a new instance of HSSFRequest */
 	public HSSFRequest() {
@@ -59,6 +67,82 @@ public class HSSFRequest {
 
 		// probably most people will use one listener
 		list.add(lsnr);
+		_registeredSids.set(sid & 0xFFFF);
+	}
+
+	/**
+	 * Adds a listener, which processes the raw data of a particular record type,
+	 * see {@link HSSFRawRecordListener}. As the data can be read only once, there can
+	 * be only one raw listener per record type, and the records aren't passed to the
+	 * {@link HSSFListener}s of the record type anymore.
+	 *
+	 * @param lsnr for the event
+	 * @param sid identifier for the record type
+	 *
+	 * @throws IllegalStateException if there's already a raw listener for the record type
+	 *
+	 * @since POI 4.1.1
+	 */
+	public void addRawListener(HSSFRawRecordListener lsnr, short sid) {
+		if (_rawRecords.putIfAbsent(Short.valueOf(sid), lsnr) != null) {
+			throw new IllegalStateException("There's already a raw listener for sid " + sid);
+		}
+		_rawSids.set(sid & 0xFFFF);
+	}
+
+	/**
+	 * If set, the {@link HSSFEventFactory} skips the records without listener by their header,
+	 * i.e. no record objects are created for them. This speeds up the processing, when only a
+	 * few record types are of interest, e.g. the cell values. It's not set by default, so
+	 * subclasses overriding {@link #processRecord(Record)} still receive all records.
+	 *
+	 * @param skipUnregisteredRecords {@code true} to skip the records without listener
+	 *
+	 * @since POI 4.1.1
+	 */
+	public void setSkipUnregisteredRecords(boolean skipUnregisteredRecords) {
+		_skipUnregisteredRecords = skipUnregisteredRecords;
+	}
+
+	/**
+	 * @since POI 4.1.1
+	 */
+	public boolean isSkipUnregisteredRecords() {
+		return _skipUnregisteredRecords;
+	}
+
+	/**
+	 * @return {@code true}, if a listener was added for the record type
+	 *
+	 * @since POI 4.1.1
+	 */
+	protected boolean isRegistered(int sid) {
+		return _registeredSids.get(sid & 0xFFFF) || _rawSids.get(sid & 0xFFFF);
+	}
+
+	/**
+	 * @return {@code true}, if a raw listener was added for the record type
+	 *
+	 * @since POI 4.1.1
+	 */
+	protected boolean isRawRegistered(int sid) {
+		return !_rawSids.isEmpty() && _rawSids.get(sid & 0xFFFF);
+	}
+
+	/**
+	 * Called by HSSFEventFactory, passes the raw record data to the raw listener of the record type.
+	 *
+	 * @param sid the type of the record
+	 * @param in the record data
+	 *
+	 * @return numeric user-specified result code. If zero continue processing.
+	 * @throws HSSFUserException User exception condition
+	 *
+	 * @since POI 4.1.1
+	 */
+	protected short processRawRecord(short sid, RecordInputStream in) throws HSSFUserException {
+		HSSFRawRecordListener listener = _rawRecords.get(Short.valueOf(sid));
+		return (listener == null) ? 0 : listener.processRawRecord(sid, in);
 	}
 
 	/**
@@ -89,6 +173,13 @@ public class HSSFRequest {
 	 * @throws HSSFUserException User exception condition
 	 */
 	protected short processRecord(org.apache.poi.hssf.record.Record rec) throws HSSFUserException {
+		if (isRawRegistered(rec.getSid())) {
+			// the initial records of a stream and the number records converted from
+			// RK records are always created, so provide their data again
+			RecordInputStream in = new RecordInputStream(new ByteArrayInputStream(rec.serialize()));
+			in.nextRecord();
+			return processRawRecord(rec.getSid(), in);
+		}
 		List<HSSFListener> listeners = _records.get(Short.valueOf(rec.getSid()));
 		short userCode = 0;
 
@@ -23,13 +23,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.poi.POIDocument;
+import org.apache.poi.extractor.LimitedAppendable;
 import org.apache.poi.extractor.POIOLE2TextExtractor;
 import org.apache.poi.hpsf.DocumentSummaryInformation;
 import org.apache.poi.hpsf.SummaryInformation;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
 import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
 import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
 import org.apache.poi.hssf.eventusermodel.HSSFListener;
 import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
 import org.apache.poi.hssf.model.HSSFFormulaParser;
 import org.apache.poi.hssf.record.BOFRecord;
 import org.apache.poi.hssf.record.BoundSheetRecord;
@@ -131,34 +134,54 @@ public class EventBasedExcelExtractor implements POIOLE2TextExtractor, org.apach
     * Retreives the text contents of the file
     */
    public String getText() {
-       String text;
+       StringBuilder text = new StringBuilder();
        try {
-           TextListener tl = triggerExtraction();
-
-           text = tl._text.toString();
-           if(! text.endsWith("\n")) {
-               text = text + "\n";
-           }
+           extractTo(text);
        } catch(IOException e) {
            throw new RuntimeException(e);
        }
 
-       return text;
+       return text.toString();
    }
 
-   private TextListener triggerExtraction() throws IOException {
-       TextListener tl = new TextListener();
+   /**
+    * Writes the text contents of the file to the target, as soon as the
+    *  records are processed. The processing of the records stops, when
+    *  the character budget is exhausted.
+    *
+    * @since POI 4.1.1
+    */
+   @Override
+   public boolean extractTo(Appendable out, long maxChars) throws IOException {
+       LimitedAppendable text = new LimitedAppendable(out, maxChars);
+       TextListener tl = new TextListener(text);
        FormatTrackingHSSFListener ft = new FormatTrackingHSSFListener(tl);
        tl._ft = ft;
 
-       // Register and process
+       // Register and process, until the text can't be written anymore
        HSSFEventFactory factory = new HSSFEventFactory();
        HSSFRequest request = new HSSFRequest();
-       request.addListenerForAllRecords(ft);
+       request.addListenerForAllRecords(new AbortableHSSFListener() {
+           @Override
+           public short abortableProcessRecord(org.apache.poi.hssf.record.Record record) {
+               ft.processRecord(record);
+               return (short)(tl._error != null || text.isExhausted() ? 1 : 0);
+           }
+       });
 
-       factory.processWorkbookEvents(request, _dir);
+       try {
+           factory.abortableProcessWorkbookEvents(request, _dir);
+       } catch (HSSFUserException e) {
+           throw new IOException(e);
+       }
+       if (tl._error != null) {
+           throw tl._error;
+       }
 
-       return tl;
+       if (text.getLastChar() != '\n') {
+           text.append('\n');
+       }
+       return !text.isExhausted();
    }
 
    private class TextListener implements HSSFListener {
@@ -166,17 +189,26 @@ public class EventBasedExcelExtractor implements POIOLE2TextExtractor, org.apach
        private SSTRecord sstRecord;
 
        private final List<String> sheetNames;
-       final StringBuilder _text = new StringBuilder();
+       final LimitedAppendable _text;
+       IOException _error;
        private int sheetNum = -1;
        private int rowNum;
 
        private boolean outputNextStringValue;
        private int nextRow = -1;
 
-       public TextListener() {
+       public TextListener(LimitedAppendable text) {
            sheetNames = new ArrayList<>();
+           _text = text;
        }
        public void processRecord(org.apache.poi.hssf.record.Record record) {
+           try {
+               processRecordText(record);
+           } catch (IOException e) {
+               _error = e;
+           }
+       }
+       private void processRecordText(org.apache.poi.hssf.record.Record record) throws IOException {
            String thisText = null;
            int thisRow = -1;
 
@@ -192,7 +224,7 @@ public class EventBasedExcelExtractor implements POIOLE2TextExtractor, org.apach
                    rowNum = -1;
 
                    if(_includeSheetNames) {
-                       if(_text.length() > 0) _text.append("\n");
+                       if(_text.getWritten() > 0) _text.append("\n");
                        _text.append(sheetNames.get(sheetNum));
                    }
                }
@@ -257,7 +289,7 @@ public class EventBasedExcelExtractor implements POIOLE2TextExtractor, org.apach
            if(thisText != null) {
                if(thisRow != rowNum) {
                    rowNum = thisRow;
-                   if(_text.length() > 0)
+                   if(_text.getWritten() > 0)
                        _text.append("\n");
                } else {
                    _text.append("\t");
@@ -27,6 +27,7 @@ import org.apache.poi.hssf.record.aggregates.ColumnInfoRecordsAggregate;
 import org.apache.poi.hssf.record.aggregates.ConditionalFormattingTable;
 import org.apache.poi.hssf.record.aggregates.CustomViewSettingsRecordAggregate;
 import org.apache.poi.hssf.record.aggregates.DataValidityTable;
+import org.apache.poi.hssf.record.aggregates.FlushedRowBlocks;
 import org.apache.poi.hssf.record.aggregates.MergedCellsTable;
 import org.apache.poi.hssf.record.aggregates.PageSettingsBlock;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate;
@@ -357,7 +358,10 @@ public final class InternalSheet {
             _destList = destList;
         }
         public void visitRecord(org.apache.poi.hssf.record.Record r) {
-            _destList.add(r.copy());
+            // the flushed rows are copied with the rows aggregate
+            if (!(r instanceof FlushedRowBlocks)) {
+                _destList.add(r.copy());
+            }
         }
     }
 
@@ -387,7 +391,9 @@ public final class InternalSheet {
             org.apache.poi.hssf.record.Record rec = ((org.apache.poi.hssf.record.Record) rb).copy();
             clonedRecords.add(rec);
         }
-        return createSheet(new RecordStream(clonedRecords, 0));
+        InternalSheet result = createSheet(new RecordStream(clonedRecords, 0));
+        result._rowsAggregate.copyFlushedRows(_rowsAggregate);
+        return result;
     }
 
     /**
@@ -556,9 +562,30 @@ public final class InternalSheet {
     }
 
     public void visitContainedRecords(RecordVisitor rv, int offset) {
-
         PositionTrackingVisitor ptv = new PositionTrackingVisitor(rv, offset);
+        visitContainedRecords(ptv, ptv);
+    }
+
+    /**
+     * Visits the records of the sheet without sizing them. The DBCELL positions of the
+     * INDEX record are left at 0, so the caller has to back-patch them with the positions
+     * of the visited DBCELL records.
+     *
+     * @param rv the visitor of the records
+     *
+     * @see RowRecordsAggregate#createIndexRecord()
+     * @since POI 4.1.1
+     */
+    public void visitContainedRecords(RecordVisitor rv) {
+        visitContainedRecords(rv, null);
+    }
 
+    /**
+     * @param rv the visitor of the records
+     * @param ptv the visitor <code>rv</code> as position tracking visitor for an INDEX record
+     *  with the DBCELL positions, or <code>null</code> to leave the positions at 0
+     */
+    private void visitContainedRecords(RecordVisitor rv, PositionTrackingVisitor ptv) {
         boolean haveSerializedIndex = false;
 
         for (int k = 0; k < _records.size(); k++) {
@@ -566,9 +593,9 @@ public final class InternalSheet {
 
             if (record instanceof RecordAggregate) {
                 RecordAggregate agg = (RecordAggregate) record;
-                agg.visitContainedRecords(ptv);
+                agg.visitContainedRecords(rv);
             } else {
-                ptv.visitRecord((org.apache.poi.hssf.record.Record) record);
+                rv.visitRecord((org.apache.poi.hssf.record.Record) record);
             }
 
             // If the BOF record was just serialized then add the IndexRecord
@@ -580,15 +607,19 @@ public final class InternalSheet {
                 // If there are diagrams, they have their own BOFRecords,
                 //  and one shouldn't go in after that!
                 if (_isUncalced) {
-                    ptv.visitRecord(new UncalcedRecord());
+                    rv.visitRecord(new UncalcedRecord());
                 }
                 //Can there be more than one BOF for a sheet? If not then we can
                 //remove this guard. So be safe it is left here.
                 if (_rowsAggregate != null) {
-                    // find forward distance to first RowRecord
-                    int initRecsSize = getSizeOfInitialSheetRecords(k);
-                    int currentPos = ptv.getPosition();
-                    ptv.visitRecord(_rowsAggregate.createIndexRecord(currentPos, initRecsSize));
+                    if (ptv == null) {
+                        rv.visitRecord(_rowsAggregate.createIndexRecord());
+                    } else {
+                        // find forward distance to first RowRecord
+                        int initRecsSize = getSizeOfInitialSheetRecords(k);
+                        int currentPos = ptv.getPosition();
+                        rv.visitRecord(_rowsAggregate.createIndexRecord(currentPos, initRecsSize));
+                    }
                 }
               }
             }
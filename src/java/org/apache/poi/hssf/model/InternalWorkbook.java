@@ -40,6 +40,7 @@ import org.apache.poi.ddf.EscherSpRecord;
 import org.apache.poi.ddf.EscherSplitMenuColorsRecord;
 import org.apache.poi.hssf.extractor.OldExcelExtractor;
 import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.hssf.util.HSSFColor.HSSFColorPredefined;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
@@ -529,6 +530,19 @@ public final class InternalWorkbook {
         .setPositionOfBof(pos);
     }
 
+    /**
+     * Gets the BOF position for a given sheet, as read from the workbook stream
+     * or set by {@link #setSheetBof(int, int)}
+     *
+     * @param sheetIndex the number of the sheet
+     * @return the position of the sheet bof within the workbook stream
+     *
+     * @since POI 4.1.1
+     */
+    public int getSheetBof(int sheetIndex) {
+        return getBoundSheetRec(sheetIndex).getPositionOfBof();
+    }
+
     private BoundSheetRecord getBoundSheetRec(int sheetIndex) {
         return boundsheets.get(sheetIndex);
     }
@@ -1041,6 +1055,49 @@ public final class InternalWorkbook {
         return pos;
     }
 
+    /**
+     * Visits the records in the order of {@link #serialize(int, byte[])}, e.g. to stream them.
+     * The EXTSST record is derived from the serialized SST record, so the visitor has to
+     * serialize each record before it visits the next one.
+     *
+     * @param rv the visitor
+     * @param offset the position of the workbook globals within the workbook stream
+     *
+     * @since POI 4.1.1
+     */
+    public void visitContainedRecords(RecordVisitor rv, int offset) {
+        // only the records in front of the SST are sized, to locate the SST for the EXTSST record
+        int pos = offset;
+        SSTRecord lSST = null;
+        int sstPos = 0;
+        boolean wroteBoundSheets = false;
+        for ( org.apache.poi.hssf.record.Record record : records.getRecords() ) {
+            if (record instanceof SSTRecord) {
+                lSST = (SSTRecord)record;
+                sstPos = pos;
+            }
+            if (record.getSid() == ExtSSTRecord.sid && lSST != null) {
+                record = lSST.createExtSSTRecord(sstPos);
+            }
+            if (record instanceof BoundSheetRecord) {
+                if (!wroteBoundSheets) {
+                    for (BoundSheetRecord bsr : boundsheets) {
+                        rv.visitRecord(bsr);
+                        if (lSST == null) {
+                            pos += bsr.getRecordSize();
+                        }
+                    }
+                    wroteBoundSheets = true;
+                }
+            } else {
+                rv.visitRecord(record);
+                if (lSST == null) {
+                    pos += record.getRecordSize();
+                }
+            }
+        }
+    }
+
     /**
      * Perform any work necessary before the workbook is about to be serialized.
      *
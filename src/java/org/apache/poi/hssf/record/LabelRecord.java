@@ -22,18 +22,23 @@ import java.util.function.Supplier;
 
 import org.apache.poi.util.GenericRecordUtil;
 import org.apache.poi.util.HexDump;
+import org.apache.poi.util.LittleEndianOutput;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
-import org.apache.poi.util.RecordFormatException;
 import org.apache.poi.util.Removal;
+import org.apache.poi.util.StringUtil;
 
 /**
- * Label Record (0x0204) - read only support for strings stored directly in the cell...
- * Don't use this (except to read), use LabelSST instead
+ * Label Record (0x0204) - strings stored directly in the cell.<p>
+ *
+ * Usually the strings are stored in the SST and referenced by {@link LabelSSTRecord}s,
+ * which are also created for the read label records. Label records are only written
+ * for the strings of sheets with a random access window, which would otherwise
+ * accumulate in the SST.
  *
  * @see org.apache.poi.hssf.record.LabelSSTRecord
  */
-public final class LabelRecord extends Record implements CellValueRecordInterface {
+public final class LabelRecord extends StandardRecord implements CellValueRecordInterface {
     private static final POILogger logger = POILogFactory.getLogger(LabelRecord.class);
 
     public static final short sid = 0x0204;
@@ -46,7 +51,9 @@ public final class LabelRecord extends Record implements CellValueRecordInterfac
     private String field_6_value;
 
     /** Creates new LabelRecord */
-    public LabelRecord() {}
+    public LabelRecord() {
+        field_6_value = "";
+    }
 
     public LabelRecord(LabelRecord other) {
         super(other);
@@ -85,9 +92,6 @@ public final class LabelRecord extends Record implements CellValueRecordInterfac
         }
     }
 
-/*
- * READ ONLY ACCESS... THIS IS FOR COMPATIBILITY ONLY...USE LABELSST! public
- */
     @Override
     public int getRow()
     {
@@ -136,15 +140,36 @@ public final class LabelRecord extends Record implements CellValueRecordInterfac
     }
 
     /**
-     * THROWS A RUNTIME EXCEPTION..  USE LABELSSTRecords.  YOU HAVE NO REASON to use LABELRecord!!
+     * set the value
+     *
+     * @param value the text string of at most 255 characters
      */
+    public void setValue(String value) {
+        if (value.length() > 255) {
+            throw new IllegalArgumentException("The string of a label record can't be longer than 255 characters");
+        }
+        field_4_string_len = (short)value.length();
+        field_5_unicode_flag = (byte)(StringUtil.hasMultibyte(value) ? 0x01 : 0x00);
+        field_6_value = value;
+    }
+
     @Override
-    public int serialize(int offset, byte [] data) {
-        throw new RecordFormatException("Label Records are supported READ ONLY...convert to LabelSST");
+    protected int getDataSize() {
+        return 9 + field_4_string_len * (isUnCompressedUnicode() ? 2 : 1);
     }
+
     @Override
-    public int getRecordSize() {
-        throw new RecordFormatException("Label Records are supported READ ONLY...convert to LabelSST");
+    public void serialize(LittleEndianOutput out) {
+        out.writeShort(field_1_row);
+        out.writeShort(field_2_column);
+        out.writeShort(field_3_xf_index);
+        out.writeShort(field_4_string_len);
+        out.writeByte(field_5_unicode_flag);
+        if (isUnCompressedUnicode()) {
+            StringUtil.putUnicodeLE(field_6_value, out);
+        } else {
+            StringUtil.putCompressedUnicode(field_6_value, out);
+        }
     }
 
     @Override
@@ -153,28 +178,22 @@ public final class LabelRecord extends Record implements CellValueRecordInterfac
         return sid;
     }
 
-    /**
-	 * NO-OP!
-	 */
     @Override
     public void setColumn(short col)
     {
+        field_2_column = col;
     }
 
-    /**
-     * NO-OP!
-     */
     @Override
     public void setRow(int row)
     {
+        field_1_row = row;
     }
 
-    /**
-     * no op!
-     */
     @Override
     public void setXFIndex(short xf)
     {
+        field_3_xf_index = xf;
     }
 
     /**
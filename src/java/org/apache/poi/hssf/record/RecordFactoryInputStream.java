@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntPredicate;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
@@ -41,6 +42,22 @@ import org.apache.poi.util.RecordFormatException;
  */
 public final class RecordFactoryInputStream {
 
+	/**
+	 * Processes records in their raw form, i.e. without creating {@link Record} objects
+	 *
+	 * @since POI 4.1.1
+	 */
+	@FunctionalInterface
+	public interface RawRecordHandler {
+		/**
+		 * @param sid the type of the record
+		 * @param in the data of the record, which is only valid during this call.
+		 *  Unread bytes are skipped afterwards, the data of continue records is read transparently.
+		 * @return {@code true} to continue, {@code false} to stop reading the stream
+		 */
+		boolean processRawRecord(short sid, RecordInputStream in);
+	}
+
 	/**
 	 * Keeps track of the sizes of the initial records up to and including {@link FilePassRecord}
 	 * Needed for protected files because each byte is encrypted with respect to its absolute
@@ -173,6 +190,15 @@ public final class RecordFactoryInputStream {
 
 	private boolean _lastRecordWasEOFLevelZero;
 
+	/**
+	 * The last record was skipped or processed raw, so its continue records are skipped as well
+	 */
+	private boolean _skipContinueRecords;
+
+	private IntPredicate _recordFilter;
+	private IntPredicate _rawRecordFilter;
+	private RawRecordHandler _rawRecordHandler;
+
 
 	/**
 	 * @param in the InputStream to read from
@@ -221,8 +247,28 @@ public final class RecordFactoryInputStream {
 		_lastRecordWasEOFLevelZero = false;
 	}
 
+	/**
+	 * Restricts the records, which are created by {@link #nextRecord()}. The records, which are
+	 * neither requested nor processed raw, are skipped by their header without decoding their data.
+	 * The initial records, which were already read to check for encryption, are always returned.
+	 *
+	 * @param recordFilter the sids of the requested records or <code>null</code> for all records.
+	 *  {@link RKRecord}s and {@link MulRKRecord}s are converted to {@link NumberRecord}s,
+	 *  so they are included, if the sid of the {@link NumberRecord} is requested.
+	 * @param rawRecordFilter the sids of the records, which are passed to the raw record handler
+	 * @param rawRecordHandler the handler for the raw records or <code>null</code> if not needed
+	 *
+	 * @since POI 4.1.1
+	 */
+	public void setRecordFilter(IntPredicate recordFilter, IntPredicate rawRecordFilter, RawRecordHandler rawRecordHandler) {
+		_recordFilter = recordFilter;
+		_rawRecordFilter = rawRecordFilter;
+		_rawRecordHandler = rawRecordHandler;
+	}
+
 	/**
 	 * @return the next (complete) record from the stream, or null if there are no more.
+	 *  <code>null</code> is also returned, if the raw record handler stopped the processing.
 	 */
 	public Record nextRecord() {
 		Record r;
@@ -252,6 +298,28 @@ public final class RecordFactoryInputStream {
             // step underlying RecordInputStream to the next record
             _recStream.nextRecord();
 
+			int sid = _recStream.getSid();
+			if (sid == ContinueRecord.sid && _skipContinueRecords) {
+				// the raw handler or the filter didn't consume the continue records
+				_recStream.skipRemainder();
+				continue;
+			}
+			if (_rawRecordHandler != null && _rawRecordFilter.test(sid)) {
+				boolean proceed = _rawRecordHandler.processRawRecord((short)sid, _recStream);
+				// the handler might have read into continue records, so skip the current one
+				_recStream.skipRemainder();
+				trackSkippedRecord(sid);
+				if (!proceed) {
+					return null;
+				}
+				continue;
+			}
+			if (_recordFilter != null && !isRequested(sid)) {
+				_recStream.skipRemainder();
+				trackSkippedRecord(sid);
+				continue;
+			}
+
 			r = readNextRecord();
 			if (r == null) {
 				// some record types may get skipped (e.g. DBCellRecord and ContinueRecord)
@@ -261,6 +329,43 @@ public final class RecordFactoryInputStream {
 		}
 	}
 
+	private boolean isRequested(int sid) {
+		switch (sid) {
+			case ContinueRecord.sid:
+				// continue records of requested records are handled as before
+				return true;
+			case RKRecord.sid:
+			case MulRKRecord.sid:
+				return _recordFilter.test(NumberRecord.sid) || _recordFilter.test(sid);
+			default:
+				return _recordFilter.test(sid);
+		}
+	}
+
+	/**
+	 * Keeps track of the sub stream nesting, when a record was skipped or processed raw
+	 */
+	private void trackSkippedRecord(int sid) {
+		_lastRecordWasEOFLevelZero = false;
+		switch (sid) {
+			case BOFRecord.sid:
+				_bofDepth++;
+				break;
+			case EOFRecord.sid:
+				_bofDepth--;
+				if (_bofDepth < 1) {
+					_lastRecordWasEOFLevelZero = true;
+				}
+				break;
+			case ContinueRecord.sid:
+				break;
+			default:
+				// the following continue records can't be attached to the skipped record
+				_skipContinueRecords = true;
+				break;
+		}
+	}
+
 	/**
 	 * @return the next {@link Record} from the multiple record group as expanded from
 	 * a recently read {@link MulRKRecord}. <code>null</code> if not present.
@@ -288,6 +393,7 @@ public final class RecordFactoryInputStream {
 
 		Record record = RecordFactory.createSingleRecord(_recStream);
 		_lastRecordWasEOFLevelZero = false;
+		_skipContinueRecords = false;
 
 		if (record instanceof BOFRecord) {
 			_bofDepth++;
@@ -102,6 +102,9 @@ public final class RecordInputStream implements LittleEndianInput {
 	 */
 	private int _markedDataOffset;
 
+	/** lazily allocated buffer for skipping data, which can't be skipped directly */
+	private byte[] _skipBuffer;
+
 	private static final class SimpleHeaderInput implements BiffHeaderInput {
 
 		private final LittleEndianInput _lei;
@@ -381,6 +384,35 @@ public final class RecordInputStream implements LittleEndianInput {
 		return readStringCommon(requestedLength, true);
 	}
 
+	/**
+	 * Skips a string like {@link #readCompressedUnicode(int)} or {@link #readUnicodeLEString(int)}
+	 * would read it, i.e. the string data might be continued in the next record
+	 */
+	/* package */ void skipString(int requestedLength, boolean pIsCompressedEncoding) {
+		boolean isCompressedEncoding = pIsCompressedEncoding;
+		int curLen = 0;
+		while(true) {
+			int charSize = isCompressedEncoding ? 1 : LittleEndianConsts.SHORT_SIZE;
+			int availableChars = remaining() / charSize;
+			if (requestedLength - curLen <= availableChars) {
+				skipBytes((requestedLength - curLen) * charSize);
+				return;
+			}
+			skipBytes(availableChars * charSize);
+			curLen += availableChars;
+			if (!isContinueNext()) {
+				throw new RecordFormatException("Expected to find a ContinueRecord in order to skip remaining "
+						+ (requestedLength-curLen) + " of " + requestedLength + " chars");
+			}
+			if(remaining() != 0) {
+				throw new RecordFormatException("Odd number of bytes(" + remaining() + ") left behind");
+			}
+			nextRecord();
+			// note - the compressed flag may change on the fly
+			isCompressedEncoding = (readByte() == 0);
+		}
+	}
+
 	private String readStringCommon(int requestedLength, boolean pIsCompressedEncoding) {
 		// Sanity check to detect garbage string lengths
 		if (requestedLength < 0 || requestedLength > 0x100000) { // 16 million chars?
@@ -447,6 +479,45 @@ public final class RecordInputStream implements LittleEndianInput {
 		return result;
 	}
 
+	/**
+	 * Skips the remaining bytes of the current record. Unlike {@link #readRemainder()}, no
+	 * buffer is allocated per record. The data of following continue records is not skipped.
+	 *
+	 * @since POI 4.1.1
+	 */
+	public void skipRemainder() {
+		skipBytes(remaining());
+	}
+
+	/**
+	 * Skips the given number of bytes of the current record
+	 */
+	/* package */ void skipBytes(int size) {
+		checkRecordPosition(size);
+		int skipped = 0;
+		if (_dataInput instanceof InputStream) {
+			// unencrypted streams can skip the bytes without copying them
+			try {
+				while (skipped < size) {
+					long n = ((InputStream)_dataInput).skip(size - skipped);
+					if (n <= 0) {
+						break;
+					}
+					skipped += (int)n;
+				}
+			} catch (IOException e) {
+				throw new RecordFormatException(e);
+			}
+		}
+		if (skipped < size) {
+			if (_skipBuffer == null) {
+				_skipBuffer = new byte[MAX_RECORD_DATA_SIZE];
+			}
+			_dataInput.readFully(_skipBuffer, 0, size - skipped);
+		}
+		_currentDataOffset += size;
+	}
+
     /**
      * Reads all byte data for the current record, including any that overlaps
      * into any following continue records.
@@ -19,13 +19,24 @@
 
 package org.apache.poi.hssf.record;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.util.IntMapper;
+import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
+import org.apache.poi.util.RecordFormatException;
 
 /**
  * Handles the task of deserializing a SST string.  The two main entry points are
+ * {@link #manufactureStrings(int, RecordInputStream)}, which decodes all strings up front,
+ * and {@link #indexStrings(int, RecordInputStream)}, which keeps the raw string data and
+ * decodes the strings on demand via {@link #getString(int)}.
  *
  * @author Glen Stampoultzis (glens at apache.org)
  * @author Jason Height (jheight at apache.org)
@@ -33,8 +44,25 @@ import org.apache.poi.util.POILogger;
 class SSTDeserializer
 {
 	private static POILogger logger = POILogFactory.getLogger(SSTDeserializer.class);
+    private static final int RICH_TEXT_BIT = 8;
+    private static final int EXT_BIT = 4;
+
     private IntMapper<UnicodeString> strings;
 
+    /**
+     * The remaining data of the SST record and the data of its continue records - the data of a record
+     * is released, once all strings in it are decoded. <code>null</code> if the strings are not read on demand
+     */
+    private byte[][] recordData;
+    /** the offsets of the record data in the stream of the records, i.e. including their headers */
+    private int[] recordOffsets;
+    /** the offsets of the strings in the stream of the records, -1 for missing strings */
+    private int[] stringOffsets;
+    /** the number of not yet decoded strings, which are stored (partly) in a record */
+    private int[] pendingStrings;
+    private UnicodeString[] decodedStrings;
+    private int decodedCount;
+
     public SSTDeserializer( IntMapper<UnicodeString> strings )
     {
         this.strings = strings;
@@ -60,6 +88,301 @@ class SSTDeserializer
       }
     }
 
+    /**
+     * Keeps the raw data of the SST record and its continue records and builds an index of the
+     * string offsets, without decoding the strings. Compared to {@link #manufactureStrings(int, RecordInputStream)}
+     * this needs less memory and time, if only some of the strings are accessed.
+     */
+    void indexStrings( int stringCount, RecordInputStream in )
+    {
+        List<byte[]> records = new ArrayList<>();
+        while (true) {
+            records.add(in.readRemainder());
+            if (!in.hasNextRecord() || in.getNextSid() != ContinueRecord.sid) {
+                break;
+            }
+            in.nextRecord();
+        }
+        recordData = records.toArray(new byte[0][]);
+        recordOffsets = new int[recordData.length];
+        int offset = 0;
+        for (int i=0; i<recordData.length; i++) {
+            offset += 4;
+            recordOffsets[i] = offset;
+            offset += recordData[i].length;
+        }
+        stringOffsets = new int[stringCount];
+        decodedStrings = new UnicodeString[stringCount];
+
+        RecordDataInputStream data = new RecordDataInputStream(0);
+        RecordInputStream scan = new RecordInputStream(data);
+        scan.nextRecord();
+        for (int i=0; i<stringCount; i++) {
+            if (scan.available() == 0) {
+                if (!scan.hasNextRecord()) {
+                    logger.log( POILogger.ERROR, "Ran out of data before creating all the strings! String at index " + i + "");
+                    stringOffsets[i] = -1;
+                    continue;
+                }
+                // the string starts with the next continue record
+                scan.nextRecord();
+            }
+            stringOffsets[i] = data.getPosition();
+            skipString(scan);
+        }
+
+        pendingStrings = new int[recordData.length];
+        for (int i=0; i<stringCount && stringOffsets[i] >= 0; i++) {
+            for (int r=findRecord(stringOffsets[i]), last=findLastRecord(i); r<=last; r++) {
+                pendingStrings[r]++;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the record, which contains the given offset
+     */
+    private int findRecord(int offset) {
+        int recordIdx = Arrays.binarySearch(recordOffsets, offset);
+        return (recordIdx < 0) ? -recordIdx - 2 : recordIdx;
+    }
+
+    /**
+     * @return the index of the record, in which the string ends - the string ends where the next string
+     *  starts or at the end of the previous record, if the next string starts with a continue record
+     */
+    private int findLastRecord(int index) {
+        int nextOffset = (index+1 < stringOffsets.length) ? stringOffsets[index+1] : -1;
+        if (nextOffset < 0) {
+            return recordData.length-1;
+        }
+        int recordIdx = findRecord(nextOffset);
+        return (nextOffset == recordOffsets[recordIdx]) ? recordIdx-1 : recordIdx;
+    }
+
+    /**
+     * Skips a string like the {@link UnicodeString} constructor would read it
+     */
+    private static void skipString(RecordInputStream in) {
+        if (in.remaining() >= 3) {
+            in.mark(3);
+            int charCount = in.readUShort();
+            int optionFlags = in.readUByte();
+            if ((optionFlags & EXT_BIT) == 0) {
+                int runCount = ((optionFlags & RICH_TEXT_BIT) != 0) ? in.readShort() : 0;
+                in.skipString(charCount, (optionFlags & 1) == 0);
+                for (int i=0; i<runCount; i++) {
+                    // a format run consists of two shorts
+                    in.readShort();
+                    in.readShort();
+                }
+                return;
+            }
+            try {
+                in.reset();
+            } catch (IOException e) {
+                throw new RecordFormatException(e);
+            }
+        }
+        // extended (phonetic) data is rare and its length field isn't reliable,
+        // so let the UnicodeString parse it
+        new UnicodeString(in);
+    }
+
+    /**
+     * @return {@code true}, if the strings are decoded on demand
+     */
+    boolean isIndexed() {
+        return recordData != null;
+    }
+
+    int countIndexedStrings() {
+        return stringOffsets.length;
+    }
+
+    /**
+     * Decodes a string on demand
+     */
+    UnicodeString getString(int index) {
+        UnicodeString str = decodedStrings[index];
+        if (str == null) {
+            str = decodeString(index);
+            decodedStrings[index] = str;
+            if (++decodedCount == decodedStrings.length) {
+                // everything is decoded, so the raw data isn't needed anymore
+                materializeStrings();
+            }
+        }
+        return str;
+    }
+
+    private UnicodeString decodeString(int index) {
+        int offset = stringOffsets[index];
+        if (offset < 0) {
+            return new UnicodeString("");
+        }
+        int recordIdx = findRecord(offset);
+        RecordInputStream in = new RecordInputStream(new RecordDataInputStream(recordIdx));
+        in.nextRecord();
+        in.skipBytes(offset - recordOffsets[recordIdx]);
+        UnicodeString str = new UnicodeString(in);
+
+        // release the records, which don't contain any other undecoded string
+        for (int r=recordIdx, last=findLastRecord(index); r<=last; r++) {
+            if (--pendingStrings[r] == 0) {
+                recordData[r] = null;
+            }
+        }
+        return str;
+    }
+
+    /**
+     * Decodes all remaining strings into the string table and releases the raw data
+     */
+    void materializeStrings() {
+        if (!isIndexed()) {
+            return;
+        }
+        for (int i=0; i<decodedStrings.length; i++) {
+            UnicodeString str = decodedStrings[i];
+            addToStringTable( strings, (str != null) ? str : decodeString(i) );
+        }
+        recordData = null;
+        recordOffsets = null;
+        stringOffsets = null;
+        pendingStrings = null;
+        decodedStrings = null;
+    }
+
+    /**
+     * Streams the records from the given one on, like they are stored in the workbook, i.e. with their headers.
+     * The stream ends before the first released record.
+     */
+    private final class RecordDataInputStream extends InputStream {
+        private byte[] buffer = {};
+        private boolean isHeader;
+        private int record;
+        private int bufferPos;
+        private int position;
+
+        private byte[] markedBuffer;
+        private boolean markedIsHeader;
+        private int markedRecord;
+        private int markedBufferPos;
+        private int markedPosition;
+
+        RecordDataInputStream(int firstRecord) {
+            record = firstRecord-1;
+            position = recordOffsets[firstRecord]-4;
+        }
+
+        /**
+         * @return the offset in the stream of all records
+         */
+        int getPosition() {
+            return position;
+        }
+
+        /**
+         * Switches to the next header or record data, if the current one is consumed
+         *
+         * @return {@code false} at the end of the stream
+         */
+        private boolean fill() {
+            while (bufferPos == buffer.length) {
+                if (isHeader) {
+                    buffer = recordData[record];
+                    isHeader = false;
+                } else {
+                    if (record+1 == recordData.length || recordData[record+1] == null) {
+                        return false;
+                    }
+                    record++;
+                    buffer = new byte[4];
+                    LittleEndian.putShort(buffer, 0, (record == 0) ? SSTRecord.sid : ContinueRecord.sid);
+                    LittleEndian.putUShort(buffer, 2, recordData[record].length);
+                    isHeader = true;
+                }
+                bufferPos = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            position++;
+            return buffer[bufferPos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int count = 0;
+            while (count < len && fill()) {
+                int size = Math.min(len-count, buffer.length-bufferPos);
+                System.arraycopy(buffer, bufferPos, b, off+count, size);
+                bufferPos += size;
+                count += size;
+            }
+            position += count;
+            return (count == 0 && len > 0) ? -1 : count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long count = 0;
+            while (count < n && fill()) {
+                int size = (int)Math.min(n-count, buffer.length-bufferPos);
+                bufferPos += size;
+                count += size;
+            }
+            position += count;
+            return count;
+        }
+
+        /**
+         * @return the number of bytes up to the end of the next record, which is enough
+         *  for the {@link RecordInputStream} to check for a following record
+         */
+        @Override
+        public int available() {
+            int count = buffer.length-bufferPos;
+            if (isHeader) {
+                count += recordData[record].length;
+            }
+            if (record+1 < recordData.length && recordData[record+1] != null) {
+                count += 4 + recordData[record+1].length;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // otherwise the stream gets buffered and the position can't be tracked anymore
+            return true;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            markedBuffer = buffer;
+            markedIsHeader = isHeader;
+            markedRecord = record;
+            markedBufferPos = bufferPos;
+            markedPosition = position;
+        }
+
+        @Override
+        public void reset() {
+            buffer = markedBuffer;
+            isHeader = markedIsHeader;
+            record = markedRecord;
+            bufferPos = markedBufferPos;
+            position = markedPosition;
+        }
+    }
+
     static public void addToStringTable( IntMapper<UnicodeString> strings, UnicodeString string )
     {
       strings.add(string);
@@ -18,6 +18,7 @@
 package org.apache.poi.hssf.record;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -71,6 +72,7 @@ public final class SSTRecord extends ContinuableRecord {
 
     public SSTRecord(SSTRecord other) {
         super(other);
+        other.deserializer.materializeStrings();
         field_1_num_strings = other.field_1_num_strings;
         field_2_num_unique_strings = other.field_2_num_unique_strings;
         field_3_strings = other.field_3_strings.copy();
@@ -89,6 +91,8 @@ public final class SSTRecord extends ContinuableRecord {
     public int addString(UnicodeString string)
     {
         field_1_num_strings++;
+        // the lookup of existing strings needs all of them
+        deserializer.materializeStrings();
         UnicodeString ucs = ( string == null ) ? EMPTY_STRING
                 : string;
         int rval;
@@ -131,7 +135,7 @@ public final class SSTRecord extends ContinuableRecord {
      * @return the desired string
      */
     public UnicodeString getString(int id ) {
-        return field_3_strings.get( id );
+        return deserializer.isIndexed() ? deserializer.getString(id) : field_3_strings.get( id );
     }
 
     public short getSid() {
@@ -213,7 +217,10 @@ public final class SSTRecord extends ContinuableRecord {
      * We can handle eating the overhead associated with bits 2 or 3
      * (or both) being set, but we have no idea what to do with the
      * associated data. The UnicodeString class can handle the byte[]
-     * vs short[] nature of the actual string data
+     * vs short[] nature of the actual string data<p>
+     *
+     * The strings are decoded on demand, i.e. only the raw data and the offsets of the
+     * strings are kept, until a string is accessed or the string table is modified.
      *
      * @param in the RecordInputStream to read the record from
      */
@@ -232,7 +239,7 @@ public final class SSTRecord extends ContinuableRecord {
             field_2_num_unique_strings = 0;
             return;
         }
-        deserializer.manufactureStrings( field_2_num_unique_strings, in );
+        deserializer.indexStrings( field_2_num_unique_strings, in );
     }
 
 
@@ -242,6 +249,7 @@ public final class SSTRecord extends ContinuableRecord {
      */
     Iterator<UnicodeString> getStrings()
     {
+        deserializer.materializeStrings();
         return field_3_strings.iterator();
     }
 
@@ -249,10 +257,11 @@ public final class SSTRecord extends ContinuableRecord {
      * @return count of the strings we hold.
      */
     int countStrings() {
-        return field_3_strings.size();
+        return deserializer.isIndexed() ? deserializer.countIndexedStrings() : field_3_strings.size();
     }
 
     protected void serialize(ContinuableRecordOutput out) {
+        deserializer.materializeStrings();
         SSTSerializer serializer = new SSTSerializer(field_3_strings, getNumStrings(), getNumUniqueStrings() );
         serializer.serialize(out);
         bucketAbsoluteOffsets = serializer.getBucketAbsoluteOffsets();
@@ -295,7 +304,12 @@ public final class SSTRecord extends ContinuableRecord {
      * @return  The size of the ExtSST record in bytes.
      */
     public int calcExtSSTRecordSize() {
-      return ExtSSTRecord.getRecordSizeForStrings(field_3_strings.size());
+      return ExtSSTRecord.getRecordSizeForStrings(countStrings());
+    }
+
+    private List<UnicodeString> getStringElements() {
+        deserializer.materializeStrings();
+        return field_3_strings.getElements();
     }
 
     @Override
@@ -313,7 +327,7 @@ public final class SSTRecord extends ContinuableRecord {
         return GenericRecordUtil.getGenericProperties(
             "numStrings", this::getNumStrings,
             "numUniqueStrings", this::getNumUniqueStrings,
-            "strings", () -> field_3_strings.getElements(),
+            "strings", this::getStringElements,
             "bucketAbsoluteOffsets", () -> bucketAbsoluteOffsets,
             "bucketRelativeOffsets", () -> bucketRelativeOffsets
         );
@@ -0,0 +1,185 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record.aggregates;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.HSSFRecordTypes;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
+import org.apache.poi.util.GenericRecordUtil;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.IntList;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.RecordFormatException;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Internal POI use only - the row blocks of a sheet, which have been flushed to a temporary file.<p>
+ *
+ * This isn't a BIFF record, but a placeholder for the serialized ROW, cell value and DBCELL
+ * records of the flushed rows. It is visited in place of these records, so the serializers
+ * can copy the data instead of holding all records in memory.
+ */
+@Internal
+public final class FlushedRowBlocks extends Record implements RecordVisitor {
+
+    private final File _file;
+    private OutputStream _out;
+    private int _size;
+    /** the offsets of the DBCELL records relative to the first flushed row block */
+    private final IntList _dbCellOffsets = new IntList();
+
+    /* package */ FlushedRowBlocks() throws IOException {
+        _file = TempFile.createTempFile("poi-hssf-rows", ".tmp");
+        _out = new BufferedOutputStream(new FileOutputStream(_file));
+    }
+
+    private FlushedRowBlocks(FlushedRowBlocks other) {
+        super(other);
+        try {
+            _file = TempFile.createTempFile("poi-hssf-rows", ".tmp");
+        } catch (IOException e) {
+            throw new RecordFormatException("Can't copy the flushed rows", e);
+        }
+        try {
+            _out = new BufferedOutputStream(new FileOutputStream(_file));
+            other.copyTo(_out);
+        } catch (IOException e) {
+            dispose();
+            throw new RecordFormatException("Can't copy the flushed rows", e);
+        }
+        _size = other._size;
+        _dbCellOffsets.addAll(other._dbCellOffsets);
+    }
+
+    /**
+     * Appends a serialized record of a row block
+     */
+    @Override
+    public void visitRecord(Record r) {
+        if (_out == null) {
+            throw new IllegalStateException("The flushed rows have already been disposed");
+        }
+        if (r instanceof DBCellRecord) {
+            _dbCellOffsets.add(_size);
+        }
+        byte[] data = r.serialize();
+        try {
+            _out.write(data);
+        } catch (IOException e) {
+            throw new RecordFormatException("Can't write the flushed rows", e);
+        }
+        _size += data.length;
+    }
+
+    /**
+     * @return the number of flushed row blocks
+     */
+    public int getBlockCount() {
+        return _dbCellOffsets.size();
+    }
+
+    /**
+     * @return the offset of the DBCELL record of the given row block relative to the first flushed row block
+     */
+    public int getDBCellOffset(int blockIndex) {
+        return _dbCellOffsets.get(blockIndex);
+    }
+
+    /**
+     * Copies the flushed row blocks to the given stream
+     */
+    public void copyTo(OutputStream out) throws IOException {
+        flush();
+        try (InputStream is = new FileInputStream(_file)) {
+            IOUtils.copy(is, out);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (_out == null) {
+            throw new IllegalStateException("The flushed rows have already been disposed");
+        }
+        _out.flush();
+    }
+
+    /**
+     * Closes and deletes the temporary file
+     *
+     * @return true, if the file was deleted
+     */
+    public boolean dispose() {
+        IOUtils.closeQuietly(_out);
+        _out = null;
+        return _file.delete();
+    }
+
+    @Override
+    public int serialize(int offset, byte[] data) {
+        try {
+            flush();
+            try (InputStream is = new FileInputStream(_file)) {
+                IOUtils.readFully(is, data, offset, _size);
+            }
+        } catch (IOException e) {
+            throw new RecordFormatException("Can't read the flushed rows", e);
+        }
+        return _size;
+    }
+
+    @Override
+    public int getRecordSize() {
+        return _size;
+    }
+
+    @Override
+    public short getSid() {
+        return -1;
+    }
+
+    /**
+     * Copies the flushed rows into a new temporary file
+     */
+    @Override
+    public FlushedRowBlocks copy() {
+        return new FlushedRowBlocks(this);
+    }
+
+    @Override
+    public HSSFRecordTypes getGenericRecordType() {
+        return HSSFRecordTypes.UNKNOWN;
+    }
+
+    @Override
+    public Map<String, Supplier<?>> getGenericProperties() {
+        return GenericRecordUtil.getGenericProperties(
+            "size", this::getRecordSize,
+            "blockCount", this::getBlockCount
+        );
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.record.aggregates;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -54,6 +55,8 @@ public final class RowRecordsAggregate extends RecordAggregate {
     private final ValueRecordsAggregate _valuesAgg;
     private final List<org.apache.poi.hssf.record.Record> _unknownRecords;
     private final SharedValueManager _sharedValueManager;
+    /** the row blocks, which have been flushed to a temporary file, or <code>null</code> */
+    private FlushedRowBlocks _flushedBlocks;
 
     // Cache values to speed up performance of
     // getStartRowNumberForBlock / getEndRowNumberForBlock, see Bugzilla 47405
@@ -260,43 +263,146 @@ public final class RowRecordsAggregate extends RecordAggregate {
 
     @Override
     public void visitContainedRecords(RecordVisitor rv) {
+        // the flushed rows precede the rows in memory
+        if (_flushedBlocks != null) {
+            rv.visitRecord(_flushedBlocks);
+        }
 
-        PositionTrackingVisitor stv = new PositionTrackingVisitor(rv, 0);
         //DBCells are serialized before row records.
         final int blockCount = getRowBlockCount();
         for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
             // Serialize a block of rows.
-            // Hold onto the position of the first row in the block
-            int pos=0;
             // Hold onto the size of this block that was serialized
             final int rowBlockSize = visitRowRecordsForBlock(blockIndex, rv);
-            pos += rowBlockSize;
             // Serialize a block of cells for those rows
             final int startRowNumber = getStartRowNumberForBlock(blockIndex);
             final int endRowNumber = getEndRowNumberForBlock(blockIndex);
+            visitCellsForBlock(startRowNumber, endRowNumber, rowBlockSize, rv);
+        }
+
+        // Potentially breaking the file here since we don't know exactly where to write these records
+        _unknownRecords.forEach(rv::visitRecord);
+    }
+
+    /**
+     * Visits the cells of the rows of a row block followed by the DBCELL record of the block
+     *
+     * @param rowBlockSize the size of the ROW records of the block
+     */
+    private void visitCellsForBlock(int startRowNumber, int endRowNumber, int rowBlockSize, RecordVisitor rv) {
+        PositionTrackingVisitor stv = new PositionTrackingVisitor(rv, 0);
+        // Hold onto the position of the first row in the block
+        int pos = rowBlockSize;
+
+        final List<Short> cellOffsets = new ArrayList<>();
+
+        // Note: Cell references start from the second row...
+        int cellRefOffset = (rowBlockSize - RowRecord.ENCODED_SIZE);
+        for (int row = startRowNumber; row <= endRowNumber; row++) {
+            if (_valuesAgg.rowHasCells(row)) {
+                stv.setPosition(0);
+                _valuesAgg.visitCellsForRow(row, stv);
+                int rowCellSize = stv.getPosition();
+                pos += rowCellSize;
+                // Add the offset to the first cell for the row into the
+                // DBCellRecord.
+                cellOffsets.add((short)cellRefOffset);
+                cellRefOffset = rowCellSize;
+            }
+        }
+        // Calculate Offset from the start of a DBCellRecord to the first Row
+        rv.visitRecord(new DBCellRecord(pos, shortListToArray(cellOffsets)));
+    }
+
+    /**
+     * Serializes the first rows with their cells into a temporary file and removes them from this
+     * aggregate. The flushed rows are copied into the sheet stream on serialization.<p>
+     *
+     * The rows are flushed in complete row blocks of {@link DBCellRecord#BLOCK_SIZE} rows,
+     * unless all rows are flushed. Rows, which are inserted after flushing, need to follow
+     * the flushed rows.
+     *
+     * @param rowCount the number of rows to flush
+     * @return the index of the last flushed row or -1, if no row was flushed
+     * @throws IOException if the temporary file can't be written
+     *
+     * @since POI 4.1.1
+     */
+    public int flushRows(int rowCount) throws IOException {
+        int count = Math.min(rowCount, _rowRecords.size());
+        if (count < _rowRecords.size()) {
+            count -= count % DBCellRecord.BLOCK_SIZE;
+        }
+        if (count <= 0) {
+            return -1;
+        }
+        if (_flushedBlocks == null) {
+            _flushedBlocks = new FlushedRowBlocks();
+        }
 
-            final List<Short> cellOffsets = new ArrayList<>();
-
-            // Note: Cell references start from the second row...
-            int cellRefOffset = (rowBlockSize - RowRecord.ENCODED_SIZE);
-            for (int row = startRowNumber; row <= endRowNumber; row++) {
-                if (_valuesAgg.rowHasCells(row)) {
-                    stv.setPosition(0);
-                    _valuesAgg.visitCellsForRow(row, stv);
-                    int rowCellSize = stv.getPosition();
-                    pos += rowCellSize;
-                    // Add the offset to the first cell for the row into the
-                    // DBCellRecord.
-                    cellOffsets.add((short)cellRefOffset);
-                    cellRefOffset = rowCellSize;
+        List<RowRecord> rows = new ArrayList<>(DBCellRecord.BLOCK_SIZE);
+        Iterator<RowRecord> it = _rowRecords.values().iterator();
+        for (int i = 0; i < count; i++) {
+            rows.add(it.next());
+            if (rows.size() == DBCellRecord.BLOCK_SIZE || i == count - 1) {
+                int rowBlockSize = 0;
+                for (RowRecord row : rows) {
+                    _flushedBlocks.visitRecord(row);
+                    rowBlockSize += row.getRecordSize();
                 }
+                visitCellsForBlock(rows.get(0).getRowNumber(), rows.get(rows.size() - 1).getRowNumber(),
+                    rowBlockSize, _flushedBlocks);
+                rows.clear();
             }
-            // Calculate Offset from the start of a DBCellRecord to the first Row
-            rv.visitRecord(new DBCellRecord(pos, shortListToArray(cellOffsets)));
         }
 
-        // Potentially breaking the file here since we don't know exactly where to write these records
-        _unknownRecords.forEach(rv::visitRecord);
+        int lastRow = -1;
+        for (it = _rowRecords.values().iterator(); count > 0; count--) {
+            lastRow = it.next().getRowNumber();
+            _valuesAgg.removeAllCellsValuesForRow(lastRow);
+            it.remove();
+        }
+        // Clear the cached values
+        _rowRecordValues = null;
+        return lastRow;
+    }
+
+    /**
+     * @return the number of row blocks, which have been flushed to a temporary file
+     *
+     * @since POI 4.1.1
+     */
+    public int getFlushedRowBlockCount() {
+        return _flushedBlocks == null ? 0 : _flushedBlocks.getBlockCount();
+    }
+
+    /**
+     * Copies the flushed rows of the other aggregate, which contains the same rows in memory.
+     * The flushed rows are no BIFF records, so they are not cloned with the records of the sheet.
+     *
+     * @param other the aggregate, which has been cloned
+     *
+     * @since POI 4.1.1
+     */
+    public void copyFlushedRows(RowRecordsAggregate other) {
+        if (other._flushedBlocks == null) {
+            return;
+        }
+        _flushedBlocks = other._flushedBlocks.copy();
+        // the first row might have been flushed
+        _firstrow = other._firstrow;
+        _lastrow = other._lastrow;
+    }
+
+    /**
+     * Deletes the temporary file of the flushed rows. The sheet can't be serialized afterwards.
+     *
+     * @return true, if there were no flushed rows or the temporary file was deleted
+     *
+     * @since POI 4.1.1
+     */
+    public boolean disposeFlushedRows() {
+        return _flushedBlocks == null || _flushedBlocks.dispose();
     }
 
     private static short[] shortListToArray(List<Short> list) {
@@ -466,6 +572,55 @@ public final class RowRecordsAggregate extends RecordAggregate {
         return _valuesAgg.iterator();
     }
 
+    /**
+     * @return <code>true</code> if the row has cells attached to it
+     */
+    public boolean rowHasCells(int rowIndex) {
+        return _valuesAgg.rowHasCells(rowIndex);
+    }
+
+    /**
+     * @return the column index of the first cell of the row, or -1 if the row has no cells
+     */
+    public int getFirstCellNum(int rowIndex) {
+        return _valuesAgg.getFirstCellNum(rowIndex);
+    }
+
+    /**
+     * @return the column index of the last cell of the row, or -1 if the row has no cells
+     */
+    public int getLastCellNum(int rowIndex) {
+        return _valuesAgg.getLastCellNum(rowIndex);
+    }
+
+    /**
+     * @return the cell records of the row in column order
+     * @see ValueRecordsAggregate#getCellsForRow(int)
+     */
+    public CellValueRecordInterface[] getCellsForRow(int rowIndex) {
+        return _valuesAgg.getCellsForRow(rowIndex);
+    }
+
+    /**
+     * Creates the INDEX record with the positions of the DBCELL records set to 0, for writers
+     * which back-patch the positions once the DBCELL records have been written. In contrast to
+     * {@link #createIndexRecord(int, int)}, the records don't need to be sized for this.
+     *
+     * @return the INDEX record with a DBCELL position for each row block
+     *
+     * @since POI 4.1.1
+     */
+    public IndexRecord createIndexRecord() {
+        IndexRecord result = new IndexRecord();
+        result.setFirstRow(_firstrow);
+        result.setLastRowAdd1(_lastrow + 1);
+        int blockCount = getFlushedRowBlockCount() + getRowBlockCount();
+        for (int block = 0; block < blockCount; block++) {
+            result.addDbcell(0);
+        }
+        return result;
+    }
+
     public IndexRecord createIndexRecord(int indexRecordOffset, int sizeOfInitialSheetRecords) {
         IndexRecord result = new IndexRecord();
         result.setFirstRow(_firstrow);
@@ -478,11 +633,20 @@ public final class RowRecordsAggregate extends RecordAggregate {
         // 0 for now.....
 
         int blockCount = getRowBlockCount();
+        int flushedBlockCount = getFlushedRowBlockCount();
         // Calculate the size of this IndexRecord
-        int indexRecSize = IndexRecord.getRecordSizeForBlockCount(blockCount);
+        int indexRecSize = IndexRecord.getRecordSizeForBlockCount(flushedBlockCount + blockCount);
 
         int currentOffset = indexRecordOffset + indexRecSize + sizeOfInitialSheetRecords;
 
+        if (_flushedBlocks != null) {
+            // the flushed row blocks precede the row blocks in memory
+            for (int block = 0; block < flushedBlockCount; block++) {
+                result.addDbcell(currentOffset + _flushedBlocks.getDBCellOffset(block));
+            }
+            currentOffset += _flushedBlocks.getRecordSize();
+        }
+
         for (int block = 0; block < blockCount; block++) {
             // each row-block has a DBCELL record.
             // The offset of each DBCELL record needs to be updated in the INDEX record
@@ -17,14 +17,18 @@
 
 package org.apache.poi.hssf.record.aggregates;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import org.apache.poi.hssf.model.RecordStream;
 import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.CellRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordBase;
 import org.apache.poi.hssf.record.StringRecord;
@@ -36,7 +40,12 @@ import org.apache.poi.util.Removal;
 
 /**
  *
- * Aggregate value records together.  Things are easier to handle that way.
+ * Aggregate value records together.  Things are easier to handle that way.<p>
+ *
+ * Number and LabelSST cells, which are read from a file, are kept in a compact form
+ * of primitive arrays per row. Their record objects are only created, when the cells
+ * are iterated or the cells of their row are accessed via {@link #getCellsForRow(int)} -
+ * the serialization uses short-lived records instead.
  *
  * @author  andy
  * @author  Glen Stampoultzis (glens at apache.org)
@@ -48,6 +57,8 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	private int firstcell = INDEX_NOT_SET;
 	private int lastcell  = INDEX_NOT_SET;
 	private CellValueRecordInterface[][] records;
+	/** the cells, which haven't been materialized as records yet - same row index as {@link #records} */
+	private CompactRow[] compactRows;
 
 	/** Creates a new instance of ValueRecordsAggregate */
 
@@ -58,11 +69,93 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		firstcell = firstCellIx;
 		lastcell = lastCellIx;
 		records = pRecords;
+		compactRows = new CompactRow[pRecords.length];
 	}
 
-	public void insertCell(CellValueRecordInterface cell) {
-		short column = cell.getColumn();
-		int row = cell.getRow();
+	/**
+	 * The number and LabelSST cells of a row as type, XF index and value (the double bits
+	 * or the SST index), i.e. 11 bytes per cell instead of a record object per cell
+	 */
+	private static final class CompactRow {
+		private static final byte TYPE_NONE = 0;
+		private static final byte TYPE_NUMBER = 1;
+		private static final byte TYPE_LABEL_SST = 2;
+
+		private byte[] types;
+		private short[] xfs;
+		private long[] values;
+		private int count;
+
+		CompactRow(int column) {
+			int size = Math.max(column + 1, 10);
+			types = new byte[size];
+			xfs = new short[size];
+			values = new long[size];
+		}
+
+		int length() {
+			return types.length;
+		}
+
+		boolean hasCell(int column) {
+			return column < types.length && types[column] != TYPE_NONE;
+		}
+
+		void set(int column, byte type, short xf, long value) {
+			if (column >= types.length) {
+				int newSize = Math.max(types.length * 2, column + 1);
+				types = Arrays.copyOf(types, newSize);
+				xfs = Arrays.copyOf(xfs, newSize);
+				values = Arrays.copyOf(values, newSize);
+			}
+			if (types[column] == TYPE_NONE) {
+				count++;
+			}
+			types[column] = type;
+			xfs[column] = xf;
+			values[column] = value;
+		}
+
+		/**
+		 * @return true, if the cell existed
+		 */
+		boolean clear(int column) {
+			if (!hasCell(column)) {
+				return false;
+			}
+			types[column] = TYPE_NONE;
+			count--;
+			return true;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		int getRecordSize(int column) {
+			// record header + row, column, xf + value
+			return 4 + 6 + (types[column] == TYPE_NUMBER ? 8 : 4);
+		}
+
+		CellRecord createRecord(int row, int column) {
+			CellRecord rec;
+			if (types[column] == TYPE_NUMBER) {
+				NumberRecord nr = new NumberRecord();
+				nr.setValue(Double.longBitsToDouble(values[column]));
+				rec = nr;
+			} else {
+				LabelSSTRecord lr = new LabelSSTRecord();
+				lr.setSSTIndex((int)values[column]);
+				rec = lr;
+			}
+			rec.setRow(row);
+			rec.setColumn((short)column);
+			rec.setXFIndex(xfs[column]);
+			return rec;
+		}
+	}
+
+	private void ensureRowCapacity(int row) {
 		if (row >= records.length) {
 			CellValueRecordInterface[][] oldRecords = records;
 			int newSize = oldRecords.length * 2;
@@ -70,6 +163,94 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 				newSize = row + 1;
 			records = new CellValueRecordInterface[newSize][];
 			System.arraycopy(oldRecords, 0, records, 0, oldRecords.length);
+			compactRows = Arrays.copyOf(compactRows, newSize);
+		}
+	}
+
+	private void updateCellRange(int column) {
+		if (column < firstcell || firstcell == INDEX_NOT_SET) {
+			firstcell = column;
+		}
+		if (column > lastcell || lastcell == INDEX_NOT_SET) {
+			lastcell = column;
+		}
+	}
+
+	/**
+	 * Stores a number or LabelSST cell in the compact form
+	 *
+	 * @return false, if the record can't be stored in the compact form
+	 */
+	private boolean insertCompactCell(CellValueRecordInterface cell) {
+		byte type;
+		long value;
+		if (cell instanceof NumberRecord) {
+			type = CompactRow.TYPE_NUMBER;
+			value = Double.doubleToRawLongBits(((NumberRecord)cell).getValue());
+		} else if (cell instanceof LabelSSTRecord) {
+			type = CompactRow.TYPE_LABEL_SST;
+			value = ((LabelSSTRecord)cell).getSSTIndex();
+		} else {
+			return false;
+		}
+		int row = cell.getRow();
+		int column = cell.getColumn();
+		ensureRowCapacity(row);
+		CellValueRecordInterface[] rowCells = records[row];
+		if (rowCells != null && column < rowCells.length) {
+			rowCells[column] = null;
+		}
+		CompactRow compactRow = compactRows[row];
+		if (compactRow == null) {
+			compactRow = new CompactRow(column);
+			compactRows[row] = compactRow;
+		}
+		compactRow.set(column, type, cell.getXFIndex(), value);
+		updateCellRange(column);
+		return true;
+	}
+
+	/**
+	 * Replaces a compact cell by its record, so changes of the record are reflected in this aggregate
+	 */
+	private CellValueRecordInterface materializeCell(int row, int column) {
+		CompactRow compactRow = compactRows[row];
+		CellRecord rec = compactRow.createRecord(row, column);
+		compactRow.clear(column);
+		if (compactRow.getCount() == 0) {
+			compactRows[row] = null;
+		}
+		insertCell(rec);
+		return rec;
+	}
+
+	private boolean hasCompactCell(int row, int column) {
+		CompactRow compactRow = row < compactRows.length ? compactRows[row] : null;
+		return compactRow != null && compactRow.hasCell(column);
+	}
+
+	private int getRowWidth(int row) {
+		if (row >= records.length) {
+			return 0;
+		}
+		CellValueRecordInterface[] rowCells = records[row];
+		CompactRow compactRow = compactRows[row];
+		return Math.max(rowCells == null ? 0 : rowCells.length, compactRow == null ? 0 : compactRow.length());
+	}
+
+	private boolean hasCell(int row, int column) {
+		CellValueRecordInterface[] rowCells = records[row];
+		return (rowCells != null && column < rowCells.length && rowCells[column] != null)
+			|| hasCompactCell(row, column);
+	}
+
+	public void insertCell(CellValueRecordInterface cell) {
+		short column = cell.getColumn();
+		int row = cell.getRow();
+		ensureRowCapacity(row);
+		CompactRow compactRow = compactRows[row];
+		if (compactRow != null && compactRow.clear(column) && compactRow.getCount() == 0) {
+			compactRows[row] = null;
 		}
 		CellValueRecordInterface[] rowCells = records[row];
 		if (rowCells == null) {
@@ -91,12 +272,7 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		}
 		rowCells[column] = cell;
 
-		if (column < firstcell || firstcell == INDEX_NOT_SET) {
-			firstcell = column;
-		}
-		if (column > lastcell || lastcell == INDEX_NOT_SET) {
-			lastcell = column;
-		}
+		updateCellRange(column);
 	}
 
 	public void removeCell(CellValueRecordInterface cell) {
@@ -107,6 +283,13 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		if (row >= records.length) {
 			throw new RuntimeException("cell row is out of range");
 		}
+		CompactRow compactRow = compactRows[row];
+		if (compactRow != null && compactRow.clear(cell.getColumn())) {
+			if (compactRow.getCount() == 0) {
+				compactRows[row] = null;
+			}
+			return;
+		}
 		CellValueRecordInterface[] rowCells = records[row];
 		if (rowCells == null) {
 			throw new RuntimeException("cell row is already empty");
@@ -130,6 +313,7 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		}
 
 		records[rowIndex] = null;
+		compactRows[rowIndex] = null;
 	}
 
 
@@ -143,6 +327,9 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 						count++;
 				}
 			}
+			if (compactRows[r] != null) {
+				count += compactRows[r].getCount();
+			}
 		}
 		return count;
 	}
@@ -171,7 +358,9 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	 * @param sfh used to resolve any shared-formulas/arrays/tables for the current sheet
 	 */
 	public void construct(CellValueRecordInterface rec, RecordStream rs, SharedValueManager sfh) {
-		if (rec instanceof FormulaRecord) {
+		if (insertCompactCell(rec)) {
+			// the record object isn't referenced anymore
+		} else if (rec instanceof FormulaRecord) {
 			FormulaRecord formulaRec = (FormulaRecord)rec;
 			// read optional cached text value
 			StringRecord cachedText;
@@ -193,7 +382,7 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	public int getRowCellBlockSize(int startRow, int endRow) {
 		int result = 0;
 		for(int rowIx=startRow; rowIx<=endRow && rowIx<records.length; rowIx++) {
-			result += getRowSerializedSize(records[rowIx]);
+			result += getRowSerializedSize(rowIx);
 		}
 		return result;
 	}
@@ -203,6 +392,9 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		if (row >= records.length) {
 			return false;
 		}
+		if (compactRows[row] != null) {
+			return true;
+		}
 		CellValueRecordInterface[] rowCells=records[row];
 		if(rowCells==null) return false;
 		for(int col=0;col<rowCells.length;col++) {
@@ -211,11 +403,65 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		return false;
 	}
 
-	private static int getRowSerializedSize(CellValueRecordInterface[] rowCells) {
-		if(rowCells == null) {
-			return 0;
+	/**
+	 * @return the column index of the first cell of the row, or -1 if the row has no cells
+	 */
+	public int getFirstCellNum(int rowIndex) {
+		int width = getRowWidth(rowIndex);
+		for (int col = 0; col < width; col++) {
+			if (hasCell(rowIndex, col)) {
+				return col;
+			}
 		}
+		return INDEX_NOT_SET;
+	}
+
+	/**
+	 * @return the column index of the last cell of the row, or -1 if the row has no cells
+	 */
+	public int getLastCellNum(int rowIndex) {
+		for (int col = getRowWidth(rowIndex) - 1; col >= 0; col--) {
+			if (hasCell(rowIndex, col)) {
+				return col;
+			}
+		}
+		return INDEX_NOT_SET;
+	}
+
+	/**
+	 * Returns the cell records of a row in column order. The compact cells of the row are
+	 * replaced by their records, so changes of the records are reflected in this aggregate.
+	 *
+	 * @return the cell records of the row, which is empty if the row has no cells
+	 */
+	public CellValueRecordInterface[] getCellsForRow(int rowIndex) {
+		int width = getRowWidth(rowIndex);
+		CellValueRecordInterface[] result = new CellValueRecordInterface[width];
+		int count = 0;
+		for (int col = 0; col < width; col++) {
+			if (hasCompactCell(rowIndex, col)) {
+				result[count++] = materializeCell(rowIndex, col);
+			} else if (hasCell(rowIndex, col)) {
+				result[count++] = records[rowIndex][col];
+			}
+		}
+		return count == width ? result : Arrays.copyOf(result, count);
+	}
+
+	private int getRowSerializedSize(int rowIndex) {
+		CellValueRecordInterface[] rowCells = records[rowIndex];
+		CompactRow compactRow = compactRows[rowIndex];
 		int result = 0;
+		if (compactRow != null) {
+			for (int i = 0; i < compactRow.length(); i++) {
+				if (compactRow.hasCell(i)) {
+					result += compactRow.getRecordSize(i);
+				}
+			}
+		}
+		if(rowCells == null) {
+			return result;
+		}
 		for (int i = 0; i < rowCells.length; i++) {
 			RecordBase cvr = (RecordBase) rowCells[i];
 			if(cvr == null) {
@@ -235,13 +481,22 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	public void visitCellsForRow(int rowIndex, RecordVisitor rv) {
 
 		CellValueRecordInterface[] rowCells = records[rowIndex];
-		if(rowCells == null) {
+		CompactRow compactRow = compactRows[rowIndex];
+		if(rowCells == null && compactRow == null) {
 			throw new IllegalArgumentException("Row [" + rowIndex + "] is empty");
 		}
+		if (rowCells == null) {
+			rowCells = new CellValueRecordInterface[0];
+		}
 
-
-		for (int i = 0; i < rowCells.length; i++) {
-			RecordBase cvr = (RecordBase) rowCells[i];
+		int width = getRowWidth(rowIndex);
+		for (int i = 0; i < width; i++) {
+			if (compactRow != null && compactRow.hasCell(i)) {
+				// a short-lived record only for the serialization
+				rv.visitRecord(compactRow.createRecord(rowIndex, i));
+				continue;
+			}
+			RecordBase cvr = (i < rowCells.length) ? (RecordBase) rowCells[i] : null;
 			if(cvr == null) {
 				continue;
 			}
@@ -323,13 +578,13 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 
 			while (nextRowIndex < records.length) {
 				++nextColIndex;
-				if (records[nextRowIndex] == null || nextColIndex >= records[nextRowIndex].length) {
+				if (nextColIndex >= getRowWidth(nextRowIndex)) {
 					++nextRowIndex;
 					nextColIndex = -1;
 					continue;
 				}
 
-				if (records[nextRowIndex][nextColIndex] != null)
+				if (hasCell(nextRowIndex, nextColIndex))
 					return; // next cell found
 			}
 			// no next found
@@ -346,7 +601,9 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 
 			curRowIndex = nextRowIndex;
 			curColIndex = nextColIndex;
-			final CellValueRecordInterface ret = records[curRowIndex][curColIndex];
+			final CellValueRecordInterface ret = hasCompactCell(curRowIndex, curColIndex)
+				? materializeCell(curRowIndex, curColIndex)
+				: records[curRowIndex][curColIndex];
 			getNextPos();
 			return ret;
 		}
@@ -77,4 +77,20 @@ public abstract class ContinuableRecord extends Record {
 		}
 		return totalSize;
 	}
+
+	/**
+	 * Serializes the record(s) to the stream. In contrast to {@link #serialize(int, byte[])}, the
+	 * encoded size doesn't need to be known beforehand - the data is buffered one {@link ContinueRecord}
+	 * at a time, so large records like the SST can be streamed.
+	 *
+	 * @param out the stream to write to
+	 * @return the total length of the encoded record(s)
+	 * @since POI 4.1.1
+	 */
+	public final int serialize(LittleEndianOutput out) {
+		ContinuableRecordOutput cro = new ContinuableRecordOutput(out, getSid());
+		serialize(cro);
+		cro.terminate();
+		return cro.getTotalSize();
+	}
 }
@@ -0,0 +1,147 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record.crypto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.poifs.crypt.ChunkedCipherOutputStream;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.Encryptor;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianConsts;
+
+/**
+ * Encrypts a workbook stream, while its records are written.<p>
+ *
+ * The record headers, the records which are never encrypted and the position field of the
+ * BOUNDSHEET records are written in plain, see {@link Biff8DecryptingStream}. The encryption
+ * doesn't change the length of the data, so the plain fields can be patched in the output.<p>
+ *
+ * Closing this stream writes the last chunk, but doesn't close the underlying stream.
+ *
+ * @since POI 4.1.1
+ */
+@Internal
+public final class Biff8EncryptingStream extends OutputStream {
+    /** the size of the BOUNDSHEET position field, which needs to be unencrypted */
+    private static final int BOUNDSHEET_PLAIN_SIZE = LittleEndianConsts.INT_SIZE;
+
+    private final ChunkedCipherOutputStream _os;
+    private final byte[] _header = new byte[4];
+    private int _headerPos;
+    /** the remaining data bytes of the current record */
+    private int _remaining;
+    /** the remaining data bytes of the current record, which are written in plain */
+    private int _plainRemaining;
+
+    public Biff8EncryptingStream(OutputStream out, EncryptionInfo info) {
+        try {
+            Encryptor enc = info.getEncryptor();
+            enc.setChunkSize(Biff8DecryptingStream.RC4_REKEYING_INTERVAL);
+            _os = enc.getDataStream(new OutputStream() {
+                // the underlying stream stays open for patching the plain fields
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+            }, 0);
+        } catch (Exception e) {
+            throw new EncryptedDocumentException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{ (byte)b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n;
+            if (_headerPos < _header.length) {
+                n = Math.min(len, _header.length - _headerPos);
+                System.arraycopy(b, off, _header, _headerPos, n);
+                _headerPos += n;
+                if (_headerPos == _header.length) {
+                    startRecord();
+                }
+            } else if (_plainRemaining > 0) {
+                n = Math.min(len, _plainRemaining);
+                _os.writePlain(b, off, n);
+                _plainRemaining -= n;
+                _remaining -= n;
+            } else {
+                n = Math.min(len, _remaining);
+                _os.write(b, off, n);
+                _remaining -= n;
+            }
+            if (_headerPos == _header.length && _remaining == 0) {
+                // the next record starts
+                _headerPos = 0;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void startRecord() throws IOException {
+        final int sid = LittleEndian.getUShort(_header, 0);
+        final int len = LittleEndian.getUShort(_header, 2);
+        boolean isPlain = Biff8DecryptingStream.isNeverEncryptedRecord(sid);
+        _os.setNextRecordSize(len, isPlain);
+        _os.writePlain(_header, 0, _header.length);
+        _remaining = len;
+        if (isPlain) {
+            _plainRemaining = len;
+        } else if (sid == BoundSheetRecord.sid) {
+            // special case for the field_1_position_of_BOF (=lbPlyPos) field of
+            // the BoundSheet8 record which must be unencrypted
+            _plainRemaining = Math.min(len, BOUNDSHEET_PLAIN_SIZE);
+        } else {
+            _plainRemaining = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // the chunks can only be encrypted when they're complete
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_headerPos != 0) {
+            throw new IOException("The last record of the workbook stream is incomplete");
+        }
+        _os.close();
+    }
+}
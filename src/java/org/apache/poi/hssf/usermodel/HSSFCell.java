@@ -32,6 +32,7 @@ import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.ExtendedFormatRecord;
 import org.apache.poi.hssf.record.FormulaRecord;
 import org.apache.poi.hssf.record.HyperlinkRecord;
+import org.apache.poi.hssf.record.LabelRecord;
 import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
@@ -187,7 +188,9 @@ public class HSSFCell extends CellBase {
         switch (_cellType)
         {
             case STRING :
-                _stringValue = new HSSFRichTextString(book.getWorkbook(), (LabelSSTRecord ) cval);
+                _stringValue = (cval instanceof LabelRecord)
+                    ? new HSSFRichTextString(((LabelRecord) cval).getValue())
+                    : new HSSFRichTextString(book.getWorkbook(), (LabelSSTRecord ) cval);
                 break;
 
             case BLANK :
@@ -216,7 +219,8 @@ public class HSSFCell extends CellBase {
 
             case NumberRecord.sid :   return CellType.NUMERIC;
             case BlankRecord.sid :    return CellType.BLANK;
-            case LabelSSTRecord.sid : return CellType.STRING;
+            case LabelSSTRecord.sid :
+            case LabelRecord.sid :    return CellType.STRING;
             case BoolErrRecord.sid :
                 BoolErrRecord boolErrRecord = ( BoolErrRecord ) record;
 
@@ -320,30 +324,50 @@ public class HSSFCell extends CellBase {
                 break;
 
             case STRING :
+                String str = null;
+                if (setValue) {
+                    str = convertCellValueToString();
+                    if(str == null) {
+                        // bug 55668: don't try to store null-string when formula
+                        // results in empty/null value
+                        setCellType(CellType.BLANK, false, row, col, styleIndex);
+                        return;
+                    }
+                }
+                if (str != null && isInlineString(str)) {
+                    LabelRecord lrec = new LabelRecord();
+                    lrec.setColumn(col);
+                    lrec.setRow(row);
+                    lrec.setXFIndex(styleIndex);
+                    lrec.setValue(str);
+                    _stringValue = new HSSFRichTextString(str);
+                    if (cellType == _cellType) {
+                        // the cell type doesn't change, but the record does
+                        _sheet.getSheet().replaceValueRecord(lrec);
+                    }
+                    _record = lrec;
+                    break;
+                }
+
                 LabelSSTRecord lrec;
 
-                if (cellType == _cellType) {
+                if (cellType == _cellType && _record instanceof LabelSSTRecord) {
                     lrec = (LabelSSTRecord) _record;
                 } else {
                     lrec = new LabelSSTRecord();
                     lrec.setColumn(col);
                     lrec.setRow(row);
                     lrec.setXFIndex(styleIndex);
+                    if (cellType == _cellType) {
+                        _sheet.getSheet().replaceValueRecord(lrec);
+                    }
                 }
                 if (setValue) {
-                    String str = convertCellValueToString();
-                    if(str == null) {
-                        // bug 55668: don't try to store null-string when formula
-                        // results in empty/null value
-                        setCellType(CellType.BLANK, false, row, col, styleIndex);
-                        return;
-                    } else {
-                        int sstIndex = _book.getWorkbook().addSSTString(new UnicodeString(str));
-                        lrec.setSSTIndex(sstIndex);
-                        UnicodeString us = _book.getWorkbook().getSSTString(sstIndex);
-                        _stringValue = new HSSFRichTextString();
-                        _stringValue.setUnicodeString(us);
-                    }
+                    int sstIndex = _book.getWorkbook().addSSTString(new UnicodeString(str));
+                    lrec.setSSTIndex(sstIndex);
+                    UnicodeString us = _book.getWorkbook().getSSTString(sstIndex);
+                    _stringValue = new HSSFRichTextString();
+                    _stringValue.setUnicodeString(us);
                 }
                 _record = lrec;
                 break;
@@ -518,6 +542,27 @@ public class HSSFCell extends CellBase {
         int index;
 
         HSSFRichTextString hvalue = (HSSFRichTextString) value;
+        if (hvalue.numFormattingRuns() == 0 && isInlineString(hvalue.getString())) {
+            LabelRecord lrec = new LabelRecord();
+            lrec.setColumn(_record.getColumn());
+            lrec.setRow(_record.getRow());
+            lrec.setXFIndex(_record.getXFIndex());
+            lrec.setValue(hvalue.getString());
+            _sheet.getSheet().replaceValueRecord(lrec);
+            _record = lrec;
+            // the string isn't shared with the cell, as the cell doesn't notice its changes
+            _stringValue = new HSSFRichTextString(hvalue.getString());
+            return;
+        }
+        if (!(_record instanceof LabelSSTRecord)) {
+            // the inline string is replaced by a formatted or long string
+            LabelSSTRecord lrec = new LabelSSTRecord();
+            lrec.setColumn(_record.getColumn());
+            lrec.setRow(_record.getRow());
+            lrec.setXFIndex(_record.getXFIndex());
+            _sheet.getSheet().replaceValueRecord(lrec);
+            _record = lrec;
+        }
         UnicodeString str = hvalue.getUnicodeString();
         index = _book.getWorkbook().addSSTString(str);
         (( LabelSSTRecord ) _record).setSSTIndex(index);
@@ -838,9 +883,7 @@ public class HSSFCell extends CellBase {
             case BOOLEAN:
                 return (( BoolErrRecord ) _record).getBooleanValue();
             case STRING:
-                int sstIndex = ((LabelSSTRecord)_record).getSSTIndex();
-                String text = _book.getWorkbook().getSSTString(sstIndex).getString();
-                return Boolean.parseBoolean(text);
+                return Boolean.parseBoolean(getStringRecordValue());
             case NUMERIC:
                 return ((NumberRecord)_record).getValue() != 0;
 
@@ -857,6 +900,26 @@ public class HSSFCell extends CellBase {
         }
         throw new RuntimeException("Unexpected cell type (" + _cellType + ")");
     }
+
+    /**
+     * @return the value of a string cell, which is either stored in the cell or in the SST
+     */
+    private String getStringRecordValue() {
+        if (_record instanceof LabelRecord) {
+            return ((LabelRecord)_record).getValue();
+        }
+        int sstIndex = ((LabelSSTRecord)_record).getSSTIndex();
+        return _book.getWorkbook().getSSTString(sstIndex).getString();
+    }
+
+    /**
+     * The strings of sheets with a random access window are stored in the cells, so they don't
+     * accumulate in the SST - unless they're longer than a label record can hold
+     */
+    private boolean isInlineString(String str) {
+        return _sheet.getRandomAccessWindowSize() != -1 && str.length() <= 255;
+    }
+
     private String convertCellValueToString() {
 
         switch (_cellType) {
@@ -865,8 +928,7 @@ public class HSSFCell extends CellBase {
             case BOOLEAN:
                 return ((BoolErrRecord) _record).getBooleanValue() ? "TRUE" : "FALSE";
             case STRING:
-                int sstIndex = ((LabelSSTRecord)_record).getSSTIndex();
-                return _book.getWorkbook().getSSTString(sstIndex).getString();
+                return getStringRecordValue();
             case NUMERIC:
                 return NumberToTextConverter.toText(((NumberRecord)_record).getValue());
             case ERROR:
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment;
+import org.apache.poi.ss.formula.EvaluationProfiler;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -66,7 +67,12 @@ public class HSSFFormulaEvaluator extends BaseFormulaEvaluator {
      * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
      */
     private HSSFFormulaEvaluator(HSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
-        super(new WorkbookEvaluator(HSSFEvaluationWorkbook.create(workbook), stabilityClassifier, udfFinder));
+        this(workbook, stabilityClassifier, udfFinder, null);
+    }
+
+    private HSSFFormulaEvaluator(HSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder,
+            EvaluationProfiler profiler) {
+        super(new WorkbookEvaluator(HSSFEvaluationWorkbook.create(workbook), profiler, stabilityClassifier, udfFinder));
         _book = workbook;
     }
 
@@ -80,6 +86,21 @@ public class HSSFFormulaEvaluator extends BaseFormulaEvaluator {
     public static HSSFFormulaEvaluator create(HSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
         return new HSSFFormulaEvaluator(workbook, stabilityClassifier, udfFinder);
     }
+
+    /**
+     * @param workbook  The workbook to perform the formula evaluations in
+     * @param stabilityClassifier used to optimise caching performance. Pass <code>null</code>
+     * for the (conservative) assumption that any cell may have its definition changed after
+     * evaluation begins.
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     * @param profiler collects the evaluation statistics, see {@link EvaluationProfiler}
+     *
+     * @since POI 4.1.1
+     */
+    public static HSSFFormulaEvaluator create(HSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder,
+            EvaluationProfiler profiler) {
+        return new HSSFFormulaEvaluator(workbook, stabilityClassifier, udfFinder, profiler);
+    }
     
     @Override
     protected RichTextString createRichTextString(String str) {
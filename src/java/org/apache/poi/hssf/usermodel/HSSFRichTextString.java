@@ -86,10 +86,12 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
         }
     }
 
+    /**
+     * The string of the SST index is only looked up on first access,
+     * so loading a sheet doesn't decode all its strings
+     */
     HSSFRichTextString(InternalWorkbook book, LabelSSTRecord record) {
       setWorkbookReferences(book, record);
-
-      _string = book.getSSTString(record.getSSTIndex());
     }
 
     /** This must be called to setup the internal work book references whenever
@@ -105,7 +107,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      *  be affected by changes that we make to this string.
      */
     private UnicodeString cloneStringIfRequired() {
-        return (_book == null) ? _string : _string.copy();
+        return (_book == null) ? _string : getRawUnicodeString().copy();
     }
 
     private void addToSSTIfRequired() {
@@ -176,7 +178,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @param font          The font to use.
      */
     public void applyFont(Font font) {
-        applyFont(0, _string.getCharCount(), font);
+        applyFont(0, length(), font);
     }
 
     /**
@@ -192,7 +194,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * Returns the plain string representation.
      */
     public String getString() {
-        return _string.getString();
+        return getRawUnicodeString().getString();
     }
 
     /**
@@ -212,7 +214,10 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      *  other RichTextStrings too!
      */
     UnicodeString getRawUnicodeString() {
-    	return _string;
+      if (_string == null) {
+        _string = _book.getSSTString(_record.getSSTIndex());
+      }
+      return _string;
     }
 
     /** Used internally by the HSSFCell to set the internal string value*/
@@ -225,7 +230,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @return  the number of characters in the text.
      */
     public int length() {
-        return _string.getCharCount();
+        return getRawUnicodeString().getCharCount();
     }
 
     /**
@@ -237,10 +242,11 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      *                      index is out of range.
      */
     public short getFontAtIndex( int index ) {
-      int size = _string.getFormatRunCount();
+      UnicodeString str = getRawUnicodeString();
+      int size = str.getFormatRunCount();
       FormatRun currentRun = null;
       for (int i=0;i<size;i++) {
-        FormatRun r = _string.getFormatRun(i);
+        FormatRun r = str.getFormatRun(i);
         if (r.getCharacterPos() > index) {
             break;
         }
@@ -259,7 +265,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @see #NO_FONT
      */
     public int numFormattingRuns() {
-        return _string.getFormatRunCount();
+        return getRawUnicodeString().getFormatRunCount();
     }
 
     /**
@@ -268,7 +274,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @return  the index within the string.
      */
     public int getIndexOfFormattingRun(int index) {
-        FormatRun r = _string.getFormatRun(index);
+        FormatRun r = getRawUnicodeString().getFormatRun(index);
         return r.getCharacterPos();
     }
 
@@ -279,7 +285,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @return  the font number used.
      */
     public short getFontOfFormattingRun(int index) {
-      FormatRun r = _string.getFormatRun(index);
+      FormatRun r = getRawUnicodeString().getFormatRun(index);
       return r.getFontIndex();
     }
 
@@ -287,13 +293,13 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * Compares one rich text string to another.
      */
     public int compareTo(HSSFRichTextString r) {
-       return _string.compareTo(r._string);
+       return getRawUnicodeString().compareTo(r.getRawUnicodeString());
     }
 
     @Override
     public boolean equals(Object o) {
       if (o instanceof HSSFRichTextString) {
-        return _string.equals(((HSSFRichTextString)o)._string);
+        return getRawUnicodeString().equals(((HSSFRichTextString)o).getRawUnicodeString());
       }
       return false;
 
@@ -310,7 +316,7 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @return  the plain text representation of this string.
      */
     public String toString() {
-        return _string.toString();
+        return getRawUnicodeString().toString();
     }
 
     /**
@@ -319,6 +325,6 @@ public final class HSSFRichTextString implements Comparable<HSSFRichTextString>,
      * @param fontIndex  the font to apply.
      */
     public void applyFont( short fontIndex ) {
-        applyFont(0, _string.getCharCount(), fontIndex);
+        applyFont(0, length(), fontIndex);
     }
 }
@@ -44,6 +44,11 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     private int rowNum;
     private HSSFCell[] cells;
 
+    /**
+     * <code>true</code> while the cells of a read row haven't been created from their records
+     */
+    private boolean cellsDeferred;
+
     /**
      * reference to low level representation
      */
@@ -97,6 +102,32 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
         // subsequent calls to createCellFromRecord() will update the colIx boundaries properly
     }
 
+    /**
+     * Defers the creation of the cells of a read row, until the cells are accessed for the first time.
+     * Only HSSFSheet should do this, when an existing file is read in.
+     *
+     * @param firstCol the column index of the first cell record of this row
+     * @param lastCol the column index of the last cell record of this row
+     */
+    void deferCells(int firstCol, int lastCol) {
+        row.setFirstCol(firstCol);
+        row.setLastCol(lastCol + 1);
+        cellsDeferred = true;
+    }
+
+    /**
+     * Creates the cells of a read row from their records, if this hasn't been done yet
+     */
+    private void loadCells() {
+        if (!cellsDeferred) {
+            return;
+        }
+        cellsDeferred = false;
+        for (CellValueRecordInterface cval : sheet.getSheet().getRowsAggregate().getCellsForRow(rowNum)) {
+            createCellFromRecord(cval);
+        }
+    }
+
     /**
      * Use this to create new cells within the row and return it.
      * <p>
@@ -137,6 +168,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
             shortCellNum = (short)(0xffff - columnIndex);
         }
 
+        loadCells();
         HSSFCell cell = new HSSFCell(book, sheet, getRowNum(), shortCellNum, type);
         addCell(cell);
         sheet.getSheet().addValueRecord(getRowNum(), cell.getCellValueRecord());
@@ -155,6 +187,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
         removeCell((HSSFCell)cell, true);
     }
     private void removeCell(HSSFCell cell, boolean alsoRemoveRecords) {
+        loadCells();
 
         int column=cell.getColumnIndex();
         if(column < 0) {
@@ -186,6 +219,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      *  records too.
      */
     protected void removeAllCells() {
+        loadCells();
         for (HSSFCell cell : cells) {
             if (cell != null) {
                 removeCell(cell, true);
@@ -201,6 +235,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      * @return HSSFCell representing the low level record passed in
      */
     HSSFCell createCellFromRecord(CellValueRecordInterface cell) {
+        loadCells();
         HSSFCell hcell = new HSSFCell(book, sheet, cell);
 
         addCell(hcell);
@@ -233,6 +268,8 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
           throw new IllegalArgumentException("Invalid row number (" + rowIndex
                   + ") outside allowable range (0.." + maxrow + ")");
         }
+        // the cells are looked up by the current row number
+        loadCells();
         rowNum = rowIndex;
         if (row != null) {
             row.setRowNumber(rowIndex);   // used only for KEY comparison (HSSFRow)
@@ -277,6 +314,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      * @param newColumn The new column number (0 based)
      */
     public void moveCell(HSSFCell cell, short newColumn) {
+        loadCells();
         // Ensure the destination is free
         if(cells.length > newColumn && cells[newColumn] != null) {
             throw new IllegalArgumentException("Asked to move cell to column " + newColumn + " but there's already a cell there");
@@ -333,6 +371,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      * @return HSSFCell representing that column or null if undefined.
      */
     private HSSFCell retrieveCell(int cellIndex) {
+        loadCells();
         if(cellIndex<0||cellIndex>=cells.length) {
             return null;
         }
@@ -427,6 +466,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public int getPhysicalNumberOfCells()
     {
+        loadCells();
         int count = 0;
         for (HSSFCell cell : cells) {
             if (cell != null) {
@@ -614,6 +654,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public Iterator<Cell> cellIterator()
     {
+      loadCells();
       return new CellIterator();
     }
     /**
@@ -729,6 +770,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public void shiftCellsRight(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
         RowShifter.validateShiftParameters(firstShiftColumnIndex, lastShiftColumnIndex, step);
+        loadCells();
 
         if (lastShiftColumnIndex + step + 1 > cells.length) {
             extend(lastShiftColumnIndex + step + 1);
@@ -761,6 +803,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public void shiftCellsLeft(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
         RowShifter.validateShiftLeftParameters(firstShiftColumnIndex, lastShiftColumnIndex, step);
+        loadCells();
 
         for (int columnIndex = firstShiftColumnIndex; columnIndex <= lastShiftColumnIndex; columnIndex++){
             HSSFCell cell = getCell(columnIndex);
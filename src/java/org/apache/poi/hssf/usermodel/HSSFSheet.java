@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.usermodel;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -49,6 +50,7 @@ import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.aggregates.DataValidityTable;
 import org.apache.poi.hssf.record.aggregates.FormulaRecordAggregate;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
+import org.apache.poi.hssf.record.aggregates.RowRecordsAggregate;
 import org.apache.poi.hssf.record.aggregates.WorksheetProtectionBlock;
 import org.apache.poi.hssf.usermodel.helpers.HSSFColumnShifter;
 import org.apache.poi.hssf.usermodel.helpers.HSSFRowShifter;
@@ -78,13 +80,13 @@ import org.apache.poi.util.Configurator;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
+import org.apache.poi.util.RecordFormatException;
 
 /**
  * High level representation of a worksheet.
  */
 public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
     private static final POILogger log = POILogFactory.getLogger(HSSFSheet.class);
-    private static final int DEBUG = POILogger.DEBUG;
 
     /**
      * width of 1px in columns with default width in units of 1/256 of a character width
@@ -116,6 +118,8 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
     private HSSFPatriarch _patriarch;
     private int _firstrow = -1;
     private int _lastrow = -1;
+    private int _randomAccessWindowSize = -1;
+    private int _lastFlushedRowNum = -1;
 
     /**
      * Creates new HSSFSheet   - called by HSSFWorkbook to create a sheet from
@@ -151,6 +155,13 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
         // Aggregate drawing records
         this.getDrawingPatriarch();
         HSSFSheet sheet = new HSSFSheet(workbook, _sheet.cloneSheet());
+        sheet._randomAccessWindowSize = _randomAccessWindowSize;
+        if (hasFlushedRows()) {
+            // the flushed rows were copied, but the row numbers are only derived from the rows in memory
+            sheet._lastFlushedRowNum = _lastFlushedRowNum;
+            sheet._firstrow = _firstrow;
+            sheet._lastrow = _lastrow;
+        }
         int pos = sheet._sheet.findFirstRecordLocBySid(DrawingRecord.sid);
         DrawingRecord dr = (DrawingRecord) sheet._sheet.findFirstRecordBySid(DrawingRecord.sid);
         if (null != dr) {
@@ -195,58 +206,32 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
             row = sheet.getNextRow();
         }
 
-        Iterator<CellValueRecordInterface> iter = sheet.getCellValueIterator();
-        long timestart = System.currentTimeMillis();
-
-        if (log.check( POILogger.DEBUG )) {
-            log.log(DEBUG, "Time at start of cell creating in HSSF sheet = ",
-                    Long.valueOf(timestart));
-        }
-        HSSFRow lastrow = null;
-
-        // Add every cell to its row
-        while (iter.hasNext()) {
-            CellValueRecordInterface cval = iter.next();
+        RowRecordsAggregate rowsAggregate = sheet.getRowsAggregate();
+        int maxRow = SpreadsheetVersion.EXCEL97.getLastRowIndex();
 
-            long cellstart = System.currentTimeMillis();
-            HSSFRow hrow = lastrow;
-
-            if (hrow == null || hrow.getRowNum() != cval.getRow()) {
-                hrow = getRow(cval.getRow());
-                lastrow = hrow;
-                if (hrow == null) {
-                    /* we removed this check, see bug 47245 for the discussion around this
-                    // Some tools (like Perl module Spreadsheet::WriteExcel - bug 41187) skip the RowRecords
-                    // Excel, OpenOffice.org and GoogleDocs are all OK with this, so POI should be too.
-                    if (rowRecordsAlreadyPresent) {
-                        // if at least one row record is present, all should be present.
-                        throw new RuntimeException("Unexpected missing row when some rows already present");
-                    }*/
-
-                    // create the row record on the fly now.
-                    RowRecord rowRec = new RowRecord(cval.getRow());
-                    sheet.addRow(rowRec);
-                    hrow = createRowFromRecord(rowRec);
-                }
-            }
-            if (log.check( POILogger.DEBUG )) {
-                if (cval instanceof Record) {
-                log.log( DEBUG, "record id = " + Integer.toHexString( ( (org.apache.poi.hssf.record.Record) cval ).getSid() ) );
-                } else {
-                    log.log( DEBUG, "record = " + cval );
-                }
+        // The cells of a row are created on first access of the row's cells (see HSSFRow#deferCells),
+        // so the number and string cells, which aren't touched, stay in the compact form of the aggregate
+        for (int rowIx = 0; rowIx <= maxRow; rowIx++) {
+            if (!rowsAggregate.rowHasCells(rowIx)) {
+                continue;
             }
-            hrow.createCellFromRecord( cval );
-            if (log.check( POILogger.DEBUG )) {
-                log.log( DEBUG, "record took ",
-                    Long.valueOf( System.currentTimeMillis() - cellstart ) );
+            HSSFRow hrow = getRow(rowIx);
+            if (hrow == null) {
+                /* we removed this check, see bug 47245 for the discussion around this
+                // Some tools (like Perl module Spreadsheet::WriteExcel - bug 41187) skip the RowRecords
+                // Excel, OpenOffice.org and GoogleDocs are all OK with this, so POI should be too.
+                if (rowRecordsAlreadyPresent) {
+                    // if at least one row record is present, all should be present.
+                    throw new RuntimeException("Unexpected missing row when some rows already present");
+                }*/
+
+                // create the row record on the fly now.
+                RowRecord rowRec = new RowRecord(rowIx);
+                sheet.addRow(rowRec);
+                hrow = createRowFromRecord(rowRec);
             }
-
+            hrow.deferCells(rowsAggregate.getFirstCellNum(rowIx), rowsAggregate.getLastCellNum(rowIx));
         }
-        if (log.check( POILogger.DEBUG )) {
-            log.log(DEBUG, "total sheet cell creation took ",
-                Long.valueOf(System.currentTimeMillis() - timestart));
-    }
     }
 
     /**
@@ -259,15 +244,125 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
      */
     @Override
     public HSSFRow createRow(int rownum) {
+        if (_lastFlushedRowNum != -1 && rownum <= _lastFlushedRowNum) {
+            throw new IllegalArgumentException(
+                "Attempting to write a row[" + rownum + "] " +
+                "in the range [0," + _lastFlushedRowNum + "] that is already written to disk.");
+        }
         HSSFRow row = new HSSFRow(_workbook, this, rownum);
         // new rows inherit default height from the sheet
         row.setHeight(getDefaultRowHeight());
         row.getRowRecord().setBadFontHeight(false);
 
         addRow(row, true);
+
+        if (_randomAccessWindowSize >= 0 && _rows.size() > _randomAccessWindowSize) {
+            try {
+                flushRows(_randomAccessWindowSize);
+            } catch (IOException ioe) {
+                throw new RecordFormatException("Can't flush the rows before row " + rownum
+                    + " of sheet '" + getSheetName() + "' to a temporary file", ioe);
+            }
+        }
         return row;
     }
 
+    /**
+     * Specifies how many rows can be accessed at most via {@link #getRow(int)}.<p>
+     *
+     * When a new row is created via {@link #createRow(int)} and the total number of rows exceeds
+     * the specified value, then the row with the lowest index value is flushed to a temporary
+     * file and cannot be accessed via {@link #getRow(int)} anymore. The rows are flushed in
+     * row blocks of 32 rows, so up to 31 additional rows are kept in memory.<p>
+     *
+     * The flushed rows need to be completed before they are flushed. Rows can't be created
+     * at or before the last flushed row and the flushed rows are not considered by operations
+     * on rows like {@link #shiftRows(int, int, int)} or the formula evaluation.<p>
+     *
+     * The strings of the cells, which are set after the window has been enabled, are stored in the
+     * cells instead of the workbook's shared string table, so they don't accumulate in memory.
+     * This doesn't apply to formatted strings and strings with more than 255 characters.
+     * A rich text, which is set as value of such a cell, isn't linked to the cell, i.e. changing
+     * its formatting afterwards doesn't change the cell.
+     *
+     * @param value the number of rows, which are kept in memory,
+     *  or -1 for no limit (the default)
+     *
+     * @since POI 4.1.1
+     */
+    public void setRandomAccessWindowSize(int value) {
+        if (value == 0 || value < -1) {
+            throw new IllegalArgumentException("RandomAccessWindowSize must be either -1 or a positive integer");
+        }
+        _randomAccessWindowSize = value;
+    }
+
+    /**
+     * Specifies how many rows can be accessed at most via {@link #getRow(int)}.
+     *
+     * @return the number of rows, which are kept in memory, or -1 for no limit
+     *
+     * @since POI 4.1.1
+     */
+    public int getRandomAccessWindowSize() {
+        return _randomAccessWindowSize;
+    }
+
+    /**
+     * Flushes the rows to a temporary file, so that the specified number of rows
+     * (rounded up to complete row blocks of 32 rows) remains in memory
+     *
+     * @param remaining the number of rows to keep in memory
+     * @throws IOException if the temporary file can't be written
+     *
+     * @since POI 4.1.1
+     */
+    public void flushRows(int remaining) throws IOException {
+        int lastFlushed = _sheet.getRowsAggregate().flushRows(_rows.size() - remaining);
+        if (lastFlushed != -1) {
+            _rows.headMap(lastFlushed, true).clear();
+            _lastFlushedRowNum = lastFlushed;
+        }
+    }
+
+    /**
+     * Flushes all rows to a temporary file
+     *
+     * @throws IOException if the temporary file can't be written
+     *
+     * @since POI 4.1.1
+     */
+    public void flushRows() throws IOException {
+        flushRows(0);
+    }
+
+    /**
+     * @return the last row index, which has been flushed or -1, if no row has been flushed
+     *
+     * @since POI 4.1.1
+     */
+    public int getLastFlushedRowNum() {
+        return _lastFlushedRowNum;
+    }
+
+    /**
+     * @return true, if the sheet has rows, which have been flushed to a temporary file
+     *
+     * @since POI 4.1.1
+     */
+    public boolean hasFlushedRows() {
+        return _lastFlushedRowNum != -1;
+    }
+
+    /**
+     * Deletes the temporary file of the flushed rows
+     *
+     * @return true, if there were no flushed rows or the temporary file was deleted
+     */
+    /* package */ boolean dispose() {
+        return _sheet.getRowsAggregate().disposeFlushedRows();
+    }
+
     /**
      * Used internally to create a high level Row object from a low level row object.
      * USed when reading an existing file
@@ -373,7 +468,8 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
         if (addLow) {
             _sheet.addRow(row.getRowRecord());
         }
-        boolean firstRow = _rows.size() == 1;
+        // the first and last row numbers include the flushed rows
+        boolean firstRow = _rows.size() == 1 && _lastFlushedRowNum == -1;
         if (row.getRowNum() > getLastRowNum() || firstRow) {
             _lastrow = row.getRowNum();
         }
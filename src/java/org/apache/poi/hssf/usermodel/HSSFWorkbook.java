@@ -25,10 +25,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +44,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -66,23 +73,27 @@ import org.apache.poi.hssf.model.WorkbookRecordList;
 import org.apache.poi.hssf.record.AbstractEscherHolderRecord;
 import org.apache.poi.hssf.record.BackupRecord;
 import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.DBCellRecord;
 import org.apache.poi.hssf.record.DrawingGroupRecord;
 import org.apache.poi.hssf.record.ExtendedFormatRecord;
 import org.apache.poi.hssf.record.FilePassRecord;
 import org.apache.poi.hssf.record.FontRecord;
+import org.apache.poi.hssf.record.IndexRecord;
 import org.apache.poi.hssf.record.LabelRecord;
 import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.NameRecord;
 import org.apache.poi.hssf.record.RecalcIdRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
 import org.apache.poi.hssf.record.SSTRecord;
 import org.apache.poi.hssf.record.UnknownRecord;
+import org.apache.poi.hssf.record.aggregates.FlushedRowBlocks;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
 import org.apache.poi.hssf.record.common.UnicodeString;
-import org.apache.poi.hssf.record.crypto.Biff8DecryptingStream;
+import org.apache.poi.hssf.record.cont.ContinuableRecord;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptingStream;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
-import org.apache.poi.poifs.crypt.ChunkedCipherOutputStream;
 import org.apache.poi.poifs.crypt.Decryptor;
 import org.apache.poi.poifs.crypt.EncryptionInfo;
 import org.apache.poi.poifs.crypt.EncryptionMode;
@@ -91,12 +102,13 @@ import org.apache.poi.poifs.crypt.Encryptor;
 import org.apache.poi.poifs.filesystem.DirectoryEntry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.DocumentNode;
+import org.apache.poi.poifs.filesystem.DocumentOutputStream;
 import org.apache.poi.poifs.filesystem.EntryUtils;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.poifs.filesystem.FilteringDirectoryNode;
 import org.apache.poi.poifs.filesystem.Ole10Native;
-import org.apache.poi.poifs.filesystem.POIFSDocument;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.poifs.filesystem.StreamingPOIFSWriter;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.formula.FormulaType;
@@ -113,12 +125,14 @@ import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.Configurator;
 import org.apache.poi.util.HexDump;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.IntList;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.LittleEndian;
-import org.apache.poi.util.LittleEndianByteArrayInputStream;
-import org.apache.poi.util.LittleEndianByteArrayOutputStream;
+import org.apache.poi.util.LittleEndianConsts;
+import org.apache.poi.util.LittleEndianOutputStream;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
+import org.apache.poi.util.RecordFormatException;
 import org.apache.poi.util.Removal;
 
 /**
@@ -133,7 +147,6 @@ import org.apache.poi.util.Removal;
 public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss.usermodel.Workbook {
 
     //arbitrarily selected; may need to increase
-    private static final int MAX_RECORD_LENGTH = 100_000;
     private static final int MAX_IMAGE_LENGTH = 50_000_000;
 
     private static final Pattern COMMA_PATTERN = Pattern.compile(",");
@@ -203,6 +216,18 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     private MissingCellPolicy missingCellPolicy = MissingCellPolicy.RETURN_NULL_AND_BLANK;
 
+    /**
+     * The number of rows, which are kept in memory for new sheets, see
+     * {@link HSSFSheet#setRandomAccessWindowSize(int)}
+     */
+    private int randomAccessWindowSize = -1;
+
+    /**
+     * The number of threads, which serialize the loaded sheets on writing, see
+     * {@link #setSheetSerializationParallelism(int)}
+     */
+    private int sheetSerializationParallelism = 1;
+
     private static final POILogger log = POILogFactory.getLogger(HSSFWorkbook.class);
 
     /**
@@ -322,6 +347,33 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes)
             throws IOException {
+        this(directory, preserveNodes, false);
+    }
+
+    /**
+     * given a POI POIFSFileSystem object, and a specific directory
+     * within it, read in its Workbook and populate the high and
+     * low level models.<p>
+     *
+     * If the sheets are loaded on demand, only the workbook globals are parsed initially.
+     * The records of a sheet are parsed on its first access, e.g. by {@link #getSheetAt(int)}
+     * or by iterating over the sheets. The sheets which are never accessed are copied
+     * unchanged when the workbook is written. Encrypted workbooks and workbooks with
+     * invalid sheet offsets are always loaded completely.
+     *
+     * @param directory     the POI filesystem directory to process from
+     * @param preserveNodes whether to preserve other nodes, such as
+     *                      macros.  This takes more memory, so only say yes if you
+     *                      need to. If set, will store all of the POIFSFileSystem
+     *                      in memory
+     * @param loadSheetsOnDemand whether to parse the sheets on their first access
+     * @throws IOException if the stream cannot be read
+     * @see org.apache.poi.poifs.filesystem.POIFSFileSystem
+     *
+     * @since POI 4.1.1
+     */
+    public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes, boolean loadSheetsOnDemand)
+            throws IOException {
         super(directory);
         String workbookName = getWorkbookDirEntryName(directory);
 
@@ -340,6 +392,23 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         //  it happens to be spelled.
         InputStream stream = directory.createDocumentInputStream(workbookName);
 
+        if (loadSheetsOnDemand) {
+            byte[] data = IOUtils.toByteArray(stream);
+            if (!readSheetsOnDemand(data)) {
+                readSheets(new ByteArrayInputStream(data));
+            }
+        } else {
+            readSheets(stream);
+        }
+
+        for (int i = 0; i < workbook.getNumNames(); ++i) {
+            NameRecord nameRecord = workbook.getNameRecord(i);
+            HSSFName name = new HSSFName(this, nameRecord, workbook.getNameCommentRecord(nameRecord));
+            names.add(name);
+        }
+    }
+
+    private void readSheets(InputStream stream) {
         List<org.apache.poi.hssf.record.Record> records = RecordFactory.createRecords(stream);
 
         workbook = InternalWorkbook.createWorkbook(records);
@@ -358,12 +427,39 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
                 log.log(POILogger.WARN, "Unsupported BOF found of type " + eb.getType());
             }
         }
+    }
 
-        for (int i = 0; i < workbook.getNumNames(); ++i) {
-            NameRecord nameRecord = workbook.getNameRecord(i);
-            HSSFName name = new HSSFName(this, nameRecord, workbook.getNameCommentRecord(nameRecord));
-            names.add(name);
+    /**
+     * Reads the workbook globals and locates the sheet substreams
+     *
+     * @return false, if the sheets can't be loaded on demand and need to be read sequentially
+     */
+    private boolean readSheetsOnDemand(byte[] data) {
+        int globalsEnd = LazySheetList.findSubstreamEnd(data, 0);
+        if (globalsEnd < 0) {
+            return false;
+        }
+        List<org.apache.poi.hssf.record.Record> records =
+            RecordFactory.createRecords(new ByteArrayInputStream(data, 0, globalsEnd));
+        InternalWorkbook book = InternalWorkbook.createWorkbook(records);
+        LazySheetList sheets = LazySheetList.create(this, book, data, globalsEnd);
+        if (sheets == null) {
+            log.log(POILogger.INFO, "The sheet offsets are invalid, the sheets are read sequentially");
+            return false;
         }
+        setPropertiesFromWorkbook(book);
+        _sheets = sheets;
+        return true;
+    }
+
+    /**
+     * Parses a sheet substream of a workbook, which is loaded on demand
+     */
+    /* package */ HSSFSheet readSheet(byte[] data, int offset, int length) {
+        List<org.apache.poi.hssf.record.Record> records =
+            RecordFactory.createRecords(new ByteArrayInputStream(data, offset, length));
+        convertLabelRecords(records, 0);
+        return new HSSFSheet(this, InternalSheet.createSheet(new RecordStream(records, 0)));
     }
 
     /**
@@ -788,6 +884,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     @Override
     public HSSFSheet createSheet() {
         HSSFSheet sheet = new HSSFSheet(this);
+        sheet.setRandomAccessWindowSize(randomAccessWindowSize);
 
         _sheets.add(sheet);
         workbook.setSheetName(_sheets.size() - 1, "Sheet" + (_sheets.size() - 1));
@@ -801,6 +898,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      * create an HSSFSheet from an existing sheet in the HSSFWorkbook.
      *
      * @return HSSFSheet representing the cloned sheet.
+     * @throws IllegalStateException if rows of the sheet have been flushed, see {@link HSSFSheet#flushRows()}
      */
 
     @Override
@@ -915,6 +1013,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         }
 
         HSSFSheet sheet = new HSSFSheet(this);
+        sheet.setRandomAccessWindowSize(randomAccessWindowSize);
 
         workbook.setSheetName(_sheets.size(), sheetname);
         _sheets.add(sheet);
@@ -986,9 +1085,20 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         return _sheets.size();
     }
 
-    private HSSFSheet[] getSheets() {
+    /**
+     * @return the sheets, the sheets which are loaded on demand and haven't been accessed
+     *  yet are <code>null</code>
+     */
+    private HSSFSheet[] getLoadedSheets() {
         HSSFSheet[] result = new HSSFSheet[_sheets.size()];
-        _sheets.toArray(result);
+        if (_sheets instanceof LazySheetList) {
+            LazySheetList lazySheets = (LazySheetList)_sheets;
+            for (int i = 0; i < result.length; i++) {
+                result[i] = lazySheets.getLoaded(i);
+            }
+        } else {
+            _sheets.toArray(result);
+        }
         return result;
     }
 
@@ -1289,9 +1399,88 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     @Override
     public void close() throws IOException {
+        dispose();
         super.close();
     }
 
+    /**
+     * Sets the number of rows, which are kept in memory for the sheets created afterwards.
+     * The other rows are flushed to temporary files, which are deleted by {@link #dispose()}
+     * or {@link #close()}.
+     *
+     * @param value the number of rows, which are kept in memory, or -1 for no limit (the default)
+     * @see HSSFSheet#setRandomAccessWindowSize(int)
+     *
+     * @since POI 4.1.1
+     */
+    public void setRandomAccessWindowSize(int value) {
+        if (value == 0 || value < -1) {
+            throw new IllegalArgumentException("rowAccessWindowSize must be either -1 or a positive integer");
+        }
+        randomAccessWindowSize = value;
+    }
+
+    /**
+     * @return the number of rows, which are kept in memory for new sheets, or -1 for no limit
+     *
+     * @since POI 4.1.1
+     */
+    public int getRandomAccessWindowSize() {
+        return randomAccessWindowSize;
+    }
+
+    /**
+     * Deletes the temporary files of the rows, which have been flushed by the sheets.
+     * The workbook can't be written afterwards, if any rows have been flushed.
+     *
+     * @return true, if all temporary files were deleted successfully
+     *
+     * @since POI 4.1.1
+     */
+    public boolean dispose() {
+        boolean success = true;
+        for (HSSFSheet sheet : getLoadedSheets()) {
+            if (sheet != null) {
+                success = sheet.dispose() && success;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Enables the parallel serialization of the sheets on writing. The loaded sheets are serialized
+     * into memory buffers by worker threads, before the workbook stream is written - the sheets with
+     * flushed rows and the sheets, which haven't been accessed, are still written one record at a time.
+     * This trades memory for speed on workbooks with several large sheets. The sheets must not be
+     * modified while the workbook is written.
+     *
+     * @param threads the number of worker threads - values below 2 serialize the sheets one
+     *  at a time into the output (the default)
+     *
+     * @since POI 4.1.1
+     */
+    public void setSheetSerializationParallelism(int threads) {
+        sheetSerializationParallelism = Math.max(1, threads);
+    }
+
+    /**
+     * @return the number of threads, which serialize the sheets on writing, 1 for the sequential mode
+     *
+     * @since POI 4.1.1
+     */
+    public int getSheetSerializationParallelism() {
+        return sheetSerializationParallelism;
+    }
+
+    private boolean hasFlushedRows() {
+        for (HSSFSheet sheet : getLoadedSheets()) {
+            if (sheet != null && sheet.hasFlushedRows()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Write out this workbook to the currently open {@link File} via the
      * writeable {@link POIFSFileSystem} it was opened as.
@@ -1310,8 +1499,10 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         // Update the Workbook stream in the file
         DocumentNode workbookNode = (DocumentNode) dir.getEntry(
                 getWorkbookDirEntryName(dir));
-        POIFSDocument workbookDoc = new POIFSDocument(workbookNode);
-        workbookDoc.replaceContents(new ByteArrayInputStream(getBytes()));
+        WorkbookStreamWriter wsw = new WorkbookStreamWriter();
+        try (OutputStream os = new DocumentOutputStream(workbookNode)) {
+            wsw.write(os);
+        }
 
         // Update the properties streams in the file
         writeProperties();
@@ -1336,16 +1527,30 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     @Override
     public void write(File newFile) throws IOException {
-        try (POIFSFileSystem fs = POIFSFileSystem.create(newFile)) {
-            write(fs);
-            fs.writeFilesystem();
+        WorkbookStreamWriter wsw = new WorkbookStreamWriter();
+        // the workbook stream is written directly to the file and the stream positions are
+        // back-patched, so the records don't need to be sized beforehand
+        try (FileChannel channel = FileChannel.open(newFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             POIFSFileSystem fs = new POIFSFileSystem();
+             StreamingPOIFSWriter writer = new StreamingPOIFSWriter(channel)) {
+            try (StreamingPOIFSWriter.DocumentStream stream = writer.getRoot().createDocumentStream("Workbook")) {
+                wsw.write(stream, stream::patch);
+            }
+            writeOtherEntries(fs);
+            writer.getRoot().copyEntries(fs.getRoot());
+            writer.write();
         }
     }
 
     /**
-     * Method write - write out this workbook to an {@link OutputStream}. Constructs
-     * a new POI POIFSFileSystem, passes in the workbook binary representation and
-     * writes it out.
+     * Method write - write out this workbook to an {@link OutputStream}. The workbook
+     * stream is streamed into the OLE2 container, so the written workbook isn't buffered
+     * in memory or in a temporary file.
+     * <p>
+     * As the stream positions can't be back-patched in a sequential output, the loaded
+     * sheets are sized in an extra pass over their records before they are written.
+     * Only {@link #write(File)} and {@link #getBytes()} avoid this sizing pass.
      * <p>
      * If {@code stream} is a {@link java.io.FileOutputStream} on a networked drive
      * or has a high cost/latency associated with each written byte,
@@ -1358,23 +1563,26 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     @Override
     public void write(OutputStream stream) throws IOException {
-        try (POIFSFileSystem fs = new POIFSFileSystem()) {
-            write(fs);
-            fs.writeFilesystem(stream);
+        WorkbookStreamWriter wsw = new WorkbookStreamWriter();
+        // the properties and the preserved nodes are collected beforehand,
+        // they are only copied when the workbook stream has been written
+        try (POIFSFileSystem fs = new POIFSFileSystem();
+             StreamingPOIFSWriter writer = new StreamingPOIFSWriter(stream)) {
+            writeOtherEntries(fs);
+            writer.getRoot().addDocument("Workbook", wsw.getTotalSize(), wsw::write);
+            writer.getRoot().copyEntries(fs.getRoot());
+            writer.write();
         }
     }
 
     /**
-     * Writes the workbook out to a brand new, empty POIFS
+     * Writes the entries besides the workbook stream, i.e. the properties and the preserved nodes
      */
-    private void write(POIFSFileSystem fs) throws IOException {
+    private void writeOtherEntries(POIFSFileSystem fs) throws IOException {
         // For tracking what we've written out, used if we're
         //  going to be preserving nodes
         List<String> excepts = new ArrayList<>(1);
 
-        // Write out the Workbook stream
-        fs.createDocument(new ByteArrayInputStream(getBytes()), "Workbook");
-
         // Write out our HPFS properties, if we have them
         writeProperties(fs, excepts);
 
@@ -1405,146 +1613,454 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     }
 
     /**
-     * Totals the sizes of all sheet records and eventually serializes them
+     * Overwrites the already written data of the workbook stream
      */
-    private static final class SheetRecordCollector implements RecordVisitor {
+    @FunctionalInterface
+    private interface StreamPatcher {
+        void patch(long position, byte[] data) throws IOException;
+    }
 
-        private List<org.apache.poi.hssf.record.Record> _list;
+    /**
+     * An in-memory buffer, whose written data can be overwritten
+     */
+    private static final class PatchableByteArrayOutputStream extends ByteArrayOutputStream {
+        void patch(long position, byte[] data) {
+            if (position < 0 || position + data.length > count) {
+                throw new IndexOutOfBoundsException("Can only patch the written data");
+            }
+            System.arraycopy(data, 0, buf, (int)position, data.length);
+        }
+    }
+
+    /**
+     * Writes the workbook stream record by record.<p>
+     *
+     * The BOUNDSHEET records of the globals hold the stream positions of the sheets and the INDEX
+     * records of the sheets hold the positions of their DBCELL records. When the workbook stream is
+     * written to a file, these positions are back-patched, so the records are serialized in a single
+     * pass. This is also done for the in-memory stream of {@link #getBytes()}. A sequential output
+     * needs the size of the workbook stream beforehand, so the sheets are sized first in this case.
+     * The records are serialized through a reusable buffer, the flushed rows of the sheets are copied
+     * from their temporary files and the unread sheets are copied from the original workbook stream.
+     * An encrypted workbook stream is encrypted on the fly.
+     */
+    private final class WorkbookStreamWriter {
+        private final HSSFSheet[] _sheets;
+        /** the sheets, which have been serialized by the worker threads, null for sheets which are streamed */
+        private SerializedSheet[] _serialized;
+        /** the sizes of the sheet substreams, null until the sheets have been sized */
+        private int[] _sizes;
+        /** the INDEX records of the sized sheets, which are written in place of the placeholders */
+        private IndexRecord[] _indexRecords;
         private int _totalSize;
 
-        public SheetRecordCollector() {
-            _totalSize = 0;
-            _list = new ArrayList<>(128);
+        WorkbookStreamWriter() {
+            _sheets = getLoadedSheets();
+
+            updateEncryptionInfo();
+
+            // before getting the workbook size we must tell the sheets that
+            // serialization is about to occur.
+            workbook.preSerialize();
+            for (HSSFSheet sheet : _sheets) {
+                if (sheet != null) {
+                    sheet.getSheet().preSerialize();
+                    sheet.preSerialize();
+                }
+            }
         }
 
-        public int getTotalSize() {
-            return _totalSize;
+        /**
+         * Sizes the sheets and sets their stream positions in the BOUNDSHEET records
+         *
+         * @return the size of the workbook stream
+         */
+        int getTotalSize() throws IOException {
+            if (_sizes != null) {
+                return _totalSize;
+            }
+            serializeInParallel();
+            int nSheets = _sheets.length;
+            int totalSize = workbook.getSize();
+            _sizes = new int[nSheets];
+            _indexRecords = new IndexRecord[nSheets];
+            for (int k = 0; k < nSheets; k++) {
+                workbook.setSheetBof(k, totalSize);
+                if (_sheets[k] == null) {
+                    // the sheets which haven't been accessed are copied unchanged
+                    _sizes[k] = getLazySheets().getUnreadLength(k);
+                } else if (_serialized[k] != null) {
+                    _sizes[k] = _serialized[k].getSize();
+                } else {
+                    RecordStreamWriter sizer = new RecordStreamWriter(null);
+                    _sheets[k].getSheet().visitContainedRecords(sizer, totalSize);
+                    _sizes[k] = sizer.getPosition();
+                    _indexRecords[k] = sizer.getIndexRecord();
+                }
+                totalSize += _sizes[k];
+            }
+            _totalSize = totalSize;
+            return totalSize;
         }
 
-        @Override
-        public void visitRecord(org.apache.poi.hssf.record.Record r) {
-            _list.add(r);
-            _totalSize += r.getRecordSize();
+        /**
+         * Writes the workbook stream to a sequential output
+         */
+        void write(OutputStream stream) throws IOException {
+            getTotalSize();
+            EncryptionInfo ei = getEncryptionInfo();
+            OutputStream out = (ei == null) ? stream : new Biff8EncryptingStream(stream, ei);
+
+            RecordStreamWriter rsw = new RecordStreamWriter(out);
+            workbook.visitContainedRecords(rsw, 0);
+            rsw.checkException();
+            for (int k = 0; k < _sheets.length; k++) {
+                int bof = rsw.getPosition();
+                if (_sheets[k] == null || _serialized[k] != null) {
+                    writeSheet(k, rsw);
+                } else {
+                    // the INDEX record of the sizing pass replaces the placeholder
+                    rsw.startSheet(_indexRecords[k]);
+                    _sheets[k].getSheet().visitContainedRecords(rsw);
+                    rsw.checkException();
+                }
+                int size = rsw.getPosition() - bof;
+                if (size != _sizes[k]) {
+                    // Wrong offset values have been passed in the call to setSheetBof() above.
+                    // For books with more than one sheet, this discrepancy would cause excel
+                    // to report errors and loose data while reading the workbook
+                    throw new IllegalStateException("Actual serialized sheet size (" + size
+                            + ") differs from pre-calculated size (" + _sizes[k]
+                            + ") for sheet (" + k + ")");
+                }
+            }
 
+            if (out != stream) {
+                // writes the last encrypted chunk
+                out.close();
+            }
         }
 
-        public int serialize(int offset, byte[] data) {
-            int result = 0;
-            for (org.apache.poi.hssf.record.Record rec : _list) {
-                result += rec.serialize(offset + result, data);
+        /**
+         * Writes the workbook stream to an output, whose written data can be patched,
+         * and back-patches the stream positions
+         *
+         * @param stream the output, i.e. a document stream of a file or an in-memory buffer
+         * @param patcher overwrites the already written data of {@code stream}
+         */
+        void write(OutputStream stream, StreamPatcher patcher) throws IOException {
+            serializeInParallel();
+            EncryptionInfo ei = getEncryptionInfo();
+            OutputStream out = (ei == null) ? stream : new Biff8EncryptingStream(stream, ei);
+
+            RecordStreamWriter rsw = new RecordStreamWriter(out);
+            workbook.visitContainedRecords(rsw, 0);
+            rsw.checkException();
+            int[] bofs = new int[_sheets.length];
+            for (int k = 0; k < _sheets.length; k++) {
+                bofs[k] = rsw.getPosition();
+                workbook.setSheetBof(k, bofs[k]);
+                rsw.startSheet(null);
+                if (_sheets[k] == null || _serialized[k] != null) {
+                    writeSheet(k, rsw);
+                } else if (ei != null) {
+                    // the encrypted INDEX record can't be patched, so its DBCELL positions are sized beforehand
+                    _sheets[k].getSheet().visitContainedRecords(rsw, bofs[k]);
+                    rsw.checkException();
+                } else {
+                    _sheets[k].getSheet().visitContainedRecords(rsw);
+                    rsw.checkException();
+                    if (rsw.getIndexRecord() != null) {
+                        IndexRecord index = rsw.getPositionedIndexRecord(0);
+                        patcher.patch(rsw.getIndexPosition(), index.serialize());
+                    }
+                }
+            }
+
+            if (out != stream) {
+                // writes the last encrypted chunk
+                out.close();
+            }
+
+            // the stream positions of the BOUNDSHEET records are never encrypted
+            IntList boundSheets = rsw.getBoundSheetPositions();
+            if (boundSheets.size() != bofs.length) {
+                throw new IllegalStateException("Found " + boundSheets.size()
+                        + " BOUNDSHEET records for " + bofs.length + " sheets");
+            }
+            byte[] bof = new byte[LittleEndianConsts.INT_SIZE];
+            for (int k = 0; k < bofs.length; k++) {
+                LittleEndian.putInt(bof, 0, bofs[k]);
+                patcher.patch(boundSheets.get(k) + 4L, bof);
             }
-            return result;
         }
-    }
 
+        /**
+         * Copies an unread sheet or a sheet, which has been serialized by a worker thread
+         */
+        private void writeSheet(int index, RecordStreamWriter rsw) throws IOException {
+            if (_sheets[index] == null) {
+                rsw.copyUnread(getLazySheets(), index);
+            } else {
+                _serialized[index].writeTo(rsw);
+            }
+        }
+
+        /**
+         * Serializes the loaded sheets without flushed rows by worker threads into memory buffers,
+         * if the parallel serialization is enabled
+         */
+        private void serializeInParallel() throws IOException {
+            if (_serialized != null) {
+                return;
+            }
+            _serialized = new SerializedSheet[_sheets.length];
+            List<Integer> parallel = new ArrayList<>();
+            for (int k = 0; k < _sheets.length; k++) {
+                if (_sheets[k] != null && !_sheets[k].hasFlushedRows()) {
+                    parallel.add(k);
+                }
+            }
+            int threads = Math.min(sheetSerializationParallelism, parallel.size());
+            if (threads < 2) {
+                return;
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "poi-hssf-sheet");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<SerializedSheet>> tasks = new ArrayList<>();
+                for (int k : parallel) {
+                    final InternalSheet sheet = _sheets[k].getSheet();
+                    tasks.add(pool.submit(() -> new SerializedSheet(sheet)));
+                }
+                for (int i = 0; i < tasks.size(); i++) {
+                    _serialized[parallel.get(i)] = await(tasks.get(i));
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        private LazySheetList getLazySheets() {
+            return (LazySheetList)HSSFWorkbook.this._sheets;
+        }
+    }
 
     /**
-     * Method getBytes - get the bytes of just the HSSF portions of the XLS file.
-     * Use this to construct a POI POIFSFileSystem yourself.
-     *
-     * @return byte[] array containing the binary representation of this workbook and all contained
-     * sheets, rows, cells, etc.
+     * Waits for the serialization of a sheet and rethrows its exception
      */
-    public byte[] getBytes() {
-        if (log.check(POILogger.DEBUG)) {
-            log.log(DEBUG, "HSSFWorkbook.getBytes()");
+    private static SerializedSheet await(Future<SerializedSheet> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while serializing the sheets");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
         }
+    }
+
+    /**
+     * A sheet, which has been serialized into memory. The DBCELL positions of its INDEX record
+     * are relative to the start of the sheet and are patched, when the sheet is written.
+     */
+    private static final class SerializedSheet {
+        private final ByteArrayOutputStream _data = new ByteArrayOutputStream();
+        private final RecordStreamWriter _rsw = new RecordStreamWriter(_data);
 
-        HSSFSheet[] sheets = getSheets();
-        int nSheets = sheets.length;
+        SerializedSheet(InternalSheet sheet) throws IOException {
+            _rsw.startSheet(null);
+            sheet.visitContainedRecords(_rsw);
+            _rsw.checkException();
+        }
 
-        updateEncryptionInfo();
+        int getSize() {
+            return _data.size();
+        }
 
-        // before getting the workbook size we must tell the sheets that
-        // serialization is about to occur.
-        workbook.preSerialize();
-        for (HSSFSheet sheet : sheets) {
-            sheet.getSheet().preSerialize();
-            sheet.preSerialize();
+        void writeTo(RecordStreamWriter rsw) throws IOException {
+            byte[] data = _data.toByteArray();
+            if (_rsw.getIndexRecord() != null) {
+                IndexRecord index = _rsw.getPositionedIndexRecord(rsw.getPosition());
+                index.serialize(_rsw.getIndexPosition(), data);
+            }
+            rsw.write(data);
         }
+    }
+
+    /**
+     * Serializes the visited records through a reusable buffer into a stream or only totals their
+     * sizes. The positions of the BOUNDSHEET, INDEX and DBCELL records are tracked for back-patching.
+     */
+    private static final class RecordStreamWriter implements RecordVisitor {
+        private final OutputStream _out;
+        private final LittleEndianOutputStream _leo;
+        private byte[] _buffer = new byte[RecordInputStream.MAX_RECORD_DATA_SIZE + 4];
+        private int _position;
+        private IOException _exception;
+        private final IntList _boundSheetPositions = new IntList();
+        private IndexRecord _indexRecord;
+        private int _indexPosition;
+        private final IntList _dbCellPositions = new IntList();
 
-        int totalsize = workbook.getSize();
+        /**
+         * @param out the destination, without a destination the records are only sized
+         */
+        RecordStreamWriter(OutputStream out) {
+            _out = out;
+            _leo = (out == null) ? null : new LittleEndianOutputStream(out);
+        }
 
-        // pre-calculate all the sheet sizes and set BOF indexes
-        SheetRecordCollector[] srCollectors = new SheetRecordCollector[nSheets];
-        for (int k = 0; k < nSheets; k++) {
-            workbook.setSheetBof(k, totalsize);
-            SheetRecordCollector src = new SheetRecordCollector();
-            sheets[k].getSheet().visitContainedRecords(src, totalsize);
-            totalsize += src.getTotalSize();
-            srCollectors[k] = src;
+        /**
+         * Resets the tracked INDEX and DBCELL records for the next sheet
+         *
+         * @param indexRecord the INDEX record, which is written in place of the visited one,
+         *  or null to write the visited one
+         */
+        void startSheet(IndexRecord indexRecord) {
+            _indexRecord = indexRecord;
+            _dbCellPositions.clear();
         }
 
-        byte[] retval = new byte[totalsize];
-        int pos = workbook.serialize(0, retval);
+        @Override
+        public void visitRecord(org.apache.poi.hssf.record.Record r) {
+            if (_exception != null) {
+                return;
+            }
+            if (r instanceof BoundSheetRecord) {
+                _boundSheetPositions.add(_position);
+            } else if (r instanceof IndexRecord) {
+                if (_indexRecord == null) {
+                    _indexRecord = (IndexRecord)r;
+                } else {
+                    r = _indexRecord;
+                }
+                _indexPosition = _position;
+            } else if (r instanceof DBCellRecord) {
+                _dbCellPositions.add(_position);
+            } else if (r instanceof FlushedRowBlocks) {
+                FlushedRowBlocks blocks = (FlushedRowBlocks)r;
+                for (int i = 0; i < blocks.getBlockCount(); i++) {
+                    _dbCellPositions.add(_position + blocks.getDBCellOffset(i));
+                }
+            }
 
-        for (int k = 0; k < nSheets; k++) {
-            SheetRecordCollector src = srCollectors[k];
-            int serializedSize = src.serialize(pos, retval);
-            if (serializedSize != src.getTotalSize()) {
-                // Wrong offset values have been passed in the call to setSheetBof() above.
-                // For books with more than one sheet, this discrepancy would cause excel
-                // to report errors and loose data while reading the workbook
-                throw new IllegalStateException("Actual serialized sheet size (" + serializedSize
-                        + ") differs from pre-calculated size (" + src.getTotalSize()
-                        + ") for sheet (" + k + ")");
-                // TODO - add similar sanity check to ensure that Sheet.serializeIndexRecord() does not write mis-aligned offsets either
+            try {
+                if (_out == null) {
+                    _position += r.getRecordSize();
+                } else if (r instanceof FlushedRowBlocks) {
+                    ((FlushedRowBlocks)r).copyTo(_out);
+                    _position += r.getRecordSize();
+                } else if (r instanceof ContinuableRecord) {
+                    // large records like the SST are streamed one CONTINUE record at a time
+                    _position += ((ContinuableRecord)r).serialize(_leo);
+                } else {
+                    int size = r.getRecordSize();
+                    if (size > _buffer.length) {
+                        _buffer = IOUtils.safelyAllocate(Math.max(size, 2L * _buffer.length), Integer.MAX_VALUE);
+                    }
+                    // the serialized size is counted, so a wrong record size can be detected
+                    int len = r.serialize(0, _buffer);
+                    _out.write(_buffer, 0, len);
+                    _position += len;
+                }
+            } catch (IOException e) {
+                _exception = e;
+            } catch (RuntimeException e) {
+                // LittleEndianOutputStream wraps the IOExceptions
+                if (!(e.getCause() instanceof IOException)) {
+                    throw e;
+                }
+                _exception = (IOException)e.getCause();
             }
-            pos += serializedSize;
         }
 
-        encryptBytes(retval);
+        void write(byte[] data) throws IOException {
+            _out.write(data);
+            _position += data.length;
+        }
 
-        return retval;
+        void copyUnread(LazySheetList sheets, int index) throws IOException {
+            _position += sheets.copyUnread(index, _out, _position);
+        }
+
+        /**
+         * @return the number of written or sized bytes
+         */
+        int getPosition() {
+            return _position;
+        }
+
+        IntList getBoundSheetPositions() {
+            return _boundSheetPositions;
+        }
+
+        /**
+         * @return the INDEX record of the current sheet, or null if it hasn't been visited
+         */
+        IndexRecord getIndexRecord() {
+            return _indexRecord;
+        }
+
+        int getIndexPosition() {
+            return _indexPosition;
+        }
+
+        /**
+         * @param offset the position of this writer's output within the workbook stream
+         * @return the INDEX record of the current sheet with the positions of the visited DBCELL records
+         */
+        IndexRecord getPositionedIndexRecord(int offset) {
+            if (_dbCellPositions.size() != _indexRecord.getNumDbcells()) {
+                throw new IllegalStateException("Found " + _dbCellPositions.size()
+                        + " DBCELL records for " + _indexRecord.getNumDbcells() + " INDEX entries");
+            }
+            IndexRecord result = _indexRecord.copy();
+            for (int i = 0; i < _dbCellPositions.size(); i++) {
+                result.setDbcell(i, offset + _dbCellPositions.get(i));
+            }
+            return result;
+        }
+
+        void checkException() throws IOException {
+            if (_exception != null) {
+                throw _exception;
+            }
+        }
     }
 
-    @SuppressWarnings("resource")
-    void encryptBytes(byte[] buf) {
-        EncryptionInfo ei = getEncryptionInfo();
-        if (ei == null) {
-            return;
+    /**
+     * Method getBytes - get the bytes of just the HSSF portions of the XLS file.
+     * Use this to construct a POI POIFSFileSystem yourself.
+     *
+     * @return byte[] array containing the binary representation of this workbook and all contained
+     * sheets, rows, cells, etc.
+     */
+    public byte[] getBytes() {
+        if (log.check(POILogger.DEBUG)) {
+            log.log(DEBUG, "HSSFWorkbook.getBytes()");
         }
-        Encryptor enc = ei.getEncryptor();
-        int initialOffset = 0;
-        LittleEndianByteArrayInputStream plain = new LittleEndianByteArrayInputStream(buf, 0); // NOSONAR
-        LittleEndianByteArrayOutputStream leos = new LittleEndianByteArrayOutputStream(buf, 0); // NOSONAR
-        enc.setChunkSize(Biff8DecryptingStream.RC4_REKEYING_INTERVAL);
-        byte[] tmp = new byte[1024];
+
+        WorkbookStreamWriter wsw = new WorkbookStreamWriter();
+        // the stream positions are back-patched in the buffer, so the sheets don't need to be sized
+        PatchableByteArrayOutputStream bos = new PatchableByteArrayOutputStream();
         try {
-            ChunkedCipherOutputStream os = enc.getDataStream(leos, initialOffset);
-            int totalBytes = 0;
-            while (totalBytes < buf.length) {
-                IOUtils.readFully(plain, tmp, 0, 4);
-                final int sid = LittleEndian.getUShort(tmp, 0);
-                final int len = LittleEndian.getUShort(tmp, 2);
-                boolean isPlain = Biff8DecryptingStream.isNeverEncryptedRecord(sid);
-                os.setNextRecordSize(len, isPlain);
-                os.writePlain(tmp, 0, 4);
-                if (sid == BoundSheetRecord.sid) {
-                    // special case for the field_1_position_of_BOF (=lbPlyPos) field of
-                    // the BoundSheet8 record which must be unencrypted
-                    byte[] bsrBuf = IOUtils.safelyAllocate(len, MAX_RECORD_LENGTH);
-                    plain.readFully(bsrBuf);
-                    os.writePlain(bsrBuf, 0, 4);
-                    os.write(bsrBuf, 4, len - 4);
-                } else {
-                    int todo = len;
-                    while (todo > 0) {
-                        int nextLen = Math.min(todo, tmp.length);
-                        plain.readFully(tmp, 0, nextLen);
-                        if (isPlain) {
-                            os.writePlain(tmp, 0, nextLen);
-                        } else {
-                            os.write(tmp, 0, nextLen);
-                        }
-                        todo -= nextLen;
-                    }
-                }
-                totalBytes += 4 + len;
-            }
-            os.close();
-        } catch (Exception e) {
-            throw new EncryptedDocumentException(e);
+            wsw.write(bos, bos::patch);
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new RecordFormatException("Can't serialize the workbook", e);
         }
     }
 
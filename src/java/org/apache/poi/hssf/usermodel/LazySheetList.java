@@ -0,0 +1,252 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.IndexRecord;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * The sheets of a workbook, which was opened with loading the sheets on demand.<p>
+ *
+ * Until a sheet is accessed, only the location of its substream within the workbook
+ * stream is known. The records of the sheet are parsed on its first access, the sheets
+ * which are never accessed are copied unchanged when the workbook is written.
+ */
+/* package */ final class LazySheetList extends AbstractList<HSSFSheet> implements RandomAccess {
+
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    /** the offset of the DBCELL positions within the data of the INDEX record */
+    private static final int INDEX_DBCELL_OFFSET = 16;
+
+    private final HSSFWorkbook _workbook;
+    /** the loaded sheets, <code>null</code> for sheets which haven't been accessed yet */
+    private final List<HSSFSheet> _sheets;
+    /** the substreams of the unread sheets, <code>null</code> for loaded sheets */
+    private final List<SheetSubstream> _substreams;
+    private byte[] _data;
+    private int _unreadCount;
+
+    private static final class SheetSubstream {
+        final int offset;
+        final int length;
+
+        SheetSubstream(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private LazySheetList(HSSFWorkbook workbook, byte[] data, List<SheetSubstream> substreams) {
+        _workbook = workbook;
+        _data = data;
+        _substreams = substreams;
+        _unreadCount = substreams.size();
+        _sheets = new ArrayList<>(substreams.size());
+        for (int i = 0; i < _unreadCount; i++) {
+            _sheets.add(null);
+        }
+    }
+
+    /**
+     * Locates the sheet substreams by the positions of the BOUNDSHEET records
+     *
+     * @param workbook the workbook, which parses the sheets on demand
+     * @param book the workbook globals
+     * @param data the workbook stream
+     * @param globalsEnd the end of the globals substream within the workbook stream
+     * @return the list of the unread sheets or <code>null</code>, if the sheet substreams
+     *  can't be located reliably and the sheets need to be read sequentially
+     */
+    static LazySheetList create(HSSFWorkbook workbook, InternalWorkbook book, byte[] data, int globalsEnd) {
+        int nSheets = book.getNumSheets();
+        List<SheetSubstream> substreams = new ArrayList<>(nSheets);
+        int end = globalsEnd;
+        for (int i = 0; i < nSheets; i++) {
+            int bof = book.getSheetBof(i);
+            // the sheets are read in the order of their substreams, but matched to
+            // the BOUNDSHEET records by their index, hence the substreams need to be sorted
+            if (bof < end || bof + RECORD_HEADER_SIZE + 4 > data.length
+                || LittleEndian.getUShort(data, bof) != BOFRecord.sid
+                || !isSupportedType(LittleEndian.getUShort(data, bof + RECORD_HEADER_SIZE + 2))) {
+                return null;
+            }
+            end = findSubstreamEnd(data, bof);
+            if (end < 0) {
+                return null;
+            }
+            substreams.add(new SheetSubstream(bof, end - bof));
+        }
+        return new LazySheetList(workbook, data, substreams);
+    }
+
+    private static boolean isSupportedType(int bofType) {
+        return bofType == BOFRecord.TYPE_WORKSHEET
+            || bofType == BOFRecord.TYPE_CHART
+            || bofType == BOFRecord.TYPE_EXCEL_4_MACRO;
+    }
+
+    /**
+     * Finds the end of the substream by scanning the record headers
+     *
+     * @param data the workbook stream
+     * @param offset the position of the BOF record
+     * @return the position after the matching EOF record or -1, if the substream is truncated,
+     *  doesn't start with a BOF record or is encrypted
+     */
+    static int findSubstreamEnd(byte[] data, int offset) {
+        int depth = 0;
+        int pos = offset;
+        while (pos + RECORD_HEADER_SIZE <= data.length) {
+            int sid = LittleEndian.getUShort(data, pos);
+            int next = pos + RECORD_HEADER_SIZE + LittleEndian.getUShort(data, pos + 2);
+            if (next > data.length || (pos == offset && sid != BOFRecord.sid) || sid == FilePassRecord.sid) {
+                return -1;
+            }
+            if (sid == BOFRecord.sid) {
+                depth++;
+            } else if (sid == EOFRecord.sid && --depth == 0) {
+                return next;
+            }
+            pos = next;
+        }
+        return -1;
+    }
+
+    @Override
+    public HSSFSheet get(int index) {
+        HSSFSheet sheet = _sheets.get(index);
+        if (sheet == null) {
+            SheetSubstream ss = _substreams.get(index);
+            sheet = _workbook.readSheet(_data, ss.offset, ss.length);
+            _sheets.set(index, sheet);
+            _substreams.set(index, null);
+            if (--_unreadCount == 0) {
+                // all sheets have been parsed, so the workbook stream isn't needed anymore
+                _data = null;
+            }
+        }
+        return sheet;
+    }
+
+    /**
+     * @return the sheet or <code>null</code>, if the sheet hasn't been accessed yet
+     */
+    HSSFSheet getLoaded(int index) {
+        return _sheets.get(index);
+    }
+
+    @Override
+    public int size() {
+        return _sheets.size();
+    }
+
+    @Override
+    public HSSFSheet set(int index, HSSFSheet sheet) {
+        HSSFSheet old = get(index);
+        _sheets.set(index, sheet);
+        return old;
+    }
+
+    @Override
+    public void add(int index, HSSFSheet sheet) {
+        _sheets.add(index, sheet);
+        _substreams.add(index, null);
+        modCount++;
+    }
+
+    /**
+     * Removes the sheet - the sheet is parsed before, as it might be added at another position
+     */
+    @Override
+    public HSSFSheet remove(int index) {
+        HSSFSheet old = get(index);
+        _sheets.remove(index);
+        _substreams.remove(index);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        // an unread sheet can't be known by the caller, so there's no need to parse the sheets
+        return (o == null) ? -1 : _sheets.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return (o == null) ? -1 : _sheets.lastIndexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    /**
+     * @return the size of the unread sheet substream
+     */
+    int getUnreadLength(int index) {
+        return _substreams.get(index).length;
+    }
+
+    /**
+     * Streams the unread sheet substream and adjusts the stream positions of the DBCELL
+     * records within the INDEX records to the new location of the substream. Only the
+     * INDEX records are copied for this, the other records are written from the data
+     * of the original workbook stream.
+     *
+     * @param out the destination
+     * @param position the new position of the substream within the workbook stream
+     * @return the size of the sheet substream
+     */
+    int copyUnread(int index, OutputStream out, int position) throws IOException {
+        SheetSubstream ss = _substreams.get(index);
+        int delta = position - ss.offset;
+        int end = ss.offset + ss.length;
+        int start = ss.offset;
+        for (int pos = ss.offset; delta != 0 && pos < end; ) {
+            int sid = LittleEndian.getUShort(_data, pos);
+            int size = RECORD_HEADER_SIZE + LittleEndian.getUShort(_data, pos + 2);
+            if (sid == IndexRecord.sid) {
+                out.write(_data, start, pos - start);
+                byte[] indexRecord = Arrays.copyOfRange(_data, pos, pos + size);
+                for (int i = RECORD_HEADER_SIZE + INDEX_DBCELL_OFFSET; i + 4 <= size; i += 4) {
+                    LittleEndian.putInt(indexRecord, i, LittleEndian.getInt(indexRecord, i) + delta);
+                }
+                out.write(indexRecord);
+                start = pos + size;
+            }
+            pos += size;
+        }
+        out.write(_data, start, end - start);
+        return ss.length;
+    }
+}
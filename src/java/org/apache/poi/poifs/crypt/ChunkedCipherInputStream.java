@@ -20,6 +20,8 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.crypto.Cipher;
 
@@ -44,6 +46,8 @@ public abstract class ChunkedCipherInputStream extends LittleEndianInputStream {
     private int lastIndex;
     private long pos;
     private boolean chunkIsValid;
+    /** the chunks, which are decrypted ahead in the parallel mode - null in the sequential mode */
+    private ParallelReader parallelReader;
 
     public ChunkedCipherInputStream(InputStream stream, long size, int chunkSize)
     throws GeneralSecurityException {
@@ -76,6 +80,22 @@ public abstract class ChunkedCipherInputStream extends LittleEndianInputStream {
     protected abstract Cipher initCipherForBlock(Cipher existing, int block)
     throws GeneralSecurityException;
 
+    /**
+     * Enables the parallel mode, which reads the chunks ahead and decrypts them in batches on
+     * worker threads. This is only possible, if each chunk is encrypted independently, i.e.
+     * {@link #initCipherForBlock(Cipher, int)} only depends on the block index and can be called
+     * from other threads. The decrypted data is the same as in the sequential mode.
+     *
+     * @param threads the number of worker threads - values below 2 keep the sequential mode
+     *
+     * @since POI 4.1.1
+     */
+    protected void setParallelism(int threads) {
+        if (threads > 1 && chunkSize != -1 && parallelReader == null) {
+            parallelReader = new ParallelReader(threads);
+        }
+    }
+
     @Override
     public int read() throws IOException {
         byte[] b = { 0 };
@@ -176,6 +196,10 @@ public abstract class ChunkedCipherInputStream extends LittleEndianInputStream {
     private void nextChunk() throws GeneralSecurityException, IOException {
         if (chunkSize != -1) {
             int index = (int)(pos >> chunkBits);
+            if (parallelReader != null) {
+                parallelReader.nextChunk(index);
+                return;
+            }
             initCipherForBlock(cipher, index);
 
             if (lastIndex != index) {
@@ -188,20 +212,33 @@ public abstract class ChunkedCipherInputStream extends LittleEndianInputStream {
             lastIndex = index + 1;
         }
 
+        int totalBytes = readChunkData(plain, 0, pos);
+
+        System.arraycopy(plain, 0, chunk, 0, totalBytes);
+
+        invokeCipher(totalBytes, totalBytes == chunkSize);
+    }
+
+    /**
+     * Reads the encrypted data of the next chunk
+     *
+     * @param buf the buffer to fill
+     * @param offset the offset within the buffer
+     * @param chunkPos the stream position of the chunk
+     * @return the number of read bytes
+     */
+    private int readChunkData(byte[] buf, int offset, long chunkPos) throws IOException {
         final int todo = (int)Math.min(size, chunk.length);
         int readBytes, totalBytes = 0;
         do {
-            readBytes = super.read(plain, totalBytes, todo-totalBytes);
+            readBytes = super.read(buf, offset+totalBytes, todo-totalBytes);
             totalBytes += Math.max(0, readBytes);
         } while (readBytes != -1 && totalBytes < todo);
 
-        if (readBytes == -1 && pos+totalBytes < size && size < Integer.MAX_VALUE) {
+        if (readBytes == -1 && chunkPos+totalBytes < size && size < Integer.MAX_VALUE) {
             throw new EOFException("buffer underrun");
         }
-
-        System.arraycopy(plain, 0, chunk, 0, totalBytes);
-
-        invokeCipher(totalBytes, totalBytes == chunkSize);
+        return totalBytes;
     }
 
     /**
@@ -272,4 +309,127 @@ public abstract class ChunkedCipherInputStream extends LittleEndianInputStream {
     public long getPos() {
         return pos;
     }
+
+    @Override
+    public void close() throws IOException {
+        if (parallelReader != null) {
+            parallelReader.shutdown();
+        }
+        super.close();
+    }
+
+    /**
+     * Reads the chunks ahead in the calling thread and decrypts them in batches on the worker threads.
+     * The batches are kept in a ring of reusable buffers and are consumed in the order of the chunks.
+     */
+    private final class ParallelReader {
+        private final ExecutorService pool;
+        private final Batch[] ring;
+        private int head, count;
+        /** the index of the next chunk, which is read from the underlying stream */
+        private int nextIndex;
+        private boolean eof;
+
+        private final class Batch {
+            final byte[] data = new byte[ChunkedCipherWorkers.BATCH_CHUNKS * chunk.length];
+            final byte[] raw = new byte[ChunkedCipherWorkers.BATCH_CHUNKS * chunk.length];
+            final int[] lengths = new int[ChunkedCipherWorkers.BATCH_CHUNKS];
+            int firstIndex, chunks;
+            Cipher batchCipher;
+            Future<?> task;
+            /** a read error, which is thrown when the failed chunk is requested */
+            IOException error;
+        }
+
+        ParallelReader(int threads) {
+            pool = ChunkedCipherWorkers.createPool(threads);
+            ring = new Batch[threads * 2];
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new Batch();
+            }
+            nextIndex = lastIndex;
+        }
+
+        void nextChunk(int index) throws IOException, GeneralSecurityException {
+            while (true) {
+                fill();
+                if (count == 0) {
+                    throw new EOFException("buffer underrun");
+                }
+                Batch b = ring[head];
+                // wait for the task in any case, as the buffers are reused
+                ChunkedCipherWorkers.await(b.task);
+                int last = b.firstIndex + b.chunks - 1;
+                if (index <= last) {
+                    int i = index - b.firstIndex;
+                    if (b.error != null && index == last) {
+                        throw b.error;
+                    }
+                    int len = b.lengths[i];
+                    System.arraycopy(b.raw, i * chunk.length, plain, 0, len);
+                    System.arraycopy(b.data, i * chunk.length, chunk, 0, len);
+                    if (index == last) {
+                        release();
+                    }
+                    lastIndex = index + 1;
+                    return;
+                }
+                // the chunks of this batch have been skipped
+                release();
+            }
+        }
+
+        private void release() {
+            head = (head + 1) % ring.length;
+            count--;
+        }
+
+        private void fill() {
+            while (!eof && count < ring.length && ((long)nextIndex << chunkBits) < size) {
+                final Batch b = ring[(head + count) % ring.length];
+                b.firstIndex = nextIndex;
+                b.chunks = 0;
+                b.error = null;
+                while (b.chunks < ChunkedCipherWorkers.BATCH_CHUNKS && ((long)nextIndex << chunkBits) < size) {
+                    int offset = b.chunks * chunk.length;
+                    try {
+                        b.lengths[b.chunks] = readChunkData(b.raw, offset, (long)nextIndex << chunkBits);
+                    } catch (IOException e) {
+                        b.error = e;
+                        b.lengths[b.chunks] = 0;
+                        eof = true;
+                    }
+                    b.chunks++;
+                    nextIndex++;
+                    if (eof) {
+                        break;
+                    }
+                }
+                System.arraycopy(b.raw, 0, b.data, 0, b.chunks * chunk.length);
+                b.task = pool.submit(() -> {
+                    decrypt(b);
+                    return null;
+                });
+                count++;
+            }
+        }
+
+        private void decrypt(Batch b) throws GeneralSecurityException {
+            int chunks = (b.error == null) ? b.chunks : b.chunks - 1;
+            for (int i = 0; i < chunks; i++) {
+                b.batchCipher = initCipherForBlock(b.batchCipher, b.firstIndex + i);
+                int offset = i * chunk.length;
+                int len = b.lengths[i];
+                if (len == chunkSize) {
+                    b.batchCipher.doFinal(b.data, offset, len, b.data, offset);
+                } else {
+                    b.batchCipher.update(b.data, offset, len, b.data, offset);
+                }
+            }
+        }
+
+        void shutdown() {
+            pool.shutdownNow();
+        }
+    }
 }
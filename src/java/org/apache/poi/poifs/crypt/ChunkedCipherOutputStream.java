@@ -23,8 +23,13 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -34,8 +39,10 @@ import javax.crypto.ShortBufferException;
 import com.zaxxer.sparsebits.SparseBitSet;
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.poifs.filesystem.POIFSWriterEvent;
 import org.apache.poi.poifs.filesystem.POIFSWriterListener;
+import org.apache.poi.poifs.filesystem.StreamingPOIFSWriter;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.LittleEndian;
@@ -59,6 +66,10 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
     private final SparseBitSet plainByteFlags;
     private final File fileOut;
     private final DirectoryNode dir;
+    /** the target file, when the encrypted package is written directly to a new OLE2 file */
+    private final FileChannel targetChannel;
+    private final StreamingPOIFSWriter targetWriter;
+    private final StreamingPOIFSWriter.DocumentStream targetPackage;
 
     private long pos;
     private long totalPos;
@@ -68,6 +79,8 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
     // and therefore need to change the cipher too
     private Cipher cipher;
     private boolean isClosed;
+    /** the chunks, which are encrypted on worker threads in the parallel mode - null in the sequential mode */
+    private ParallelWriter parallelWriter;
 
     public ChunkedCipherOutputStream(DirectoryNode dir, int chunkSize) throws IOException, GeneralSecurityException {
         super(null);
@@ -80,6 +93,9 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
         this.fileOut.deleteOnExit();
         this.out = new FileOutputStream(fileOut);
         this.dir = dir;
+        this.targetChannel = null;
+        this.targetWriter = null;
+        this.targetPackage = null;
         this.cipher = initCipherForBlock(null, 0, false);
     }
 
@@ -92,9 +108,46 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
         this.chunkBits = Integer.bitCount(cs-1);
         this.fileOut = null;
         this.dir = null;
+        this.targetChannel = null;
+        this.targetWriter = null;
+        this.targetPackage = null;
         this.cipher = initCipherForBlock(null, 0, false);
     }
 
+    /**
+     * Creates a stream, which writes the encrypted package directly to a new OLE2 file.
+     * Neither the plain nor the encrypted data is buffered in temporary files - the encrypted
+     * chunks are written to their final location and the other entries are appended on close.
+     *
+     * @param target the file to be created or overwritten
+     * @param chunkSize the chunk size
+     *
+     * @since POI 4.1.1
+     */
+    public ChunkedCipherOutputStream(File target, int chunkSize) throws IOException, GeneralSecurityException {
+        super(null);
+        this.chunkSize = chunkSize;
+        int cs = chunkSize == STREAMING ? 4096 : chunkSize;
+        this.chunk = IOUtils.safelyAllocate(cs, MAX_RECORD_LENGTH);
+        this.plainByteFlags = new SparseBitSet(cs);
+        this.chunkBits = Integer.bitCount(cs-1);
+        this.fileOut = null;
+        this.dir = null;
+        this.targetChannel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.targetWriter = new StreamingPOIFSWriter(targetChannel);
+            this.targetPackage = targetWriter.getRoot().createDocumentStream(DEFAULT_POIFS_ENTRY);
+            // the StreamSize is filled in on close
+            targetPackage.write(new byte[LittleEndianConsts.LONG_SIZE]);
+            this.out = targetPackage;
+            this.cipher = initCipherForBlock(null, 0, false);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            IOUtils.closeQuietly(targetChannel);
+            throw e;
+        }
+    }
+
     public final Cipher initCipherForBlock(int block, boolean lastChunk) throws IOException, GeneralSecurityException {
         return initCipherForBlock(cipher, block, lastChunk);
     }
@@ -109,9 +162,38 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
     protected abstract Cipher initCipherForBlock(Cipher existing, int block, boolean lastChunk)
     throws IOException, GeneralSecurityException;
 
+    /**
+     * Enables the parallel mode, which encrypts the complete chunks in batches on worker threads.
+     * This is only possible, if each chunk is encrypted independently, i.e.
+     * {@link #initCipherForBlock(Cipher, int, boolean)} only depends on the block index and can be
+     * called from other threads. The encrypted data is the same as in the sequential mode.
+     *
+     * @param threads the number of worker threads - values below 2 keep the sequential mode
+     *
+     * @since POI 4.1.1
+     */
+    protected void setParallelism(int threads) {
+        if (threads > 1 && chunkSize != STREAMING && parallelWriter == null) {
+            parallelWriter = new ParallelWriter(threads);
+        }
+    }
+
     protected abstract void calculateChecksum(File fileOut, int oleStreamSize)
     throws GeneralSecurityException, IOException;
 
+    /**
+     * Calculates the checksum, when the encrypted package is written directly to a file
+     *
+     * @param encryptedData the encrypted data without the StreamSize field
+     * @param streamSize the size of the unencrypted data
+     *
+     * @since POI 4.1.1
+     */
+    protected void calculateChecksum(InputStream encryptedData, long streamSize)
+    throws GeneralSecurityException, IOException {
+        throw new EncryptedDocumentException("this cipher stream doesn't support writing directly to a file");
+    }
+
     protected abstract void createEncryptionInfoEntry(DirectoryNode dir, File tmpFile)
     throws IOException, GeneralSecurityException;
 
@@ -156,7 +238,14 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
             off += nextLen;
             len -= nextLen;
             if ((pos & chunkMask) == 0) {
-                writeChunk(len > 0);
+                if (parallelWriter != null && plainByteFlags.isEmpty()) {
+                    parallelWriter.add((int)(pos >> chunkBits) - 1);
+                } else {
+                    if (parallelWriter != null) {
+                        parallelWriter.drain();
+                    }
+                    writeChunk(len > 0);
+                }
             }
         }
     }
@@ -264,8 +353,21 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
         isClosed = true;
 
         try {
+            if (parallelWriter != null) {
+                try {
+                    parallelWriter.drain();
+                } finally {
+                    parallelWriter.shutdown();
+                }
+            }
+
             writeChunk(false);
 
+            if (targetWriter != null) {
+                finishTarget();
+                return;
+            }
+
             super.close();
 
             if (fileOut != null) {
@@ -276,9 +378,37 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
             }
         } catch (GeneralSecurityException e) {
             throw new IOException(e);
+        } finally {
+            if (targetWriter != null) {
+                targetWriter.close();
+                targetChannel.close();
+            }
         }
     }
     
+    /**
+     * Fills in the StreamSize, calculates the checksum from the written data and appends the
+     * encryption info entries and the OLE2 structures to the target file
+     */
+    private void finishTarget() throws IOException, GeneralSecurityException {
+        byte[] streamSize = new byte[LittleEndianConsts.LONG_SIZE];
+        LittleEndian.putLong(streamSize, 0, pos);
+        targetPackage.patch(0, streamSize);
+
+        try (InputStream is = targetPackage.getInputStream()) {
+            IOUtils.skipFully(is, LittleEndianConsts.LONG_SIZE);
+            calculateChecksum(is, pos);
+        }
+        targetPackage.close();
+
+        // the encryption info entries are small, so they're created in memory
+        try (POIFSFileSystem entries = new POIFSFileSystem()) {
+            createEncryptionInfoEntry(entries.getRoot(), null);
+            targetWriter.getRoot().copyEntries(entries.getRoot());
+            targetWriter.write();
+        }
+    }
+
     protected byte[] getChunk() {
         return chunk;
     }
@@ -305,6 +435,96 @@ public abstract class ChunkedCipherOutputStream extends FilterOutputStream {
     public void setNextRecordSize(int recordSize, boolean isPlain) {
     }
     
+    /**
+     * Encrypts the complete chunks in batches on the worker threads. The batches are kept in a ring
+     * of reusable buffers and are written in the order of the chunks.
+     */
+    private final class ParallelWriter {
+        private final ExecutorService pool;
+        private final Batch[] ring;
+        private int head, count;
+        /** the batch, which is filled - null if the next chunk starts a new batch */
+        private Batch filling;
+
+        private final class Batch {
+            final byte[] data = new byte[ChunkedCipherWorkers.BATCH_CHUNKS * chunk.length];
+            int firstIndex, chunks;
+            Cipher batchCipher;
+            Future<?> task;
+        }
+
+        ParallelWriter(int threads) {
+            pool = ChunkedCipherWorkers.createPool(threads);
+            ring = new Batch[threads * 2];
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new Batch();
+            }
+        }
+
+        void add(int index) throws IOException {
+            if (filling == null) {
+                if (count == ring.length) {
+                    writeHead();
+                }
+                filling = ring[(head + count) % ring.length];
+                filling.firstIndex = index;
+                filling.chunks = 0;
+            }
+            System.arraycopy(chunk, 0, filling.data, filling.chunks * chunk.length, chunk.length);
+            if (++filling.chunks == ChunkedCipherWorkers.BATCH_CHUNKS) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            final Batch b = filling;
+            b.task = pool.submit(() -> {
+                encrypt(b);
+                return null;
+            });
+            count++;
+            filling = null;
+        }
+
+        private void encrypt(Batch b) throws IOException, GeneralSecurityException {
+            for (int i = 0; i < b.chunks; i++) {
+                b.batchCipher = initCipherForBlock(b.batchCipher, b.firstIndex + i, false);
+                int offset = i * chunk.length;
+                b.batchCipher.doFinal(b.data, offset, chunk.length, b.data, offset);
+            }
+        }
+
+        private void writeHead() throws IOException {
+            Batch b = ring[head];
+            try {
+                ChunkedCipherWorkers.await(b.task);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("can't re-/initialize cipher", e);
+            }
+            int len = b.chunks * chunk.length;
+            out.write(b.data, 0, len);
+            written += len;
+            head = (head + 1) % ring.length;
+            count--;
+        }
+
+        /**
+         * Writes all complete chunks, so the sequential mode can continue
+         */
+        void drain() throws IOException {
+            if (filling != null) {
+                submit();
+            }
+            while (count > 0) {
+                writeHead();
+            }
+        }
+
+        void shutdown() {
+            pool.shutdownNow();
+        }
+    }
+
     private class EncryptedPackageWriter implements POIFSWriterListener {
         @Override
         public void processPOIFSWriterEvent(POIFSWriterEvent event) {
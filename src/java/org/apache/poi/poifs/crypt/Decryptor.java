@@ -91,6 +91,21 @@ public abstract class Decryptor implements GenericRecord {
         throw new EncryptedDocumentException("this decryptor doesn't support changing the chunk size");
     }
 
+    /**
+     * Sets the number of worker threads, which decrypt the chunks of the data stream ahead.
+     * Needs to be set before the data stream is requested.
+     * Only the implementations, which encrypt the chunks independently, support a parallel decryption.
+     *
+     * @param parallelism the number of worker threads, 1 for the sequential decryption
+     *
+     * @since POI 4.1.1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism != 1) {
+            throw new EncryptedDocumentException("this decryptor doesn't support a parallel decryption");
+        }
+    }
+
     /**
      * Initializes a cipher object for a given block index for encryption
      *
@@ -0,0 +1,199 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.poifs.crypt;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.util.StringUtil;
+
+/**
+ * A process-wide cache of the hashed passwords, which are the intermediate keys derived by
+ * {@link CryptoFunctions#hashPassword(String, HashAlgorithm, byte[], int)}.<p>
+ *
+ * Deriving the key of a password with a spin count of 100.000 takes much longer than
+ * decrypting a typical document, so opening the same document repeatedly is dominated by
+ * the key derivation. With the cache, only the first verification of a password against a
+ * salt iterates the hash function.<p>
+ *
+ * The cache is disabled by default, as it keeps password equivalent data in memory.
+ * When enabled, it holds at most {@link #getMaxEntries()} entries and evicts the least
+ * recently used entry. The entries are keyed by a SHA-256 digest of the password, the salt,
+ * the hash algorithm and the spin count and are overwritten with zeros, when they are evicted
+ * or removed via {@link #evict(byte[])} or {@link #clear()}.
+ *
+ * @since POI 4.1.1
+ */
+public final class DerivedKeyCache {
+
+    private static int maxEntries;
+
+    private static final Map<CacheKey, byte[]> CACHE = new LinkedHashMap<CacheKey, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, byte[]> eldest) {
+            if (size() <= maxEntries) {
+                return false;
+            }
+            zeroize(eldest);
+            return true;
+        }
+    };
+
+    private static final class CacheKey {
+        private final byte[] passwordDigest;
+        private final byte[] salt;
+        private final HashAlgorithm hashAlgorithm;
+        private final int spinCount;
+        private final int hashCode;
+
+        CacheKey(String password, HashAlgorithm hashAlgorithm, byte[] salt, int spinCount) {
+            byte[] pwBytes = StringUtil.getToUnicodeLE(password);
+            this.passwordDigest = CryptoFunctions.getMessageDigest(HashAlgorithm.sha256).digest(pwBytes);
+            Arrays.fill(pwBytes, (byte)0);
+            this.salt = salt.clone();
+            this.hashAlgorithm = hashAlgorithm;
+            this.spinCount = spinCount;
+            this.hashCode = 31 * (31 * (31 * Arrays.hashCode(passwordDigest) + Arrays.hashCode(salt))
+                + hashAlgorithm.hashCode()) + spinCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey)o;
+            return spinCount == other.spinCount
+                && hashAlgorithm == other.hashAlgorithm
+                && Arrays.equals(salt, other.salt)
+                && Arrays.equals(passwordDigest, other.passwordDigest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private DerivedKeyCache() {}
+
+    /**
+     * @return the maximum number of cached keys, 0 if the cache is disabled
+     */
+    public static synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Enables the cache by setting its maximum number of entries. The least recently used
+     * entries above the limit are evicted immediately.
+     *
+     * @param maxEntries the maximum number of cached keys, 0 to disable the cache and to clear it
+     */
+    public static synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("The maximum number of entries can't be negative");
+        }
+        DerivedKeyCache.maxEntries = maxEntries;
+        Iterator<Map.Entry<CacheKey, byte[]>> iter = CACHE.entrySet().iterator();
+        for (int excess = CACHE.size() - maxEntries; excess > 0; excess--) {
+            zeroize(iter.next());
+            iter.remove();
+        }
+    }
+
+    /**
+     * @return the number of cached keys
+     */
+    public static synchronized int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Removes and zeroizes the keys derived with the given salt, e.g. when the password
+     * of a document has been changed or the document is not accessed anymore
+     *
+     * @param salt the salt of the encryption verifier
+     * @return the number of removed keys
+     */
+    public static synchronized int evict(byte[] salt) {
+        int removed = 0;
+        Iterator<Map.Entry<CacheKey, byte[]>> iter = CACHE.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<CacheKey, byte[]> entry = iter.next();
+            if (Arrays.equals(entry.getKey().salt, salt)) {
+                zeroize(entry);
+                iter.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes and zeroizes all cached keys
+     */
+    public static synchronized void clear() {
+        for (Map.Entry<CacheKey, byte[]> entry : CACHE.entrySet()) {
+            zeroize(entry);
+        }
+        CACHE.clear();
+    }
+
+    /**
+     * Hashes the password like {@link CryptoFunctions#hashPassword(String, HashAlgorithm, byte[], int)},
+     * but returns a copy of the cached key, if the password has been hashed with the same parameters before.
+     *
+     * @param password the password
+     * @param hashAlgorithm the hash algorithm
+     * @param salt the initial salt value
+     * @param spinCount the repetition count
+     * @return the hashed password
+     */
+    @SuppressWarnings({"squid:S2068"})
+    public static byte[] hashPassword(String password, HashAlgorithm hashAlgorithm, byte[] salt, int spinCount) {
+        if (getMaxEntries() == 0) {
+            return CryptoFunctions.hashPassword(password, hashAlgorithm, salt, spinCount);
+        }
+
+        CacheKey key = new CacheKey(password == null ? Decryptor.DEFAULT_PASSWORD : password, hashAlgorithm, salt, spinCount);
+        byte[] hash;
+        synchronized (DerivedKeyCache.class) {
+            hash = CACHE.get(key);
+            if (hash != null) {
+                return hash.clone();
+            }
+        }
+
+        // the key is derived outside of the lock, so other documents aren't blocked meanwhile
+        hash = CryptoFunctions.hashPassword(password, hashAlgorithm, salt, spinCount);
+        synchronized (DerivedKeyCache.class) {
+            if (maxEntries > 0 && !CACHE.containsKey(key)) {
+                CACHE.put(key, hash.clone());
+            }
+        }
+        return hash;
+    }
+
+    private static void zeroize(Map.Entry<CacheKey, byte[]> entry) {
+        Arrays.fill(entry.getValue(), (byte)0);
+        Arrays.fill(entry.getKey().passwordDigest, (byte)0);
+    }
+}
@@ -16,6 +16,7 @@
 ==================================================================== */
 package org.apache.poi.poifs.crypt;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.GeneralSecurityException;
@@ -65,6 +66,23 @@ public abstract class Encryptor implements GenericRecord {
         return getDataStream(fs.getRoot());
     }
 
+    /**
+     * Returns an output stream, which encrypts the data directly into a new OLE2 file.
+     * The file is complete, when the stream is closed.<p>
+     *
+     * In contrast to {@link #getDataStream(POIFSFileSystem)}, the encrypted package is neither
+     * buffered in a temporary file nor in memory, so e.g. a large {@code SXSSFWorkbook} can be
+     * encrypted in a single pass with bounded memory.
+     *
+     * @param target the file to be created or overwritten
+     * @return encrypted stream
+     *
+     * @since POI 4.1.1
+     */
+    public OutputStream getDataStream(File target) throws IOException, GeneralSecurityException {
+        throw new EncryptedDocumentException("this encryptor doesn't support writing directly to a file");
+    }
+
     public ChunkedCipherOutputStream getDataStream(OutputStream stream, int initialOffset)
     throws IOException, GeneralSecurityException {
         throw new EncryptedDocumentException("this decryptor doesn't support writing directly to a stream");
@@ -97,6 +115,21 @@ public abstract class Encryptor implements GenericRecord {
         throw new EncryptedDocumentException("this decryptor doesn't support changing the chunk size");
     }
 
+    /**
+     * Sets the number of worker threads, which encrypt the chunks of the data stream.
+     * Needs to be set before the data stream is requested.
+     * Only the implementations, which encrypt the chunks independently, support a parallel encryption.
+     *
+     * @param parallelism the number of worker threads, 1 for the sequential encryption
+     *
+     * @since POI 4.1.1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism != 1) {
+            throw new EncryptedDocumentException("this encryptor doesn't support a parallel encryption");
+        }
+    }
+
     public abstract Encryptor copy();
 
     @Override
@@ -21,7 +21,6 @@ import static org.apache.poi.poifs.crypt.CryptoFunctions.generateKey;
 import static org.apache.poi.poifs.crypt.CryptoFunctions.getBlock0;
 import static org.apache.poi.poifs.crypt.CryptoFunctions.getCipher;
 import static org.apache.poi.poifs.crypt.CryptoFunctions.getMessageDigest;
-import static org.apache.poi.poifs.crypt.CryptoFunctions.hashPassword;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -43,6 +42,7 @@ import org.apache.poi.poifs.crypt.ChunkedCipherInputStream;
 import org.apache.poi.poifs.crypt.CipherAlgorithm;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
 import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.DerivedKeyCache;
 import org.apache.poi.poifs.crypt.EncryptionHeader;
 import org.apache.poi.poifs.crypt.EncryptionInfo;
 import org.apache.poi.poifs.crypt.HashAlgorithm;
@@ -61,6 +61,7 @@ public class AgileDecryptor extends Decryptor {
     static final byte[] kIntegrityValueBlock = longToBytes(0xa0677f02b22c8433L);
 
     private long _length = -1;
+    private int _parallelism = 1;
 
     protected AgileDecryptor() {
     }
@@ -68,6 +69,7 @@ public class AgileDecryptor extends Decryptor {
     protected AgileDecryptor(AgileDecryptor other) {
         super(other);
         _length = other._length;
+        _parallelism = other._parallelism;
     }
 
     private static byte[] longToBytes(long l) {
@@ -84,7 +86,7 @@ public class AgileDecryptor extends Decryptor {
 
         int blockSize = header.getBlockSize();
 
-        byte[] pwHash = hashPassword(password, ver.getHashAlgorithm(), ver.getSalt(), ver.getSpinCount());
+        byte[] pwHash = DerivedKeyCache.hashPassword(password, ver.getHashAlgorithm(), ver.getSalt(), ver.getSpinCount());
 
         /*
          * encryptedVerifierHashInput: This attribute MUST be generated by using the following steps:
@@ -212,6 +214,17 @@ public class AgileDecryptor extends Decryptor {
         return new AgileCipherInputStream(dis, _length);
     }
 
+    /**
+     * The chunks of the agile encryption are independent, so they can be decrypted in parallel
+     */
+    @Override
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        _parallelism = parallelism;
+    }
+
     @Override
     public long getLength(){
         if(_length == -1) {
@@ -264,6 +277,7 @@ public class AgileDecryptor extends Decryptor {
         public AgileCipherInputStream(DocumentInputStream stream, long size)
         throws GeneralSecurityException {
             super(stream, size, 4096);
+            setParallelism(_parallelism);
         }
 
         // TODO: calculate integrity hmac while reading the stream
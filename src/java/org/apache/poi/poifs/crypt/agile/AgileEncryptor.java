@@ -72,6 +72,7 @@ public class AgileEncryptor extends Encryptor {
 
     private byte[] integritySalt;
     private byte[] pwHash;
+    private int parallelism = 1;
 
 	protected AgileEncryptor() {}
 
@@ -79,6 +80,7 @@ public class AgileEncryptor extends Encryptor {
 	    super(other);
 	    integritySalt = (other.integritySalt == null) ? null : other.integritySalt.clone();
 	    pwHash = (other.pwHash == null) ? null : other.pwHash.clone();
+	    parallelism = other.parallelism;
     }
 
     @Override
@@ -206,6 +208,17 @@ public class AgileEncryptor extends Encryptor {
         }
 	}
 
+    /**
+     * The chunks of the agile encryption are independent, so they can be encrypted in parallel
+     */
+    @Override
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
     @Override
     public OutputStream getDataStream(DirectoryNode dir)
             throws IOException, GeneralSecurityException {
@@ -213,6 +226,12 @@ public class AgileEncryptor extends Encryptor {
         return new AgileCipherOutputStream(dir);
     }
 
+    @Override
+    public OutputStream getDataStream(File target)
+            throws IOException, GeneralSecurityException {
+        return new AgileCipherOutputStream(target);
+    }
+
     /**
      * Generate an HMAC, as specified in [RFC2104], of the encrypted form of the data (message),
      * which the DataIntegrity element will verify by using the Salt generated in step 2 as the key.
@@ -223,9 +242,23 @@ public class AgileEncryptor extends Encryptor {
      * 0xa0, 0x67, 0x7f, 0x02, 0xb2, 0x2c, 0x84, and 0x33.
      **/
     protected void updateIntegrityHMAC(File tmpFile, int oleStreamSize) throws GeneralSecurityException, IOException {
-        // as the integrity hmac needs to contain the StreamSize,
-        // it's not possible to calculate it on-the-fly while buffering
-        // TODO: add stream size parameter to getDataStream()
+        try (InputStream fis = new FileInputStream(tmpFile)) {
+            updateIntegrityHMAC(fis, oleStreamSize);
+        }
+    }
+
+    /**
+     * Generates the integrity HMAC from the encrypted data, which is read from the stream.<p>
+     *
+     * As the HMAC starts with the StreamSize, it's not possible to calculate it on-the-fly
+     * while encrypting, so the encrypted data needs to be read again.
+     *
+     * @param encryptedData the encrypted data without the StreamSize field
+     * @param oleStreamSize the size of the unencrypted data
+     *
+     * @since POI 4.1.1
+     */
+    protected void updateIntegrityHMAC(InputStream encryptedData, long oleStreamSize) throws GeneralSecurityException, IOException {
         AgileEncryptionHeader header = (AgileEncryptionHeader)getEncryptionInfo().getHeader();
         int blockSize = header.getBlockSize();
         HashAlgorithm hashAlgo = header.getHashAlgorithm();
@@ -237,11 +270,9 @@ public class AgileEncryptor extends Encryptor {
         LittleEndian.putLong(buf, 0, oleStreamSize);
         integrityMD.update(buf, 0, LittleEndianConsts.LONG_SIZE);
 
-        try (InputStream fis = new FileInputStream(tmpFile)) {
-            int readBytes;
-            while ((readBytes = fis.read(buf)) != -1) {
-                integrityMD.update(buf, 0, readBytes);
-            }
+        int readBytes;
+        while ((readBytes = encryptedData.read(buf)) != -1) {
+            integrityMD.update(buf, 0, readBytes);
         }
 
         byte[] hmacValue = integrityMD.doFinal();
@@ -344,6 +375,12 @@ public class AgileEncryptor extends Encryptor {
     private class AgileCipherOutputStream extends ChunkedCipherOutputStream {
         public AgileCipherOutputStream(DirectoryNode dir) throws IOException, GeneralSecurityException {
             super(dir, 4096);
+            setParallelism(parallelism);
+        }
+
+        public AgileCipherOutputStream(File target) throws IOException, GeneralSecurityException {
+            super(target, 4096);
+            setParallelism(parallelism);
         }
 
         @Override
@@ -359,6 +396,12 @@ public class AgileEncryptor extends Encryptor {
             updateIntegrityHMAC(fileOut, oleStreamSize);
         }
 
+        @Override
+        protected void calculateChecksum(InputStream encryptedData, long streamSize)
+        throws GeneralSecurityException, IOException {
+            updateIntegrityHMAC(encryptedData, streamSize);
+        }
+
         @Override
         protected void createEncryptionInfoEntry(DirectoryNode dir, File tmpFile)
         throws IOException {
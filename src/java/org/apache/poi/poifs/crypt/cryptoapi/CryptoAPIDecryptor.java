@@ -33,6 +33,7 @@ import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.poifs.crypt.ChunkedCipherInputStream;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
 import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.DerivedKeyCache;
 import org.apache.poi.poifs.crypt.EncryptionHeader;
 import org.apache.poi.poifs.crypt.EncryptionInfo;
 import org.apache.poi.poifs.crypt.EncryptionVerifier;
@@ -76,7 +77,9 @@ public class CryptoAPIDecryptor extends Decryptor {
     @Override
     public boolean verifyPassword(String password) {
         EncryptionVerifier ver = getEncryptionInfo().getVerifier();
-        SecretKey skey = generateSecretKey(password, ver);
+        // the CryptoAPI key is the hashed password without iterations
+        byte[] pwHash = DerivedKeyCache.hashPassword(truncatePassword(password), ver.getHashAlgorithm(), ver.getSalt(), 0);
+        SecretKey skey = new SecretKeySpec(pwHash, ver.getCipherAlgorithm().jceId);
         try {
             Cipher cipher = initCipherForBlock(null, 0, getEncryptionInfo(), skey, Cipher.DECRYPT_MODE);
             byte[] encryptedVerifier = ver.getEncryptedVerifier();
@@ -132,9 +135,7 @@ public class CryptoAPIDecryptor extends Decryptor {
     }
 
     protected static SecretKey generateSecretKey(String password, EncryptionVerifier ver) {
-        if (password.length() > 255) {
-            password = password.substring(0, 255);
-        }
+        password = truncatePassword(password);
         HashAlgorithm hashAlgo = ver.getHashAlgorithm();
         MessageDigest hashAlg = CryptoFunctions.getMessageDigest(hashAlgo);
         hashAlg.update(ver.getSalt());
@@ -142,6 +143,10 @@ public class CryptoAPIDecryptor extends Decryptor {
         return new SecretKeySpec(hash, ver.getCipherAlgorithm().jceId);
     }
 
+    private static String truncatePassword(String password) {
+        return (password.length() > 255) ? password.substring(0, 255) : password;
+    }
+
     @Override
     public ChunkedCipherInputStream getDataStream(DirectoryNode dir)
     throws IOException, GeneralSecurityException {
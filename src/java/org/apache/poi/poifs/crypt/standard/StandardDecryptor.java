@@ -33,6 +33,7 @@ import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.poifs.crypt.ChainingMode;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
 import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.DerivedKeyCache;
 import org.apache.poi.poifs.crypt.EncryptionHeader;
 import org.apache.poi.poifs.crypt.EncryptionVerifier;
 import org.apache.poi.poifs.crypt.HashAlgorithm;
@@ -56,7 +57,8 @@ public class StandardDecryptor extends Decryptor {
     @Override
     public boolean verifyPassword(String password) {
         EncryptionVerifier ver = getEncryptionInfo().getVerifier();
-        SecretKey skey = generateSecretKey(password, ver, getKeySizeInBytes());
+        byte[] pwHash = DerivedKeyCache.hashPassword(password, ver.getHashAlgorithm(), ver.getSalt(), ver.getSpinCount());
+        SecretKey skey = generateSecretKey(pwHash, ver, getKeySizeInBytes());
         Cipher cipher = getCipher(skey);
 
         try {
@@ -85,9 +87,17 @@ public class StandardDecryptor extends Decryptor {
     }
 
     protected static SecretKey generateSecretKey(String password, EncryptionVerifier ver, int keySize) {
-        HashAlgorithm hashAlgo = ver.getHashAlgorithm();
+        byte[] pwHash = hashPassword(password, ver.getHashAlgorithm(), ver.getSalt(), ver.getSpinCount());
+        return generateSecretKey(pwHash, ver, keySize);
+    }
 
-        byte[] pwHash = hashPassword(password, hashAlgo, ver.getSalt(), ver.getSpinCount());
+    /**
+     * Generates the secret key from the hashed password
+     *
+     * @since POI 4.1.1
+     */
+    protected static SecretKey generateSecretKey(byte[] pwHash, EncryptionVerifier ver, int keySize) {
+        HashAlgorithm hashAlgo = ver.getHashAlgorithm();
 
         byte[] blockKey = new byte[4];
         LittleEndian.putInt(blockKey, 0, 0);
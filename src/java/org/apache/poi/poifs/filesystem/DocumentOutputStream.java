@@ -92,6 +92,19 @@ public final class DocumentOutputStream extends OutputStream {
         _limit   = limit;
     }
 
+    /**
+     * Create a DocumentOutputStream, which writes directly to the given stream,
+     * i.e. the data is streamed by a {@link StreamingPOIFSWriter}
+     *
+     * @param stream the stream to which the data is written - it's not closed by this stream
+     * @param limit the maximum number of bytes that can be written
+     */
+    DocumentOutputStream(OutputStream stream, long limit) {
+        _buffer = null;
+        _stream_output = stream;
+        _limit = limit;
+    }
+
     private static POIFSDocument getDocument(DocumentEntry document) throws IOException {
         if (!(document instanceof DocumentNode)) {
             throw new IOException("Cannot open internal document storage, " + document + " not a Document Node");
@@ -137,7 +150,7 @@ public final class DocumentOutputStream extends OutputStream {
             _buffer.write(b, off, len);
             checkBufferSize();
         } else {
-            if (_stream == null) {
+            if (_stream_output == null) {
                 _stream = new POIFSStream(_document.getFileSystem());
                 _stream_output = _stream.getOutputStream();
             }
@@ -147,17 +160,20 @@ public final class DocumentOutputStream extends OutputStream {
     }
 
     public void close() throws IOException {
-        // Do we have a pending buffer for the mini stream?
-        if (_buffer != null) {
-            // It's not much data, so ask POIFSDocument to do it for us
-            _document.replaceContents(new ByteArrayInputStream(_buffer.toByteArray()));
-        }
-        else {
-            // We've been writing to the stream as we've gone along
-            // Update the details on the property now
-            _stream_output.close();
-            _property.updateSize(_document_size);
-            _property.setStartBlock(_stream.getStartBlock());
+        // Without a document, the data has been streamed directly and there's nothing to update
+        if (_document != null) {
+            // Do we have a pending buffer for the mini stream?
+            if (_buffer != null) {
+                // It's not much data, so ask POIFSDocument to do it for us
+                _document.replaceContents(new ByteArrayInputStream(_buffer.toByteArray()));
+            }
+            else {
+                // We've been writing to the stream as we've gone along
+                // Update the details on the property now
+                _stream_output.close();
+                _property.updateSize(_document_size);
+                _property.setStartBlock(_stream.getStartBlock());
+            }
         }
 
         // No more!
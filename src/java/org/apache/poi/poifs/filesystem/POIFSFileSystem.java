@@ -86,7 +86,7 @@ public class POIFSFileSystem extends BlockStore
     private final List<BATBlock> _xbat_blocks;
     private final List<BATBlock> _bat_blocks;
     private HeaderBlock _header;
-    private DirectoryNode _root;
+    private volatile DirectoryNode _root;
 
     protected DataSource _data;
 
@@ -167,7 +167,7 @@ public class POIFSFileSystem extends BlockStore
      */
     public POIFSFileSystem(File file, boolean readOnly)
             throws IOException {
-        this(null, file, readOnly, true);
+        this(null, file, readOnly, true, false);
     }
 
     /**
@@ -201,10 +201,10 @@ public class POIFSFileSystem extends BlockStore
      */
     public POIFSFileSystem(FileChannel channel, boolean readOnly)
             throws IOException {
-        this(channel, null, readOnly, false);
+        this(channel, null, readOnly, false, false);
     }
 
-    private POIFSFileSystem(FileChannel channel, File srcFile, boolean readOnly, boolean closeChannelOnError)
+    private POIFSFileSystem(FileChannel channel, File srcFile, boolean readOnly, boolean closeChannelOnError, boolean mapped)
             throws IOException {
         this(false);
 
@@ -214,11 +214,11 @@ public class POIFSFileSystem extends BlockStore
                 if (srcFile.length() == 0)
                     throw new EmptyFileException();
 
-                FileBackedDataSource d = new FileBackedDataSource(srcFile, readOnly);
+                FileBackedDataSource d = new FileBackedDataSource(srcFile, readOnly, mapped);
                 channel = d.getChannel();
                 _data = d;
             } else {
-                _data = new FileBackedDataSource(channel, readOnly);
+                _data = new FileBackedDataSource(channel, readOnly, mapped);
             }
 
             // Get the header
@@ -721,7 +721,12 @@ public class POIFSFileSystem extends BlockStore
 
     /**
      * Has our in-memory objects write their state
-     * to their backing blocks
+     * to their backing blocks.<p>
+     *
+     * The document contents are written directly to their blocks, so only the metadata
+     * needs to be synced - and only the parts which have changed are written, i.e. the
+     * modified BAT/XBAT/SBAT blocks, the modified blocks of the property table and the
+     * header block, if it differs.
      */
     private void syncWithDataSource() throws IOException {
         // Mini Stream + SBATs first, as mini-stream details have
@@ -739,18 +744,29 @@ public class POIFSFileSystem extends BlockStore
                 _header.getBigBlockSize().getBigBlockSize()
         );
         _header.writeData(baos);
-        getBlockAt(-1).put(baos.toByteArray());
-
+        byte[] header = baos.toByteArray();
+        ByteBuffer headerBlock = getBlockAt(-1);
+        ByteBuffer current = headerBlock.duplicate();
+        current.limit(Math.min(current.limit(), current.position() + header.length));
+        if (!current.equals(ByteBuffer.wrap(header))) {
+            headerBlock.put(header);
+        }
 
         // BATs
-        for (BATBlock bat : _bat_blocks) {
-            ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
-            bat.writeData(block);
-        }
+        writeDirtyBlocks(_bat_blocks);
         // XBats
-        for (BATBlock bat : _xbat_blocks) {
-            ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
-            bat.writeData(block);
+        writeDirtyBlocks(_xbat_blocks);
+    }
+
+    /**
+     * Writes the BAT blocks, which have been changed since they were read or last written
+     */
+    void writeDirtyBlocks(List<BATBlock> bats) throws IOException {
+        for (BATBlock bat : bats) {
+            if (bat.isDirty()) {
+                ByteBuffer block = getBlockAt(bat.getOurBlockIndex());
+                bat.writeData(block);
+            }
         }
     }
 
@@ -792,10 +808,17 @@ public class POIFSFileSystem extends BlockStore
      * @return the root entry
      */
     public DirectoryNode getRoot() {
-        if (_root == null) {
-            _root = new DirectoryNode(_property_table.getRoot(), this, null);
+        DirectoryNode root = _root;
+        if (root == null) {
+            synchronized (this) {
+                root = _root;
+                if (root == null) {
+                    root = new DirectoryNode(_property_table.getRoot(), this, null);
+                    _root = root;
+                }
+            }
         }
-        return _root;
+        return root;
     }
 
     /**
@@ -903,6 +926,24 @@ public class POIFSFileSystem extends BlockStore
         return bigBlockSize;
     }
 
+    /**
+     * <p>Creates a read-only POIFSFileSystem from a <tt>File</tt>, which is memory mapped.
+     * The documents are read from slices of the mapping without copying the blocks
+     * into heap buffers, which is faster for large files, which are read completely.</p>
+     *
+     * <p>Note that with this method, you will need to call {@link #close()}
+     * when you're done to have the underlying file closed and unmapped.</p>
+     *
+     * @param file the File from which to read the data
+     * @return the read-only POIFSFileSystem
+     * @throws IOException on errors reading, or on invalid data
+     *
+     * @since POI 4.1.1
+     */
+    public static POIFSFileSystem openMapped(File file) throws IOException {
+        return new POIFSFileSystem(null, file, true, true, true);
+    }
+
     /**
      * Creates a new {@link POIFSFileSystem} in a new {@link File}.
      * Use {@link #POIFSFileSystem(File)} to open an existing File,
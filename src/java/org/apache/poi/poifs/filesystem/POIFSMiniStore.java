@@ -245,10 +245,8 @@ public class POIFSMiniStore extends BlockStore
      */
     void syncWithDataSource() throws IOException {
        int blocksUsed = 0;
+       _filesystem.writeDirtyBlocks(_sbat_blocks);
        for (BATBlock sbat : _sbat_blocks) {
-          ByteBuffer block = _filesystem.getBlockAt(sbat.getOurBlockIndex());
-          sbat.writeData(block);
-
           if (!sbat.hasFreeSectors()) {
               blocksUsed += _filesystem.getBigBlockSizeDetails().getBATEntriesPerBlock();
           } else {
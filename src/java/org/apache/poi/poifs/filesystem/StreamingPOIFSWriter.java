@@ -0,0 +1,671 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.poifs.filesystem;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.hpsf.ClassID;
+import org.apache.poi.poifs.common.POIFSBigBlockSize;
+import org.apache.poi.poifs.common.POIFSConstants;
+import org.apache.poi.poifs.property.DirectoryProperty;
+import org.apache.poi.poifs.property.DocumentProperty;
+import org.apache.poi.poifs.property.Property;
+import org.apache.poi.poifs.property.PropertyTable;
+import org.apache.poi.poifs.property.RootProperty;
+import org.apache.poi.poifs.storage.HeaderBlock;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianConsts;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Writes an OLE2 file in a single pass to a sequential {@link OutputStream},
+ * e.g. to the response stream of a web server.<p>
+ *
+ * In contrast to the {@link POIFSFileSystem}, which holds the data of all documents until it's
+ * written, the documents are only declared with their sizes. When {@link #write()} is called,
+ * the sectors are laid out from the declared sizes, the header and the property table are written
+ * and only then the data of each document is requested from its {@link POIFSWriterListener}
+ * and streamed to the output. The data of documents with an unknown size is spilled to memory
+ * or - if it's large - to a temporary file, when the document is created.<p>
+ *
+ * The written file is laid out as: header, property table, small block allocation table,
+ * mini stream, documents, block allocation table and extended block allocation table.<p>
+ *
+ * When the writer writes to a {@link FileChannel}, one document of unknown size can be streamed
+ * directly to the file via {@link Directory#createDocumentStream(String)}. That document is placed
+ * in front of the other entries and the header is written last.
+ *
+ * @since POI 4.1.1
+ */
+public final class StreamingPOIFSWriter implements Closeable {
+    private static final POILogger LOG = POILogFactory.getLogger(StreamingPOIFSWriter.class);
+
+    /** the documents of unknown size up to this size are spilled to memory, larger ones to a temporary file */
+    private static final int SPILL_THRESHOLD = 1024 * 1024;
+
+    /** the number of block allocation table sectors, which are referenced by the header */
+    private static final int HEADER_BAT_COUNT = 109;
+
+    private final OutputStream _stream;
+    /** the channel of the file or null, if the writer writes to a sequential stream */
+    private final FileChannel _channel;
+    /** the document, which is written directly to the channel in front of the other entries */
+    private DocumentStream _leading;
+    private final POIFSBigBlockSize _bigBlockSize = POIFSConstants.SMALLER_BIG_BLOCK_SIZE_DETAILS;
+    private final HeaderBlock _header;
+    private final PropertyTable _propertyTable;
+    /** the properties in the order of the property table */
+    private final List<Property> _properties = new ArrayList<>();
+    private final List<StreamingDocument> _documents = new ArrayList<>();
+    private final List<File> _spilledFiles = new ArrayList<>();
+    private final Directory _root;
+    private boolean _written;
+
+    /**
+     * Writes the data of a document to the stream, which is limited to the declared size
+     */
+    @FunctionalInterface
+    public interface DocumentWriter {
+        /**
+         * @param stream the stream of the document - it must not be closed
+         * @throws IOException if the data can't be provided or written, this aborts writing the file
+         */
+        void write(DocumentOutputStream stream) throws IOException;
+    }
+
+    private static final class StreamingDocument {
+        private final DocumentProperty _property;
+        private final DocumentWriter _source;
+
+        StreamingDocument(DocumentProperty property, DocumentWriter source) {
+            _property = property;
+            _source = source;
+        }
+    }
+
+    /**
+     * Creates a writer for a new OLE2 file
+     *
+     * @param stream the stream to write to - it isn't closed by this writer
+     */
+    public StreamingPOIFSWriter(OutputStream stream) {
+        _stream = stream;
+        _channel = null;
+        _header = new HeaderBlock(_bigBlockSize);
+        _propertyTable = new PropertyTable(_header);
+        _properties.add(_propertyTable.getRoot());
+        _root = new Directory(_propertyTable.getRoot(), new POIFSDocumentPath());
+    }
+
+    /**
+     * Creates a writer for a new OLE2 file, which is written to the channel starting at position 0.
+     * As the header is written last, a document can be streamed directly to the file.
+     *
+     * @param channel the empty file to write to - it isn't closed by this writer
+     * @throws IOException if the channel can't be positioned
+     */
+    public StreamingPOIFSWriter(FileChannel channel) throws IOException {
+        _channel = channel;
+        // the header is written when everything else is known
+        _channel.position(_bigBlockSize.getBigBlockSize());
+        _stream = new BufferedOutputStream(Channels.newOutputStream(channel));
+        _header = new HeaderBlock(_bigBlockSize);
+        _propertyTable = new PropertyTable(_header);
+        _properties.add(_propertyTable.getRoot());
+        _root = new Directory(_propertyTable.getRoot(), new POIFSDocumentPath());
+    }
+
+    /**
+     * @return the root directory of the file
+     */
+    public Directory getRoot() {
+        return _root;
+    }
+
+    /**
+     * A directory of the file, which can only be appended to
+     */
+    public final class Directory {
+        private final DirectoryProperty _property;
+        private final POIFSDocumentPath _path;
+
+        private Directory(DirectoryProperty property, POIFSDocumentPath path) {
+            _property = property;
+            _path = path;
+        }
+
+        /**
+         * Creates a sub directory
+         *
+         * @param name the name of the new directory
+         * @return the new directory
+         * @throws IOException if there's already an entry of the same name
+         */
+        public Directory createDirectory(String name) throws IOException {
+            DirectoryProperty property = new DirectoryProperty(name);
+            addProperty(_property, property);
+            return new Directory(property, new POIFSDocumentPath(_path, new String[]{ name }));
+        }
+
+        /**
+         * Declares a document, whose data is provided by the listener when the file is written.<p>
+         *
+         * The listener must not write more than the declared size, if it writes less,
+         * the document is filled up with zeros.
+         *
+         * @param name the name of the new document
+         * @param size the size of the document
+         * @param writer the listener, which writes the data of the document
+         * @throws IOException if there's already an entry of the same name
+         */
+        public void createDocument(final String name, final int size, final POIFSWriterListener writer) throws IOException {
+            addDocument(name, size, os -> writer.processPOIFSWriterEvent(new POIFSWriterEvent(os, _path, name, size)));
+        }
+
+        /**
+         * Creates a document from the data of the stream. As the size of the document needs to be
+         * known before anything is written, the data is read now and spilled to memory
+         * or a temporary file.
+         *
+         * @param name the name of the new document
+         * @param stream the data of the document, the stream is read until its end but not closed
+         * @throws IOException if there's already an entry of the same name or the stream can't be read
+         */
+        public void createDocument(String name, InputStream stream) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            IOUtils.copy(stream, bos, SPILL_THRESHOLD);
+            int next = stream.read();
+            if (next == -1) {
+                final byte[] data = bos.toByteArray();
+                addDocument(name, data.length, os -> os.write(data));
+                return;
+            }
+
+            final File tmpFile = TempFile.createTempFile("poifs-stream", ".tmp");
+            _spilledFiles.add(tmpFile);
+            long size;
+            try (OutputStream fos = new FileOutputStream(tmpFile)) {
+                bos.writeTo(fos);
+                fos.write(next);
+                size = bos.size() + 1L + IOUtils.copy(stream, fos);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The document '" + name + "' is too large: " + size + " bytes");
+            }
+            addDocument(name, (int)size, os -> {
+                try (InputStream is = new FileInputStream(tmpFile)) {
+                    IOUtils.copy(is, os);
+                }
+            });
+        }
+
+        /**
+         * Creates a document of unknown size, whose data is written directly to the file.
+         * This is only possible once per file, when the writer writes to a {@link FileChannel},
+         * and the stream needs to be closed before the file is written.
+         *
+         * @param name the name of the new document
+         * @return the stream of the document
+         * @throws IOException if there's already an entry of the same name
+         */
+        public DocumentStream createDocumentStream(String name) throws IOException {
+            if (_channel == null) {
+                throw new IllegalStateException("A document stream needs a file channel to write to");
+            }
+            if (_leading != null) {
+                throw new IllegalStateException("Only one document can be streamed directly to the file");
+            }
+            DocumentProperty property = new DocumentProperty(name, 0);
+            addProperty(_property, property);
+            _leading = new DocumentStream(property);
+            return _leading;
+        }
+
+        /**
+         * Copies the entries and the storage class id of the given directory.
+         * The documents are only read, when the file is written.
+         *
+         * @param source the directory to copy
+         * @throws IOException if an entry of the same name already exists
+         */
+        public void copyEntries(DirectoryEntry source) throws IOException {
+            setStorageClsid(source.getStorageClsid());
+            for (Entry entry : source) {
+                if (entry instanceof DirectoryEntry) {
+                    createDirectory(entry.getName()).copyEntries((DirectoryEntry)entry);
+                } else if (entry instanceof DocumentEntry) {
+                    final DocumentEntry doc = (DocumentEntry)entry;
+                    addDocument(doc.getName(), doc.getSize(), os -> {
+                        try (InputStream is = new DocumentInputStream(doc)) {
+                            IOUtils.copy(is, os);
+                        }
+                    });
+                }
+            }
+        }
+
+        /**
+         * Sets the storage class id of this directory
+         */
+        public void setStorageClsid(ClassID clsid) {
+            _property.setStorageClsid(clsid);
+        }
+
+        /**
+         * Declares a document, whose data is written by the writer when the file is written.<p>
+         *
+         * In contrast to a {@link POIFSWriterListener}, the writer can fail with an {@link IOException},
+         * which aborts writing the file. The writer must not write more than the declared size,
+         * if it writes less, the document is filled up with zeros.
+         *
+         * @param name the name of the new document
+         * @param size the size of the document
+         * @param writer the writer of the document data
+         * @throws IOException if there's already an entry of the same name
+         */
+        public void addDocument(String name, int size, DocumentWriter writer) throws IOException {
+            if (size < 0) {
+                throw new IllegalArgumentException("The size of the document must not be negative");
+            }
+            DocumentProperty property = new DocumentProperty(name, size);
+            addProperty(_property, property);
+            _documents.add(new StreamingDocument(property, writer));
+        }
+    }
+
+    /**
+     * The stream of a document, which is written directly to the file channel in front of the other entries.
+     * The already written data can be read and patched, until the stream is closed.
+     */
+    public final class DocumentStream extends OutputStream {
+        private final DocumentProperty _property;
+        private final long _offset;
+        private long _size;
+        private boolean _closed;
+
+        private DocumentStream(DocumentProperty property) throws IOException {
+            _property = property;
+            _offset = _channel.position();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkOpen();
+            checkSize(1);
+            _stream.write(b);
+            _size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkOpen();
+            checkSize(len);
+            _stream.write(b, off, len);
+            _size += len;
+        }
+
+        /**
+         * @return the number of written bytes
+         */
+        public long size() {
+            return _size;
+        }
+
+        /**
+         * Overwrites the already written data, e.g. to fill in a length field
+         *
+         * @param position the position within the document
+         * @param data the new data
+         */
+        public void patch(long position, byte[] data) throws IOException {
+            checkOpen();
+            if (position < 0 || position + data.length > _size) {
+                throw new IndexOutOfBoundsException("Can only patch the written data");
+            }
+            _stream.flush();
+            ByteBuffer bb = ByteBuffer.wrap(data);
+            while (bb.hasRemaining()) {
+                _channel.write(bb, _offset + position + bb.position());
+            }
+        }
+
+        /**
+         * @return a stream of the written data, which is read from the file
+         */
+        public InputStream getInputStream() throws IOException {
+            checkOpen();
+            _stream.flush();
+            final long end = _offset + _size;
+            return new InputStream() {
+                private long pos = _offset;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xFF);
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (pos >= end) {
+                        return -1;
+                    }
+                    ByteBuffer bb = ByteBuffer.wrap(b, off, (int)Math.min(len, end - pos));
+                    int read = _channel.read(bb, pos);
+                    if (read > 0) {
+                        pos += read;
+                    }
+                    return read;
+                }
+            };
+        }
+
+        /**
+         * Finishes the document - a small document is moved to the mini stream
+         */
+        @Override
+        public void close() throws IOException {
+            if (_closed) {
+                return;
+            }
+            int size = (int)_size;
+            _property.updateSize(size);
+            if (Property.isSmall(size)) {
+                final byte[] data = IOUtils.toByteArray(getInputStream(), size);
+                _documents.add(new StreamingDocument(_property, os -> os.write(data)));
+                _leading = null;
+                _channel.position(_offset);
+            } else {
+                writeFiller((long)blockCount(size, _bigBlockSize.getBigBlockSize()) * _bigBlockSize.getBigBlockSize() - size);
+            }
+            _closed = true;
+        }
+
+        private void checkOpen() {
+            if (_closed) {
+                throw new IllegalStateException("The document stream has already been closed");
+            }
+        }
+
+        private void checkSize(int len) throws IOException {
+            if (_size + len > Integer.MAX_VALUE) {
+                throw new IOException("The document '" + _property.getName() + "' is too large");
+            }
+        }
+    }
+
+    private void addProperty(DirectoryProperty parent, Property property) throws IOException {
+        if (_written) {
+            throw new IllegalStateException("The file has already been written");
+        }
+        parent.addChild(property);
+        _propertyTable.addProperty(property);
+        _properties.add(property);
+    }
+
+    /**
+     * Writes the file - the listeners of the documents are called in the order of the
+     * documents within the file, i.e. the small documents are written before the large ones
+     *
+     * @throws IOException if the output or the data of a document can't be written
+     */
+    public void write() throws IOException {
+        if (_written) {
+            throw new IllegalStateException("The file has already been written");
+        }
+        if (_leading != null && !_leading._closed) {
+            throw new IllegalStateException("The document stream hasn't been closed");
+        }
+        _written = true;
+
+        final int blockSize = _bigBlockSize.getBigBlockSize();
+        // the sectors of the document, which has been streamed to the file, precede the other entries
+        final int leadingBlocks = (_leading == null) ? 0 : blockCount(_leading._property.getSize(), blockSize);
+        if (_leading != null) {
+            _leading._property.setStartBlock(0);
+        }
+        final int batEntries = _bigBlockSize.getBATEntriesPerBlock();
+        final int xbatEntries = _bigBlockSize.getXBATEntriesPerBlock();
+
+        // the small documents are stored in consecutive mini blocks
+        int miniBlocks = 0;
+        List<StreamingDocument> smallDocs = new ArrayList<>();
+        List<StreamingDocument> bigDocs = new ArrayList<>();
+        for (StreamingDocument doc : _documents) {
+            int size = doc._property.getSize();
+            if (Property.isSmall(size)) {
+                doc._property.setStartBlock(size == 0 ? POIFSConstants.END_OF_CHAIN : miniBlocks);
+                miniBlocks += blockCount(size, POIFSConstants.SMALL_BLOCK_SIZE);
+                smallDocs.add(doc);
+            } else {
+                bigDocs.add(doc);
+            }
+        }
+
+        final int propertyBlocks = blockCount((long)_properties.size() * POIFSConstants.PROPERTY_SIZE, blockSize);
+        final int sbatStart = leadingBlocks + propertyBlocks;
+        final int sbatBlocks = blockCount(miniBlocks, batEntries);
+        final int miniStreamStart = sbatStart + sbatBlocks;
+        final int miniStreamBlocks = blockCount((long)miniBlocks * POIFSConstants.SMALL_BLOCK_SIZE, blockSize);
+        long dataEnd = miniStreamStart + miniStreamBlocks;
+        for (StreamingDocument doc : bigDocs) {
+            doc._property.setStartBlock((int)dataEnd);
+            dataEnd += blockCount(doc._property.getSize(), blockSize);
+            checkBlockIndex(dataEnd);
+        }
+
+        // the allocation tables need to cover their own sectors
+        int batBlocks = 0, xbatBlocks = 0;
+        while (true) {
+            int bat = blockCount(dataEnd + batBlocks + xbatBlocks, batEntries);
+            int xbat = (bat > HEADER_BAT_COUNT) ? blockCount(bat - HEADER_BAT_COUNT, xbatEntries) : 0;
+            if (bat == batBlocks && xbat == xbatBlocks) {
+                break;
+            }
+            batBlocks = bat;
+            xbatBlocks = xbat;
+        }
+        final int batStart = (int)dataEnd;
+        final int xbatStart = batStart + batBlocks;
+        checkBlockIndex((long)xbatStart + xbatBlocks);
+
+        // the root property refers to the mini stream
+        RootProperty root = _propertyTable.getRoot();
+        root.setStartBlock(miniBlocks == 0 ? POIFSConstants.END_OF_CHAIN : miniStreamStart);
+        root.setSize(miniBlocks);
+
+        _header.setPropertyStart(leadingBlocks);
+        _header.setSBATStart(sbatBlocks == 0 ? POIFSConstants.END_OF_CHAIN : sbatStart);
+        _header.setSBATBlockCount(sbatBlocks);
+        _header.setBATCount(batBlocks);
+        int[] batArray = new int[Math.min(batBlocks, HEADER_BAT_COUNT)];
+        for (int i = 0; i < batArray.length; i++) {
+            batArray[i] = batStart + i;
+        }
+        _header.setBATArray(batArray);
+        _header.setXBATStart(xbatBlocks == 0 ? POIFSConstants.END_OF_CHAIN : xbatStart);
+        _header.setXBATCount(xbatBlocks);
+        if (_channel == null) {
+            _header.writeData(_stream);
+        }
+
+        // the property table
+        _propertyTable.preWrite();
+        for (Property p : _properties) {
+            p.writeData(_stream);
+        }
+        writeFiller((long)propertyBlocks * blockSize - (long)_properties.size() * POIFSConstants.PROPERTY_SIZE);
+
+        // the small block allocation table
+        AllocationTableWriter sbat = new AllocationTableWriter();
+        for (StreamingDocument doc : smallDocs) {
+            sbat.addChain(doc._property.getStartBlock(), blockCount(doc._property.getSize(), POIFSConstants.SMALL_BLOCK_SIZE));
+        }
+        sbat.finish(sbatBlocks);
+
+        // the mini stream and the documents
+        for (StreamingDocument doc : smallDocs) {
+            writeDocument(doc, POIFSConstants.SMALL_BLOCK_SIZE);
+        }
+        writeFiller((long)miniStreamBlocks * blockSize - (long)miniBlocks * POIFSConstants.SMALL_BLOCK_SIZE);
+        for (StreamingDocument doc : bigDocs) {
+            writeDocument(doc, blockSize);
+        }
+
+        // the block allocation table
+        AllocationTableWriter bat = new AllocationTableWriter();
+        bat.addChain(0, leadingBlocks);
+        bat.addChain(leadingBlocks, propertyBlocks);
+        bat.addChain(sbatStart, sbatBlocks);
+        bat.addChain(miniStreamStart, miniStreamBlocks);
+        for (StreamingDocument doc : bigDocs) {
+            bat.addChain(doc._property.getStartBlock(), blockCount(doc._property.getSize(), blockSize));
+        }
+        for (int i = 0; i < batBlocks; i++) {
+            bat.add(POIFSConstants.FAT_SECTOR_BLOCK);
+        }
+        for (int i = 0; i < xbatBlocks; i++) {
+            bat.add(POIFSConstants.DIFAT_SECTOR_BLOCK);
+        }
+        bat.finish(batBlocks);
+
+        // the extended block allocation table with the sectors of the block allocation table,
+        // which don't fit into the header
+        AllocationTableWriter xbat = new AllocationTableWriter();
+        for (int i = 0; i < xbatBlocks; i++) {
+            for (int j = 0; j < xbatEntries; j++) {
+                int batIndex = HEADER_BAT_COUNT + i * xbatEntries + j;
+                xbat.add(batIndex < batBlocks ? batStart + batIndex : POIFSConstants.UNUSED_BLOCK);
+            }
+            xbat.add(i < xbatBlocks - 1 ? xbatStart + i + 1 : POIFSConstants.END_OF_CHAIN);
+        }
+        xbat.finish(xbatBlocks);
+
+        if (_channel != null) {
+            _stream.flush();
+            _channel.truncate(_channel.position());
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(blockSize);
+            _header.writeData(bos);
+            ByteBuffer bb = ByteBuffer.wrap(bos.toByteArray());
+            while (bb.hasRemaining()) {
+                _channel.write(bb, bb.position());
+            }
+        }
+    }
+
+    private void writeDocument(StreamingDocument doc, int blockSize) throws IOException {
+        int size = doc._property.getSize();
+        long written;
+        try (DocumentOutputStream os = new DocumentOutputStream(_stream, size)) {
+            doc._source.write(os);
+            written = os.size();
+        }
+        if (written < size) {
+            LOG.log(POILogger.WARN, "The document '", doc._property.getName(), "' has been filled up from ",
+                    written, " to ", size, " bytes");
+        }
+        writeFiller((long)blockCount(size, blockSize) * blockSize - written);
+    }
+
+    private void writeFiller(long count) throws IOException {
+        byte[] zeros = new byte[(int)Math.min(count, 4096)];
+        for (long left = count; left > 0; left -= zeros.length) {
+            _stream.write(zeros, 0, (int)Math.min(left, zeros.length));
+        }
+    }
+
+    private static int blockCount(long size, int blockSize) {
+        return (int)((size + blockSize - 1) / blockSize);
+    }
+
+    private static void checkBlockIndex(long index) {
+        if (index > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The file is too large for an OLE2 file");
+        }
+    }
+
+    /**
+     * Writes the sector chains of an allocation table block by block
+     */
+    private final class AllocationTableWriter {
+        private final byte[] _block = new byte[_bigBlockSize.getBigBlockSize()];
+        private int _offset;
+        private int _blocks;
+
+        void addChain(int start, int length) throws IOException {
+            for (int i = 1; i < length; i++) {
+                add(start + i);
+            }
+            if (length > 0) {
+                add(POIFSConstants.END_OF_CHAIN);
+            }
+        }
+
+        void add(int value) throws IOException {
+            LittleEndian.putInt(_block, _offset, value);
+            _offset += LittleEndianConsts.INT_SIZE;
+            if (_offset == _block.length) {
+                _stream.write(_block);
+                _offset = 0;
+                _blocks++;
+            }
+        }
+
+        void finish(int expectedBlocks) throws IOException {
+            if (_offset > 0) {
+                Arrays.fill(_block, _offset, _block.length, (byte)0xFF);
+                _stream.write(_block);
+                _offset = 0;
+                _blocks++;
+            }
+            if (_blocks != expectedBlocks) {
+                throw new IllegalStateException("Wrote " + _blocks + " allocation table blocks instead of " + expectedBlocks);
+            }
+        }
+    }
+
+    /**
+     * Deletes the temporary files of the spilled documents
+     */
+    @Override
+    public void close() {
+        for (File f : _spilledFiles) {
+            if (!f.delete()) {
+                LOG.log(POILogger.WARN, "Can't delete the temporary file " + f);
+            }
+        }
+        _spilledFiles.clear();
+    }
+}
@@ -26,22 +26,36 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 
-import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 
 /**
- * A POIFS {@link DataSource} backed by a File
+ * A POIFS {@link DataSource} backed by a File.<p>
+ *
+ * Writable files are mapped block by block. Read-only files are either read into heap buffers
+ * or - in the mapped mode - mapped read-only in large windows, of which the blocks are sliced
+ * without copying.<p>
+ *
+ * Reading from a read-only file is thread-safe: the heap buffers are filled with positional
+ * reads, which don't depend on the position of the channel, and the mapped windows are
+ * immutable once they've been mapped.
  */
 public class FileBackedDataSource extends DataSource {
     private final static POILogger logger = POILogFactory.getLogger(FileBackedDataSource.class);
 
+    /** the size of the windows of the read-only mapping - a multiple of the block sizes */
+    private static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
     private final FileChannel channel;
-    private Long channelSize;
+    private volatile Long channelSize;
 
     private final boolean writable;
+    private final boolean mapped;
+    // the lazily mapped windows of the read-only mapping - replaced on change, so it can be read without locking
+    private volatile ByteBuffer[] mappedWindows = new ByteBuffer[0];
     // remember file base, which needs to be closed too
     private RandomAccessFile srcFile;
 
@@ -62,20 +76,56 @@ public class FileBackedDataSource extends DataSource {
         this(newSrcFile(file, readOnly ? "r" : "rw"), readOnly);
     }
 
+    /**
+     * @param file the file
+     * @param readOnly whether the file will only be read
+     * @param mapped whether a read-only file is memory mapped instead of read into heap buffers -
+     *  writable files are always mapped
+     *
+     * @since POI 4.1.1
+     */
+    public FileBackedDataSource(File file, boolean readOnly, boolean mapped) throws FileNotFoundException {
+        this(newSrcFile(file, readOnly ? "r" : "rw"), readOnly, mapped);
+    }
+
     public FileBackedDataSource(RandomAccessFile srcFile, boolean readOnly) {
-        this(srcFile.getChannel(), readOnly);
+        this(srcFile, readOnly, false);
+    }
+
+    /**
+     * @since POI 4.1.1
+     */
+    public FileBackedDataSource(RandomAccessFile srcFile, boolean readOnly, boolean mapped) {
+        this(srcFile.getChannel(), readOnly, mapped);
         this.srcFile = srcFile;
     }
 
     public FileBackedDataSource(FileChannel channel, boolean readOnly) {
+        this(channel, readOnly, false);
+    }
+
+    /**
+     * @since POI 4.1.1
+     */
+    public FileBackedDataSource(FileChannel channel, boolean readOnly, boolean mapped) {
         this.channel = channel;
         this.writable = !readOnly;
+        this.mapped = mapped;
     }
 
     public boolean isWriteable() {
         return this.writable;
     }
 
+    /**
+     * @return true, if a read-only file is memory mapped instead of read into heap buffers
+     *
+     * @since POI 4.1.1
+     */
+    public boolean isMapped() {
+        return this.mapped;
+    }
+
     public FileChannel getChannel() {
         return this.channel;
     }
@@ -86,10 +136,12 @@ public class FileBackedDataSource extends DataSource {
             throw new IndexOutOfBoundsException("Position " + position + " past the end of the file");
         }
 
-        // TODO Could we do the read-only case with MapMode.PRIVATE instead?
-        // See https://docs.oracle.com/javase/7/docs/api/java/nio/channels/FileChannel.MapMode.html#PRIVATE
-        // Or should we have 3 modes instead of the current boolean -
-        //  read-write, read-only, read-to-write-elsewhere?
+        if (!writable && mapped) {
+            ByteBuffer dst = readMapped(length, position);
+            if (dst != null) {
+                return dst;
+            }
+        }
 
         // Do we read or map (for read/write)?
         ByteBuffer dst;
@@ -99,13 +151,11 @@ public class FileBackedDataSource extends DataSource {
             // remember this buffer for cleanup
             buffersToClean.put(dst,dst);
         } else {
-            channel.position(position);
-
             // allocate the buffer on the heap if we cannot map the data in directly
             dst = ByteBuffer.allocate(length);
 
             // Read the contents and check that we could read some data
-            int worked = IOUtils.readFully(channel, dst);
+            int worked = readFully(dst, position);
             if (worked == -1) {
                 throw new IndexOutOfBoundsException("Position " + position + " past the end of the file");
             }
@@ -118,6 +168,70 @@ public class FileBackedDataSource extends DataSource {
         return dst;
     }
 
+    /**
+     * Slices the requested range out of the read-only mapping
+     *
+     * @return the read-only slice or {@code null}, if the range is not contained in a single window
+     *  or exceeds the file - the heap buffer reading handles these cases
+     */
+    private ByteBuffer readMapped(int length, long position) throws IOException {
+        long size = size();
+        int windowIndex = (int)(position / MAPPED_WINDOW_SIZE);
+        long windowStart = windowIndex * MAPPED_WINDOW_SIZE;
+        if (position + length > size || position + length > windowStart + MAPPED_WINDOW_SIZE) {
+            return null;
+        }
+
+        ByteBuffer[] windows = mappedWindows;
+        ByteBuffer window = (windowIndex < windows.length) ? windows[windowIndex] : null;
+        if (window == null) {
+            window = mapWindow(windowIndex, size);
+        }
+
+        // the position and limit of the window are never changed, so it can be shared
+        ByteBuffer dst = window.duplicate();
+        int offset = (int)(position - windowStart);
+        dst.position(offset);
+        dst.limit(offset + length);
+        return dst.slice();
+    }
+
+    private synchronized ByteBuffer mapWindow(int windowIndex, long size) throws IOException {
+        ByteBuffer[] windows = mappedWindows;
+        if (windowIndex < windows.length && windows[windowIndex] != null) {
+            // mapped by another thread in the meantime
+            return windows[windowIndex];
+        }
+
+        long windowStart = windowIndex * MAPPED_WINDOW_SIZE;
+        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(MAPPED_WINDOW_SIZE, size - windowStart));
+
+        // remember this buffer for cleanup
+        buffersToClean.put(window, window);
+
+        windows = Arrays.copyOf(windows, Math.max(windows.length, windowIndex + 1));
+        windows[windowIndex] = window;
+        mappedWindows = windows;
+        return window;
+    }
+
+    /**
+     * Reads from the given position without changing the position of the channel
+     *
+     * @return the number of read bytes or -1, if the position is at the end of the file
+     */
+    private int readFully(ByteBuffer dst, long position) throws IOException {
+        int total = 0;
+        while (dst.hasRemaining()) {
+            int got = channel.read(dst, position + total);
+            if (got < 0) {
+                return (total == 0) ? -1 : total;
+            }
+            total += got;
+        }
+        return total;
+    }
+
     @Override
     public void write(ByteBuffer src, long position) throws IOException {
         channel.write(src, position);
@@ -156,11 +270,12 @@ public class FileBackedDataSource extends DataSource {
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         // also ensure that all buffers are unmapped so we do not keep files locked on Windows
         // We consider it a bug if a Buffer is still in use now!
         buffersToClean.forEach((k,v) -> unmap(v));
         buffersToClean.clear();
+        mappedWindows = new ByteBuffer[0];
 
         if (srcFile != null) {
             // see http://bugs.java.com/bugdatabase/view_bug.do?bug_id=4796385
@@ -17,6 +17,7 @@
 
 package org.apache.poi.poifs.property;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
@@ -50,6 +51,8 @@ public final class PropertyTable implements BATManaged {
     private final HeaderBlock    _header_block;
     private final List<Property> _properties = new ArrayList<>();
     private final POIFSBigBlockSize _bigBigBlockSize;
+    /** the property stream as it was read or last written, to only write the changed blocks */
+    private byte[] _persistedData;
 
     public PropertyTable(HeaderBlock headerBlock)
     {
@@ -83,6 +86,7 @@ public final class PropertyTable implements BATManaged {
         _header_block = headerBlock;
         _bigBigBlockSize = headerBlock.getBigBlockSize();
 
+        ByteArrayOutputStream persisted = new ByteArrayOutputStream();
         for (ByteBuffer bb : dataSource) {
             // Turn it into an array
             byte[] data;
@@ -106,7 +110,9 @@ public final class PropertyTable implements BATManaged {
             }
 
             PropertyFactory.convertToProperties(data, _properties);
+            persisted.write(data, 0, _bigBigBlockSize.getBigBlockSize());
         }
+        _persistedData = persisted.toByteArray();
 
         populatePropertyTree( (DirectoryProperty)_properties.get(0));
     }
@@ -198,13 +204,20 @@ public final class PropertyTable implements BATManaged {
      * Writes the properties out into the given low-level stream
      */
     public void write(POIFSStream stream) throws IOException {
-       OutputStream os = stream.getOutputStream();
+       ByteArrayOutputStream bos = new ByteArrayOutputStream();
        for(Property property : _properties) {
           if(property != null) {
-             property.writeData(os);
+             property.writeData(bos);
           }
        }
-       os.close();
+       byte[] data = bos.toByteArray();
+
+       if (!writeChangedBlocks(stream, data)) {
+          OutputStream os = stream.getOutputStream();
+          os.write(data);
+          os.close();
+       }
+       _persistedData = data;
        
        // Update the start position if needed
        if(getStartBlock() != stream.getStartBlock()) {
@@ -212,6 +225,48 @@ public final class PropertyTable implements BATManaged {
        }
     }
 
+    /**
+     * Writes only the blocks of the property stream, which differ from the read or last written data
+     *
+     * @return false, if the property stream needs to be rewritten, because the number of blocks has changed
+     */
+    private boolean writeChangedBlocks(POIFSStream stream, byte[] data) {
+       int blockSize = _bigBigBlockSize.getBigBlockSize();
+       if (_persistedData == null || stream.getStartBlock() == POIFSConstants.END_OF_CHAIN
+           || getBlockCount(data.length) != getBlockCount(_persistedData.length)) {
+          return false;
+       }
+       int offset = 0;
+       for (ByteBuffer block : stream) {
+          if (offset >= data.length) {
+             break;
+          }
+          int len = Math.min(blockSize, data.length - offset);
+          if (!rangeEquals(data, _persistedData, offset, len)) {
+             block.put(data, offset, len);
+          }
+          offset += len;
+       }
+       return offset >= data.length;
+    }
+
+    private int getBlockCount(int length) {
+       int blockSize = _bigBigBlockSize.getBigBlockSize();
+       return (length + blockSize - 1) / blockSize;
+    }
+
+    private static boolean rangeEquals(byte[] a, byte[] b, int offset, int len) {
+       if (offset + len > b.length) {
+          return false;
+       }
+       for (int i = offset; i < offset + len; i++) {
+          if (a[i] != b[i]) {
+             return false;
+          }
+       }
+       return true;
+    }
+
     private void populatePropertyTree(DirectoryProperty root) throws IOException {
         int index = root.getChildIndex();
 
@@ -52,6 +52,16 @@ public final class BATBlock implements BlockWritable {
      */
     private boolean _has_free_sectors;
 
+    /**
+     * The values as they were read or last written - only kept while the block is modified
+     */
+    private int[] _persistedValues;
+
+    /**
+     * Has this BATBlock been created and not been written yet?
+     */
+    private boolean _unwritten;
+
     /**
      * Where in the file are we?
      */
@@ -108,6 +118,7 @@ public final class BATBlock implements BlockWritable {
      */
     public static BATBlock createEmptyBATBlock(final POIFSBigBlockSize bigBlockSize, boolean isXBAT) {
        BATBlock block = new BATBlock(bigBlockSize);
+       block._unwritten = true;
        if(isXBAT) {
            final int _entries_per_xbat_block = bigBlockSize.getXBATEntriesPerBlock();
            block._values[ _entries_per_xbat_block ] = POIFSConstants.END_OF_CHAIN;
@@ -225,6 +236,11 @@ public final class BATBlock implements BlockWritable {
 
     public void setValueAt(int relativeOffset, int value) {
        int oldValue = _values[relativeOffset];
+       if (oldValue != value && _persistedValues == null && !_unwritten) {
+          // chains are often freed and reallocated to the same blocks,
+          // so keep the persisted values to detect the actual changes
+          _persistedValues = _values.clone();
+       }
        _values[relativeOffset] = value;
 
        // Do we need to re-compute the free?
@@ -268,6 +284,18 @@ public final class BATBlock implements BlockWritable {
     public void writeData(final ByteBuffer block) {
        // Save it out
        block.put( serialize() );
+       _persistedValues = null;
+       _unwritten = false;
+    }
+
+    /**
+     * @return true, if the values have been changed since the block was read
+     *  or last written via {@link #writeData(ByteBuffer)}, i.e. the block needs to be written
+     *
+     * @since POI 4.1.1
+     */
+    public boolean isDirty() {
+       return _unwritten || (_persistedValues != null && !Arrays.equals(_values, _persistedValues));
     }
 
     private byte[] serialize() {
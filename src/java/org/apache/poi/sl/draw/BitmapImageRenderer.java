@@ -52,6 +52,9 @@ public class BitmapImageRenderer implements ImageRenderer {
     private final static POILogger LOG = POILogFactory.getLogger(BitmapImageRenderer.class);
 
     protected BufferedImage img;
+    private ImageCache imageCache;
+    /** the digest of the cached image or {@code null}, if the image isn't cached */
+    private byte[] digest;
 
     @Override
     public boolean canRender(String contentType) {
@@ -66,14 +69,36 @@ public class BitmapImageRenderer implements ImageRenderer {
         return false;
     }
 
+    /**
+     * Sets the cache for the decoded images
+     *
+     * @param imageCache the image cache or {@code null} to decode each image
+     *
+     * @since POI 4.1.1
+     */
+    public void setImageCache(ImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+
     @Override
     public void loadImage(InputStream data, String contentType) throws IOException {
-        img = readImage(data, contentType);
+        if (imageCache != null) {
+            loadImage(IOUtils.toByteArray(data), contentType);
+        } else {
+            digest = null;
+            img = readImage(data, contentType);
+        }
     }
 
     @Override
     public void loadImage(byte[] data, String contentType) throws IOException {
-        img = readImage(new ByteArrayInputStream(data), contentType);
+        if (imageCache == null) {
+            digest = null;
+            img = readImage(new ByteArrayInputStream(data), contentType);
+        } else {
+            digest = ImageCache.getDigest(data);
+            img = imageCache.getDecodedImage(digest, () -> readImage(new ByteArrayInputStream(data), contentType));
+        }
     }
 
     /**
@@ -248,9 +273,15 @@ public class BitmapImageRenderer implements ImageRenderer {
         if (w_old == w_new && h_old == h_new) {
             return img;
         }
+        return (imageCache == null || digest == null)
+            ? scaleImage(img, w_new, h_new)
+            : imageCache.getScaledImage(digest, (int)w_new, (int)h_new, () -> scaleImage(img, w_new, h_new));
+    }
+
+    private static BufferedImage scaleImage(BufferedImage img, double w_new, double h_new) {
         BufferedImage scaled = new BufferedImage((int)w_new, (int)h_new, BufferedImage.TYPE_INT_ARGB);
         AffineTransform at = new AffineTransform();
-        at.scale(w_new/w_old, h_new/h_old);
+        at.scale(w_new/img.getWidth(), h_new/img.getHeight());
         AffineTransformOp scaleOp = new AffineTransformOp(at, AffineTransformOp.TYPE_BILINEAR);
         scaleOp.filter(img, scaled);
         return scaled;
@@ -265,6 +296,8 @@ public class BitmapImageRenderer implements ImageRenderer {
 
     @Override
     public void setAlpha(double alpha) {
+        // the transparent image differs from the cached one
+        digest = null;
         img = setAlpha(img, alpha);
     }
 
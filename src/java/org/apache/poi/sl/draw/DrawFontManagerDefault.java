@@ -23,9 +23,11 @@ import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.poi.common.usermodel.fonts.FontCharset;
 import org.apache.poi.common.usermodel.fonts.FontInfo;
@@ -35,12 +37,19 @@ import org.apache.poi.util.StringUtil;
 /**
  * Manages fonts when rendering slides.
  *
- * Use this class to handle unknown / missing fonts or to substitute fonts
+ * Use this class to handle unknown / missing fonts or to substitute fonts.<p>
+ *
+ * The available font families and the created fonts are cached, so an instance
+ * should be registered via {@link Drawable#FONT_HANDLER} and reused for several
+ * slides - it can be shared by several rendering threads.
  */
 public class DrawFontManagerDefault implements DrawFontManager {
 
     protected final Set<String> knownSymbolFonts = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
 
+    private final Map<String,Font> fontCache = new ConcurrentHashMap<>();
+    private volatile Set<String> fontFamilies;
+
     public DrawFontManagerDefault() {
         knownSymbolFonts.add("Wingdings");
         knownSymbolFonts.add("Symbol");
@@ -85,8 +94,7 @@ public class DrawFontManagerDefault implements DrawFontManager {
             int[] cps = text.codePoints().map(DrawFontManagerDefault::mapSymbolChar).toArray();
             String ret = new String(cps, 0, cps.length);
 
-            String[] allFonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-            boolean hasFont = Arrays.asList(allFonts).contains(typeface);
+            boolean hasFont = getFontFamilies().contains(typeface);
             return hasFont ? ret : StringUtil.mapMsCodepointString(ret);
         }
 
@@ -96,14 +104,24 @@ public class DrawFontManagerDefault implements DrawFontManager {
     @Override
     public Font createAWTFont(Graphics2D graphics, FontInfo fontInfo, double fontSize, boolean bold, boolean italic) {
         int style = (bold ? Font.BOLD : 0) | (italic ? Font.ITALIC : 0);
-        Font font = new Font(fontInfo.getTypeface(), style, 12);
-        if (Font.DIALOG.equals(font.getFamily())) {
+        Font font = fontCache.computeIfAbsent(style + ":" + fontInfo.getTypeface(), k -> {
+            Font f = new Font(fontInfo.getTypeface(), style, 12);
             // SansSerif is a better choice than Dialog
-            font = new Font(Font.SANS_SERIF, style, 12);
-        }
+            return Font.DIALOG.equals(f.getFamily()) ? new Font(Font.SANS_SERIF, style, 12) : f;
+        });
         return font.deriveFont((float)fontSize);
     }
 
+    private Set<String> getFontFamilies() {
+        Set<String> families = fontFamilies;
+        if (families == null) {
+            String[] allFonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+            families = new HashSet<>(Arrays.asList(allFonts));
+            fontFamilies = families;
+        }
+        return families;
+    }
+
     private FontInfo getFontWithFallback(Graphics2D graphics, DrawableHint hint, FontInfo fontInfo) {
         @SuppressWarnings("unchecked")
         Map<String,String> fontMap = (Map<String,String>)graphics.getRenderingHint(hint);
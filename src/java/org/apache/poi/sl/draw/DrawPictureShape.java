@@ -74,7 +74,9 @@ public class DrawPictureShape extends DrawSimpleShape {
     }
 
     /**
-     * Returns an ImageRenderer for the PictureData
+     * Returns an ImageRenderer for the PictureData.
+     * The {@link Drawable#IMAGE_CACHE} hint is only applied to renderers created by this method,
+     * a renderer provided via {@link Drawable#IMAGE_RENDERER} is returned unchanged.
      *
      * @param graphics the graphics context
      * @return the image renderer
@@ -85,8 +87,11 @@ public class DrawPictureShape extends DrawSimpleShape {
             return renderer;
         }
 
+        final ImageCache imageCache = (graphics != null) ? (ImageCache)graphics.getRenderingHint(Drawable.IMAGE_CACHE) : null;
+
         final BitmapImageRenderer fallback = new BitmapImageRenderer();
         if (fallback.canRender(contentType)) {
+            fallback.setImageCache(imageCache);
             return fallback;
         }
 
@@ -49,6 +49,7 @@ public interface Drawable {
             case 12: return "CURRENT_SLIDE";
             case 13: return "BUFFERED_IMAGE";
             case 14: return "DEFAULT_CHARSET";
+            case 15: return "IMAGE_CACHE";
             default: return "UNKNOWN_ID "+intKey();
             }
         }
@@ -153,6 +154,15 @@ public interface Drawable {
      */
     DrawableHint DEFAULT_CHARSET = new DrawableHint(14);
 
+    /**
+     * A cache of the decoded bitmap images, which is shared by the slides.
+     * The rendering value is of type {@link ImageCache}.
+     * It's not applied to a renderer given by {@link #IMAGE_RENDERER}
+     *
+     * @since POI 4.1.1
+     */
+    DrawableHint IMAGE_CACHE = new DrawableHint(15);
+
 
     /**
      * Apply 2-D transforms before drawing this shape. This includes rotation and flipping.
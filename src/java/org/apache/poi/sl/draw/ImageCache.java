@@ -0,0 +1,247 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.sl.draw;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.poi.poifs.crypt.CryptoFunctions;
+import org.apache.poi.poifs.crypt.HashAlgorithm;
+
+/**
+ * A cache of decoded bitmap images, which can be shared by several rendering threads
+ * and slideshows. The images are keyed by a digest of the picture data, so a picture,
+ * which is used on many slides, is only decoded once. Besides the decoded images, the
+ * images scaled to a target size, e.g. for texture fills, are cached as well.<p>
+ *
+ * The cache is bounded by the memory of the images - if it's exceeded, the least
+ * recently used images are evicted. It's registered via the {@link Drawable#IMAGE_CACHE}
+ * rendering hint and used by the {@link BitmapImageRenderer}. The hits, misses and
+ * evictions can be monitored to size the memory limit.
+ *
+ * @since POI 4.1.1
+ */
+public class ImageCache {
+    /**
+     * Decodes the image on a cache miss
+     */
+    @FunctionalInterface
+    public interface ImageLoader {
+        BufferedImage load() throws IOException;
+    }
+
+    private final long maxBytes;
+    private final Map<Key, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxBytes the memory limit of the decoded images, assuming 4 bytes per pixel
+     */
+    public ImageCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the decoded image of the picture data - the image is shared, so it must not be modified
+     *
+     * @param data the raw picture data
+     * @param loader the loader, which decodes the image, if it's not cached
+     * @return the decoded image or {@code null}, if the loader returned {@code null}
+     * @throws IOException if the image can't be decoded
+     */
+    public BufferedImage getImage(byte[] data, ImageLoader loader) throws IOException {
+        return getDecodedImage(getDigest(data), loader);
+    }
+
+    /**
+     * Returns the decoded image of the picture data - the image is shared, so it must not be modified
+     *
+     * @param digest the digest of the picture data, see {@link #getDigest(byte[])}
+     * @param loader the loader, which decodes the image, if it's not cached
+     * @return the decoded image or {@code null}, if the loader returned {@code null}
+     * @throws IOException if the image can't be decoded
+     */
+    public BufferedImage getDecodedImage(byte[] digest, ImageLoader loader) throws IOException {
+        final Key key = new Key(digest, -1, -1);
+        BufferedImage img = lookup(key);
+        return (img != null) ? img : store(key, loader.load());
+    }
+
+    /**
+     * Returns the image of the picture data scaled to the given size - the image is shared,
+     * so it must not be modified
+     *
+     * @param digest the digest of the picture data, see {@link #getDigest(byte[])}
+     * @param width the target width in pixels
+     * @param height the target height in pixels
+     * @param scaler the function, which scales the decoded image, if it's not cached
+     * @return the scaled image or {@code null}, if the scaler returned {@code null}
+     */
+    public BufferedImage getScaledImage(byte[] digest, int width, int height, Supplier<BufferedImage> scaler) {
+        final Key key = new Key(digest, width, height);
+        BufferedImage img = lookup(key);
+        return (img != null) ? img : store(key, scaler.get());
+    }
+
+    /**
+     * @param data the raw picture data
+     * @return the digest, which identifies the picture data in the cache
+     */
+    public static byte[] getDigest(byte[] data) {
+        MessageDigest md = CryptoFunctions.getMessageDigest(HashAlgorithm.sha256);
+        return md.digest(data);
+    }
+
+    private synchronized BufferedImage lookup(Key key) {
+        BufferedImage img = images.get(key);
+        if (img != null) {
+            hits++;
+        } else {
+            // the image is created outside of the lock - concurrent misses of the same image are created twice
+            misses++;
+        }
+        return img;
+    }
+
+    private BufferedImage store(Key key, BufferedImage img) {
+        if (img == null) {
+            return null;
+        }
+        final long size = getSize(img);
+        if (size > maxBytes) {
+            return img;
+        }
+
+        synchronized (this) {
+            BufferedImage cached = images.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            images.put(key, img);
+            usedBytes += size;
+            evict();
+        }
+        return img;
+    }
+
+    /**
+     * @return the number of cached images
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * @return the memory used by the cached images in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the memory limit of the cached images in bytes
+     */
+    public long getMaxMemory() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of requests, which were served by the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests, which needed to decode or scale the image
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of images, which were evicted because of the memory limit
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Removes all cached images - the statistics are kept
+     */
+    public synchronized void clear() {
+        images.clear();
+        usedBytes = 0;
+    }
+
+    private void evict() {
+        Iterator<BufferedImage> iter = images.values().iterator();
+        while (usedBytes > maxBytes && iter.hasNext()) {
+            usedBytes -= getSize(iter.next());
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    private static long getSize(BufferedImage img) {
+        return 4L * img.getWidth() * img.getHeight();
+    }
+
+    /**
+     * The digest of the picture data and the target size - -1 for the decoded image
+     */
+    private static final class Key {
+        private final byte[] digest;
+        private final int width;
+        private final int height;
+        private final int hash;
+
+        Key(byte[] digest, int width, int height) {
+            this.digest = digest;
+            this.width = width;
+            this.height = height;
+            hash = (Arrays.hashCode(digest) * 31 + width) * 31 + height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            return width == other.width && height == other.height && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
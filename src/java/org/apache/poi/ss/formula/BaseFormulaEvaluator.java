@@ -312,6 +312,19 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
     }
 
+    /**
+     * Sets the resolver, which opens external workbooks on demand, i.e. when they are referenced by a formula
+     * but haven't been set up via {@link #setupReferencedWorkbooks(Map)}.
+     *
+     * @param resolver the resolver or <code>null</code> to disable the on demand resolution
+     *
+     * @see ExternalWorkbookCache
+     * @since POI 4.1.1
+     */
+    public void setExternalWorkbookResolver(ExternalWorkbookResolver resolver) {
+        _bookEvaluator.setExternalWorkbookResolver(resolver);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setDebugEvaluationOutputForNextEval(boolean value){
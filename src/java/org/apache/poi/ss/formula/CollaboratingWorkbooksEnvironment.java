@@ -16,6 +16,7 @@
 ==================================================================== */
 package org.apache.poi.ss.formula;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -47,7 +48,7 @@ public final class CollaboratingWorkbooksEnvironment {
     public static final CollaboratingWorkbooksEnvironment EMPTY = new CollaboratingWorkbooksEnvironment();
 
     private final Map<String, WorkbookEvaluator> _evaluatorsByName;
-    private final WorkbookEvaluator[] _evaluators;
+    private WorkbookEvaluator[] _evaluators;
 
     private boolean _unhooked;
     private CollaboratingWorkbooksEnvironment() {
@@ -118,7 +119,43 @@ public final class CollaboratingWorkbooksEnvironment {
         hookNewEnvironment(evaluators, this);
         _unhooked = false;
         _evaluators = evaluators.clone();
-        _evaluatorsByName = evaluatorsByName;
+        // workbooks resolved on demand are added later
+        _evaluatorsByName = new HashMap<>(evaluatorsByName);
+    }
+
+    /**
+     * Creates an environment for a single evaluator, which keeps its evaluation cache
+     */
+    private CollaboratingWorkbooksEnvironment(WorkbookEvaluator evaluator) {
+        _unhooked = false;
+        _evaluators = new WorkbookEvaluator[]{ evaluator };
+        _evaluatorsByName = new HashMap<>();
+        evaluator.attachToEnvironment(this, evaluator.getCache(), 0);
+    }
+
+    /**
+     * Adds an evaluator for a workbook, which was resolved on demand by a {@link ExternalWorkbookResolver},
+     * to the environment of the referencing evaluator. If the referencing evaluator isn't part of an
+     * environment yet, a new one is created.
+     */
+    /* package */ static void addResolvedWorkbook(WorkbookEvaluator referencingEvaluator,
+            String workbookName, WorkbookEvaluator resolvedEvaluator) {
+        CollaboratingWorkbooksEnvironment env = referencingEvaluator.getEnvironment();
+        if (env._evaluators.length < 1) {
+            // never modify the EMPTY environment
+            env = new CollaboratingWorkbooksEnvironment(referencingEvaluator);
+        }
+        if (env._unhooked) {
+            throw new IllegalStateException("This environment has been unhooked");
+        }
+        if (env._evaluatorsByName.containsKey(workbookName)) {
+            throw new IllegalArgumentException("Duplicate workbook name '" + workbookName + "'");
+        }
+        int workbookIx = env._evaluators.length;
+        env._evaluators = Arrays.copyOf(env._evaluators, workbookIx + 1);
+        env._evaluators[workbookIx] = resolvedEvaluator;
+        env._evaluatorsByName.put(workbookName, resolvedEvaluator);
+        resolvedEvaluator.attachToEnvironment(env, referencingEvaluator.getCache(), workbookIx);
     }
 
     private static void hookNewEnvironment(WorkbookEvaluator[] evaluators, CollaboratingWorkbooksEnvironment env) {
@@ -17,6 +17,10 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
 import org.apache.poi.ss.formula.FormulaCellCache.IEntryOperation;
 import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
 import org.apache.poi.ss.formula.PlainCellCache.Loc;
@@ -53,7 +57,7 @@ final class EvaluationCache {
 
 		int rowIndex = cell.getRowIndex();
 		int columnIndex = cell.getColumnIndex();
-		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
+		long loc = Loc.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
 		PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
 
 		if (cell.getCellType() == CellType.FORMULA) {
@@ -124,7 +128,7 @@ final class EvaluationCache {
 	public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
 			int rowIndex, int columnIndex, ValueEval value) {
 
-		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
+		long loc = Loc.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
 		PlainValueCellCacheEntry result = _plainCellCache.get(loc);
 		if (result == null) {
 			result = new PlainValueCellCacheEntry(value);
@@ -143,6 +147,28 @@ final class EvaluationCache {
 		}
 		return result;
 	}
+
+	/**
+	 * Variant of {@link #getPlainValueEntry(int, int, int, int, ValueEval)} for numeric cells,
+	 * which only creates a {@link NumberEval} for a new cache entry
+	 */
+	public PlainValueCellCacheEntry getPlainNumberEntry(int bookIndex, int sheetIndex,
+			int rowIndex, int columnIndex, double value) {
+
+		long loc = Loc.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
+		PlainValueCellCacheEntry result = _plainCellCache.get(loc);
+		if (result == null) {
+			return getPlainValueEntry(bookIndex, sheetIndex, rowIndex, columnIndex, new NumberEval(value));
+		}
+		ValueEval cached = result.getValue();
+		if (!(cached instanceof NumberEval) || ((NumberEval)cached).getNumberValue() != value) {
+			throw new IllegalStateException("value changed");
+		}
+		if (_evaluationListener != null) {
+			_evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, cached);
+		}
+		return result;
+	}
 	private boolean areValuesEqual(ValueEval a, ValueEval b) {
 		if (a == null) {
 			return false;
@@ -180,6 +206,50 @@ final class EvaluationCache {
 		return result;
 	}
 
+	/**
+	 * Adds all cached formula cells to <tt>result</tt>, which (transitively) depend on the given cell.
+	 * This doesn't modify the cache, so it can be called concurrently, as long as no other
+	 * thread evaluates with this cache.
+	 */
+	/* package */ void collectDependentFormulaCells(int bookIndex, int sheetIndex, EvaluationCell cell,
+			Set<FormulaCellCacheEntry> result) {
+		int rowIndex = cell.getRowIndex();
+		int columnIndex = cell.getColumnIndex();
+		CellCacheEntry entry = _formulaCellCache.get(cell);
+		if (entry == null) {
+			entry = _plainCellCache.get(Loc.toKey(bookIndex, sheetIndex, rowIndex, columnIndex));
+		}
+		Deque<CellCacheEntry> pending = new ArrayDeque<>();
+		if (entry != null) {
+			pending.push(entry);
+		} else {
+			// blank cells are not cached, but tracked by the formulas which use them
+			BookSheetKey bsk = new BookSheetKey(bookIndex, sheetIndex);
+			_formulaCellCache.applyOperation(fcce -> {
+				if (fcce.isUsedBlankCell(bsk, rowIndex, columnIndex) && result.add(fcce)) {
+					pending.push(fcce);
+				}
+			});
+		}
+		while (!pending.isEmpty()) {
+			for (FormulaCellCacheEntry consumer : pending.pop().getConsumingCells()) {
+				if (result.add(consumer)) {
+					pending.push(consumer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param excludedCells the formula cells, whose cached result must not be used
+	 * @return the cached result of the formula cell or <code>null</code> if the cell hasn't been
+	 *  evaluated yet or is excluded
+	 */
+	/* package */ ValueEval getFormulaResult(EvaluationCell cell, Set<FormulaCellCacheEntry> excludedCells) {
+		FormulaCellCacheEntry fcce = _formulaCellCache.get(cell);
+		return (fcce == null || excludedCells.contains(fcce)) ? null : fcce.getValue();
+	}
+
 	/**
 	 * Should be called whenever there are changes to input cells in the evaluated workbook.
 	 */
@@ -201,7 +271,7 @@ final class EvaluationCache {
 				fcce.recurseClearCachedFormulaResults(_evaluationListener);
 			}
 		} else {
-			Loc loc = new Loc(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+			long loc = Loc.toKey(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
 			PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
 
 			if (pcce == null) {
@@ -0,0 +1,580 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.poi.common.usermodel.GenericRecord;
+import org.apache.poi.ss.formula.PlainCellCache.Loc;
+import org.apache.poi.ss.formula.eval.FunctionNameEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.GenericRecordJsonWriter;
+import org.apache.poi.util.GenericRecordUtil;
+
+/**
+ * Collects statistics about the evaluation of formula cells, i.e. which cells, functions and
+ * referenced areas took the most time and how effective the evaluation cache was.<p>
+ *
+ * A profiler is attached to a evaluator on creation, e.g. via
+ * {@link org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator#create(org.apache.poi.hssf.usermodel.HSSFWorkbook, IStabilityClassifier, org.apache.poi.ss.formula.udf.UDFFinder, EvaluationProfiler)
+ * HSSFFormulaEvaluator.create(..., profiler)} or the equivalent factory methods of the XSSF/SXSSF evaluators.
+ * Evaluators without a profiler don't have any overhead, a disabled profiler returns
+ * immediately from its callbacks.<p>
+ *
+ * The times are measured in wall-clock nanoseconds. The total time of a cell or function includes
+ * the time of the cells and functions which were evaluated on its behalf, the self time excludes it.<p>
+ *
+ * If an evaluation fails with an exception, the statistics of the aborted cells and functions are
+ * incomplete. Call {@link #reset()} before profiling the next evaluation in that case.<p>
+ *
+ * A profiler can be shared by the evaluators of collaborating workbooks. The cells of the
+ * workbooks are told apart by {@link CellProfile#getWorkbookIndex()}.<p>
+ *
+ * This class is not thread-safe - like the evaluators, it must be used by one thread at a time.
+ *
+ * @since POI 4.1.1
+ */
+public final class EvaluationProfiler implements GenericRecord {
+
+    private final IEvaluationListener _listener = new Listener();
+    private boolean _enabled = true;
+
+    private long _cacheHits;
+    private long _plainValueReads;
+    private long _formulaEvaluations;
+    private int _depth;
+    private int _maxDepth;
+
+    /** the currently running cell evaluations and operations, innermost last */
+    private final List<Frame> _frames = new ArrayList<>();
+    private final Map<Long, CellProfile> _cells = new HashMap<>();
+    private final Map<String, FunctionProfile> _functions = new HashMap<>();
+    private final Map<String, AreaProfile> _areas = new HashMap<>();
+    /** the workbooks of the evaluated cells, in the order of their first evaluation */
+    private final Map<EvaluationWorkbook, Integer> _workbookIndexes = new IdentityHashMap<>();
+
+    /**
+     * @return the listener, which is attached to the evaluators - the evaluators of collaborating
+     *  workbooks share it, so the cells are keyed by their workbook
+     */
+    /* package */ IEvaluationListener getListener() {
+        return _listener;
+    }
+
+    /**
+     * @param enabled if {@code false}, the callbacks of the evaluator are ignored.
+     *  The already collected statistics are kept.
+     */
+    public void setEnabled(boolean enabled) {
+        _enabled = enabled;
+        _frames.clear();
+        _depth = 0;
+    }
+
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Discards the collected statistics
+     */
+    public void reset() {
+        _cacheHits = 0;
+        _plainValueReads = 0;
+        _formulaEvaluations = 0;
+        _depth = 0;
+        _maxDepth = 0;
+        _frames.clear();
+        _cells.clear();
+        _functions.clear();
+        _areas.clear();
+    }
+
+    /**
+     * @return the number of plain value and formula cells which were served from the evaluation cache
+     */
+    public long getCacheHits() {
+        return _cacheHits;
+    }
+
+    /**
+     * @return the number of plain value and formula cells which weren't cached yet
+     */
+    public long getCacheMisses() {
+        return _plainValueReads + _formulaEvaluations;
+    }
+
+    /**
+     * @return the number of evaluated formula cells
+     */
+    public long getFormulaEvaluations() {
+        return _formulaEvaluations;
+    }
+
+    /**
+     * @return the maximum nesting of formula cells, which were evaluated on behalf of each other
+     */
+    public int getMaxDepth() {
+        return _maxDepth;
+    }
+
+    /**
+     * @return the evaluated formula cells, the costliest (by self time) first
+     */
+    public List<CellProfile> getCellProfiles() {
+        List<CellProfile> list = new ArrayList<>(_cells.values());
+        list.sort(Comparator.comparingLong(CellProfile::getSelfNanos).reversed());
+        return list;
+    }
+
+    /**
+     * @return the invoked functions and operators, the costliest (by self time) first
+     */
+    public List<FunctionProfile> getFunctionProfiles() {
+        List<FunctionProfile> list = new ArrayList<>(_functions.values());
+        list.sort(Comparator.comparingLong(FunctionProfile::getSelfNanos).reversed());
+        return list;
+    }
+
+    /**
+     * @return the areas, which were passed to functions and operators, the largest first
+     */
+    public List<AreaProfile> getAreaProfiles() {
+        List<AreaProfile> list = new ArrayList<>(_areas.values());
+        list.sort(Comparator.comparingLong(AreaProfile::getCellCount).reversed()
+            .thenComparing(Comparator.comparingLong(AreaProfile::getReferences).reversed()));
+        return list;
+    }
+
+    /**
+     * @return the statistics as JSON document
+     */
+    public String toJson() {
+        return GenericRecordJsonWriter.marshal(this, false);
+    }
+
+    /**
+     * @param limit the maximum number of entries listed for cells, functions and areas
+     * @return the statistics as human readable report
+     */
+    public String toText(int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Evaluation profile: ")
+            .append(_formulaEvaluations).append(" formula evaluations, ")
+            .append(getCacheHits()).append(" cache hits, ")
+            .append(getCacheMisses()).append(" cache misses, max. depth ")
+            .append(_maxDepth).append('\n');
+
+        sb.append("Costliest cells (self / total ms, evaluations):\n");
+        for (CellProfile cp : limit(getCellProfiles(), limit)) {
+            appendLine(sb, cp.getName(), cp.getSelfNanos(), cp.getTotalNanos(), cp.getEvaluations());
+        }
+        sb.append("Costliest functions (self / total ms, invocations):\n");
+        for (FunctionProfile fp : limit(getFunctionProfiles(), limit)) {
+            appendLine(sb, fp.getName(), fp.getSelfNanos(), fp.getTotalNanos(), fp.getInvocations());
+        }
+        sb.append("Largest referenced areas (cells, references):\n");
+        for (AreaProfile ap : limit(getAreaProfiles(), limit)) {
+            sb.append(String.format(Locale.ROOT, "  %-40s %12d %10d%n", ap.getName(), ap.getCellCount(), ap.getReferences()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText(10);
+    }
+
+    @Override
+    public Map<String, Supplier<?>> getGenericProperties() {
+        return GenericRecordUtil.getGenericProperties(
+            "formulaEvaluations", this::getFormulaEvaluations,
+            "cacheHits", this::getCacheHits,
+            "cacheMisses", this::getCacheMisses,
+            "maxDepth", this::getMaxDepth,
+            "cells", this::getCellProfiles,
+            "functions", this::getFunctionProfiles,
+            "areas", this::getAreaProfiles
+        );
+    }
+
+    private static <T> List<T> limit(List<T> list, int limit) {
+        return (list.size() > limit) ? list.subList(0, limit) : list;
+    }
+
+    private static void appendLine(StringBuilder sb, String name, long selfNanos, long totalNanos, long count) {
+        sb.append(String.format(Locale.ROOT, "  %-40s %12.3f %12.3f %10d%n",
+            name, selfNanos / 1e6, totalNanos / 1e6, count));
+    }
+
+    /**
+     * Receives the callbacks of the evaluators
+     */
+    private final class Listener implements IEvaluationListener {
+        @Override
+        public void onCacheHit(int sheetIndex, int rowIndex, int columnIndex, ValueEval result) {
+            if (_enabled) {
+                _cacheHits++;
+            }
+        }
+
+        @Override
+        public void onReadPlainValue(int sheetIndex, int rowIndex, int columnIndex, ICacheEntry entry) {
+            if (_enabled) {
+                _plainValueReads++;
+            }
+        }
+
+        @Override
+        public void onStartEvaluate(EvaluationCell cell, ICacheEntry entry) {
+            // not called by the evaluators, which call the variant with the workbook
+        }
+
+        @Override
+        public void onStartEvaluate(EvaluationWorkbook workbook, int sheetIndex, EvaluationCell cell, ICacheEntry entry) {
+            if (!_enabled) {
+                return;
+            }
+            _formulaEvaluations++;
+            int workbookIndex = getWorkbookIndex(workbook);
+            long key = Loc.toKey(workbookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+            CellProfile cp = _cells.get(key);
+            if (cp == null) {
+                cp = new CellProfile(workbook, workbookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+                _cells.put(key, cp);
+            }
+            _frames.add(new Frame(entry, cp));
+            _maxDepth = Math.max(_maxDepth, ++_depth);
+        }
+
+        @Override
+        public void onEndEvaluate(ICacheEntry entry, ValueEval result) {
+            if (!_enabled) {
+                return;
+            }
+            Frame frame = pop(entry);
+            if (frame != null) {
+                _depth--;
+                frame.cell.evaluations++;
+                frame.cell.totalNanos += frame.elapsed;
+                frame.cell.selfNanos += frame.elapsed - frame.childNanos;
+            }
+        }
+
+        @Override
+        public void onStartOperation(OperationPtg operation, ValueEval[] args) {
+            if (!_enabled) {
+                return;
+            }
+            String name = getOperationName(operation, args);
+            FunctionProfile fp = _functions.get(name);
+            if (fp == null) {
+                fp = new FunctionProfile(name);
+                _functions.put(name, fp);
+            }
+            for (ValueEval arg : args) {
+                if (arg instanceof LazyAreaEval) {
+                    addArea((LazyAreaEval)arg);
+                }
+            }
+            _frames.add(new Frame(operation, fp));
+        }
+
+        @Override
+        public void onEndOperation(OperationPtg operation, ValueEval result) {
+            if (!_enabled) {
+                return;
+            }
+            Frame frame = pop(operation);
+            if (frame != null) {
+                frame.function.invocations++;
+                frame.function.totalNanos += frame.elapsed;
+                frame.function.selfNanos += frame.elapsed - frame.childNanos;
+            }
+        }
+
+        @Override
+        public void onClearWholeCache() {}
+
+        @Override
+        public void onClearCachedValue(ICacheEntry entry) {}
+
+        @Override
+        public void sortDependentCachedValues(ICacheEntry[] formulaCells) {}
+
+        @Override
+        public void onClearDependentCachedValue(ICacheEntry formulaCell, int depth) {}
+
+        @Override
+        public void onChangeFromBlankValue(int sheetIndex, int rowIndex, int columnIndex, EvaluationCell cell, ICacheEntry entry) {}
+    }
+
+    /**
+     * Removes the frame of the given cell or operation from the stack and stops its clock.
+     * Frames above it belong to evaluations, which were aborted by an exception, and are discarded.
+     *
+     * @return the frame or {@code null}, if it wasn't started while the profiler was enabled
+     */
+    private Frame pop(Object owner) {
+        long now = System.nanoTime();
+        int idx = _frames.size() - 1;
+        while (idx >= 0 && _frames.get(idx).owner != owner) {
+            idx--;
+        }
+        if (idx < 0) {
+            return null;
+        }
+        for (int i = _frames.size() - 1; i > idx; i--) {
+            if (_frames.remove(i).cell != null) {
+                _depth--;
+            }
+        }
+        Frame frame = _frames.remove(idx);
+        frame.elapsed = now - frame.start;
+        if (idx > 0) {
+            _frames.get(idx - 1).childNanos += frame.elapsed;
+        }
+        return frame;
+    }
+
+    private int getWorkbookIndex(EvaluationWorkbook workbook) {
+        Integer idx = _workbookIndexes.get(workbook);
+        if (idx == null) {
+            idx = _workbookIndexes.size();
+            _workbookIndexes.put(workbook, idx);
+        }
+        return idx;
+    }
+
+    private static String getOperationName(OperationPtg operation, ValueEval[] args) {
+        if (operation instanceof AbstractFunctionPtg) {
+            AbstractFunctionPtg fptg = (AbstractFunctionPtg)operation;
+            if (fptg.isExternalFunction() && args.length > 0 && args[0] instanceof FunctionNameEval) {
+                return ((FunctionNameEval)args[0]).getFunctionName();
+            }
+            return fptg.getName();
+        }
+        // operators are rendered with empty operands, e.g. "+" or "%"
+        String[] operands = new String[operation.getNumberOfOperands()];
+        Arrays.fill(operands, "");
+        return operation.toFormulaString(operands).trim();
+    }
+
+    private void addArea(LazyAreaEval area) {
+        String name = area.getSheetNameRange() + "!" +
+            new CellReference(area.getFirstRow(), area.getFirstColumn()).formatAsString() + ":" +
+            new CellReference(area.getLastRow(), area.getLastColumn()).formatAsString();
+        AreaProfile ap = _areas.get(name);
+        if (ap == null) {
+            long cells = (long)area.getHeight() * area.getWidth() *
+                (area.getLastSheetIndex() - area.getFirstSheetIndex() + 1);
+            ap = new AreaProfile(name, cells);
+            _areas.put(name, ap);
+        }
+        ap.references++;
+    }
+
+    private static final class Frame {
+        final Object owner;
+        final CellProfile cell;
+        final FunctionProfile function;
+        final long start = System.nanoTime();
+        long childNanos;
+        long elapsed;
+
+        Frame(IEvaluationListener.ICacheEntry entry, CellProfile cell) {
+            this.owner = entry;
+            this.cell = cell;
+            this.function = null;
+        }
+
+        Frame(OperationPtg operation, FunctionProfile function) {
+            this.owner = operation;
+            this.cell = null;
+            this.function = function;
+        }
+    }
+
+    /**
+     * The statistics of a formula cell
+     */
+    public static final class CellProfile implements GenericRecord {
+        private final EvaluationWorkbook workbook;
+        private final int workbookIndex;
+        private final int sheetIndex;
+        private final int row;
+        private final int column;
+        private long evaluations;
+        private long totalNanos;
+        private long selfNanos;
+
+        private CellProfile(EvaluationWorkbook workbook, int workbookIndex, int sheetIndex, int row, int column) {
+            this.workbook = workbook;
+            this.workbookIndex = workbookIndex;
+            this.sheetIndex = sheetIndex;
+            this.row = row;
+            this.column = column;
+        }
+
+        /**
+         * @return the cell reference including the sheet name, e.g. "Sheet1!A1" - the cells of
+         *  the other workbooks than the first one are prefixed by their workbook index, e.g. "[1]Sheet1!A1"
+         */
+        public String getName() {
+            String prefix = (workbookIndex == 0) ? "" : "[" + workbookIndex + "]";
+            return prefix + workbook.getSheetName(sheetIndex) + "!" + new CellReference(row, column).formatAsString();
+        }
+
+        /**
+         * @return the index of the cell's workbook, in the order in which the workbooks were first evaluated
+         */
+        public int getWorkbookIndex() {
+            return workbookIndex;
+        }
+
+        public int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        @Override
+        public Map<String, Supplier<?>> getGenericProperties() {
+            return GenericRecordUtil.getGenericProperties(
+                "name", this::getName,
+                "workbookIndex", this::getWorkbookIndex,
+                "evaluations", this::getEvaluations,
+                "totalNanos", this::getTotalNanos,
+                "selfNanos", this::getSelfNanos
+            );
+        }
+    }
+
+    /**
+     * The statistics of a function or operator
+     */
+    public static final class FunctionProfile implements GenericRecord {
+        private final String name;
+        private long invocations;
+        private long totalNanos;
+        private long selfNanos;
+
+        private FunctionProfile(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the function name, e.g. "SUM", or the operator symbol, e.g. "+"
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        @Override
+        public Map<String, Supplier<?>> getGenericProperties() {
+            return GenericRecordUtil.getGenericProperties(
+                "name", this::getName,
+                "invocations", this::getInvocations,
+                "totalNanos", this::getTotalNanos,
+                "selfNanos", this::getSelfNanos
+            );
+        }
+    }
+
+    /**
+     * The statistics of an area, which was referenced by a function or operator
+     */
+    public static final class AreaProfile implements GenericRecord {
+        private final String name;
+        private final long cellCount;
+        private long references;
+
+        private AreaProfile(String name, long cellCount) {
+            this.name = name;
+            this.cellCount = cellCount;
+        }
+
+        /**
+         * @return the area reference including the sheet name, e.g. "Sheet1!A1:B10"
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getCellCount() {
+            return cellCount;
+        }
+
+        /**
+         * @return how often the area was passed to a function or operator
+         */
+        public long getReferences() {
+            return references;
+        }
+
+        @Override
+        public Map<String, Supplier<?>> getGenericProperties() {
+            return GenericRecordUtil.getGenericProperties(
+                "name", this::getName,
+                "cellCount", this::getCellCount,
+                "references", this::getReferences
+            );
+        }
+    }
+}
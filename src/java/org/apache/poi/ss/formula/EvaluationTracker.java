@@ -148,4 +148,18 @@ final class EvaluationTracker {
 			}
 		}
 	}
+
+	/**
+	 * Variant of {@link #acceptPlainValueDependency(EvaluationWorkbook, int, int, int, int, ValueEval)}
+	 * for numeric cells, which are read without creating a {@link org.apache.poi.ss.formula.eval.NumberEval}
+	 */
+	public void acceptPlainNumberDependency(int bookIndex, int sheetIndex,
+			int rowIndex, int columnIndex, double value) {
+		int prevFrameIndex = _evaluationFrames.size() - 1;
+		if (prevFrameIndex >= 0) {
+			CellEvaluationFrame consumingFrame = _evaluationFrames.get(prevFrameIndex);
+			consumingFrame.addSensitiveInputCell(_cache.getPlainNumberEntry(bookIndex, sheetIndex,
+					rowIndex, columnIndex, value));
+		}
+	}
 }
@@ -87,6 +87,19 @@ public interface EvaluationWorkbook {
      */
     public void clearAllCachedResultValues();
 
+    /**
+     * The cell values of an external workbook, as they were cached by Excel in this workbook.
+     * They are used, when the external workbook itself is not available, see {@link ExternalWorkbookResolver}
+     *
+     * @param workbookName the name of the workbook as used in the external references
+     * @return the cached values or <code>null</code>, if this workbook doesn't cache them
+     *
+     * @since POI 4.1.1
+     */
+    default EvaluationWorkbook getCachedExternalWorkbook(String workbookName) {
+        return null;
+    }
+
     class ExternalSheet {
         private final String _workbookName;
         private final String _sheetName;
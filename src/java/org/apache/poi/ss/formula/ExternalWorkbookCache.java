@@ -0,0 +1,129 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.forked.SnapshotEvaluationWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+
+/**
+ * An {@link ExternalWorkbookResolver}, which opens the external workbooks on first reference
+ * and keeps the most recently used ones in memory. The cache can be shared between evaluators
+ * (also of different threads), e.g. when the same set of linked workbooks is used by many requests.<p>
+ *
+ * The opened workbooks are copied into read-only snapshots, which don't refer to the workbooks,
+ * and are closed right away - only the snapshots are cached. In the values-only mode, the formulas
+ * of the external workbooks are not evaluated, but their results as last calculated by Excel are used.
+ * This is faster and needs less memory, but it's only correct if the external workbooks are up-to-date.<p>
+ *
+ * The evaluators which already resolved an evicted workbook, keep using its snapshot.
+ *
+ * @since POI 4.1.1
+ */
+public class ExternalWorkbookCache implements ExternalWorkbookResolver, Closeable {
+    private static final POILogger LOG = POILogFactory.getLogger(ExternalWorkbookCache.class);
+
+    /**
+     * Opens the external workbook, e.g. by looking up the file name in a directory
+     */
+    @FunctionalInterface
+    public interface WorkbookLoader {
+        /**
+         * The workbook is closed, once it has been copied, so it should be opened read-only.
+         *
+         * @param workbookName the name of the workbook as used in the formulas
+         * @return the workbook or <code>null</code>, if it doesn't exist
+         */
+        Workbook load(String workbookName) throws IOException;
+    }
+
+    private final WorkbookLoader _loader;
+    private final boolean _valuesOnly;
+    private final Map<String, EvaluationWorkbook> _entries;
+
+    /**
+     * @param maxWorkbooks the maximum number of workbooks kept in memory
+     * @param valuesOnly if {@code true}, the cached formula results of the external workbooks are used
+     * @param loader opens the external workbooks
+     */
+    public ExternalWorkbookCache(final int maxWorkbooks, boolean valuesOnly, WorkbookLoader loader) {
+        if (maxWorkbooks < 1) {
+            throw new IllegalArgumentException("The cache needs to hold at least one workbook");
+        }
+        _loader = loader;
+        _valuesOnly = valuesOnly;
+        _entries = new LinkedHashMap<String, EvaluationWorkbook>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EvaluationWorkbook> eldest) {
+                return size() > maxWorkbooks;
+            }
+        };
+    }
+
+    /**
+     * Opens the workbook on first reference. The workbook is opened under the lock of this cache,
+     * i.e. concurrent requests for other workbooks need to wait.
+     */
+    @Override
+    public synchronized EvaluationWorkbook resolveWorkbook(String workbookName) {
+        EvaluationWorkbook snapshot = _entries.get(workbookName);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        Workbook wb;
+        try {
+            wb = _loader.load(workbookName);
+        } catch (IOException e) {
+            LOG.log(POILogger.WARN, "Can't open external workbook '" + workbookName + "'", e);
+            return null;
+        }
+        if (wb == null) {
+            return null;
+        }
+        try {
+            snapshot = new SnapshotEvaluationWorkbook(wb, _valuesOnly, true);
+        } finally {
+            IOUtils.closeQuietly(wb);
+        }
+        _entries.put(workbookName, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * @return the number of cached workbooks
+     */
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    /**
+     * Discards the cached workbooks
+     */
+    @Override
+    public synchronized void close() {
+        _entries.clear();
+    }
+}
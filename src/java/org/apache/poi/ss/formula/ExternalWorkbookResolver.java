@@ -0,0 +1,42 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+/**
+ * Provides the workbooks, which are referenced by external references, on demand.<p>
+ *
+ * A resolver is consulted, when a formula refers to a workbook which isn't part of the
+ * {@link CollaboratingWorkbooksEnvironment} of the evaluator yet. If the resolver can't provide
+ * the workbook, the values cached by Excel in the referencing workbook are used, if available
+ * (XSSF only).<p>
+ *
+ * The returned workbooks can be shared by several evaluators and threads, so they need to be
+ * read-only, e.g. a {@link org.apache.poi.ss.formula.eval.forked.SnapshotEvaluationWorkbook}.
+ *
+ * @see ExternalWorkbookCache
+ * @since POI 4.1.1
+ */
+@FunctionalInterface
+public interface ExternalWorkbookResolver {
+    /**
+     * @param workbookName the name of the workbook as used in the formulas,
+     *  e.g. "MyData.xls" in "[MyData.xls]Sheet1!A1"
+     * @return the workbook or <code>null</code>, if it isn't available
+     */
+    EvaluationWorkbook resolveWorkbook(String workbookName);
+}
@@ -112,6 +112,10 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
 		_usedBlankCellGroup = usedBlankAreas;
 	}
 
+	/* package */ boolean isUsedBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex) {
+		return _usedBlankCellGroup != null && _usedBlankCellGroup.containsCell(bsk, rowIndex, columnIndex);
+	}
+
 	public void notifyUpdatedBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex, IEvaluationListener evaluationListener) {
 		if (_usedBlankCellGroup != null) {
 			if (_usedBlankCellGroup.containsCell(bsk, rowIndex, columnIndex)) {
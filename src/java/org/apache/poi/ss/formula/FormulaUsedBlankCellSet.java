@@ -17,15 +17,13 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.poi.ss.util.CellReference;
+import java.util.Arrays;
 
 /**
- * Optimization - compacts many blank cell references used by a single formula.
+ * Optimization - compacts many blank cell references used by a single formula.<p>
+ *
+ * The blank cells of each sheet are merged into rectangles, which are stored as
+ * ranges in a flat <code>int</code> array instead of an object per rectangle.
  */
 final class FormulaUsedBlankCellSet {
 	public static final class BookSheetKey {
@@ -52,60 +50,79 @@ final class FormulaUsedBlankCellSet {
 	}
 
 	private static final class BlankCellSheetGroup {
-		private final List<BlankCellRectangleGroup> _rectangleGroups;
+		private final int _bookIndex;
+		private final int _sheetIndex;
+		private final int _lastDefinedRow;
+
+		/** closed rectangles: first row, last row, first column, last column */
+		private int[] _rectangles;
+		private int _nRectangles;
+
+		/** the currently growing run of cells on a single row */
 		private int _currentRowIndex;
 		private int _firstColumnIndex;
 		private int _lastColumnIndex;
-		private BlankCellRectangleGroup _currentRectangleGroup;
-        private int _lastDefinedRow;
 
-		public BlankCellSheetGroup(int lastDefinedRow) {
-			_rectangleGroups = new ArrayList<>();
-			_currentRowIndex = -1;
+		public BlankCellSheetGroup(int bookIndex, int sheetIndex, int lastDefinedRow) {
+			_bookIndex = bookIndex;
+			_sheetIndex = sheetIndex;
 			_lastDefinedRow = lastDefinedRow;
+			_rectangles = new int[4 * 4];
+			_currentRowIndex = -1;
+		}
+
+		public boolean isSheet(int bookIndex, int sheetIndex) {
+			return _bookIndex == bookIndex && _sheetIndex == sheetIndex;
 		}
 
 		public void addCell(int rowIndex, int columnIndex) {
 		    if (rowIndex > _lastDefinedRow) return;
-		    
-			if (_currentRowIndex == -1) {
-				_currentRowIndex = rowIndex;
-				_firstColumnIndex = columnIndex;
+
+			if (_currentRowIndex == rowIndex && _lastColumnIndex+1 == columnIndex) {
 				_lastColumnIndex = columnIndex;
-			} else {
-				if (_currentRowIndex == rowIndex && _lastColumnIndex+1 == columnIndex) {
-					_lastColumnIndex = columnIndex;
-				} else {
-					// cell does not fit on end of current row
-					if (_currentRectangleGroup == null) {
-						_currentRectangleGroup = new BlankCellRectangleGroup(_currentRowIndex, _firstColumnIndex, _lastColumnIndex);
-					} else {
-						if (!_currentRectangleGroup.acceptRow(_currentRowIndex, _firstColumnIndex, _lastColumnIndex)) {
-							_rectangleGroups.add(_currentRectangleGroup);
-							_currentRectangleGroup = new BlankCellRectangleGroup(_currentRowIndex, _firstColumnIndex, _lastColumnIndex);
-						}
-					}
-					_currentRowIndex = rowIndex;
-					_firstColumnIndex = columnIndex;
-					_lastColumnIndex = columnIndex;
+				return;
+			}
+			if (_currentRowIndex != -1) {
+				// cell does not fit on end of current row
+				closeCurrentRow();
+			}
+			_currentRowIndex = rowIndex;
+			_firstColumnIndex = columnIndex;
+			_lastColumnIndex = columnIndex;
+		}
+
+		private void closeCurrentRow() {
+			if (_nRectangles > 0) {
+				// extend the last rectangle, if the row is directly below with the same columns
+				int i = (_nRectangles - 1) * 4;
+				if (_rectangles[i + 1] + 1 == _currentRowIndex
+						&& _rectangles[i + 2] == _firstColumnIndex
+						&& _rectangles[i + 3] == _lastColumnIndex) {
+					_rectangles[i + 1] = _currentRowIndex;
+					return;
 				}
 			}
+			int i = _nRectangles * 4;
+			if (i == _rectangles.length) {
+				_rectangles = Arrays.copyOf(_rectangles, i * 2);
+			}
+			_rectangles[i] = _currentRowIndex;
+			_rectangles[i + 1] = _currentRowIndex;
+			_rectangles[i + 2] = _firstColumnIndex;
+			_rectangles[i + 3] = _lastColumnIndex;
+			_nRectangles++;
 		}
 
 		public boolean containsCell(int rowIndex, int columnIndex) {
 		    if (rowIndex > _lastDefinedRow) return true;
-		    
-			for (int i=_rectangleGroups.size()-1; i>=0; i--) {
-				BlankCellRectangleGroup bcrg = _rectangleGroups.get(i);
-				if (bcrg.containsCell(rowIndex, columnIndex)) {
-					return true;
-				}
-			}
-			if(_currentRectangleGroup != null && _currentRectangleGroup.containsCell(rowIndex, columnIndex)) {
+
+			if (_currentRowIndex == rowIndex
+					&& _firstColumnIndex <= columnIndex && columnIndex <= _lastColumnIndex) {
 				return true;
 			}
-			if (_currentRowIndex != -1 && _currentRowIndex == rowIndex) {
-				if (_firstColumnIndex <=  columnIndex && columnIndex <= _lastColumnIndex) {
+			for (int i = (_nRectangles - 1) * 4; i >= 0; i -= 4) {
+				if (_rectangles[i] <= rowIndex && rowIndex <= _rectangles[i + 1]
+						&& _rectangles[i + 2] <= columnIndex && columnIndex <= _rectangles[i + 3]) {
 					return true;
 				}
 			}
@@ -113,64 +130,13 @@ final class FormulaUsedBlankCellSet {
 		}
 	}
 
-	private static final class BlankCellRectangleGroup {
-
-		private final int _firstRowIndex;
-		private final int _firstColumnIndex;
-		private final int _lastColumnIndex;
-		private int _lastRowIndex;
+	private static final BlankCellSheetGroup[] EMPTY_GROUPS = {};
 
-		public BlankCellRectangleGroup(int firstRowIndex, int firstColumnIndex, int lastColumnIndex) {
-			_firstRowIndex = firstRowIndex;
-			_firstColumnIndex = firstColumnIndex;
-			_lastColumnIndex = lastColumnIndex;
-			_lastRowIndex = firstRowIndex;
-		}
-
-		public boolean containsCell(int rowIndex, int columnIndex) {
-			if (columnIndex < _firstColumnIndex) {
-				return false;
-			}
-			if (columnIndex > _lastColumnIndex) {
-				return false;
-			}
-			if (rowIndex < _firstRowIndex) {
-				return false;
-			}
-			if (rowIndex > _lastRowIndex) {
-				return false;
-			}
-			return true;
-		}
-
-		public boolean acceptRow(int rowIndex, int firstColumnIndex, int lastColumnIndex) {
-			if (firstColumnIndex != _firstColumnIndex) {
-				return false;
-			}
-			if (lastColumnIndex != _lastColumnIndex) {
-				return false;
-			}
-			if (rowIndex != _lastRowIndex+1) {
-				return false;
-			}
-			_lastRowIndex = rowIndex;
-			return true;
-		}
-		@Override
-        public String toString() {
-			StringBuilder sb = new StringBuilder(64);
-			CellReference crA = new CellReference(_firstRowIndex, _firstColumnIndex, false, false);
-			CellReference crB = new CellReference(_lastRowIndex, _lastColumnIndex, false, false);
-			sb.append(getClass().getName());
-			sb.append(" [").append(crA.formatAsString()).append(':').append(crB.formatAsString()).append("]");
-			return sb.toString();
-		}
-	}
-
-	private final Map<BookSheetKey, BlankCellSheetGroup> _sheetGroupsByBookSheet;
+	/** usually a formula refers to just a few sheets, so a linear search is fine */
+	private BlankCellSheetGroup[] _sheetGroups;
 
 	public FormulaUsedBlankCellSet() {
-		_sheetGroupsByBookSheet = new HashMap<>();
+		_sheetGroups = EMPTY_GROUPS;
 	}
 
 	public void addCell(EvaluationWorkbook evalWorkbook, int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
@@ -179,18 +145,27 @@ final class FormulaUsedBlankCellSet {
 	}
 
 	private BlankCellSheetGroup getSheetGroup(EvaluationWorkbook evalWorkbook, int bookIndex, int sheetIndex) {
-		BookSheetKey key = new BookSheetKey(bookIndex, sheetIndex);
-
-		BlankCellSheetGroup result = _sheetGroupsByBookSheet.get(key);
+		BlankCellSheetGroup result = findSheetGroup(bookIndex, sheetIndex);
 		if (result == null) {
-			result = new BlankCellSheetGroup(evalWorkbook.getSheet(sheetIndex).getLastRowNum());
-			_sheetGroupsByBookSheet.put(key, result);
+			result = new BlankCellSheetGroup(bookIndex, sheetIndex, evalWorkbook.getSheet(sheetIndex).getLastRowNum());
+			int n = _sheetGroups.length;
+			_sheetGroups = Arrays.copyOf(_sheetGroups, n + 1);
+			_sheetGroups[n] = result;
 		}
 		return result;
 	}
 
+	private BlankCellSheetGroup findSheetGroup(int bookIndex, int sheetIndex) {
+		for (BlankCellSheetGroup group : _sheetGroups) {
+			if (group.isSheet(bookIndex, sheetIndex)) {
+				return group;
+			}
+		}
+		return null;
+	}
+
 	public boolean containsCell(BookSheetKey key, int rowIndex, int columnIndex) {
-		BlankCellSheetGroup bcsg = _sheetGroupsByBookSheet.get(key);
+		BlankCellSheetGroup bcsg = findSheetGroup(key._bookIndex, key._sheetIndex);
 		if (bcsg == null) {
 			return false;
 		}
@@ -198,6 +173,6 @@ final class FormulaUsedBlankCellSet {
 	}
 
 	public boolean isEmpty() {
-		return _sheetGroupsByBookSheet.isEmpty();
+		return _sheetGroups.length == 0;
 	}
 }
@@ -18,11 +18,13 @@
 package org.apache.poi.ss.formula;
 
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
 
 /**
  * Tests can implement this class to track the internal working of the {@link WorkbookEvaluator}.<br>
  *
- * For POI internal testing use only
+ * For POI internal testing use only - use the {@link EvaluationProfiler} to analyze the
+ * evaluation of a workbook
  *
  * @author Josh Micich
  */
@@ -39,6 +41,13 @@ interface IEvaluationListener {
 	void onCacheHit(int sheetIndex, int rowIndex, int columnIndex, ValueEval result);
 	void onReadPlainValue(int sheetIndex, int rowIndex, int columnIndex, ICacheEntry entry);
 	void onStartEvaluate(EvaluationCell cell, ICacheEntry entry);
+	/**
+	 * Called before a formula cell is evaluated - the evaluators of collaborating workbooks
+	 * share the listener, so the workbook and sheet of the cell are passed along
+	 */
+	default void onStartEvaluate(EvaluationWorkbook workbook, int sheetIndex, EvaluationCell cell, ICacheEntry entry) {
+		onStartEvaluate(cell, entry);
+	}
 	void onEndEvaluate(ICacheEntry entry, ValueEval result);
 	void onClearWholeCache();
 	void onClearCachedValue(ICacheEntry entry);
@@ -51,4 +60,20 @@ interface IEvaluationListener {
 	void onClearDependentCachedValue(ICacheEntry formulaCell, int depth);
 	void onChangeFromBlankValue(int sheetIndex, int rowIndex, int columnIndex,
 			EvaluationCell cell, ICacheEntry entry);
+
+	/**
+	 * Called before a function or operator of a formula is invoked
+	 *
+	 * @param operation the function or operator token
+	 * @param args the evaluated arguments of the operation
+	 */
+	default void onStartOperation(OperationPtg operation, ValueEval[] args) {}
+
+	/**
+	 * Called after a function or operator has been successfully invoked
+	 *
+	 * @param operation the function or operator token
+	 * @param result the result of the operation
+	 */
+	default void onEndOperation(OperationPtg operation, ValueEval result) {}
 }
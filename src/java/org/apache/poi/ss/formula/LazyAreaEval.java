@@ -17,6 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Arrays;
+
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.AreaEvalBase;
 import org.apache.poi.ss.formula.eval.ValueEval;
@@ -51,6 +53,34 @@ final class LazyAreaEval extends AreaEvalBase {
 		return _evaluator.getEvalForCell(sheetIndex, rowIx, colIx);
 	}
 
+	@Override
+	public double[] getNumberValues(boolean isBlankSkipped) {
+		return getNumberValues(getFirstSheetIndex(), isBlankSkipped);
+	}
+
+	@Override
+	public double[] getNumberValues(int sheetIndex, boolean isBlankSkipped) {
+		double[] result = getLeadingNumberValues(sheetIndex, isBlankSkipped);
+		int size = getWidth() * getHeight();
+		if (result != null && !isBlankSkipped && result.length < size) {
+			// add the blank rows beyond the sheet's last row as zeros
+			result = Arrays.copyOf(result, size);
+		}
+		return result;
+	}
+
+	@Override
+	public double[] getLeadingNumberValues(boolean isBlankSkipped) {
+		return getLeadingNumberValues(getFirstSheetIndex(), isBlankSkipped);
+	}
+
+	@Override
+	public double[] getLeadingNumberValues(int sheetIndex, boolean isBlankSkipped) {
+		// read the cells straight from the sheet instead of going through a ValueEval per cell
+		return _evaluator.getSheetEvaluator(sheetIndex).getNumberValues(
+				getFirstRow(), getFirstColumn(), getLastRow(), getLastColumn(), isBlankSkipped);
+	}
+
 	public AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx) {
 		AreaI area = new OffsetArea(getFirstRow(), getFirstColumn(),
 				relFirstRowIx, relLastRowIx, relFirstColIx, relLastColIx);
@@ -74,6 +104,10 @@ final class LazyAreaEval extends AreaEvalBase {
 		return new LazyAreaEval(getFirstRow(), absColIx, getLastRow(), absColIx, _evaluator);
 	}
 
+	/* package */ String getSheetNameRange() {
+		return _evaluator.getSheetNameRange();
+	}
+
 	public String toString() {
 		CellReference crA = new CellReference(getFirstRow(), getFirstColumn());
 		CellReference crB = new CellReference(getLastRow(), getLastColumn());
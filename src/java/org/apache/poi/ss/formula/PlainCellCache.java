@@ -17,36 +17,43 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import java.util.Arrays;
+
+/**
+ * Cache of the plain (non-formula) cells used in formula evaluations.<p>
+ *
+ * The entries are kept in an open-addressing hash table keyed by the packed cell location
+ * (see {@link Loc#toKey(int, int, int, int)}), so a lookup doesn't need a key object per cell.
+ */
 final class PlainCellCache {
 
+	/**
+	 * Codec for the packed cell location: 14 bits book index, 16 bits sheet index,
+	 * 20 bits row index and 14 bits column index, which covers the limits of
+	 * {@link org.apache.poi.ss.SpreadsheetVersion#EXCEL2007}
+	 */
 	public static final class Loc {
 
-		private final long _bookSheetColumn;
-
-		private final int _rowIndex;
+		private final long _key;
 
 		public Loc(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
-			_bookSheetColumn = toBookSheetColumn(bookIndex, sheetIndex, columnIndex);
-			_rowIndex = rowIndex;
+			_key = toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
 		}
 
-		public static long toBookSheetColumn(int bookIndex, int sheetIndex, int columnIndex) {
-			return ((bookIndex   & 0xFFFFL) << 48)  +
-                   ((sheetIndex  & 0xFFFFL) << 32) +
-                   ((columnIndex & 0xFFFFL) << 0);
+		public static long toKey(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+			return ((bookIndex   & 0x3FFFL)  << 50) |
+			       ((sheetIndex  & 0xFFFFL)  << 34) |
+			       ((rowIndex    & 0xFFFFFL) << 14) |
+			        (columnIndex & 0x3FFFL);
 		}
 
-		public Loc(long bookSheetColumn, int rowIndex) {
-			_bookSheetColumn = bookSheetColumn;
-			_rowIndex = rowIndex;
+		public long toKey() {
+			return _key;
 		}
 
 		@Override
         public int hashCode() {
-			return (int)(_bookSheetColumn ^ (_bookSheetColumn >>> 32)) + 17 * _rowIndex;
+			return Long.hashCode(_key);
 		}
 
 		@Override
@@ -54,46 +61,138 @@ final class PlainCellCache {
 		    if (!(obj instanceof Loc)) {
 		        return false;
 		    }
-			Loc other = (Loc) obj;
-			return _bookSheetColumn == other._bookSheetColumn && _rowIndex == other._rowIndex;
+			return _key == ((Loc) obj)._key;
 		}
 
 		public int getRowIndex() {
-			return _rowIndex;
+			return (int)((_key >>> 14) & 0xFFFFF);
 		}
 
 		public int getColumnIndex() {
-            return (int)(_bookSheetColumn & 0x000FFFF);
+            return (int)(_key & 0x3FFF);
 		}
 
         public int getSheetIndex() {
-            return (int)((_bookSheetColumn >> 32) & 0xFFFF);
+            return (int)((_key >>> 34) & 0xFFFF);
         }
 
         public int getBookIndex() {
-            return (int)((_bookSheetColumn >> 48) & 0xFFFF);
+            return (int)((_key >>> 50) & 0x3FFF);
         }
 	}
 
-	private Map<Loc, PlainValueCellCacheEntry> _plainValueEntriesByLoc;
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** packed cell locations, only valid where the corresponding entry is set */
+	private long[] _keys;
+	/** <code>null</code> marks an empty slot */
+	private PlainValueCellCacheEntry[] _entries;
+	private int _size;
 
 	public PlainCellCache() {
-		_plainValueEntriesByLoc = new HashMap<>();
+		_keys = new long[INITIAL_CAPACITY];
+		_entries = new PlainValueCellCacheEntry[INITIAL_CAPACITY];
 	}
 
-	public void put(Loc key, PlainValueCellCacheEntry cce) {
-		_plainValueEntriesByLoc.put(key, cce);
+	public void put(long key, PlainValueCellCacheEntry cce) {
+		if (cce == null) {
+			throw new IllegalArgumentException("cce must not be null");
+		}
+		int mask = _keys.length - 1;
+		int i = slot(key, mask);
+		while (_entries[i] != null) {
+			if (_keys[i] == key) {
+				_entries[i] = cce;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		_keys[i] = key;
+		_entries[i] = cce;
+		// keep the load factor below 0.5, so probe sequences stay short
+		if (++_size * 2 > _keys.length) {
+			resize(_keys.length * 2);
+		}
 	}
 
 	public void clear() {
-		_plainValueEntriesByLoc.clear();
+		if (_keys.length > INITIAL_CAPACITY) {
+			// don't hold on to the memory of a previous large evaluation
+			_keys = new long[INITIAL_CAPACITY];
+			_entries = new PlainValueCellCacheEntry[INITIAL_CAPACITY];
+		} else {
+			Arrays.fill(_entries, null);
+		}
+		_size = 0;
 	}
 
-	public PlainValueCellCacheEntry get(Loc key) {
-		return _plainValueEntriesByLoc.get(key);
+	public PlainValueCellCacheEntry get(long key) {
+		int mask = _keys.length - 1;
+		for (int i = slot(key, mask); _entries[i] != null; i = (i + 1) & mask) {
+			if (_keys[i] == key) {
+				return _entries[i];
+			}
+		}
+		return null;
+	}
+
+	public void remove(long key) {
+		int mask = _keys.length - 1;
+		int i = slot(key, mask);
+		while (true) {
+			if (_entries[i] == null) {
+				return;
+			}
+			if (_keys[i] == key) {
+				break;
+			}
+			i = (i + 1) & mask;
+		}
+		_size--;
+
+		// shift back the following entries of the probe sequence instead of using tombstones
+		int gap = i;
+		for (int j = (gap + 1) & mask; _entries[j] != null; j = (j + 1) & mask) {
+			int home = slot(_keys[j], mask);
+			// move the entry, unless its home slot lies cyclically in (gap, j]
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				_keys[gap] = _keys[j];
+				_entries[gap] = _entries[j];
+				gap = j;
+			}
+		}
+		_entries[gap] = null;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	private void resize(int newCapacity) {
+		long[] oldKeys = _keys;
+		PlainValueCellCacheEntry[] oldEntries = _entries;
+		_keys = new long[newCapacity];
+		_entries = new PlainValueCellCacheEntry[newCapacity];
+		int mask = newCapacity - 1;
+		for (int j = 0; j < oldEntries.length; j++) {
+			if (oldEntries[j] != null) {
+				int i = slot(oldKeys[j], mask);
+				while (_entries[i] != null) {
+					i = (i + 1) & mask;
+				}
+				_keys[i] = oldKeys[j];
+				_entries[i] = oldEntries[j];
+			}
+		}
 	}
 
-	public void remove(Loc key) {
-		_plainValueEntriesByLoc.remove(key);
+	private static int slot(long key, int mask) {
+		// spread the bits (Stafford variant 13 of the MurmurHash3 finalizer), as the row and
+		// column bits of neighbouring cells only differ in a few positions
+		long h = key;
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		h = h ^ (h >>> 31);
+		return (int) h & mask;
 	}
 }
@@ -48,6 +48,16 @@ final class SheetRefEvaluator {
 		return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
 	}
 
+	/**
+	 * @return the numeric values of the specified area in row-major order, or <code>null</code>
+	 *  if the area contains non-numeric values
+	 * @see TwoDEval#getLeadingNumberValues(boolean)
+	 */
+	public double[] getNumberValues(int firstRow, int firstColumn, int lastRow, int lastColumn, boolean isBlankSkipped) {
+		return _bookEvaluator.evaluateNumberValues(getSheet(), _sheetIndex,
+				firstRow, firstColumn, lastRow, lastColumn, isBlankSkipped, _tracker);
+	}
+
 	private EvaluationSheet getSheet() {
 		if (_sheet == null) {
 			_sheet = _bookEvaluator.getSheet(_sheetIndex);
@@ -17,8 +17,13 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Arrays;
+
 import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.util.Internal;
 
 /**
  * Optional Extension to the likes of {@link AreaEval} and 
@@ -33,4 +38,51 @@ public interface ThreeDEval extends TwoDEval, SheetRange {
 	 * @return element at the specified row and column position
 	 */
 	ValueEval getValue(int sheetIndex, int rowIndex, int columnIndex);
+
+	/**
+	 * Bulk variant of {@link #getValue(int, int, int)} for a single sheet of this area.
+	 *
+	 * @param sheetIndex sheet index (zero based)
+	 * @param isBlankSkipped if <code>true</code>, blank cells are left out of the result,
+	 *  otherwise they are returned as <code>0.0</code> at their position
+	 * @return the numeric values in row-major order, or <code>null</code> if the sheet
+	 *  area contains any other value
+	 * @see TwoDEval#getNumberValues(boolean)
+	 * @since POI 4.1.1
+	 */
+	default double[] getNumberValues(int sheetIndex, boolean isBlankSkipped) {
+		int width = getWidth();
+		int height = getHeight();
+		double[] result = new double[width * height];
+		int count = 0;
+		for (int rrIx = 0; rrIx < height; rrIx++) {
+			for (int rcIx = 0; rcIx < width; rcIx++) {
+				ValueEval ve = getValue(sheetIndex, rrIx, rcIx);
+				if (ve instanceof NumberEval) {
+					result[count++] = ((NumberEval) ve).getNumberValue();
+				} else if (ve == BlankEval.instance) {
+					if (!isBlankSkipped) {
+						result[count++] = 0.0;
+					}
+				} else {
+					return null;
+				}
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Variant of {@link #getNumberValues(int, boolean)} for the aggregate functions, which may
+	 * leave out the blank rows beyond the last row of the sheet
+	 *
+	 * @param sheetIndex sheet index (zero based)
+	 * @param isBlankSkipped if <code>true</code>, blank cells are left out of the result
+	 * @return the numeric values in row-major order, or <code>null</code> if the sheet
+	 *  area contains any other value
+	 */
+	@Internal
+	default double[] getLeadingNumberValues(int sheetIndex, boolean isBlankSkipped) {
+		return getNumberValues(sheetIndex, isBlankSkipped);
+	}
 }
@@ -17,9 +17,14 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Arrays;
+
 import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.functions.Subtotal;
+import org.apache.poi.util.Internal;
 
 /**
  * Common interface of {@link AreaEval} and {@link org.apache.poi.ss.formula.eval.AreaEvalBase},
@@ -74,4 +79,49 @@ public interface TwoDEval extends ValueEval {
      */
     boolean isRowHidden(int rowIndex);
 
+    /**
+     * Bulk variant of {@link #getValue(int, int)} for aggregate functions, which
+     * saves them from dealing with a {@link ValueEval} per cell.
+     *
+     * @param isBlankSkipped if <code>true</code>, blank cells are left out of the result,
+     *  otherwise they are returned as <code>0.0</code> at their position
+     * @return the numeric values of this area in row-major order, or <code>null</code>
+     *  if the area contains any other value (boolean, string, error), in which case the
+     *  caller has to fall back to {@link #getValue(int, int)}
+     * @since POI 4.1.1
+     */
+    default double[] getNumberValues(boolean isBlankSkipped) {
+        int width = getWidth();
+        int height = getHeight();
+        double[] result = new double[width * height];
+        int count = 0;
+        for (int rrIx = 0; rrIx < height; rrIx++) {
+            for (int rcIx = 0; rcIx < width; rcIx++) {
+                ValueEval ve = getValue(rrIx, rcIx);
+                if (ve instanceof NumberEval) {
+                    result[count++] = ((NumberEval) ve).getNumberValue();
+                } else if (ve == BlankEval.instance) {
+                    if (!isBlankSkipped) {
+                        result[count++] = 0.0;
+                    }
+                } else {
+                    return null;
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Variant of {@link #getNumberValues(boolean)} for the aggregate functions, which may
+     * leave out the blank rows beyond the last row of the sheet
+     *
+     * @param isBlankSkipped if <code>true</code>, blank cells are left out of the result
+     * @return the numeric values of this area in row-major order, or <code>null</code>
+     *  if the area contains any other value
+     */
+    @Internal
+    default double[] getLeadingNumberValues(boolean isBlankSkipped) {
+        return getNumberValues(isBlankSkipped);
+    }
 }
@@ -20,8 +20,10 @@ package org.apache.poi.ss.formula;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.TreeSet;
 
@@ -70,6 +72,14 @@ public final class WorkbookEvaluator {
     private final AggregatingUDFFinder _udfFinder;
 
     private boolean _ignoreMissingWorkbooks;
+    private ExternalWorkbookResolver _externalWorkbookResolver;
+    /** the workbooks, which the resolver couldn't provide - they aren't looked up again */
+    private final Set<String> _unresolvedWorkbooks = new HashSet<>();
+
+    /** cache of a evaluator of the same master workbook, see {@link #reuseCachedResults} */
+    private EvaluationCache _baseCache;
+    /** the formula cells of the base cache, which depend on the updated cells of this evaluator */
+    private Set<FormulaCellCacheEntry> _changedBaseCells;
 
     /**
      * whether print detailed messages about the next formula evaluation
@@ -85,8 +95,21 @@ public final class WorkbookEvaluator {
      * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
      */
     public WorkbookEvaluator(EvaluationWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
-        this (workbook, null, stabilityClassifier, udfFinder);
+        this (workbook, (IEvaluationListener)null, stabilityClassifier, udfFinder);
+    }
+    /**
+     * Creates an evaluator, which reports the evaluation of the cells and functions to the given profiler
+     *
+     * @param profiler collects the evaluation statistics, see {@link EvaluationProfiler#setEnabled(boolean)}
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     *
+     * @since POI 4.1.1
+     */
+    public WorkbookEvaluator(EvaluationWorkbook workbook, EvaluationProfiler profiler,
+            IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+        this (workbook, (profiler == null) ? null : profiler.getListener(), stabilityClassifier, udfFinder);
     }
+
     /* package */ WorkbookEvaluator(EvaluationWorkbook workbook, IEvaluationListener evaluationListener,
             IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
         _workbook = workbook;
@@ -149,6 +172,9 @@ public final class WorkbookEvaluator {
     /* package */ CollaboratingWorkbooksEnvironment getEnvironment() {
         return _collaboratingWorkbookEnvironment;
     }
+    /* package */ EvaluationCache getCache() {
+        return _cache;
+    }
 
     /**
      * Discards the current workbook environment and attaches to the default 'empty' environment.
@@ -163,7 +189,29 @@ public final class WorkbookEvaluator {
      * @return the evaluator for another workbook which is part of the same {@link CollaboratingWorkbooksEnvironment}
      */
     /* package */ WorkbookEvaluator getOtherWorkbookEvaluator(String workbookName) throws WorkbookNotFoundException {
-        return _collaboratingWorkbookEnvironment.getWorkbookEvaluator(workbookName);
+        try {
+            return _collaboratingWorkbookEnvironment.getWorkbookEvaluator(workbookName);
+        } catch (WorkbookNotFoundException e) {
+            if (_externalWorkbookResolver == null || _unresolvedWorkbooks.contains(workbookName)) {
+                throw e;
+            }
+            EvaluationWorkbook resolved = _externalWorkbookResolver.resolveWorkbook(workbookName);
+            if (resolved == null) {
+                // fall back to the values which Excel cached in this workbook
+                resolved = _workbook.getCachedExternalWorkbook(workbookName);
+            }
+            if (resolved == null) {
+                _unresolvedWorkbooks.add(workbookName);
+                throw e;
+            }
+            // the evaluation listener belongs to the workbook of this evaluator and isn't shared
+            WorkbookEvaluator other = new WorkbookEvaluator(resolved, (IEvaluationListener)null, null, null);
+            // the resolved workbook might have external references as well
+            other._externalWorkbookResolver = _externalWorkbookResolver;
+            other._ignoreMissingWorkbooks = _ignoreMissingWorkbooks;
+            CollaboratingWorkbooksEnvironment.addResolvedWorkbook(this, workbookName, other);
+            return other;
+        }
     }
 
     /* package */ IEvaluationListener getEvaluationListener() {
@@ -189,6 +237,28 @@ public final class WorkbookEvaluator {
         int sheetIndex = getSheetIndex(cell.getSheet());
         _cache.notifyUpdateCell(_workbookIx, sheetIndex, cell);
     }
+    /**
+     * Reuses the cached formula results of another evaluator of the same master workbook for all
+     * formula cells, which don't depend on the given updated cells.<p>
+     *
+     * This is used to evaluate forked scenarios, i.e. the updated cells must not change afterwards
+     * and the base evaluator must not evaluate anything while it's shared. The base cache is
+     * only read, so several forked evaluators can share it concurrently.
+     *
+     * @param baseEvaluator the evaluator of the master workbook, which already evaluated the unmodified cells
+     * @param updatedCells the cells, which have different values in this evaluator
+     */
+    @Internal
+    public void reuseCachedResults(WorkbookEvaluator baseEvaluator, Collection<? extends EvaluationCell> updatedCells) {
+        Set<FormulaCellCacheEntry> changed = new HashSet<>();
+        for (EvaluationCell cell : updatedCells) {
+            int sheetIndex = getSheetIndex(cell.getSheet());
+            baseEvaluator._cache.collectDependentFormulaCells(baseEvaluator._workbookIx, sheetIndex, cell, changed);
+        }
+        _baseCache = baseEvaluator._cache;
+        _changedBaseCells = changed;
+    }
+
     /**
      * Should be called to tell the cell value cache that the specified cell has just been
      * deleted.
@@ -255,6 +325,13 @@ public final class WorkbookEvaluator {
             return result;
         }
 
+        if (_baseCache != null) {
+            ValueEval baseResult = _baseCache.getFormulaResult(srcCell, _changedBaseCells);
+            if (baseResult != null) {
+                return baseResult;
+            }
+        }
+
         FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell);
         if (shouldCellDependencyBeRecorded || cce.isInputSensitive()) {
             tracker.acceptFormulaDependency(cce);
@@ -274,7 +351,7 @@ public final class WorkbookEvaluator {
                 if (evalListener == null) {
                     result = evaluateFormula(ec, ptgs);
                 } else {
-                    evalListener.onStartEvaluate(srcCell, cce);
+                    evalListener.onStartEvaluate(_workbook, sheetIndex, srcCell, cce);
                     result = evaluateFormula(ec, ptgs);
                     evalListener.onEndEvaluate(cce, result);
                 }
@@ -538,7 +615,13 @@ public final class WorkbookEvaluator {
                 ec.setArrayMode(arrayMode);
 
 //                logDebug("invoke " + operation + " (nAgs=" + numops + ")");
-                opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                if (_evaluationListener == null) {
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                } else {
+                    _evaluationListener.onStartOperation(optg, ops);
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                    _evaluationListener.onEndOperation(optg, opResult);
+                }
 
                 ec.setArrayMode(false);
 
@@ -797,6 +880,71 @@ public final class WorkbookEvaluator {
         EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
+
+    /**
+     * Bulk evaluation of the numeric values of an area, see {@link TwoDEval#getLeadingNumberValues(boolean)}.
+     * The area is clamped to the sheet's last row: the cells beyond it are known to be blank,
+     * so they are neither looked up nor allocated, e.g. for whole column references.
+     *
+     * @return the numeric values in row-major order, or <code>null</code> if the area contains
+     *  other values, which need to be processed by the caller one by one
+     */
+    /* package */ double[] evaluateNumberValues(
+            EvaluationSheet sheet, int sheetIndex, int firstRow, int firstColumn,
+            int lastRow, int lastColumn, boolean isBlankSkipped, EvaluationTracker tracker) {
+
+        final int width = lastColumn - firstColumn + 1;
+        final int lastDefinedRow = Math.min(lastRow, sheet.getLastRowNum());
+        final int definedHeight = Math.max(0, lastDefinedRow - firstRow + 1);
+
+        double[] result = new double[width * definedHeight];
+        int count = 0;
+        for (int rowIndex = firstRow; rowIndex <= lastDefinedRow; rowIndex++) {
+            for (int columnIndex = firstColumn; columnIndex <= lastColumn; columnIndex++) {
+                EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
+                CellType cellType = (cell == null) ? CellType.BLANK : cell.getCellType();
+                boolean isFinal = _stabilityClassifier != null
+                        && _stabilityClassifier.isCellFinal(sheetIndex, rowIndex, columnIndex);
+                switch (cellType) {
+                    case BLANK:
+                        if (!isFinal) {
+                            tracker.acceptPlainValueDependency(_workbook, _workbookIx, sheetIndex, rowIndex, columnIndex, BlankEval.instance);
+                        }
+                        if (!isBlankSkipped) {
+                            result[count++] = 0.0;
+                        }
+                        continue;
+                    case NUMERIC:
+                        // plain numbers are read directly, a NumberEval is only created for a new cache entry
+                        double value = cell.getNumericCellValue();
+                        if (!isFinal) {
+                            tracker.acceptPlainNumberDependency(_workbookIx, sheetIndex, rowIndex, columnIndex, value);
+                        }
+                        result[count++] = value;
+                        continue;
+                    case FORMULA:
+                        break;
+                    default:
+                        return null;
+                }
+                ValueEval ve = evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
+                if (!(ve instanceof NumberEval)) {
+                    return null;
+                }
+                result[count++] = ((NumberEval)ve).getNumberValue();
+            }
+        }
+
+        if (lastDefinedRow < lastRow && (_stabilityClassifier == null
+                || !_stabilityClassifier.isCellFinal(sheetIndex, lastDefinedRow + 1, firstColumn))) {
+            // a single blank cell beyond the last defined row covers the remaining rows of the area,
+            // see FormulaUsedBlankCellSet
+            tracker.acceptPlainValueDependency(_workbook, _workbookIx, sheetIndex, lastDefinedRow + 1, firstColumn, BlankEval.instance);
+        }
+
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -950,6 +1098,27 @@ public final class WorkbookEvaluator {
         return _ignoreMissingWorkbooks;
     }
 
+    /**
+     * Sets the resolver for external workbooks, which aren't part of the {@link CollaboratingWorkbooksEnvironment}
+     * of this evaluator. The resolved workbooks are added to the environment on first reference.
+     * A workbook, which the resolver can't provide, isn't requested again - until another resolver is set.
+     *
+     * @param resolver the resolver or <code>null</code> to only use the workbooks of the environment
+     *
+     * @since POI 4.1.1
+     */
+    public void setExternalWorkbookResolver(ExternalWorkbookResolver resolver) {
+        _externalWorkbookResolver = resolver;
+        _unresolvedWorkbooks.clear();
+    }
+
+    /**
+     * @since POI 4.1.1
+     */
+    public ExternalWorkbookResolver getExternalWorkbookResolver() {
+        return _externalWorkbookResolver;
+    }
+
     /**
      * Return a collection of functions that POI can evaluate
      *
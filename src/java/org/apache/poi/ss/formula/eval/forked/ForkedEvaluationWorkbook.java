@@ -28,6 +28,7 @@ import org.apache.poi.ss.formula.EvaluationWorkbook;
 import org.apache.poi.ss.formula.ptg.NamePtg;
 import org.apache.poi.ss.formula.ptg.NameXPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.Internal;
@@ -44,10 +45,14 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
 
     private final EvaluationWorkbook _masterBook;
     private final Map<String, ForkedEvaluationSheet> _sharedSheetsByName;
+    /** the evaluators register their UDFs here, so the finder of the master workbook isn't modified */
+    private final AggregatingUDFFinder _udfFinder;
 
     public ForkedEvaluationWorkbook(EvaluationWorkbook master) {
         _masterBook = master;
         _sharedSheetsByName = new HashMap<>();
+        UDFFinder masterFinder = _masterBook.getUDFFinder();
+        _udfFinder = (masterFinder == null) ? null : new AggregatingUDFFinder(masterFinder);
     }
 
     public ForkedEvaluationCell getOrCreateUpdatableCell(String sheetName, int rowIndex,
@@ -151,9 +156,14 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
         return _masterBook.resolveNameXText(ptg);
     }
 
+    @Override
+    public EvaluationWorkbook getCachedExternalWorkbook(String workbookName) {
+        return _masterBook.getCachedExternalWorkbook(workbookName);
+    }
+
     @Override
     public UDFFinder getUDFFinder() {
-        return _masterBook.getUDFFinder();
+        return _udfFinder;
     }
     
     public SpreadsheetVersion getSpreadsheetVersion() {
@@ -17,6 +17,8 @@
 
 package org.apache.poi.ss.formula.eval.forked;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
@@ -40,6 +42,7 @@ import org.apache.poi.ss.usermodel.Workbook;
  * This class enables a 'master workbook' to be loaded just once and shared between many evaluation
  * clients.  Each evaluation client creates its own {@link ForkedEvaluator} and can set cell values
  * that will be used for local evaluations (and don't disturb evaluations on other evaluators).
+ * To evaluate many variations of the input cells in parallel, use the {@link ScenarioEvaluator}.
  */
 public final class ForkedEvaluator {
 
@@ -51,6 +54,22 @@ public final class ForkedEvaluator {
 		_evaluator = new WorkbookEvaluator(_sewb, stabilityClassifier, udfFinder);
 	}
 
+	/**
+	 * Creates a forked evaluator for a {@link ScenarioEvaluator}, which reuses the cached results of
+	 * the base evaluator for the formula cells that don't depend on the updated cells
+	 */
+	/* package */ ForkedEvaluator(EvaluationWorkbook masterWorkbook, WorkbookEvaluator baseEvaluator,
+			UDFFinder udfFinder, List<ScenarioEvaluator.CellUpdate> updates) {
+		this(masterWorkbook, (IStabilityClassifier)null, udfFinder);
+		List<EvaluationCell> updatedCells = new ArrayList<>(updates.size());
+		for (ScenarioEvaluator.CellUpdate update : updates) {
+			ForkedEvaluationCell cell = _sewb.getOrCreateUpdatableCell(update.sheetName, update.rowIndex, update.columnIndex);
+			cell.setValue(update.value);
+			updatedCells.add(cell);
+		}
+		_evaluator.reuseCachedResults(baseEvaluator, updatedCells);
+	}
+
 	/**
 	 * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
 	 */
@@ -0,0 +1,155 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Evaluates many variations ('scenarios') of the input cells of a workbook in parallel,
+ * e.g. for Monte Carlo simulations or sensitivity analysis.<p>
+ *
+ * On creation, the cell values and parsed formulas of the workbook are copied into a read-only
+ * snapshot, i.e. later changes of the workbook are not reflected. The output cells are evaluated
+ * once for the unmodified snapshot, and each scenario only recalculates the formula cells, which
+ * depend on its updated input cells. The results of the other formula cells are shared.<p>
+ *
+ * Each scenario is evaluated by its own {@link ForkedEvaluator}, the scenarios are distributed
+ * over the threads of the common {@link java.util.concurrent.ForkJoinPool}. Volatile functions
+ * like <tt>RAND()</tt> or <tt>NOW()</tt> are only recalculated, if they depend on an updated cell.
+ *
+ * @since POI 4.1.1
+ */
+public final class ScenarioEvaluator {
+
+    private final SnapshotEvaluationWorkbook _snapshot;
+    private final WorkbookEvaluator _baseEvaluator;
+    private final UDFFinder _udfFinder;
+
+    private ScenarioEvaluator(Workbook workbook, UDFFinder udfFinder) {
+        _snapshot = new SnapshotEvaluationWorkbook(workbook);
+        // all dependencies need to be tracked, so no stability classifier
+        _baseEvaluator = new WorkbookEvaluator(_snapshot, null, udfFinder);
+        _udfFinder = udfFinder;
+    }
+
+    /**
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     */
+    public static ScenarioEvaluator create(Workbook wb, UDFFinder udfFinder) {
+        return new ScenarioEvaluator(wb, udfFinder);
+    }
+
+    /**
+     * @return a new scenario without any updated cells
+     */
+    public Scenario createScenario() {
+        return new Scenario();
+    }
+
+    /**
+     * Evaluates the output cells for each scenario.<p>
+     *
+     * This method is synchronized, i.e. concurrent calls are processed one after the other.
+     *
+     * @param scenarios the scenarios to evaluate
+     * @param outputCells the cells to evaluate, which need to include the sheet names
+     * @return the values of the output cells (in the same order) per scenario,
+     *  a value is <code>null</code>, if the output cell is missing or blank
+     */
+    public synchronized List<ValueEval[]> evaluate(List<Scenario> scenarios, CellReference... outputCells) {
+        for (CellReference cr : outputCells) {
+            if (cr.getSheetName() == null) {
+                throw new IllegalArgumentException("The output cell '" + cr.formatAsString() + "' needs a sheet name");
+            }
+            // populate the shared cache with the results of the unmodified workbook
+            EvaluationCell cell = getCell(cr);
+            if (cell != null && cell.getCellType() == CellType.FORMULA) {
+                _baseEvaluator.evaluate(cell);
+            }
+        }
+
+        return IntStream.range(0, scenarios.size()).parallel()
+            .mapToObj(i -> evaluate(scenarios.get(i), outputCells))
+            .collect(Collectors.toList());
+    }
+
+    private ValueEval[] evaluate(Scenario scenario, CellReference[] outputCells) {
+        ForkedEvaluator fe = new ForkedEvaluator(_snapshot, _baseEvaluator, _udfFinder, scenario._updates);
+        ValueEval[] result = new ValueEval[outputCells.length];
+        for (int i = 0; i < outputCells.length; i++) {
+            CellReference cr = outputCells[i];
+            if (getCell(cr) != null) {
+                result[i] = fe.evaluate(cr.getSheetName(), cr.getRow(), cr.getCol());
+            }
+        }
+        return result;
+    }
+
+    private EvaluationCell getCell(CellReference cr) {
+        int sheetIndex = _snapshot.getSheetIndex(cr.getSheetName());
+        if (sheetIndex < 0) {
+            throw new IllegalArgumentException("Sheet '" + cr.getSheetName() + "' does not exist");
+        }
+        return _snapshot.getSheet(sheetIndex).getCell(cr.getRow(), cr.getCol());
+    }
+
+    /**
+     * A set of input cell values, which replace the values of the master workbook
+     */
+    public static final class Scenario {
+        private final List<CellUpdate> _updates = new ArrayList<>();
+
+        private Scenario() {
+        }
+
+        /**
+         * Sets the specified cell to the supplied <tt>value</tt>
+         * @param sheetName the name of the sheet containing the cell
+         * @param rowIndex zero based
+         * @param columnIndex zero based
+         */
+        public void updateCell(String sheetName, int rowIndex, int columnIndex, ValueEval value) {
+            _updates.add(new CellUpdate(sheetName, rowIndex, columnIndex, value));
+        }
+    }
+
+    /* package */ static final class CellUpdate {
+        final String sheetName;
+        final int rowIndex;
+        final int columnIndex;
+        final ValueEval value;
+
+        CellUpdate(String sheetName, int rowIndex, int columnIndex, ValueEval value) {
+            this.sheetName = sheetName;
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,574 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.ExternSheetReferenceToken;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.NameXPxg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.Internal;
+
+/**
+ * An immutable copy of the cell values and parsed formulas of a workbook, which can be read
+ * by several threads concurrently. The remaining (rarely used) lookups of names and external
+ * references are delegated to the master workbook under its lock.<br>
+ *
+ * In the values-only mode, formula cells are replaced by their cached results, i.e. the
+ * workbook is read like it was last calculated by Excel.<br>
+ *
+ * A detached snapshot doesn't refer to the master workbook, so the master workbook can be closed.
+ * Its names are copied and the lookups of the external references, which are used in the formulas
+ * and names, are answered in advance. References to further external workbooks can't fall back
+ * to the values, which Excel cached in the master workbook.<br>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class SnapshotEvaluationWorkbook implements EvaluationWorkbook {
+
+    /** the workbook for the lookups of names and external references, <code>null</code> if detached */
+    private final EvaluationWorkbook _masterBook;
+    /** the answers (or exceptions) of the master workbook for the lookups of a detached snapshot */
+    private final Map<List<Object>, Object> _lookups;
+    /** the master workbook, while the lookups of a detached snapshot are collected */
+    private EvaluationWorkbook _collectingBook;
+    /** the names of a detached snapshot by name index and their sheet scope, -1 for the workbook scope */
+    private final SnapshotName[] _names;
+    private final int[] _nameScopes;
+    private final SnapshotSheet[] _sheets;
+    private final SpreadsheetVersion _spreadsheetVersion;
+    /** the evaluators register their UDFs here, so the finder of the master workbook isn't modified */
+    private final AggregatingUDFFinder _udfFinder;
+
+    public SnapshotEvaluationWorkbook(Workbook workbook) {
+        this(workbook, false);
+    }
+
+    /**
+     * @param valuesOnly if {@code true}, formula cells are replaced by their cached results
+     */
+    public SnapshotEvaluationWorkbook(Workbook workbook, boolean valuesOnly) {
+        this(workbook, valuesOnly, false);
+    }
+
+    /**
+     * @param valuesOnly if {@code true}, formula cells are replaced by their cached results
+     * @param detached if {@code true}, the snapshot doesn't refer to the workbook anymore,
+     *  so the workbook can be closed
+     */
+    public SnapshotEvaluationWorkbook(Workbook workbook, boolean valuesOnly, boolean detached) {
+        EvaluationWorkbook masterBook = workbook.createEvaluationWorkbook();
+        _spreadsheetVersion = masterBook.getSpreadsheetVersion();
+        UDFFinder masterFinder = masterBook.getUDFFinder();
+        _udfFinder = (masterFinder == null) ? null : new AggregatingUDFFinder(masterFinder);
+        _sheets = new SnapshotSheet[workbook.getNumberOfSheets()];
+        for (int i = 0; i < _sheets.length; i++) {
+            _sheets[i] = new SnapshotSheet(this, i, workbook.getSheetAt(i), masterBook.getSheet(i), valuesOnly ? null : masterBook);
+        }
+
+        if (!detached) {
+            _masterBook = masterBook;
+            _lookups = null;
+            _names = null;
+            _nameScopes = null;
+            return;
+        }
+
+        _masterBook = null;
+        _lookups = new HashMap<>();
+        List<? extends Name> names = workbook.getAllNames();
+        _names = new SnapshotName[names.size()];
+        _nameScopes = new int[names.size()];
+        for (int i = 0; i < _names.length; i++) {
+            NamePtg namePtg = new NamePtg(i);
+            try {
+                _names[i] = SnapshotName.copy(masterBook.getName(namePtg));
+            } catch (RuntimeException e) {
+                // the name can't be evaluated, like with the master workbook
+                continue;
+            }
+            _nameScopes[i] = names.get(i).getSheetIndex();
+        }
+
+        // answer the lookups of the references in the formulas and names in advance
+        _collectingBook = masterBook;
+        try {
+            for (SnapshotName name : _names) {
+                if (name != null && name._nameDefinition != null) {
+                    collectLookups(name._nameDefinition);
+                }
+            }
+            for (SnapshotSheet sheet : _sheets) {
+                for (SnapshotCell[] cells : sheet._rows) {
+                    if (cells == null) {
+                        continue;
+                    }
+                    for (SnapshotCell cell : cells) {
+                        if (cell != null && cell._formulaTokens != null) {
+                            collectLookups(cell._formulaTokens);
+                        }
+                    }
+                }
+            }
+        } finally {
+            _collectingBook = null;
+        }
+    }
+
+    private void collectLookups(Ptg[] ptgs) {
+        for (Ptg ptg : ptgs) {
+            try {
+                if (ptg instanceof ExternSheetReferenceToken) {
+                    int externSheetIndex = ((ExternSheetReferenceToken)ptg).getExternSheetIndex();
+                    getExternalSheet(externSheetIndex);
+                    convertFromExternSheetIndex(externSheetIndex);
+                } else if (ptg instanceof NameXPtg) {
+                    NameXPtg nameX = (NameXPtg)ptg;
+                    getExternalSheet(nameX.getSheetRefIndex());
+                    getExternalName(nameX.getSheetRefIndex(), nameX.getNameIndex());
+                    resolveNameXText(nameX);
+                } else if (ptg instanceof Pxg3D) {
+                    Pxg3D pxg = (Pxg3D)ptg;
+                    getExternalSheet(pxg.getSheetName(), pxg.getLastSheetName(), pxg.getExternalWorkbookNumber());
+                } else if (ptg instanceof NameXPxg) {
+                    NameXPxg nameX = (NameXPxg)ptg;
+                    getExternalSheet(nameX.getSheetName(), null, nameX.getExternalWorkbookNumber());
+                    getExternalName(nameX.getNameName(), nameX.getSheetName(), nameX.getExternalWorkbookNumber());
+                }
+            } catch (RuntimeException e) {
+                // the exception has been recorded and is thrown again, when the formula is evaluated
+            }
+        }
+    }
+
+    /**
+     * Looks up a name or an external reference in the master workbook. A detached snapshot
+     * answers from the lookups, which were collected in advance.
+     */
+    private Object lookup(List<Object> key, Function<EvaluationWorkbook, Object> masterLookup) {
+        if (_masterBook != null) {
+            synchronized (_masterBook) {
+                return masterLookup.apply(_masterBook);
+            }
+        }
+        if (_collectingBook != null && !_lookups.containsKey(key)) {
+            Object value;
+            try {
+                value = masterLookup.apply(_collectingBook);
+            } catch (RuntimeException e) {
+                value = e;
+            }
+            _lookups.put(key, value);
+        }
+        Object value = _lookups.get(key);
+        if (value instanceof RuntimeException) {
+            throw (RuntimeException)value;
+        }
+        return value;
+    }
+
+    @Override
+    public String getSheetName(int sheetIndex) {
+        return _sheets[sheetIndex]._sheetName;
+    }
+
+    @Override
+    public int getSheetIndex(EvaluationSheet sheet) {
+        if (sheet instanceof SnapshotSheet && ((SnapshotSheet)sheet)._book == this) {
+            return ((SnapshotSheet)sheet)._sheetIndex;
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSheetIndex(String sheetName) {
+        for (SnapshotSheet sheet : _sheets) {
+            // sheet names are case-insensitive
+            if (sheet._sheetName.equalsIgnoreCase(sheetName)) {
+                return sheet._sheetIndex;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public EvaluationSheet getSheet(int sheetIndex) {
+        return _sheets[sheetIndex];
+    }
+
+    @Override
+    public Ptg[] getFormulaTokens(EvaluationCell cell) {
+        SnapshotCell sc = (SnapshotCell)cell;
+        if (sc._formulaError != null) {
+            throw sc._formulaError;
+        }
+        return sc._formulaTokens;
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(int externSheetIndex) {
+        return (ExternalSheet)lookup(Arrays.asList("externalSheet", externSheetIndex),
+            mb -> mb.getExternalSheet(externSheetIndex));
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(String firstSheetName, String lastSheetName, int externalWorkbookNumber) {
+        return (ExternalSheet)lookup(Arrays.asList("externalSheet", firstSheetName, lastSheetName, externalWorkbookNumber),
+            mb -> mb.getExternalSheet(firstSheetName, lastSheetName, externalWorkbookNumber));
+    }
+
+    @Override
+    public int convertFromExternSheetIndex(int externSheetIndex) {
+        Integer sheetIndex = (Integer)lookup(Arrays.asList("sheetIndex", externSheetIndex),
+            mb -> mb.convertFromExternSheetIndex(externSheetIndex));
+        return (sheetIndex == null) ? -1 : sheetIndex;
+    }
+
+    @Override
+    public ExternalName getExternalName(int externSheetIndex, int externNameIndex) {
+        return (ExternalName)lookup(Arrays.asList("externalName", externSheetIndex, externNameIndex),
+            mb -> mb.getExternalName(externSheetIndex, externNameIndex));
+    }
+
+    @Override
+    public ExternalName getExternalName(String nameName, String sheetName, int externalWorkbookNumber) {
+        return (ExternalName)lookup(Arrays.asList("externalName", nameName, sheetName, externalWorkbookNumber),
+            mb -> mb.getExternalName(nameName, sheetName, externalWorkbookNumber));
+    }
+
+    @Override
+    public EvaluationName getName(NamePtg namePtg) {
+        if (_masterBook == null) {
+            int nameIndex = namePtg.getIndex();
+            return (nameIndex >= 0 && nameIndex < _names.length) ? _names[nameIndex] : null;
+        }
+        synchronized (_masterBook) {
+            return SnapshotName.copy(_masterBook.getName(namePtg));
+        }
+    }
+
+    @Override
+    public EvaluationName getName(String name, int sheetIndex) {
+        if (_masterBook == null) {
+            // a name of the sheet scope hides the name of the workbook scope
+            for (int i = 0; i < _names.length; i++) {
+                if (_names[i] != null && _nameScopes[i] == sheetIndex && name.equalsIgnoreCase(_names[i]._nameText)) {
+                    return _names[i];
+                }
+            }
+            return (sheetIndex == -1) ? null : getName(name, -1);
+        }
+        synchronized (_masterBook) {
+            return SnapshotName.copy(_masterBook.getName(name, sheetIndex));
+        }
+    }
+
+    @Override
+    public String resolveNameXText(NameXPtg ptg) {
+        return (String)lookup(Arrays.asList("nameXText", ptg.getSheetRefIndex(), ptg.getNameIndex()),
+            mb -> mb.resolveNameXText(ptg));
+    }
+
+    /**
+     * @return the cached values of the external workbook - a detached snapshot returns <code>null</code>
+     */
+    @Override
+    public EvaluationWorkbook getCachedExternalWorkbook(String workbookName) {
+        if (_masterBook == null) {
+            return null;
+        }
+        synchronized (_masterBook) {
+            return _masterBook.getCachedExternalWorkbook(workbookName);
+        }
+    }
+
+    @Override
+    public UDFFinder getUDFFinder() {
+        return _udfFinder;
+    }
+
+    @Override
+    public SpreadsheetVersion getSpreadsheetVersion() {
+        return _spreadsheetVersion;
+    }
+
+    /* (non-Javadoc)
+     * the snapshot is immutable, i.e. there's nothing cached which could be outdated
+     */
+    @Override
+    public void clearAllCachedResultValues() {
+    }
+
+    private static final class SnapshotSheet implements EvaluationSheet {
+        private final SnapshotEvaluationWorkbook _book;
+        private final int _sheetIndex;
+        private final String _sheetName;
+        private final int _lastRowNum;
+        /** the cells by row and column index - missing rows and cells are <code>null</code> */
+        private final SnapshotCell[][] _rows;
+        private final BitSet _hiddenRows = new BitSet();
+
+        /**
+         * @param masterBook the workbook to parse the formulas, {@code null} to use the cached results instead
+         */
+        SnapshotSheet(SnapshotEvaluationWorkbook book, int sheetIndex, Sheet sheet, EvaluationSheet masterSheet, EvaluationWorkbook masterBook) {
+            _book = book;
+            _sheetIndex = sheetIndex;
+            _sheetName = sheet.getSheetName();
+            _lastRowNum = masterSheet.getLastRowNum();
+            _rows = new SnapshotCell[Math.max(_lastRowNum + 1, 0)][];
+            for (Row row : sheet) {
+                int rowIndex = row.getRowNum();
+                if (rowIndex >= _rows.length) {
+                    continue;
+                }
+                if (masterSheet.isRowHidden(rowIndex)) {
+                    _hiddenRows.set(rowIndex);
+                }
+                int lastCellNum = row.getLastCellNum();
+                if (lastCellNum <= 0) {
+                    continue;
+                }
+                SnapshotCell[] cells = new SnapshotCell[lastCellNum];
+                for (Cell cell : row) {
+                    EvaluationCell masterCell = masterSheet.getCell(rowIndex, cell.getColumnIndex());
+                    if (masterCell != null) {
+                        cells[cell.getColumnIndex()] = new SnapshotCell(this, masterCell, masterBook);
+                    }
+                }
+                _rows[rowIndex] = cells;
+            }
+        }
+
+        @Override
+        public EvaluationCell getCell(int rowIndex, int columnIndex) {
+            if (rowIndex < 0 || rowIndex >= _rows.length) {
+                return null;
+            }
+            SnapshotCell[] cells = _rows[rowIndex];
+            return (cells == null || columnIndex < 0 || columnIndex >= cells.length) ? null : cells[columnIndex];
+        }
+
+        @Override
+        public int getLastRowNum() {
+            return _lastRowNum;
+        }
+
+        @Override
+        public boolean isRowHidden(int rowIndex) {
+            return _hiddenRows.get(rowIndex);
+        }
+
+        @Override
+        public void clearAllCachedResultValues() {
+        }
+    }
+
+    private static final class SnapshotCell implements EvaluationCell {
+        private final SnapshotSheet _sheet;
+        private final int _rowIndex;
+        private final int _columnIndex;
+        private final CellType _cellType;
+        private final CellType _cachedResultType;
+        private final CellType _valueType;
+        private final double _numberValue;
+        private final String _stringValue;
+        private final boolean _booleanValue;
+        private final int _errorValue;
+        private final CellRangeAddress _arrayFormulaRange;
+        private final Ptg[] _formulaTokens;
+        private final RuntimeException _formulaError;
+
+        /**
+         * @param masterBook the workbook to parse the formulas, {@code null} to use the cached results instead
+         */
+        SnapshotCell(SnapshotSheet sheet, EvaluationCell masterCell, EvaluationWorkbook masterBook) {
+            _sheet = sheet;
+            _rowIndex = masterCell.getRowIndex();
+            _columnIndex = masterCell.getColumnIndex();
+            CellType cellType = masterCell.getCellType();
+            boolean isFormula = (cellType == CellType.FORMULA);
+            _arrayFormulaRange = (isFormula && masterBook != null && masterCell.isPartOfArrayFormulaGroup())
+                ? masterCell.getArrayFormulaRange() : null;
+
+            Ptg[] tokens = null;
+            RuntimeException error = null;
+            if (isFormula && masterBook == null) {
+                _cellType = masterCell.getCachedFormulaResultType();
+                _cachedResultType = null;
+                _valueType = _cellType;
+            } else if (isFormula) {
+                _cellType = cellType;
+                _cachedResultType = masterCell.getCachedFormulaResultType();
+                _valueType = _cachedResultType;
+                try {
+                    tokens = masterBook.getFormulaTokens(masterCell);
+                } catch (RuntimeException e) {
+                    // report the error only when the formula is actually evaluated
+                    error = e;
+                }
+            } else {
+                _cellType = cellType;
+                _cachedResultType = null;
+                _valueType = _cellType;
+            }
+            _formulaTokens = tokens;
+            _formulaError = error;
+
+            _numberValue = (_valueType == CellType.NUMERIC) ? masterCell.getNumericCellValue() : 0;
+            _stringValue = (_valueType == CellType.STRING) ? masterCell.getStringCellValue() : null;
+            _booleanValue = (_valueType == CellType.BOOLEAN) && masterCell.getBooleanCellValue();
+            _errorValue = (_valueType == CellType.ERROR) ? masterCell.getErrorCellValue() : 0;
+        }
+
+        @Override
+        public Object getIdentityKey() {
+            return this;
+        }
+
+        @Override
+        public EvaluationSheet getSheet() {
+            return _sheet;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return _rowIndex;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return _columnIndex;
+        }
+
+        @Override
+        public CellType getCellType() {
+            return _cellType;
+        }
+
+        @Override
+        public double getNumericCellValue() {
+            return _numberValue;
+        }
+
+        @Override
+        public String getStringCellValue() {
+            return _stringValue;
+        }
+
+        @Override
+        public boolean getBooleanCellValue() {
+            return _booleanValue;
+        }
+
+        @Override
+        public int getErrorCellValue() {
+            return _errorValue;
+        }
+
+        @Override
+        public CellRangeAddress getArrayFormulaRange() {
+            return _arrayFormulaRange;
+        }
+
+        @Override
+        public boolean isPartOfArrayFormulaGroup() {
+            return _arrayFormulaRange != null;
+        }
+
+        @Override
+        public CellType getCachedFormulaResultType() {
+            return _cachedResultType;
+        }
+    }
+
+    private static final class SnapshotName implements EvaluationName {
+        private final String _nameText;
+        private final boolean _functionName;
+        private final boolean _hasFormula;
+        private final boolean _range;
+        private final NamePtg _namePtg;
+        private final Ptg[] _nameDefinition;
+
+        private SnapshotName(EvaluationName master) {
+            _nameText = master.getNameText();
+            _functionName = master.isFunctionName();
+            _hasFormula = master.hasFormula();
+            _range = master.isRange();
+            _namePtg = master.createPtg();
+            _nameDefinition = _hasFormula ? master.getNameDefinition() : null;
+        }
+
+        static SnapshotName copy(EvaluationName master) {
+            return (master == null) ? null : new SnapshotName(master);
+        }
+
+        @Override
+        public String getNameText() {
+            return _nameText;
+        }
+
+        @Override
+        public boolean isFunctionName() {
+            return _functionName;
+        }
+
+        @Override
+        public boolean hasFormula() {
+            return _hasFormula;
+        }
+
+        @Override
+        public Ptg[] getNameDefinition() {
+            return _nameDefinition;
+        }
+
+        @Override
+        public boolean isRange() {
+            return _range;
+        }
+
+        @Override
+        public NamePtg createPtg() {
+            return _namePtg;
+        }
+    }
+}
@@ -49,12 +49,14 @@ public abstract class MultiOperandNumericFunction implements Function {
     private EvalConsumer<BoolEval, DoubleList> boolByRefConsumer;
     private EvalConsumer<BoolEval, DoubleList> boolByValueConsumer;
     private EvalConsumer<BlankEval, DoubleList> blankConsumer;
+    private Policy blankPolicy;
     private EvalConsumer<MissingArgEval, DoubleList> missingArgConsumer = ConsumerFactory.createForMissingArg(Policy.SKIP);
 
     protected MultiOperandNumericFunction(boolean isReferenceBoolCounted, boolean isBlankCounted) {
         boolByRefConsumer = ConsumerFactory.createForBoolEval(isReferenceBoolCounted ? Policy.COERCE : Policy.SKIP);
         boolByValueConsumer = ConsumerFactory.createForBoolEval(Policy.COERCE);
-        blankConsumer = ConsumerFactory.createForBlank(isBlankCounted ? Policy.COERCE : Policy.SKIP);
+        blankPolicy = isBlankCounted ? Policy.COERCE : Policy.SKIP;
+        blankConsumer = ConsumerFactory.createForBlank(blankPolicy);
     }
 
     static final double[] EMPTY_DOUBLE_ARRAY = {};
@@ -69,7 +71,10 @@ public abstract class MultiOperandNumericFunction implements Function {
         }
 
         public double[] toArray() {
-            return _count < 1 ? EMPTY_DOUBLE_ARRAY : Arrays.copyOf(_array, _count);
+            if (_count < 1) {
+                return EMPTY_DOUBLE_ARRAY;
+            }
+            return _count == _array.length ? _array : Arrays.copyOf(_array, _count);
         }
 
         private void ensureCapacity(int reqSize) {
@@ -84,6 +89,24 @@ public abstract class MultiOperandNumericFunction implements Function {
             _array[_count] = value;
             _count++;
         }
+
+        public void addAll(double[] values) {
+            if (_count == 0 && values.length > _array.length) {
+                // take over the (already private) array instead of copying it
+                _array = values;
+                _count = values.length;
+                return;
+            }
+            ensureCapacity(_count + values.length);
+            System.arraycopy(values, 0, _array, _count, values.length);
+            _count += values.length;
+        }
+
+        public void addZeros(int count) {
+            ensureCapacity(_count + count);
+            Arrays.fill(_array, _count, _count + count, 0.0);
+            _count += count;
+        }
     }
 
     private static final int DEFAULT_MAX_NUM_OPERANDS = SpreadsheetVersion.EXCEL2007.getMaxFunctionArgs();
@@ -93,6 +116,7 @@ public abstract class MultiOperandNumericFunction implements Function {
     }
 
     public void setBlankEvalPolicy(Policy policy) {
+        blankPolicy = policy;
         blankConsumer = ConsumerFactory.createForBlank(policy);
     }
 
@@ -159,9 +183,18 @@ public abstract class MultiOperandNumericFunction implements Function {
      * Collects values from a single argument
      */
     private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+        // areas of plain numbers and blanks can be collected in bulk, unless cells need to be filtered
+        final boolean isBulkCollected = blankPolicy != Policy.ERROR
+                && isSubtotalCounted() && isHiddenRowCounted();
+        final boolean isBlankSkipped = blankPolicy == Policy.SKIP;
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx = ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
+                double[] numbers = isBulkCollected ? ae.getLeadingNumberValues(sIx, isBlankSkipped) : null;
+                if (numbers != null) {
+                    addNumbers(numbers, ae.getWidth() * ae.getHeight(), isBlankSkipped, temp);
+                    continue;
+                }
                 int width = ae.getWidth();
                 int height = ae.getHeight();
                 for (int rrIx = 0; rrIx < height; rrIx++) {
@@ -177,6 +210,11 @@ public abstract class MultiOperandNumericFunction implements Function {
         }
         if (operand instanceof TwoDEval) {
             TwoDEval ae = (TwoDEval) operand;
+            double[] numbers = isBulkCollected ? ae.getLeadingNumberValues(isBlankSkipped) : null;
+            if (numbers != null) {
+                addNumbers(numbers, ae.getWidth() * ae.getHeight(), isBlankSkipped, temp);
+                return;
+            }
             int width = ae.getWidth();
             int height = ae.getHeight();
             for (int rrIx = 0; rrIx < height; rrIx++) {
@@ -198,6 +236,17 @@ public abstract class MultiOperandNumericFunction implements Function {
         collectValue(operand, false, temp);
     }
 
+    /**
+     * Adds the bulk collected values of an area - if blanks are counted, the trailing blank rows,
+     * which the area may have left out, are added as zeros
+     */
+    private static void addNumbers(double[] numbers, int areaSize, boolean isBlankSkipped, DoubleList temp) {
+        temp.addAll(numbers);
+        if (!isBlankSkipped && numbers.length < areaSize) {
+            temp.addZeros(areaSize - numbers.length);
+        }
+    }
+
     private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp) throws EvaluationException {
         if (ve == null) {
             throw new IllegalArgumentException("ve must not be null");
@@ -150,6 +150,11 @@ public final class Sumproduct implements Function {
 			return ErrorEval.VALUE_INVALID;
 		}
 
+		double[][] numbers = getNumberValues(args);
+		if (numbers != null) {
+			return new NumberEval(sumProduct(numbers));
+		}
+
 		double acc = 0;
 
 		for (int rrIx=0; rrIx<height; rrIx++) {
@@ -166,6 +171,39 @@ public final class Sumproduct implements Function {
 		return new NumberEval(acc);
 	}
 
+	/**
+	 * @return the numeric values of all areas with blanks as zeros, or <code>null</code> if any
+	 *  area contains other values and the cells need to be processed one by one.
+	 *  The arrays can differ in length, as trailing blank rows may be left out
+	 */
+	private static double[][] getNumberValues(TwoDEval[] args) {
+		double[][] result = new double[args.length][];
+		for (int n=0; n<args.length; n++) {
+			result[n] = args[n].getLeadingNumberValues(false);
+			if (result[n] == null) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	private static double sumProduct(double[][] numbers) {
+		// the left out trailing blanks are zeros, which don't contribute to the sum
+		int size = numbers[0].length;
+		for (double[] values : numbers) {
+			size = Math.min(size, values.length);
+		}
+		double acc = 0;
+		for (int i=0; i<size; i++) {
+			double term = 1D;
+			for (double[] values : numbers) {
+				term *= values[i];
+			}
+			acc += term;
+		}
+		return acc;
+	}
+
 	private static void throwFirstError(TwoDEval areaEval) throws EvaluationException {
 		int height = areaEval.getHeight();
 		int width = areaEval.getWidth();
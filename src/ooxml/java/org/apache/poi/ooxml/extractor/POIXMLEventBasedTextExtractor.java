@@ -0,0 +1,191 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.ooxml.extractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.POIXMLDocument;
+import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.ooxml.POIXMLProperties.CoreProperties;
+import org.apache.poi.ooxml.POIXMLProperties.CustomProperties;
+import org.apache.poi.ooxml.POIXMLProperties.ExtendedProperties;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.XMLHelper;
+import org.apache.xmlbeans.XmlException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Base class of the SAX event based text extractors, which stream the parts of the package
+ * instead of loading a {@link POIXMLDocument}. The text is written by
+ * {@link #extractTo(Appendable, long)} and {@link #getText()} collects it.
+ *
+ * @since POI 4.1.1
+ */
+@Internal
+public abstract class POIXMLEventBasedTextExtractor implements POIXMLTextExtractor {
+
+    private static final POILogger LOGGER = POILogFactory.getLogger(POIXMLEventBasedTextExtractor.class);
+
+    /** the namespace of the relationship attributes, e.g. r:id */
+    protected static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    protected final OPCPackage container;
+    protected final POIXMLProperties properties;
+
+    private boolean doCloseFilesystem = true;
+
+    protected POIXMLEventBasedTextExtractor(OPCPackage container) throws XmlException, OpenXML4JException, IOException {
+        this.container = container;
+        properties = new POIXMLProperties(container);
+    }
+
+    /**
+     * Returns the opened OPCPackage container.
+     */
+    @Override
+    public OPCPackage getPackage() {
+        return container;
+    }
+
+    /**
+     * Returns the core document properties
+     */
+    @Override
+    public CoreProperties getCoreProperties() {
+        return properties.getCoreProperties();
+    }
+
+    /**
+     * Returns the extended document properties
+     */
+    @Override
+    public ExtendedProperties getExtendedProperties() {
+        return properties.getExtendedProperties();
+    }
+
+    /**
+     * Returns the custom document properties
+     */
+    @Override
+    public CustomProperties getCustomProperties() {
+        return properties.getCustomProperties();
+    }
+
+    /**
+     * Processes the file and returns the text
+     *
+     * @return the text or {@code null}, if the file can't be processed
+     */
+    @Override
+    public String getText() {
+        StringBuilder text = new StringBuilder(64);
+        try {
+            extractTo(text);
+            return text.toString();
+        } catch (IOException e) {
+            LOGGER.log(POILogger.WARN, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the part of the main document, e.g. the word document or the presentation
+     */
+    protected PackagePart getMainPart() throws IOException, InvalidFormatException {
+        PackageRelationshipCollection core = container.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+        if (core.size() == 0) {
+            core = container.getRelationshipsByType(PackageRelationshipTypes.STRICT_CORE_DOCUMENT);
+        }
+        if (core.size() != 1) {
+            throw new IOException("Invalid OOXML Package received - expected 1 core document, found " + core.size());
+        }
+        return container.getPart(core.getRelationship(0));
+    }
+
+    /**
+     * Streams the part through the SAX handler - runtime exceptions of the handler are passed on
+     */
+    protected static void parse(PackagePart part, DefaultHandler handler) throws IOException {
+        try (InputStream is = part.getInputStream()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            parser.parse(new InputSource(is));
+        } catch (SAXException e) {
+            throw new IOException("Unable to parse " + part.getPartName(), e);
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException("SAX parser appears to be broken - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Thrown by the SAX handlers to stop the parsing, when the character budget is
+     * exhausted or the text can't be written
+     */
+    protected static final class StopExtraction extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param cause the write failure or {@code null}, if the budget is exhausted
+         */
+        public StopExtraction(IOException cause) {
+            super(null, cause, false, false);
+        }
+
+        /**
+         * Passes on the write failure, which stopped the parsing
+         */
+        public void rethrowCause() throws IOException {
+            if (getCause() != null) {
+                throw (IOException)getCause();
+            }
+        }
+    }
+
+    @Override
+    public POIXMLDocument getDocument() {
+        return null;
+    }
+
+    @Override
+    public void setCloseFilesystem(boolean doCloseFilesystem) {
+        this.doCloseFilesystem = doCloseFilesystem;
+    }
+
+    @Override
+    public boolean isCloseFilesystem() {
+        return doCloseFilesystem;
+    }
+
+    @Override
+    public OPCPackage getFilesystem() {
+        return container;
+    }
+}
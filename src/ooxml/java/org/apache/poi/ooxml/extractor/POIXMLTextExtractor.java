@@ -98,7 +98,20 @@ public interface POIXMLTextExtractor extends POITextExtractor {
             return;
         }
 
-        int size = text.length() + string.length();
+        checkMaxTextSize(text.length(), string);
+    }
+
+    /**
+     * @param extracted the size of the text, which has been extracted so far
+     * @param string the text to be added
+     * @since POI 4.1.1
+     */
+    default void checkMaxTextSize(long extracted, String string) {
+        if(string == null) {
+            return;
+        }
+
+        long size = extracted + string.length();
         if(size > ZipSecureFile.getMaxTextSize()) {
             throw new IllegalStateException("The text would exceed the max allowed overall size of extracted text. "
                     + "By default this is prevented as some documents may exhaust available memory and it may indicate that the file is used to inflate memory usage and thus could pose a security risk. "
@@ -0,0 +1,91 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.poifs.crypt.dsig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Helper for digesting the referenced parts on worker threads
+ */
+/* package */ final class DigestWorkers {
+
+    /**
+     * A task, which may throw the checked exception of the caller
+     */
+    interface DigestTask<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private DigestWorkers() {}
+
+    /**
+     * Runs the tasks - with a parallelism above 1 on a temporary pool of daemon threads
+     *
+     * @param tasks the tasks
+     * @param parallelism the maximum number of threads
+     * @param exClass the checked exception of the tasks, which is rethrown
+     * @return the results in the order of the tasks
+     */
+    static <T, E extends Exception> List<T> invokeAll(List<DigestTask<T, E>> tasks, int parallelism, Class<E> exClass)
+    throws E {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (parallelism <= 1 || tasks.size() <= 1) {
+            for (DigestTask<T, E> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), r -> {
+            Thread t = new Thread(r, "poi-dsig-digest");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (DigestTask<T, E> task : tasks) {
+                futures.add(pool.submit((Callable<T>)task::call));
+            }
+            for (Future<T> f : futures) {
+                results.add(f.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while digesting the references", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (exClass.isInstance(cause)) {
+                throw exClass.cast(cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
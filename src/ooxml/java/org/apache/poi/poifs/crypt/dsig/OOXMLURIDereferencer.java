@@ -24,12 +24,14 @@
 
 package org.apache.poi.poifs.crypt.dsig;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.crypto.Data;
 import javax.xml.crypto.OctetStreamData;
@@ -42,6 +44,9 @@ import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.openxml4j.opc.PackagePartName;
 import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.poifs.crypt.CryptoFunctions;
+import org.apache.poi.poifs.crypt.HashAlgorithm;
+import org.apache.poi.poifs.crypt.dsig.DigestWorkers.DigestTask;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 
@@ -68,40 +73,132 @@ public class OOXMLURIDereferencer implements URIDereferencer {
             throw new NullPointerException("XMLCryptoContext cannot be null");
         }
 
-        URI uri;
-        try {
-            uri = new URI(uriReference.getURI());
-        } catch (URISyntaxException e) {
-            throw new URIReferenceException("could not URL decode the uri: "+uriReference.getURI(), e);
-        }
-
+        URI uri = toURI(uriReference.getURI());
         PackagePart part = findPart(uri);
         if (part == null) {
             LOG.log(POILogger.DEBUG, "cannot resolve, delegating to base DOM URI dereferencer", uri);
             return baseUriDereferencer.dereference(uriReference, context);
         }
 
-        InputStream dataStream;
+        return new OctetStreamData(openPart(part), uri.toString(), null);
+    }
+
+    /**
+     * Digests the parts, which are referenced without transforms. The data is hashed straight
+     * from the part streams, i.e. it's neither buffered nor parsed.
+     *
+     * @param uris the URIs of the references
+     * @param hashAlgo the digest algorithm of the references
+     * @param parallelism the number of threads, which digest the parts
+     * @return the digest values in the order of the URIs
+     * @throws URIReferenceException if a part can't be found or read
+     *
+     * @since POI 4.1.1
+     */
+    public List<byte[]> digestParts(List<String> uris, final HashAlgorithm hashAlgo, int parallelism)
+    throws URIReferenceException {
+        List<DigestTask<byte[], URIReferenceException>> tasks = new ArrayList<>(uris.size());
+        for (final String uri : uris) {
+            tasks.add(() -> digestPart(uri, hashAlgo));
+        }
+        return DigestWorkers.invokeAll(tasks, parallelism, URIReferenceException.class);
+    }
+
+    private byte[] digestPart(String uriStr, HashAlgorithm hashAlgo) throws URIReferenceException {
+        URI uri = toURI(uriStr);
+        PackagePart part = findPart(uri);
+        if (part == null) {
+            throw new URIReferenceException("can't find the referenced part: " + uriStr);
+        }
+        MessageDigest md = CryptoFunctions.getMessageDigest(hashAlgo);
+        byte[] buf = new byte[8192];
+        try (InputStream is = openPart(part)) {
+            for (int len; (len = is.read(buf)) != -1; ) {
+                md.update(buf, 0, len);
+            }
+        } catch (IOException e) {
+            throw new URIReferenceException("I/O error: " + e.getMessage(), e);
+        }
+        return md.digest();
+    }
+
+    private static URI toURI(String uri) throws URIReferenceException {
+        try {
+            return new URI(uri);
+        } catch (URISyntaxException e) {
+            throw new URIReferenceException("could not URL decode the uri: "+uri, e);
+        }
+    }
+
+    private static InputStream openPart(PackagePart part) throws URIReferenceException {
         try {
-            dataStream = part.getInputStream();
+            InputStream dataStream = part.getInputStream();
 
             // workaround for office 2007 pretty-printed .rels files
             if (part.getPartName().toString().endsWith(".rels")) {
                 // although xmlsec has an option to ignore line breaks, currently this
                 // only affects .rels files, so we only modify these
                 // http://stackoverflow.com/questions/4728300
-                ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                for (int ch; (ch = dataStream.read()) != -1; ) {
-                    if (ch == 10 || ch == 13) continue;
-                    bos.write(ch);
-                }
-                dataStream = new ByteArrayInputStream(bos.toByteArray());
+                dataStream = new LineBreakFilterInputStream(dataStream);
             }
+            return dataStream;
         } catch (IOException e) {
             throw new URIReferenceException("I/O error: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Skips the line breaks of the underlying stream
+     */
+    private static final class LineBreakFilterInputStream extends FilterInputStream {
+        LineBreakFilterInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int ch;
+            do {
+                ch = in.read();
+            } while (ch == 10 || ch == 13);
+            return ch;
+        }
 
-        return new OctetStreamData(dataStream, uri.toString(), null);
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read;
+            do {
+                read = in.read(b, off, len);
+                if (read == -1) {
+                    return -1;
+                }
+                int dst = off;
+                for (int i = off; i < off + read; i++) {
+                    if (b[i] != 10 && b[i] != 13) {
+                        b[dst++] = b[i];
+                    }
+                }
+                read = dst - off;
+            } while (read == 0);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && read() != -1) {
+                skipped++;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
     }
 
     private PackagePart findPart(URI uri) {
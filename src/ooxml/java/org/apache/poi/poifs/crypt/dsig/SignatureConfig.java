@@ -212,6 +212,13 @@ public class SignatureConfig {
      */
     private boolean allowMultipleSignatures = false;
 
+    /**
+     * the number of threads, which digest the referenced parts when signing and validating
+     *
+     * @since POI 4.1.1
+     */
+    private int digestParallelism = 1;
+
     public SignatureConfig() {
         // OOo doesn't like ds namespaces so per default prefixing is off.
         // namespacePrefixes.put(XML_DIGSIG_NS, "");
@@ -877,7 +884,7 @@ public class SignatureConfig {
      * @param digestMethodUri the digest algorithm uri
      * @return the hash algorithm for the given digest
      */
-    private static HashAlgorithm getDigestMethodAlgo(String digestMethodUri) {
+    /* package */ static HashAlgorithm getDigestMethodAlgo(String digestMethodUri) {
         if (digestMethodUri == null || digestMethodUri.isEmpty()) {
             return null;
         }
@@ -1074,4 +1081,29 @@ public class SignatureConfig {
     public void setAllowMultipleSignatures(boolean allowMultipleSignatures) {
         this.allowMultipleSignatures = allowMultipleSignatures;
     }
+
+    /**
+     * @return the number of threads, which digest the referenced parts
+     *
+     * @since POI 4.1.1
+     */
+    public int getDigestParallelism() {
+        return digestParallelism;
+    }
+
+    /**
+     * Sets the number of threads, which digest the referenced parts of the package.
+     * Signing and validating large packages with many parts, e.g. images and embeddings,
+     * is faster, when the parts are digested in parallel.
+     *
+     * @param digestParallelism the number of threads, 1 to digest the parts in the calling thread
+     *
+     * @since POI 4.1.1
+     */
+    public void setDigestParallelism(int digestParallelism) {
+        if (digestParallelism < 1) {
+            throw new IllegalArgumentException("digestParallelism must be positive");
+        }
+        this.digestParallelism = digestParallelism;
+    }
 }
\ No newline at end of file
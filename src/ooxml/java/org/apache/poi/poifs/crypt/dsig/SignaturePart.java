@@ -22,7 +22,9 @@ import static org.apache.poi.poifs.crypt.dsig.facets.SignatureFacet.MS_DIGSIG_NS
 import static org.apache.poi.poifs.crypt.dsig.facets.SignatureFacet.XML_DIGSIG_NS;
 
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -31,6 +33,10 @@ import java.util.function.Consumer;
 
 import javax.xml.crypto.MarshalException;
 import javax.xml.crypto.URIDereferencer;
+import javax.xml.crypto.URIReferenceException;
+import javax.xml.crypto.dsig.Manifest;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.XMLObject;
 import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.XMLSignatureException;
 import javax.xml.crypto.dsig.XMLSignatureFactory;
@@ -44,6 +50,7 @@ import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.ooxml.util.DocumentHelper;
 import org.apache.poi.ooxml.util.XPathHelper;
 import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.poifs.crypt.HashAlgorithm;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 import org.apache.xmlbeans.XmlException;
@@ -119,16 +126,23 @@ public class SignaturePart {
                 ((Element)nl.item(i)).setIdAttribute("Id", true);
             }
 
-            DOMValidateContext domValidateContext = new DOMValidateContext(keySelector, doc);
-            domValidateContext.setProperty(XMLSEC_VALIDATE_MANIFEST, Boolean.TRUE);
-
             URIDereferencer uriDereferencer = signatureInfo.getUriDereferencer();
+            int parallelism = signatureInfo.getSignatureConfig().getDigestParallelism();
+            // the manifest references are validated separately, if their parts can be digested in parallel
+            boolean parallelManifests = parallelism > 1 && uriDereferencer instanceof OOXMLURIDereferencer;
+
+            DOMValidateContext domValidateContext = new DOMValidateContext(keySelector, doc);
+            domValidateContext.setProperty(XMLSEC_VALIDATE_MANIFEST, !parallelManifests);
             domValidateContext.setURIDereferencer(uriDereferencer);
 
             XMLSignatureFactory xmlSignatureFactory = signatureInfo.getSignatureFactory();
             XMLSignature xmlSignature = xmlSignatureFactory.unmarshalXMLSignature(domValidateContext);
 
             boolean valid = xmlSignature.validate(domValidateContext);
+            if (valid && parallelManifests) {
+                valid = validateManifestReferences(xmlSignature, domValidateContext,
+                    (OOXMLURIDereferencer)uriDereferencer, parallelism);
+            }
 
             if (valid) {
                 signer = keySelector.getSigner();
@@ -160,6 +174,74 @@ public class SignaturePart {
         }
     }
 
+    /**
+     * Validates the references of the manifests. The parts, which are referenced without transforms,
+     * are digested in parallel and their digests are compared with the digest values of the references.
+     * The other references, i.e. the ones of the relationship parts, are validated one after the other
+     * on the (not thread-safe) validate context.
+     *
+     * @return true, if all references are valid
+     */
+    private static boolean validateManifestReferences(XMLSignature xmlSignature, DOMValidateContext context,
+        OOXMLURIDereferencer uriDereferencer, int parallelism) throws XMLSignatureException {
+        Map<HashAlgorithm,List<Reference>> partReferences = new HashMap<>();
+        List<Reference> otherReferences = new ArrayList<>();
+        for (Object object : xmlSignature.getObjects()) {
+            for (Object content : ((XMLObject)object).getContent()) {
+                if (!(content instanceof Manifest)) {
+                    continue;
+                }
+                for (Object ref : ((Manifest)content).getReferences()) {
+                    Reference reference = (Reference)ref;
+                    HashAlgorithm hashAlgo = reference.getTransforms().isEmpty() ? getHashAlgorithm(reference) : null;
+                    if (hashAlgo == null) {
+                        otherReferences.add(reference);
+                    } else {
+                        partReferences.computeIfAbsent(hashAlgo, k -> new ArrayList<>()).add(reference);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<HashAlgorithm,List<Reference>> me : partReferences.entrySet()) {
+            List<Reference> references = me.getValue();
+            List<String> uris = new ArrayList<>(references.size());
+            for (Reference reference : references) {
+                uris.add(reference.getURI());
+            }
+            List<byte[]> digests;
+            try {
+                digests = uriDereferencer.digestParts(uris, me.getKey(), parallelism);
+            } catch (URIReferenceException e) {
+                throw new XMLSignatureException(e);
+            }
+            for (int i = 0; i < digests.size(); i++) {
+                if (!MessageDigest.isEqual(references.get(i).getDigestValue(), digests.get(i))) {
+                    LOG.log(POILogger.DEBUG, "invalid digest of reference ", uris.get(i));
+                    return false;
+                }
+            }
+        }
+
+        for (Reference reference : otherReferences) {
+            if (!reference.validate(context)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the digest algorithm of the reference or null, if it's not supported by {@link HashAlgorithm}
+     */
+    private static HashAlgorithm getHashAlgorithm(Reference reference) {
+        try {
+            return SignatureConfig.getDigestMethodAlgo(reference.getDigestMethod().getAlgorithm());
+        } catch (EncryptedDocumentException e) {
+            return null;
+        }
+    }
+
     private void extractConfig(final Document doc, final XMLSignature xmlSignature) throws XPathExpressionException {
         SignatureConfig signatureConfig = signatureInfo.getSignatureConfig();
         if (!signatureConfig.isUpdateConfigOnValidate()) {
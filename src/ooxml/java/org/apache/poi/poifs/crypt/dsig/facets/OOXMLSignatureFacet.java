@@ -39,7 +39,9 @@ import java.util.List;
 import java.util.Set;
 
 import javax.xml.XMLConstants;
+import javax.xml.crypto.URIDereferencer;
 import javax.xml.crypto.URIReference;
+import javax.xml.crypto.URIReferenceException;
 import javax.xml.crypto.XMLStructure;
 import javax.xml.crypto.dom.DOMStructure;
 import javax.xml.crypto.dsig.CanonicalizationMethod;
@@ -64,6 +66,7 @@ import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
 import org.apache.poi.openxml4j.opc.PackagingURIHelper;
 import org.apache.poi.openxml4j.opc.TargetMode;
 import org.apache.poi.poifs.crypt.HashAlgorithm;
+import org.apache.poi.poifs.crypt.dsig.OOXMLURIDereferencer;
 import org.apache.poi.poifs.crypt.dsig.SignatureConfig;
 import org.apache.poi.poifs.crypt.dsig.SignatureInfo;
 import org.apache.poi.poifs.crypt.dsig.services.RelationshipTransformService;
@@ -129,6 +132,8 @@ public class OOXMLSignatureFacet implements SignatureFacet {
         List<PackagePart> relsEntryNames = opcPackage.getPartsByContentType(ContentTypes.RELATIONSHIPS_PART);
 
         Set<String> digestedPartNames = new HashSet<>();
+        // the URIs of the parts, which are referenced without transforms
+        List<String> partUris = new ArrayList<>();
         for (PackagePart pp : relsEntryNames) {
             final String baseUri = pp.getPartName().getName().replaceFirst("(.*)/_rels/.*", "$1");
 
@@ -182,9 +187,7 @@ public class OOXMLSignatureFacet implements SignatureFacet {
                     continue;
                 }
 
-                String uri = partName + "?ContentType=" + contentType;
-                Reference reference = newReference(signatureInfo, uri, null, null, null, null);
-                manifestReferences.add(reference);
+                partUris.add(partName + "?ContentType=" + contentType);
             }
 
             if (parameterSpec.hasSourceIds()) {
@@ -198,9 +201,37 @@ public class OOXMLSignatureFacet implements SignatureFacet {
             }
         }
 
+        addPartReferences(signatureInfo, partUris, manifestReferences);
+
         manifestReferences.sort(Comparator.comparing(URIReference::getURI));
     }
 
+    /**
+     * Adds the references of the parts. If the parts are dereferenced by the {@link OOXMLURIDereferencer},
+     * their digests are calculated upfront - straight from the part streams and in parallel,
+     * if a {@link SignatureConfig#setDigestParallelism(int) digest parallelism} is set.
+     * Otherwise the references are digested on signing.
+     */
+    private static void addPartReferences(SignatureInfo signatureInfo, List<String> partUris, List<Reference> manifestReferences)
+    throws XMLSignatureException {
+        List<byte[]> digests = null;
+        URIDereferencer uriDereferencer = signatureInfo.getUriDereferencer();
+        if (uriDereferencer instanceof OOXMLURIDereferencer) {
+            SignatureConfig signatureConfig = signatureInfo.getSignatureConfig();
+            try {
+                digests = ((OOXMLURIDereferencer)uriDereferencer).digestParts(partUris,
+                    signatureConfig.getDigestAlgo(), signatureConfig.getDigestParallelism());
+            } catch (URIReferenceException e) {
+                throw new XMLSignatureException(e);
+            }
+        }
+
+        for (int i = 0; i < partUris.size(); i++) {
+            byte[] digest = (digests == null) ? null : digests.get(i);
+            manifestReferences.add(newReference(signatureInfo, partUris.get(i), null, null, null, digest));
+        }
+    }
+
     /**
      * Normalize a URI/part name
      * TODO: find a better way ...
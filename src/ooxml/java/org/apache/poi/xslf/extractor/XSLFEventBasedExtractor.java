@@ -0,0 +1,515 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xslf.extractor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.extractor.LimitedAppendable;
+import org.apache.poi.ooxml.extractor.POIXMLEventBasedTextExtractor;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.xslf.usermodel.XSLFRelation;
+import org.apache.xmlbeans.XmlException;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Implementation of a text extractor from OOXML PowerPoint
+ * files that uses SAX event based parsing.<p>
+ *
+ * In contrast to {@link XSLFExtractor}, the presentation isn't loaded into a
+ * {@link org.apache.poi.xslf.usermodel.XMLSlideShow}, but the parts of each slide
+ * are streamed without creating shape objects. The slides can be processed on
+ * several threads - their text is written in the slide order.<p>
+ *
+ * The text is similar to the text of {@link XSLFExtractor}, but the text capitalization
+ * is only applied, if it's specified by the text run itself, and the header/footer
+ * placeholders of the masters are not evaluated. The master text consists of the
+ * non-placeholder text shapes of the slide master and the slide layout.
+ *
+ * @since POI 4.1.1
+ */
+public class XSLFEventBasedExtractor extends POIXMLEventBasedTextExtractor {
+
+    private static final POILogger LOGGER = POILogFactory.getLogger(XSLFEventBasedExtractor.class);
+
+    private boolean slidesByDefault = true;
+    private boolean notesByDefault;
+    private boolean commentsByDefault;
+    private boolean masterByDefault;
+    private int threads = 1;
+
+    public XSLFEventBasedExtractor(String path) throws XmlException, OpenXML4JException, IOException {
+        this(OPCPackage.open(path));
+    }
+
+    public XSLFEventBasedExtractor(OPCPackage container) throws XmlException, OpenXML4JException, IOException {
+        super(container);
+    }
+
+    /**
+     * Should a call to getText() return slide text? Default is yes
+     */
+    public void setSlidesByDefault(final boolean slidesByDefault) {
+        this.slidesByDefault = slidesByDefault;
+    }
+
+    /**
+     * Should a call to getText() return notes text? Default is no
+     */
+    public void setNotesByDefault(final boolean notesByDefault) {
+        this.notesByDefault = notesByDefault;
+    }
+
+    /**
+     * Should a call to getText() return comments text? Default is no
+     */
+    public void setCommentsByDefault(final boolean commentsByDefault) {
+        this.commentsByDefault = commentsByDefault;
+    }
+
+    /**
+     * Should a call to getText() return text from master? Default is no
+     */
+    public void setMasterByDefault(final boolean masterByDefault) {
+        this.masterByDefault = masterByDefault;
+    }
+
+    /**
+     * @return the number of threads, which process the slides
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads, which process the slides. With more than one thread,
+     * the text of up to twice as many slides is buffered.
+     *
+     * @param threads the number of threads, defaults to 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one thread is needed");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Processes the file and writes the text to the target, slide by slide.
+     * The capitalization uses the user locale of the calling thread, also for
+     * the slides processed by the worker threads.
+     */
+    @Override
+    public boolean extractTo(Appendable out, long maxChars) throws IOException {
+        LimitedAppendable text = new LimitedAppendable(out, maxChars);
+        Locale locale = LocaleUtil.getUserLocale();
+        try {
+            PackagePart mainPart = getMainPart();
+            Map<String, String> authors = (commentsByDefault) ? readCommentAuthors(mainPart) : new HashMap<>();
+            List<SlideParts> slides = getSlideParts(mainPart);
+            Map<PackagePartName, String> masterTexts = new ConcurrentHashMap<>();
+
+            if (threads == 1 || slides.size() < 2) {
+                for (SlideParts slide : slides) {
+                    text.append(getText(slide, authors, masterTexts, locale));
+                    if (text.isExhausted()) {
+                        break;
+                    }
+                }
+                return !text.isExhausted();
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, slides.size()), r -> {
+                Thread t = new Thread(r, "poi-xslf-extractor");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                // only a window of slides is processed ahead, so the buffered text stays bounded
+                int window = 2 * threads;
+                List<Future<String>> pending = new ArrayList<>(slides.size());
+                for (int i = 0; i < slides.size() && !text.isExhausted(); i++) {
+                    for (int j = pending.size(); j < slides.size() && j < i + window; j++) {
+                        SlideParts slide = slides.get(j);
+                        pending.add(pool.submit(() -> getText(slide, authors, masterTexts, locale)));
+                    }
+                    text.append(pending.get(i).get());
+                    pending.set(i, null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while extracting the slides", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException)cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+        return !text.isExhausted();
+    }
+
+    /**
+     * The parts of a slide, which are resolved upfront, so the relationships
+     * aren't loaded concurrently
+     */
+    private static final class SlideParts {
+        PackagePart slide;
+        PackagePart layout;
+        PackagePart master;
+        PackagePart notes;
+        final List<PackagePart> comments = new ArrayList<>();
+    }
+
+    private List<SlideParts> getSlideParts(PackagePart mainPart) throws IOException, InvalidFormatException {
+        // the order of the slides is defined by the slide id list
+        List<String> relIds = new ArrayList<>();
+        parse(mainPart, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("sldId".equals(localName)) {
+                    relIds.add(attributes.getValue(REL_NS, "id"));
+                }
+            }
+        });
+
+        List<SlideParts> slides = new ArrayList<>(relIds.size());
+        for (String relId : relIds) {
+            PackageRelationship rel = (relId == null) ? null : mainPart.getRelationship(relId);
+            if (rel == null) {
+                LOGGER.log(POILogger.WARN, "Slide with relationship id ", relId, " not found");
+                continue;
+            }
+            SlideParts sp = new SlideParts();
+            sp.slide = mainPart.getRelatedPart(rel);
+            sp.layout = getRelatedPart(sp.slide, XSLFRelation.SLIDE_LAYOUT);
+            sp.master = (sp.layout == null) ? null : getRelatedPart(sp.layout, XSLFRelation.SLIDE_MASTER);
+            sp.notes = getRelatedPart(sp.slide, XSLFRelation.NOTES);
+            for (PackageRelationship cr : sp.slide.getRelationshipsByType(XSLFRelation.COMMENTS.getRelation())) {
+                sp.comments.add(sp.slide.getRelatedPart(cr));
+            }
+            slides.add(sp);
+        }
+        return slides;
+    }
+
+    private static PackagePart getRelatedPart(PackagePart part, XSLFRelation relation) throws InvalidFormatException {
+        PackageRelationshipCollection rels = part.getRelationshipsByType(relation.getRelation());
+        return (rels.size() == 0) ? null : part.getRelatedPart(rels.getRelationship(0));
+    }
+
+    private Map<String, String> readCommentAuthors(PackagePart mainPart) throws IOException, InvalidFormatException {
+        Map<String, String> authors = new HashMap<>();
+        PackagePart part = getRelatedPart(mainPart, XSLFRelation.COMMENT_AUTHORS);
+        if (part != null) {
+            parse(part, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("cmAuthor".equals(localName)) {
+                        authors.put(attributes.getValue("id"), attributes.getValue("name"));
+                    }
+                }
+            });
+        }
+        return authors;
+    }
+
+    /**
+     * @return the text of the slide - like {@link org.apache.poi.sl.extractor.SlideShowExtractor#getText()},
+     *  the slide text is followed by the master, comments and notes text
+     */
+    private String getText(SlideParts slide, Map<String, String> authors, Map<PackagePartName, String> masterTexts,
+        Locale locale) throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        if (slidesByDefault) {
+            parse(slide.slide, new ShapeTextHandler(sb, false, locale));
+        }
+
+        if (masterByDefault) {
+            sb.append(getMasterText(slide.master, masterTexts, locale));
+            sb.append(getMasterText(slide.layout, masterTexts, locale));
+        }
+
+        if (commentsByDefault) {
+            for (PackagePart comments : slide.comments) {
+                parse(comments, new CommentsHandler(sb, authors));
+            }
+        }
+
+        if (notesByDefault && slide.notes != null) {
+            parse(slide.notes, new ShapeTextHandler(sb, false, locale));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the text of the master or layout, which is cached, as it's shared by many slides
+     */
+    private String getMasterText(PackagePart part, Map<PackagePartName, String> masterTexts, Locale locale)
+    throws IOException {
+        if (part == null) {
+            return "";
+        }
+        String text = masterTexts.get(part.getPartName());
+        if (text == null) {
+            StringBuilder sb = new StringBuilder();
+            parse(part, new ShapeTextHandler(sb, true, locale));
+            text = sb.toString();
+            masterTexts.put(part.getPartName(), text);
+        }
+        return text;
+    }
+
+    /**
+     * Writes the comments as "author - text"
+     */
+    private static final class CommentsHandler extends DefaultHandler {
+        private final StringBuilder out;
+        private final Map<String, String> authors;
+        private final StringBuilder text = new StringBuilder();
+        private String author;
+        private boolean inText;
+
+        CommentsHandler(StringBuilder out, Map<String, String> authors) {
+            this.out = out;
+            this.authors = authors;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("cm".equals(localName)) {
+                author = authors.get(attributes.getValue("authorId"));
+                text.setLength(0);
+            } else if ("text".equals(localName)) {
+                inText = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("text".equals(localName)) {
+                inText = false;
+            } else if ("cm".equals(localName)) {
+                out.append(author).append(" - ").append(text);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                text.append(ch, start, length);
+            }
+        }
+    }
+
+    /**
+     * Collects the text of the text shapes and tables of a sheet. For the masters and layouts,
+     * only the top level text shapes, which are not placeholders, are included.
+     */
+    private static final class ShapeTextHandler extends DefaultHandler {
+        private final StringBuilder out;
+        private final boolean master;
+        private final Locale locale;
+        private final StringBuilder run = new StringBuilder();
+
+        private int skipDepth;
+        private int groupDepth;
+        private boolean inShape;
+        private int shapeStart;
+        private int shapeRunChars;
+        private boolean placeholder;
+        private boolean titlePlaceholder;
+        private int tableColumns;
+        private int column;
+        private String rowTrailer;
+        private boolean inCell;
+        private boolean inRun;
+        private boolean inText;
+        private String cap;
+
+        ShapeTextHandler(StringBuilder out, boolean master, Locale locale) {
+            this.out = out;
+            this.master = master;
+            this.locale = locale;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (skipDepth > 0 || "Fallback".equals(localName)
+                || (master && ("graphicFrame".equals(localName) || (groupDepth > 0 && "grpSp".equals(localName))))) {
+                skipDepth++;
+                return;
+            }
+
+            switch (localName) {
+                case "grpSp":
+                    groupDepth++;
+                    break;
+                case "sp":
+                    if (master && groupDepth > 1) {
+                        // only the top level shapes of the masters are included
+                        skipDepth++;
+                        return;
+                    }
+                    inShape = true;
+                    placeholder = false;
+                    titlePlaceholder = false;
+                    shapeStart = out.length();
+                    shapeRunChars = 0;
+                    break;
+                case "ph":
+                    if (inShape) {
+                        placeholder = true;
+                        String type = attributes.getValue("type");
+                        titlePlaceholder = "title".equals(type) || "ctrTitle".equals(type) || "subTitle".equals(type);
+                    }
+                    break;
+                case "tbl":
+                    tableColumns = 0;
+                    break;
+                case "gridCol":
+                    tableColumns++;
+                    break;
+                case "tr":
+                    column = -1;
+                    rowTrailer = "";
+                    break;
+                case "tc":
+                    column++;
+                    inCell = true;
+                    break;
+                case "r":
+                case "fld":
+                    inRun = true;
+                    cap = null;
+                    run.setLength(0);
+                    break;
+                case "rPr":
+                    if (inRun) {
+                        cap = attributes.getValue("cap");
+                    }
+                    break;
+                case "t":
+                    inText = inRun;
+                    break;
+                case "br":
+                    out.append('\n');
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (skipDepth > 0) {
+                skipDepth--;
+                return;
+            }
+
+            switch (localName) {
+                case "grpSp":
+                    groupDepth--;
+                    break;
+                case "sp":
+                    inShape = false;
+                    if (master) {
+                        // don't bother about boiler plate text on master sheets
+                        String text = out.substring(shapeStart);
+                        if (placeholder || shapeRunChars == 0 || "*\n".equals(text)) {
+                            out.setLength(shapeStart);
+                        }
+                    }
+                    break;
+                case "tr":
+                    if (!"\n".equals(rowTrailer)) {
+                        out.append('\n');
+                    }
+                    break;
+                case "tc":
+                    inCell = false;
+                    break;
+                case "p":
+                    if (inCell) {
+                        rowTrailer = (column < tableColumns - 1) ? "\t" : "\n";
+                        out.append(rowTrailer);
+                    } else if (inShape || !master) {
+                        out.append('\n');
+                    }
+                    break;
+                case "r":
+                case "fld":
+                    inRun = false;
+                    out.append(convertRun());
+                    shapeRunChars += run.length();
+                    break;
+                case "t":
+                    inText = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText && skipDepth == 0) {
+                run.append(ch, start, length);
+            }
+        }
+
+        /**
+         * Converts the line breaks and the capitalization like the SlideShowExtractor
+         */
+        private String convertRun() {
+            // 0xB acts like cariage return in page titles and like blank in the others
+            String txt = run.toString().replace('\r', '\n').replace((char)0x0B, titlePlaceholder ? '\n' : ' ');
+            if ("all".equals(cap)) {
+                txt = txt.toUpperCase(locale);
+            } else if ("small".equals(cap)) {
+                txt = txt.toLowerCase(locale);
+            }
+            return txt;
+        }
+    }
+}
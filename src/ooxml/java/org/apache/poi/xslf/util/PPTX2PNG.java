@@ -23,21 +23,34 @@ import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.geom.Dimension2D;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.poi.common.usermodel.GenericRecord;
 import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.sl.draw.DrawFontManager;
+import org.apache.poi.sl.draw.DrawFontManagerDefault;
 import org.apache.poi.sl.draw.Drawable;
 import org.apache.poi.sl.draw.EmbeddedExtractor.EmbeddedPart;
+import org.apache.poi.sl.draw.ImageCache;
 import org.apache.poi.util.Dimension2DDouble;
 import org.apache.poi.util.GenericRecordJsonWriter;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LocaleUtil;
 import org.apache.poi.xslf.util.OutputFormat.BitmapFormat;
 import org.apache.poi.xslf.util.OutputFormat.SVGFormat;
@@ -54,6 +67,9 @@ public final class PPTX2PNG {
 
     private static final String OUTPUT_PAT_REGEX = "${basename}-${slideno}.${format}";
 
+    /** the memory limit of the decoded images, which are shared by the slides */
+    private static final long IMAGE_CACHE_SIZE = 64 * 1024 * 1024;
+
     private static void usage(String error){
         String msg =
             "Usage: PPTX2PNG [options] <.ppt/.pptx/.emf/.wmf file or 'stdin'>\n" +
@@ -75,7 +91,8 @@ public final class PPTX2PNG {
             "                      some files (usually wmf) don't have a header, i.e. an identifiable file magic\n" +
             "    -textAsShapes     text elements are saved as shapes in SVG, necessary for variable spacing\n" +
             "                      often found in math formulas\n" +
-            "    -charset <cs>     sets the default charset to be used, defaults to Windows-1252";
+            "    -charset <cs>     sets the default charset to be used, defaults to Windows-1252\n" +
+            "    -threads <int>    number of threads rendering the slides, defaults to 1";
 
         System.out.println(msg);
         // no System.exit here, as we also run in junit tests!
@@ -104,6 +121,10 @@ public final class PPTX2PNG {
     private FileMagic defaultFileType = FileMagic.OLE2;
     private boolean textAsShapes = false;
     private Charset charset = LocaleUtil.CHARSET_1252;
+    private int threads = 1;
+    private byte[] stdinData = null;
+    private ImageCache imageCache;
+    private DrawFontManager fontManager;
 
     private PPTX2PNG() {
     }
@@ -189,6 +210,12 @@ public final class PPTX2PNG {
                         charset = LocaleUtil.CHARSET_1252;
                     }
                     break;
+                case "-threads":
+                    if (opt != null) {
+                        threads = Integer.parseInt(opt);
+                        i++;
+                    }
+                    break;
 
                 default:
                     file = new File(args[i]);
@@ -236,6 +263,11 @@ public final class PPTX2PNG {
             return false;
         }
 
+        if (threads < 1) {
+            usage("Invalid number of threads given");
+            return false;
+        }
+
         return true;
     }
 
@@ -258,39 +290,18 @@ public final class PPTX2PNG {
             final int width = Math.max((int)Math.rint(dim.getWidth()),1);
             final int height = Math.max((int)Math.rint(dim.getHeight()),1);
 
-            for (int slideNo : slidenum) {
-                proxy.setSlideNo(slideNo);
-                if (!quiet) {
-                    String title = proxy.getTitle();
-                    System.out.println("Rendering slide " + slideNo + (title == null ? "" : ": " + title.trim()));
-                }
-
-                dumpRecords(proxy);
-
-                extractEmbedded(proxy, slideNo);
-
-                try (OutputFormat outputFormat = ("svg".equals(format)) ? new SVGFormat(textAsShapes) : new BitmapFormat(format)) {
-                    Graphics2D graphics = outputFormat.getGraphics2D(width, height);
-
-                    // default rendering options
-                    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                    graphics.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
-                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                    graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-                    graphics.setRenderingHint(Drawable.DEFAULT_CHARSET, getDefaultCharset());
-
-                    graphics.scale(scale / lenSide, scale / lenSide);
+            dumpRecords(proxy);
 
-                    graphics.setComposite(AlphaComposite.Clear);
-                    graphics.fillRect(0, 0, width, height);
-                    graphics.setComposite(AlphaComposite.SrcOver);
+            // the decoded images and fonts are shared by all slides
+            imageCache = new ImageCache(IMAGE_CACHE_SIZE);
+            fontManager = new DrawFontManagerDefault();
 
-                    // draw stuff
-                    proxy.draw(graphics);
-
-                    outputFormat.writeOut(proxy, new File(outdir, calcOutFile(proxy, slideNo)));
+            if (threads == 1 || slidenum.size() == 1) {
+                for (int slideNo : slidenum) {
+                    renderSlide(proxy, slideNo, width, height, lenSide);
                 }
+            } else {
+                renderSlides(proxy, slidenum, width, height, lenSide);
             }
         } catch (NoScratchpadException e) {
             usage("'"+file.getName()+"': Format not supported - try to include poi-scratchpad.jar into the CLASSPATH.");
@@ -298,10 +309,100 @@ public final class PPTX2PNG {
         }
 
         if (!quiet) {
+            System.out.println("Image cache: " + imageCache.getHits() + " hits, " + imageCache.getMisses() +
+                " misses, " + imageCache.getEvictions() + " evictions");
             System.out.println("Done");
         }
     }
 
+    private void renderSlide(MFProxy proxy, int slideNo, int width, int height, double lenSide) throws IOException {
+        proxy.setSlideNo(slideNo);
+        if (!quiet) {
+            String title = proxy.getTitle();
+            System.out.println("Rendering slide " + slideNo + (title == null ? "" : ": " + title.trim()));
+        }
+
+        extractEmbedded(proxy, slideNo);
+
+        try (OutputFormat outputFormat = ("svg".equals(format)) ? new SVGFormat(textAsShapes) : new BitmapFormat(format)) {
+            Graphics2D graphics = outputFormat.getGraphics2D(width, height);
+
+            // default rendering options
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            graphics.setRenderingHint(Drawable.DEFAULT_CHARSET, getDefaultCharset());
+            graphics.setRenderingHint(Drawable.IMAGE_CACHE, imageCache);
+            graphics.setRenderingHint(Drawable.FONT_HANDLER, fontManager);
+
+            graphics.scale(scale / lenSide, scale / lenSide);
+
+            graphics.setComposite(AlphaComposite.Clear);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setComposite(AlphaComposite.SrcOver);
+
+            // draw stuff
+            proxy.draw(graphics);
+
+            outputFormat.writeOut(proxy, new File(outdir, calcOutFile(proxy, slideNo)));
+        }
+    }
+
+    /**
+     * Renders the slides on a temporary pool - each thread works on its own copy of the slideshow,
+     * as the usermodel isn't thread-safe, but the image and font caches are shared
+     */
+    private void renderSlides(MFProxy proxy, Set<Integer> slidenum, int width, int height, double lenSide)
+    throws IOException {
+        final Queue<Integer> pending = new ConcurrentLinkedQueue<>(slidenum);
+        final int poolSize = Math.min(threads, slidenum.size());
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "poi-pptx2png");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>(poolSize);
+            for (int i = 0; i < poolSize; i++) {
+                // the first worker uses the already parsed slideshow
+                final MFProxy shared = (i == 0) ? proxy : null;
+                futures.add(pool.submit(() -> {
+                    MFProxy own = (shared != null) ? shared : initProxy(file);
+                    try {
+                        for (Integer slideNo; (slideNo = pending.poll()) != null; ) {
+                            renderSlide(own, slideNo, width, height, lenSide);
+                        }
+                    } finally {
+                        if (own != shared) {
+                            own.close();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while rendering the slides", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     private double getDimensions(MFProxy proxy, Dimension2D dim) {
         final Dimension2D pgsize = proxy.getSize();
 
@@ -373,7 +474,11 @@ public final class PPTX2PNG {
         FileMagic fm;
         ProxyConsumer con;
         if ("stdin".equals(fileName)) {
-            InputStream bis = FileMagic.prepareToCheckMagic(System.in);
+            // with several threads, each thread parses its own copy of the input
+            if (threads > 1 && stdinData == null) {
+                stdinData = IOUtils.toByteArray(System.in);
+            }
+            InputStream bis = FileMagic.prepareToCheckMagic(stdinData == null ? System.in : new ByteArrayInputStream(stdinData));
             fm = FileMagic.valueOf(bis);
             con = (p) -> p.parse(bis);
         } else {
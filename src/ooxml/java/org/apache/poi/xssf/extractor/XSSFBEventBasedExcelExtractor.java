@@ -19,11 +19,10 @@ package org.apache.poi.xssf.extractor;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.poi.extractor.LimitedAppendable;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.util.POILogFactory;
-import org.apache.poi.util.POILogger;
 import org.apache.poi.xssf.binary.XSSFBCommentsTable;
 import org.apache.poi.xssf.binary.XSSFBHyperlinksTable;
 import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
@@ -44,8 +43,6 @@ import org.xml.sax.SAXException;
  */
 public class XSSFBEventBasedExcelExtractor extends XSSFEventBasedExcelExtractor {
 
-    private static final POILogger LOGGER = POILogFactory.getLogger(XSSFBEventBasedExcelExtractor.class);
-
     public static final XSSFRelation[] SUPPORTED_TYPES = new XSSFRelation[]{
             XSSFRelation.XLSB_BINARY_WORKBOOK
     };
@@ -100,48 +97,43 @@ public class XSSFBEventBasedExcelExtractor extends XSSFEventBasedExcelExtractor
     }
 
     /**
-     * Processes the file and returns the text
+     * Processes the file and writes the text to the target, like
+     * {@link XSSFEventBasedExcelExtractor#extractTo(Appendable, long)} does for the xml sheets
+     *
+     * @since POI 4.1.1
      */
-    public String getText() {
+    @Override
+    public boolean extractTo(Appendable out, long maxChars) throws IOException {
+        LimitedAppendable text = new LimitedAppendable(out, maxChars);
+        SheetTextExtractor sheetExtractor = new SheetTextExtractor();
+        sheetExtractor.setTarget(text, maxChars);
         try {
             XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(getPackage());
             XSSFBReader xssfbReader = new XSSFBReader(getPackage());
             XSSFBStylesTable styles = xssfbReader.getXSSFBStylesTable();
             XSSFBReader.SheetIterator iter = (XSSFBReader.SheetIterator) xssfbReader.getSheetsData();
 
-            StringBuilder text = new StringBuilder(64);
-            SheetTextExtractor sheetExtractor = new SheetTextExtractor();
             XSSFBHyperlinksTable hyperlinksTable = null;
-            while (iter.hasNext()) {
-                InputStream stream = iter.next();
-                if (getIncludeSheetNames()) {
-                    text.append(iter.getSheetName());
-                    text.append('\n');
-                }
-                if (handleHyperlinksInCells) {
-                    hyperlinksTable = new XSSFBHyperlinksTable(iter.getSheetPart());
-                }
-                XSSFBCommentsTable comments = getIncludeCellComments() ? iter.getXSSFBSheetComments() : null;
-                processSheet(sheetExtractor, styles, comments, strings, stream);
-                if (getIncludeHeadersFooters()) {
-                    sheetExtractor.appendHeaderText(text);
+            while (iter.hasNext() && !text.isExhausted()) {
+                try (InputStream stream = iter.next()) {
+                    if (getIncludeSheetNames()) {
+                        text.append(iter.getSheetName());
+                        text.append('\n');
+                    }
+                    if (handleHyperlinksInCells) {
+                        hyperlinksTable = new XSSFBHyperlinksTable(iter.getSheetPart());
+                    }
+                    XSSFBCommentsTable comments = getIncludeCellComments() ? iter.getXSSFBSheetComments() : null;
+                    processSheet(sheetExtractor, styles, comments, strings, stream);
+                    appendSheetText(sheetExtractor, text, getIncludeTextBoxes() ? iter.getShapes() : null);
                 }
-                sheetExtractor.appendCellText(text);
-                if (getIncludeTextBoxes()) {
-                    processShapes(iter.getShapes(), text);
-                }
-                if (getIncludeHeadersFooters()) {
-                    sheetExtractor.appendFooterText(text);
-                }
-                sheetExtractor.reset();
-                stream.close();
             }
-
-            return text.toString();
-        } catch (IOException | OpenXML4JException | SAXException e) {
-            LOGGER.log(POILogger.WARN, e);
-            return null;
+        } catch (StopExtraction e) {
+            e.rethrowCause();
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException(e);
         }
+        return !text.isExhausted();
     }
 
 }
@@ -25,17 +25,11 @@ import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
-import org.apache.poi.ooxml.POIXMLDocument;
-import org.apache.poi.ooxml.POIXMLProperties;
-import org.apache.poi.ooxml.POIXMLProperties.CoreProperties;
-import org.apache.poi.ooxml.POIXMLProperties.CustomProperties;
-import org.apache.poi.ooxml.POIXMLProperties.ExtendedProperties;
-import org.apache.poi.ooxml.extractor.POIXMLTextExtractor;
+import org.apache.poi.extractor.LimitedAppendable;
+import org.apache.poi.ooxml.extractor.POIXMLEventBasedTextExtractor;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.util.POILogFactory;
-import org.apache.poi.util.POILogger;
 import org.apache.poi.util.XMLHelper;
 import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
@@ -58,13 +52,8 @@ import org.xml.sax.XMLReader;
  * Implementation of a text extractor from OOXML Excel
  * files that uses SAX event based parsing.
  */
-public class XSSFEventBasedExcelExtractor
-    implements POIXMLTextExtractor, org.apache.poi.ss.extractor.ExcelExtractor {
-
-    private static final POILogger LOGGER = POILogFactory.getLogger(XSSFEventBasedExcelExtractor.class);
-
-    protected final OPCPackage container;
-    protected final POIXMLProperties properties;
+public class XSSFEventBasedExcelExtractor extends POIXMLEventBasedTextExtractor
+    implements org.apache.poi.ss.extractor.ExcelExtractor {
 
     protected Locale locale;
     protected boolean includeTextBoxes = true;
@@ -74,15 +63,12 @@ public class XSSFEventBasedExcelExtractor
     protected boolean formulasNotResults;
     protected boolean concatenatePhoneticRuns = true;
 
-    private boolean doCloseFilesystem = true;
-
     public XSSFEventBasedExcelExtractor(String path) throws XmlException, OpenXML4JException, IOException {
         this(OPCPackage.open(path));
     }
 
     public XSSFEventBasedExcelExtractor(OPCPackage container) throws XmlException, OpenXML4JException, IOException {
-        this.container = container;
-        properties = new POIXMLProperties(container);
+        super(container);
     }
 
     /**
@@ -184,39 +170,6 @@ public class XSSFEventBasedExcelExtractor
         return locale;
     }
 
-    /**
-     * Returns the opened OPCPackage container.
-     */
-    @Override
-    public OPCPackage getPackage() {
-        return container;
-    }
-
-    /**
-     * Returns the core document properties
-     */
-    @Override
-    public CoreProperties getCoreProperties() {
-        return properties.getCoreProperties();
-    }
-
-    /**
-     * Returns the extended document properties
-     */
-    @Override
-    public ExtendedProperties getExtendedProperties() {
-        return properties.getExtendedProperties();
-    }
-
-    /**
-     * Returns the custom document properties
-     */
-    @Override
-    public CustomProperties getCustomProperties() {
-        return properties.getCustomProperties();
-    }
-
-
     /**
      * Processes the given sheet
      */
@@ -253,47 +206,64 @@ public class XSSFEventBasedExcelExtractor
     }
 
     /**
-     * Processes the file and returns the text
+     * Processes the file and writes the text to the target.<p>
+     *
+     * The text of a row is written as soon as the row has been parsed, so only the current
+     * row is kept in memory. As the headers of a sheet are written before its cells, but are
+     * stored after them, the rows of a sheet are collected until the sheet has been parsed,
+     * if the headers and footers are included. Exclude them via {@link #setIncludeHeadersFooters(boolean)}
+     * to stream the rows of large sheets.
+     *
+     * @since POI 4.1.1
      */
-    public String getText() {
+    @Override
+    public boolean extractTo(Appendable out, long maxChars) throws IOException {
+        LimitedAppendable text = new LimitedAppendable(out, maxChars);
+        SheetTextExtractor sheetExtractor = new SheetTextExtractor();
+        sheetExtractor.setTarget(text, maxChars);
         try {
             XSSFReader xssfReader = new XSSFReader(container);
             SharedStrings strings = createSharedStringsTable(xssfReader, container);
             StylesTable styles = xssfReader.getStylesTable();
             XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
-            StringBuilder text = new StringBuilder(64);
-            SheetTextExtractor sheetExtractor = new SheetTextExtractor();
-
-            while (iter.hasNext()) {
-                InputStream stream = iter.next();
-                if (includeSheetNames) {
-                    text.append(iter.getSheetName());
-                    text.append('\n');
-                }
-                Comments comments = includeCellComments ? iter.getSheetComments() : null;
-                processSheet(sheetExtractor, styles, comments, strings, stream);
-                if (includeHeadersFooters) {
-                    sheetExtractor.appendHeaderText(text);
-                }
-                sheetExtractor.appendCellText(text);
-                if (includeTextBoxes) {
-                    processShapes(iter.getShapes(), text);
-                }
-                if (includeHeadersFooters) {
-                    sheetExtractor.appendFooterText(text);
+
+            while (iter.hasNext() && !text.isExhausted()) {
+                try (InputStream stream = iter.next()) {
+                    if (includeSheetNames) {
+                        text.append(iter.getSheetName());
+                        text.append('\n');
+                    }
+                    Comments comments = includeCellComments ? iter.getSheetComments() : null;
+                    processSheet(sheetExtractor, styles, comments, strings, stream);
+                    appendSheetText(sheetExtractor, text, includeTextBoxes ? iter.getShapes() : null);
                 }
-                sheetExtractor.reset();
-                stream.close();
             }
+        } catch (StopExtraction e) {
+            e.rethrowCause();
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException(e);
+        }
+        return !text.isExhausted();
+    }
 
-            return text.toString();
-        } catch (IOException | OpenXML4JException | SAXException e) {
-            LOGGER.log(POILogger.WARN, e);
-            return null;
+    /**
+     * Writes the text of a parsed sheet, which hasn't been streamed yet, i.e. the headers,
+     * the collected rows, the text boxes and the footers
+     */
+    void appendSheetText(SheetTextExtractor sheetExtractor, LimitedAppendable text, List<XSSFShape> shapes)
+    throws IOException {
+        if (includeHeadersFooters) {
+            sheetExtractor.appendHeaderText(text);
         }
+        sheetExtractor.flushRows();
+        processShapes(shapes, text);
+        if (includeHeadersFooters) {
+            sheetExtractor.appendFooterText(text);
+        }
+        sheetExtractor.reset();
     }
 
-    void processShapes(List<XSSFShape> shapes, StringBuilder text) {
+    void processShapes(List<XSSFShape> shapes, Appendable text) throws IOException {
         if (shapes == null) {
             return;
         }
@@ -307,28 +277,12 @@ public class XSSFEventBasedExcelExtractor
         }
     }
 
-    @Override
-    public POIXMLDocument getDocument() {
-        return null;
-    }
-
-    @Override
-    public void setCloseFilesystem(boolean doCloseFilesystem) {
-        this.doCloseFilesystem = doCloseFilesystem;
-    }
-
-    @Override
-    public boolean isCloseFilesystem() {
-        return doCloseFilesystem;
-    }
-
-    @Override
-    public OPCPackage getFilesystem() {
-        return container;
-    }
-
     protected class SheetTextExtractor implements SheetContentsHandler {
         private final StringBuilder output = new StringBuilder(64);
+        /** if set, the rows are written to the target instead of being collected for {@link #getText()} */
+        private LimitedAppendable target;
+        /** the character budget of the target, negative for no limit */
+        private long maxChars = -1;
         private boolean firstCellOfRow;
         private final Map<String, String> headerFooterMap;
 
@@ -342,26 +296,42 @@ public class XSSFEventBasedExcelExtractor
             firstCellOfRow = true;
         }
 
+        /**
+         * Sets the target of the text. The rows are written as soon as they're parsed, unless the
+         * headers and footers are included, which need to be written before the rows.
+         */
+        void setTarget(LimitedAppendable target, long maxChars) {
+            this.target = target;
+            this.maxChars = maxChars;
+        }
+
         @Override
         public void endRow(int rowNum) {
             output.append('\n');
+            if (target != null && !includeHeadersFooters) {
+                flushRows();
+            }
         }
 
         @Override
         public void cell(String cellRef, String formattedValue, XSSFComment comment) {
+            if (maxChars >= 0 && target.getWritten() + output.length() > maxChars) {
+                // the collected rows already exceed the budget, the rest of the sheet would be discarded
+                return;
+            }
             if (firstCellOfRow) {
                 firstCellOfRow = false;
             } else {
                 output.append('\t');
             }
             if (formattedValue != null) {
-                checkMaxTextSize(output, formattedValue);
+                checkMaxTextSize(getExtractedSize(), formattedValue);
                 output.append(formattedValue);
             }
             if (includeCellComments && comment != null) {
                 String commentText = comment.getString().getString().replace('\n', ' ');
                 output.append(formattedValue != null ? " Comment by " : "Comment by ");
-                checkMaxTextSize(output, commentText);
+                checkMaxTextSize(getExtractedSize(), commentText);
                 if (commentText.startsWith(comment.getAuthor() + ": ")) {
                     output.append(commentText);
                 } else {
@@ -380,7 +350,7 @@ public class XSSFEventBasedExcelExtractor
         /**
          * Append the text for the named header or footer if found.
          */
-        private void appendHeaderFooterText(StringBuilder buffer, String name) {
+        private void appendHeaderFooterText(Appendable buffer, String name) throws IOException {
             String text = headerFooterMap.get(name);
             if (text != null && text.length() > 0) {
                 // this is a naive way of handling the left, center, and right
@@ -415,7 +385,7 @@ public class XSSFEventBasedExcelExtractor
          * @see XSSFExcelExtractor#getText()
          * @see org.apache.poi.hssf.extractor.ExcelExtractor#_extractHeaderFooter(org.apache.poi.ss.usermodel.HeaderFooter)
          */
-        void appendHeaderText(StringBuilder buffer) {
+        void appendHeaderText(Appendable buffer) throws IOException {
             appendHeaderFooterText(buffer, "firstHeader");
             appendHeaderFooterText(buffer, "oddHeader");
             appendHeaderFooterText(buffer, "evenHeader");
@@ -428,7 +398,7 @@ public class XSSFEventBasedExcelExtractor
          * @see XSSFExcelExtractor#getText()
          * @see org.apache.poi.hssf.extractor.ExcelExtractor#_extractHeaderFooter(org.apache.poi.ss.usermodel.HeaderFooter)
          */
-        void appendFooterText(StringBuilder buffer) {
+        void appendFooterText(Appendable buffer) throws IOException {
             // append the text for each footer type in the same order
             // they are appended in XSSFExcelExtractor
             appendHeaderFooterText(buffer, "firstFooter");
@@ -437,11 +407,25 @@ public class XSSFEventBasedExcelExtractor
         }
 
         /**
-         * Append the cell contents we have collected.
+         * @return the size of the text extracted so far, i.e. the written text and the collected rows
          */
-        void appendCellText(StringBuilder buffer) {
-            checkMaxTextSize(buffer, output.toString());
-            buffer.append(output);
+        private long getExtractedSize() {
+            return ((target == null) ? 0 : target.getWritten()) + output.length();
+        }
+
+        /**
+         * Write the collected rows to the target and stop the parsing, if the budget is exhausted.
+         */
+        void flushRows() {
+            try {
+                target.append(output);
+            } catch (IOException e) {
+                throw new StopExtraction(e);
+            }
+            output.setLength(0);
+            if (target.isExhausted()) {
+                throw new StopExtraction(null);
+            }
         }
 
         /**
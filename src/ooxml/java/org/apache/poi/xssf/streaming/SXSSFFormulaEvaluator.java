@@ -18,6 +18,7 @@
 package org.apache.poi.xssf.streaming;
 
 import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationProfiler;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.udf.UDFFinder;
@@ -58,6 +59,21 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
     public static SXSSFFormulaEvaluator create(SXSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
         return new SXSSFFormulaEvaluator(workbook, stabilityClassifier, udfFinder);
     }
+
+    /**
+     * @param stabilityClassifier used to optimise caching performance. Pass <code>null</code>
+     * for the (conservative) assumption that any cell may have its definition changed after
+     * evaluation begins.
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     * @param profiler collects the evaluation statistics, see {@link EvaluationProfiler}
+     *
+     * @since POI 4.1.1
+     */
+    public static SXSSFFormulaEvaluator create(SXSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder,
+            EvaluationProfiler profiler) {
+        return new SXSSFFormulaEvaluator(workbook,
+            new WorkbookEvaluator(SXSSFEvaluationWorkbook.create(workbook), profiler, stabilityClassifier, udfFinder));
+    }
     public void notifySetFormula(Cell cell) {
         _bookEvaluator.notifyUpdateCell(new SXSSFEvaluationCell((SXSSFCell)cell));
     }
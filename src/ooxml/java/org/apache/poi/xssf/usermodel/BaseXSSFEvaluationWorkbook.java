@@ -324,6 +324,19 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
         return _uBook.getSheetIndex(sheetName);
     }
 
+    /**
+     * @return the values of the referenced cells as cached in the external link part, if any
+     */
+    @Override
+    public EvaluationWorkbook getCachedExternalWorkbook(String workbookName) {
+        for (ExternalLinksTable linkTable : _uBook.getExternalLinksTable()) {
+            if (workbookName.equals(linkTable.getLinkedFileName())) {
+                return new ExternalLinkEvaluationWorkbook(linkTable);
+            }
+        }
+        return null;
+    }
+
     @Override
     public String getSheetFirstNameByExternSheet(int externSheetIndex) {
         int sheetIndex = convertFromExternalSheetIndex(externSheetIndex);
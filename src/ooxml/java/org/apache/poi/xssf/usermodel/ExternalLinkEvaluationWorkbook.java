@@ -0,0 +1,293 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.Internal;
+import org.apache.poi.xssf.model.ExternalLinksTable;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTExternalBook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTExternalCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTExternalRow;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTExternalSheetData;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTExternalSheetName;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * Internal POI use only - the cell values of an external workbook, which Excel cached
+ * in the external link part of the referencing workbook.<p>
+ *
+ * Excel only caches the cells which are referenced, so other cells are blank.
+ */
+@Internal
+/* package */ final class ExternalLinkEvaluationWorkbook implements EvaluationWorkbook {
+
+    private final ExternalLinkSheet[] _sheets;
+
+    /* package */ ExternalLinkEvaluationWorkbook(ExternalLinksTable linkTable) {
+        CTExternalBook book = linkTable.getCTExternalLink().getExternalBook();
+        CTExternalSheetName[] sheetNames = (book != null && book.isSetSheetNames())
+            ? book.getSheetNames().getSheetNameArray() : new CTExternalSheetName[0];
+        _sheets = new ExternalLinkSheet[sheetNames.length];
+        for (int i = 0; i < _sheets.length; i++) {
+            _sheets[i] = new ExternalLinkSheet(this, i, sheetNames[i].getVal());
+        }
+        if (book != null && book.isSetSheetDataSet()) {
+            for (CTExternalSheetData sheetData : book.getSheetDataSet().getSheetDataArray()) {
+                int sheetId = (int)sheetData.getSheetId();
+                if (sheetId >= 0 && sheetId < _sheets.length) {
+                    _sheets[sheetId].addCells(sheetData);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getSheetName(int sheetIndex) {
+        return _sheets[sheetIndex]._sheetName;
+    }
+
+    @Override
+    public int getSheetIndex(EvaluationSheet sheet) {
+        if (sheet instanceof ExternalLinkSheet && ((ExternalLinkSheet)sheet)._book == this) {
+            return ((ExternalLinkSheet)sheet)._sheetIndex;
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSheetIndex(String sheetName) {
+        for (ExternalLinkSheet sheet : _sheets) {
+            // sheet names are case-insensitive
+            if (sheet._sheetName.equalsIgnoreCase(sheetName)) {
+                return sheet._sheetIndex;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public EvaluationSheet getSheet(int sheetIndex) {
+        return _sheets[sheetIndex];
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(int externSheetIndex) {
+        throw new IllegalStateException("HSSF-style external references are not supported for XSSF");
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(String firstSheetName, String lastSheetName, int externalWorkbookNumber) {
+        // there are no formulas which could refer to other sheets
+        throw new IllegalStateException("The cached values of an external workbook don't contain formulas");
+    }
+
+    @Override
+    public int convertFromExternSheetIndex(int externSheetIndex) {
+        throw new IllegalStateException("HSSF-style external references are not supported for XSSF");
+    }
+
+    @Override
+    public ExternalName getExternalName(int externSheetIndex, int externNameIndex) {
+        throw new IllegalStateException("HSSF-style external references are not supported for XSSF");
+    }
+
+    @Override
+    public ExternalName getExternalName(String nameName, String sheetName, int externalWorkbookNumber) {
+        throw new IllegalStateException("The cached values of an external workbook don't contain formulas");
+    }
+
+    @Override
+    public EvaluationName getName(NamePtg namePtg) {
+        return null;
+    }
+
+    @Override
+    public EvaluationName getName(String name, int sheetIndex) {
+        return null;
+    }
+
+    @Override
+    public String resolveNameXText(NameXPtg ptg) {
+        return null;
+    }
+
+    @Override
+    public Ptg[] getFormulaTokens(EvaluationCell cell) {
+        throw new IllegalStateException("The cached values of an external workbook don't contain formulas");
+    }
+
+    @Override
+    public UDFFinder getUDFFinder() {
+        return null;
+    }
+
+    @Override
+    public SpreadsheetVersion getSpreadsheetVersion() {
+        return SpreadsheetVersion.EXCEL2007;
+    }
+
+    @Override
+    public void clearAllCachedResultValues() {
+        // nothing to do
+    }
+
+    private static final class ExternalLinkSheet implements EvaluationSheet {
+        private final ExternalLinkEvaluationWorkbook _book;
+        private final int _sheetIndex;
+        private final String _sheetName;
+        private final Map<CellAddress, ExternalLinkCell> _cells = new HashMap<>();
+        private int _lastRowNum = -1;
+
+        ExternalLinkSheet(ExternalLinkEvaluationWorkbook book, int sheetIndex, String sheetName) {
+            _book = book;
+            _sheetIndex = sheetIndex;
+            _sheetName = sheetName;
+        }
+
+        void addCells(CTExternalSheetData sheetData) {
+            for (CTExternalRow row : sheetData.getRowArray()) {
+                for (CTExternalCell cell : row.getCellArray()) {
+                    if (!cell.isSetR() || !cell.isSetV()) {
+                        continue;
+                    }
+                    CellAddress ca = new CellAddress(cell.getR());
+                    _cells.put(ca, new ExternalLinkCell(this, ca, cell));
+                    _lastRowNum = Math.max(_lastRowNum, ca.getRow());
+                }
+            }
+        }
+
+        @Override
+        public EvaluationCell getCell(int rowIndex, int columnIndex) {
+            return _cells.get(new CellAddress(rowIndex, columnIndex));
+        }
+
+        @Override
+        public void clearAllCachedResultValues() {
+            // nothing to do
+        }
+
+        @Override
+        public int getLastRowNum() {
+            return _lastRowNum;
+        }
+
+        @Override
+        public boolean isRowHidden(int rowIndex) {
+            return false;
+        }
+    }
+
+    private static final class ExternalLinkCell implements EvaluationCell {
+        private final ExternalLinkSheet _sheet;
+        private final CellAddress _address;
+        private final CellType _cellType;
+        private final String _value;
+
+        ExternalLinkCell(ExternalLinkSheet sheet, CellAddress address, CTExternalCell cell) {
+            _sheet = sheet;
+            _address = address;
+            _value = cell.getV();
+            STCellType.Enum t = cell.isSetT() ? cell.getT() : STCellType.N;
+            if (t == STCellType.B) {
+                _cellType = CellType.BOOLEAN;
+            } else if (t == STCellType.E) {
+                _cellType = CellType.ERROR;
+            } else if (t == STCellType.S || t == STCellType.STR || t == STCellType.INLINE_STR) {
+                _cellType = CellType.STRING;
+            } else {
+                _cellType = CellType.NUMERIC;
+            }
+        }
+
+        @Override
+        public Object getIdentityKey() {
+            return this;
+        }
+
+        @Override
+        public EvaluationSheet getSheet() {
+            return _sheet;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return _address.getRow();
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return _address.getColumn();
+        }
+
+        @Override
+        public CellType getCellType() {
+            return _cellType;
+        }
+
+        @Override
+        public double getNumericCellValue() {
+            return Double.parseDouble(_value);
+        }
+
+        @Override
+        public String getStringCellValue() {
+            return _value;
+        }
+
+        @Override
+        public boolean getBooleanCellValue() {
+            return "1".equals(_value) || "true".equalsIgnoreCase(_value);
+        }
+
+        @Override
+        public int getErrorCellValue() {
+            return FormulaError.forString(_value).getCode();
+        }
+
+        @Override
+        public CellRangeAddress getArrayFormulaRange() {
+            return null;
+        }
+
+        @Override
+        public boolean isPartOfArrayFormulaGroup() {
+            return false;
+        }
+
+        @Override
+        public CellType getCachedFormulaResultType() {
+            return _cellType;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.poi.xssf.usermodel;
 
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationProfiler;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.udf.UDFFinder;
@@ -55,6 +56,21 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         return new XSSFFormulaEvaluator(workbook, stabilityClassifier, udfFinder);
     }
 
+    /**
+     * @param stabilityClassifier used to optimise caching performance. Pass <code>null</code>
+     * for the (conservative) assumption that any cell may have its definition changed after
+     * evaluation begins.
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     * @param profiler collects the evaluation statistics, see {@link EvaluationProfiler}
+     *
+     * @since POI 4.1.1
+     */
+    public static XSSFFormulaEvaluator create(XSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder,
+            EvaluationProfiler profiler) {
+        return new XSSFFormulaEvaluator(workbook,
+            new WorkbookEvaluator(XSSFEvaluationWorkbook.create(workbook), profiler, stabilityClassifier, udfFinder));
+    }
+
     public void notifySetFormula(Cell cell) {
         _bookEvaluator.notifyUpdateCell(new XSSFEvaluationCell((XSSFCell)cell));
     }
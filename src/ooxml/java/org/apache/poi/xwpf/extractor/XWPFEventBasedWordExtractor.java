@@ -0,0 +1,539 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xwpf.extractor;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.extractor.LimitedAppendable;
+import org.apache.poi.ooxml.extractor.POIXMLEventBasedTextExtractor;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.apache.xmlbeans.XmlException;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Implementation of a text extractor from OOXML Word
+ * files that uses SAX event based parsing.<p>
+ *
+ * In contrast to {@link XWPFWordExtractor}, the document isn't loaded into a
+ * {@link org.apache.poi.xwpf.usermodel.XWPFDocument}, but the main document part
+ * is streamed and its text is written paragraph by paragraph. Only the comments,
+ * footnotes and endnotes are read upfront, as they are appended to the paragraphs,
+ * which refer to them.<p>
+ *
+ * The text is similar to the text of {@link XWPFWordExtractor}, but the headers
+ * and footers of all sections are written once - the headers before the body
+ * and the footers after it - instead of at the section breaks. Text in drawings
+ * and text boxes is not extracted.
+ *
+ * @since POI 4.1.1
+ */
+public class XWPFEventBasedWordExtractor extends POIXMLEventBasedTextExtractor {
+
+    private boolean fetchHyperlinks;
+    private boolean concatenatePhoneticRuns = true;
+    private boolean includeHeadersFooters = true;
+
+    public XWPFEventBasedWordExtractor(String path) throws XmlException, OpenXML4JException, IOException {
+        this(OPCPackage.open(path));
+    }
+
+    public XWPFEventBasedWordExtractor(OPCPackage container) throws XmlException, OpenXML4JException, IOException {
+        super(container);
+    }
+
+    /**
+     * Should we also fetch the hyperlinks, when fetching
+     * the text content? Default is to only output the
+     * hyperlink label, and not the contents
+     */
+    public void setFetchHyperlinks(boolean fetch) {
+        fetchHyperlinks = fetch;
+    }
+
+    /**
+     * Should we concatenate phonetic runs in extraction.  Default is <code>true</code>
+     * @param concatenatePhoneticRuns If phonetic runs should be concatenated
+     */
+    public void setConcatenatePhoneticRuns(boolean concatenatePhoneticRuns) {
+        this.concatenatePhoneticRuns = concatenatePhoneticRuns;
+    }
+
+    /**
+     * Should headers and footers be included? Default is true
+     */
+    public void setIncludeHeadersFooters(boolean includeHeadersFooters) {
+        this.includeHeadersFooters = includeHeadersFooters;
+    }
+
+    /**
+     * @return whether or not to include headers and footers
+     */
+    public boolean getIncludeHeadersFooters() {
+        return includeHeadersFooters;
+    }
+
+    /**
+     * Processes the file and writes the text to the target, paragraph by paragraph
+     */
+    @Override
+    public boolean extractTo(Appendable out, long maxChars) throws IOException {
+        LimitedAppendable text = new LimitedAppendable(out, maxChars);
+        try {
+            PackagePart mainPart = getMainPart();
+            Map<String, String> comments = readNotes(mainPart, XWPFRelation.COMMENT, "comment");
+            Map<String, String> footnotes = readNotes(mainPart, XWPFRelation.FOOTNOTE, "footnote");
+            Map<String, String> endnotes = readNotes(mainPart, XWPFRelation.ENDNOTE, "endnote");
+
+            if (includeHeadersFooters) {
+                for (PackageRelationship rel : mainPart.getRelationshipsByType(XWPFRelation.HEADER.getRelation())) {
+                    PackagePart part = mainPart.getRelatedPart(rel);
+                    parse(part, new BodyHandler(text, part, true, comments, footnotes, endnotes));
+                }
+            }
+            parse(mainPart, new BodyHandler(text, mainPart, false, comments, footnotes, endnotes));
+            if (includeHeadersFooters) {
+                for (PackageRelationship rel : mainPart.getRelationshipsByType(XWPFRelation.FOOTER.getRelation())) {
+                    PackagePart part = mainPart.getRelatedPart(rel);
+                    parse(part, new BodyHandler(text, part, true, comments, footnotes, endnotes));
+                }
+            }
+        } catch (StopExtraction e) {
+            e.rethrowCause();
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+        return !text.isExhausted();
+    }
+
+    /**
+     * Reads the text of the comments, footnotes or endnotes
+     *
+     * @return the text by the id of the note
+     */
+    private static Map<String, String> readNotes(PackagePart mainPart, XWPFRelation relation, String noteElement)
+    throws IOException, InvalidFormatException {
+        Map<String, String> notes = new HashMap<>();
+        for (PackageRelationship rel : mainPart.getRelationshipsByType(relation.getRelation())) {
+            parse(mainPart.getRelatedPart(rel), new NotesHandler(noteElement, notes));
+        }
+        return notes;
+    }
+
+    /**
+     * @return the attribute with the given local name, which isn't a relationship attribute
+     */
+    private static String getAttribute(Attributes attributes, String localName) {
+        for (int i = 0; i < attributes.getLength(); i++) {
+            if (localName.equals(attributes.getLocalName(i)) && !REL_NS.equals(attributes.getURI(i))) {
+                return attributes.getValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} for the elements, whose text is not extracted,
+     *  e.g. drawings with text boxes and the fallbacks of alternate contents
+     */
+    private static boolean isSkipped(String localName) {
+        switch (localName) {
+            case "drawing":
+            case "pict":
+            case "object":
+            case "Fallback":
+            case "txbxContent":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Collects the text of the comments, footnotes or endnotes
+     */
+    private static final class NotesHandler extends DefaultHandler {
+        private final String noteElement;
+        private final Map<String, String> notes;
+        private final StringBuilder text = new StringBuilder(64);
+        private String id;
+        private int paragraphs;
+        private int textStart;
+        private int runDepth;
+        private int skipDepth;
+        private boolean inText;
+
+        NotesHandler(String noteElement, Map<String, String> notes) {
+            this.noteElement = noteElement;
+            this.notes = notes;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (skipDepth > 0 || isSkipped(localName)) {
+                skipDepth++;
+                return;
+            }
+            if (noteElement.equals(localName)) {
+                id = getAttribute(attributes, "id");
+                String author = getAttribute(attributes, "author");
+                text.setLength(0);
+                paragraphs = 0;
+                // the comments are formatted like the XWPFCommentsDecorator
+                if ("comment".equals(noteElement)) {
+                    text.append("\tComment by ").append(author).append(": ");
+                }
+                textStart = text.length();
+            } else if (id == null) {
+                return;
+            } else if ("p".equals(localName)) {
+                // like XWPFComment, the paragraphs of the comments are only separated after some text
+                boolean separate = "comment".equals(noteElement) ? text.length() > textStart : paragraphs > 0;
+                if (separate) {
+                    text.append('\n');
+                }
+                paragraphs++;
+            } else if ("r".equals(localName)) {
+                runDepth++;
+            } else if (runDepth > 0) {
+                switch (localName) {
+                    case "t":
+                        inText = true;
+                        break;
+                    case "tab":
+                    case "ptab":
+                        text.append('\t');
+                        break;
+                    case "br":
+                    case "cr":
+                        text.append('\n');
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (skipDepth > 0) {
+                skipDepth--;
+            } else if (noteElement.equals(localName) && id != null) {
+                notes.put(id, text.toString());
+                id = null;
+            } else if ("r".equals(localName) && runDepth > 0) {
+                runDepth--;
+            } else if ("t".equals(localName)) {
+                inText = false;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText && skipDepth == 0) {
+                text.append(ch, start, length);
+            }
+        }
+    }
+
+    /**
+     * The state of a table cell, whose content is separated by tabs
+     * instead of line breaks
+     */
+    private static final class Cell {
+        /** the separator of the previous block element or 0, if the cell is empty yet */
+        char pendingSeparator;
+    }
+
+    /**
+     * Writes the text of the document body or of a header/footer part.
+     */
+    private class BodyHandler extends DefaultHandler {
+        private final LimitedAppendable out;
+        private final PackagePart part;
+        private final boolean headerFooter;
+        private final Map<String, String> comments;
+        private final Map<String, String> footnotes;
+        private final Map<String, String> endnotes;
+
+        private final Deque<Cell> cells = new ArrayDeque<>();
+        private final StringBuilder paragraphNotes = new StringBuilder();
+        private final StringBuilder paragraphComments = new StringBuilder();
+        private final StringBuilder phonetic = new StringBuilder();
+        private int tableDepth;
+        private int cellsInRow;
+        private int skipDepth;
+        private int runDepth;
+        private long paragraphStart;
+        private boolean inText;
+        private boolean inPhonetic;
+        private String hyperlinkUrl;
+
+        BodyHandler(LimitedAppendable out, PackagePart part, boolean headerFooter,
+            Map<String, String> comments, Map<String, String> footnotes, Map<String, String> endnotes) {
+            this.out = out;
+            this.part = part;
+            this.headerFooter = headerFooter;
+            this.comments = comments;
+            this.footnotes = footnotes;
+            this.endnotes = endnotes;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (skipDepth > 0 || isSkipped(localName)) {
+                skipDepth++;
+                return;
+            }
+
+            switch (localName) {
+                case "p":
+                    startBlock();
+                    paragraphStart = out.getWritten();
+                    break;
+                case "tbl":
+                    startBlock();
+                    tableDepth++;
+                    break;
+                case "tr":
+                    // the rows of nested tables don't reset the cells of the outer row
+                    if (tableDepth == 1) {
+                        cellsInRow = 0;
+                    }
+                    break;
+                case "tc":
+                    if (tableDepth == 1 && cellsInRow++ > 0) {
+                        emit('\t');
+                    }
+                    cells.push(new Cell());
+                    break;
+                case "r":
+                    runDepth++;
+                    break;
+                case "hyperlink":
+                    String rId = attributes.getValue(REL_NS, "id");
+                    PackageRelationship rel = (rId == null) ? null : part.getRelationship(rId);
+                    hyperlinkUrl = (rel == null) ? null : rel.getTargetURI().toString();
+                    break;
+                case "commentRangeStart":
+                    String comment = comments.get(getAttribute(attributes, "id"));
+                    if (comment != null && cells.isEmpty()) {
+                        paragraphComments.append(comment);
+                    }
+                    break;
+                case "ruby":
+                    phonetic.setLength(0);
+                    break;
+                case "rt":
+                    inPhonetic = true;
+                    break;
+                default:
+                    if (runDepth > 0) {
+                        startRunElement(localName, attributes);
+                    }
+                    break;
+            }
+        }
+
+        private void startRunElement(String localName, Attributes attributes) {
+            switch (localName) {
+                case "t":
+                    inText = true;
+                    break;
+                case "delText":
+                    // deleted text is only included for the paragraphs of the body, like in XWPFWordExtractor
+                    inText = cells.isEmpty();
+                    break;
+                case "tab":
+                case "ptab":
+                    emitRunText('\t');
+                    break;
+                case "br":
+                case "cr":
+                    emitRunText('\n');
+                    break;
+                case "footnoteReference":
+                case "endnoteReference":
+                    boolean isFootnote = "footnoteReference".equals(localName);
+                    String id = getAttribute(attributes, "id");
+                    emit((isFootnote ? "[footnoteRef:" : "[endnoteRef:") + id + "]");
+                    String note = (isFootnote ? footnotes : endnotes).get(id);
+                    paragraphNotes.append(" [").append(id).append(": ");
+                    if (note != null) {
+                        paragraphNotes.append(note);
+                    } else {
+                        paragraphNotes.append("!!! End note with ID \"").append(id).append("\" not found in document.");
+                    }
+                    paragraphNotes.append("] ");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (skipDepth > 0) {
+                skipDepth--;
+                return;
+            }
+
+            switch (localName) {
+                case "p":
+                    endParagraph();
+                    break;
+                case "tbl":
+                    tableDepth--;
+                    endBlock('\n');
+                    break;
+                case "tr":
+                    if (tableDepth == 1) {
+                        emit('\n');
+                    }
+                    break;
+                case "tc":
+                    cells.pop();
+                    break;
+                case "r":
+                    runDepth--;
+                    break;
+                case "t":
+                case "delText":
+                    inText = false;
+                    break;
+                case "hyperlink":
+                    if (fetchHyperlinks && hyperlinkUrl != null) {
+                        emit(" <" + hyperlinkUrl + ">");
+                    }
+                    hyperlinkUrl = null;
+                    break;
+                case "rt":
+                    inPhonetic = false;
+                    break;
+                case "ruby":
+                    if (concatenatePhoneticRuns && phonetic.length() > 0) {
+                        emit(" (" + phonetic + ")");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (!inText || skipDepth > 0) {
+                return;
+            }
+            if (inPhonetic) {
+                phonetic.append(ch, start, length);
+            } else {
+                try {
+                    out.append(new String(ch, start, length));
+                } catch (IOException e) {
+                    throw new StopExtraction(e);
+                }
+            }
+        }
+
+        private void emitRunText(char c) {
+            if (inPhonetic) {
+                phonetic.append(c);
+            } else {
+                emit(c);
+            }
+        }
+
+        /**
+         * Writes the separator of the previous block element of a table cell
+         */
+        private void startBlock() {
+            Cell cell = cells.peek();
+            if (cell != null && cell.pendingSeparator != 0) {
+                emit(cell.pendingSeparator);
+                cell.pendingSeparator = 0;
+            }
+        }
+
+        private void endBlock(char separator) {
+            Cell cell = cells.peek();
+            if (cell != null) {
+                cell.pendingSeparator = separator;
+            } else if (tableDepth == 0) {
+                emit('\n');
+                checkBudget();
+            }
+        }
+
+        private void endParagraph() {
+            if (!cells.isEmpty()) {
+                emit(paragraphNotes);
+                endBlock('\t');
+            } else if (headerFooter) {
+                // empty paragraphs are skipped like in XWPFHeaderFooter.getText()
+                emit(paragraphNotes);
+                if (out.getWritten() > paragraphStart) {
+                    emit('\n');
+                }
+                checkBudget();
+            } else {
+                if (paragraphComments.length() > 0) {
+                    emit(paragraphComments);
+                    emit('\n');
+                }
+                if (paragraphNotes.length() > 0) {
+                    emit(paragraphNotes);
+                    emit('\n');
+                }
+                endBlock('\n');
+            }
+            paragraphNotes.setLength(0);
+            paragraphComments.setLength(0);
+        }
+
+        private void emit(CharSequence text) {
+            try {
+                out.append(text);
+            } catch (IOException e) {
+                throw new StopExtraction(e);
+            }
+        }
+
+        private void emit(char c) {
+            try {
+                out.append(c);
+            } catch (IOException e) {
+                throw new StopExtraction(e);
+            }
+        }
+
+        private void checkBudget() {
+            if (out.isExhausted()) {
+                throw new StopExtraction(null);
+            }
+        }
+    }
+}
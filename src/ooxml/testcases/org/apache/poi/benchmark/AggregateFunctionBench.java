@@ -0,0 +1,109 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Evaluates aggregate functions over a single column of 1M numeric cells,
+ * i.e. the bulk numeric extraction of the formula evaluator
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class AggregateFunctionBench {
+
+    private static final int ROWS = 1_000_000;
+
+    private XSSFWorkbook wb;
+    private FormulaEvaluator evaluator;
+    private Cell sum, average, max, sumProduct;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet();
+        for (int i = 0; i < ROWS; i++) {
+            sheet.createRow(i).createCell(0).setCellValue(i % 1000);
+        }
+        Row row = sheet.getRow(0);
+        sum = row.createCell(2);
+        sum.setCellFormula("SUM(A1:A" + ROWS + ")");
+        average = row.createCell(3);
+        average.setCellFormula("AVERAGE(A1:A" + ROWS + ")");
+        max = row.createCell(4);
+        max.setCellFormula("MAX(A1:A" + ROWS + ")");
+        sumProduct = row.createCell(5);
+        sumProduct.setCellFormula("SUMPRODUCT(A1:A" + ROWS + ",A1:A" + ROWS + ")");
+        evaluator = wb.getCreationHelper().createFormulaEvaluator();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.close();
+    }
+
+    @Benchmark
+    public double benchSum() {
+        evaluator.clearAllCachedResultValues();
+        return evaluator.evaluate(sum).getNumberValue();
+    }
+
+    @Benchmark
+    public double benchAverage() {
+        evaluator.clearAllCachedResultValues();
+        return evaluator.evaluate(average).getNumberValue();
+    }
+
+    @Benchmark
+    public double benchMax() {
+        evaluator.clearAllCachedResultValues();
+        return evaluator.evaluate(max).getNumberValue();
+    }
+
+    @Benchmark
+    public double benchSumProduct() {
+        evaluator.clearAllCachedResultValues();
+        return evaluator.evaluate(sumProduct).getNumberValue();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + AggregateFunctionBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
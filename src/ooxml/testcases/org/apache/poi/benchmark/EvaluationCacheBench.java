@@ -0,0 +1,89 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Evaluates a model with many plain value and blank cell dependencies from scratch,
+ * which mostly exercises the evaluation cache (PlainCellCache, FormulaUsedBlankCellSet).
+ * Use the GC profiler output (gc.alloc.rate.norm) to compare the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class EvaluationCacheBench {
+
+    private static final int ROWS = 60_000;
+
+    private HSSFWorkbook wb;
+    private Sheet sheet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wb = new HSSFWorkbook();
+        sheet = wb.createSheet();
+        for (int i = 0; i < ROWS; i++) {
+            int r = i + 1;
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i);
+            // column B and E are left blank
+            row.createCell(2).setCellFormula("A" + r + "*2+B" + r + "+E" + r);
+            row.createCell(3).setCellFormula("C" + r + "+A" + r + "+SUM(A" + r + ":B" + Math.min(ROWS, r + 9) + ")");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.close();
+    }
+
+    @Benchmark
+    public FormulaEvaluator benchEvaluateAll() {
+        FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        for (Row row : sheet) {
+            evaluator.evaluate(row.getCell(3));
+        }
+        // return the evaluator, so its cache is not optimized away
+        return evaluator;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + EvaluationCacheBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
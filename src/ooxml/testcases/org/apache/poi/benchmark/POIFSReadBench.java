@@ -0,0 +1,141 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.DocumentNode;
+import org.apache.poi.poifs.filesystem.Entry;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.TempFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reads every stream of an OLE2 file with the different data sources: heap buffers
+ * read from the file channel, the read-only memory mapping and a byte array.<p>
+ *
+ * Pass large .xls/.doc/.msg files with {@code -p file=<path>}, otherwise a generated
+ * workbook of about 20 MB is read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class POIFSReadBench {
+
+    @Param({""})
+    public String file;
+
+    @Param({"heap", "mapped", "bytes"})
+    public String mode;
+
+    private File srcFile;
+    private boolean generated;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (!file.isEmpty()) {
+            srcFile = new File(file);
+            return;
+        }
+        generated = true;
+        srcFile = TempFile.createTempFile("POIFSReadBench", ".xls");
+        try (HSSFWorkbook wb = new HSSFWorkbook();
+             OutputStream os = new FileOutputStream(srcFile)) {
+            for (int s = 0; s < 4; s++) {
+                Sheet sheet = wb.createSheet();
+                for (int r = 0; r < 60_000; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("text " + (r % 1000));
+                    row.createCell(2).setCellValue(r * 0.5);
+                }
+            }
+            wb.write(os);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (generated && !srcFile.delete()) {
+            srcFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public long benchReadAllStreams() throws IOException {
+        switch (mode) {
+            case "mapped":
+                try (POIFSFileSystem fs = POIFSFileSystem.openMapped(srcFile)) {
+                    return readAll(fs.getRoot());
+                }
+            case "bytes":
+                try (InputStream is = new FileInputStream(srcFile);
+                     POIFSFileSystem fs = new POIFSFileSystem(is)) {
+                    return readAll(fs.getRoot());
+                }
+            default:
+                try (POIFSFileSystem fs = new POIFSFileSystem(srcFile, true)) {
+                    return readAll(fs.getRoot());
+                }
+        }
+    }
+
+    private static long readAll(DirectoryNode dir) throws IOException {
+        byte[] buf = new byte[4096];
+        long checksum = 0;
+        for (Entry entry : dir) {
+            if (entry instanceof DirectoryNode) {
+                checksum += readAll((DirectoryNode) entry);
+            } else if (entry instanceof DocumentNode) {
+                try (DocumentInputStream dis = new DocumentInputStream((DocumentNode) entry)) {
+                    for (int len; (len = dis.read(buf)) != -1; ) {
+                        checksum += len + buf[0];
+                    }
+                }
+            }
+        }
+        // return the checksum, so the reading is not optimized away
+        return checksum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + POIFSReadBench.class.getSimpleName() + ".*")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
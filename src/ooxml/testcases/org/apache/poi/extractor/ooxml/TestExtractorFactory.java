@@ -28,10 +28,14 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.extractor.BatchExtractor;
 import org.apache.poi.extractor.ExtractorFactory;
 import org.apache.poi.extractor.POIOLE2TextExtractor;
 import org.apache.poi.extractor.POITextExtractor;
@@ -343,6 +347,63 @@ public class TestExtractorFactory {
         // TODO - Visio
     }
 
+    @Test
+    public void testExtractAll() throws Exception {
+        List<File> files = Arrays.asList(xls, xlsx, txt, docx, ppt);
+        List<BatchExtractor.Result> results = ExtractorFactory.extractAll(files, 3);
+        assertEquals(files.size(), results.size());
+
+        for (int i = 0; i < files.size(); i++) {
+            BatchExtractor.Result res = results.get(i);
+            assertEquals(files.get(i), res.getFile());
+            assertEquals(files.get(i).length(), res.getFileSize());
+            if (files.get(i) == txt) {
+                assertFalse(res.isSuccess());
+                assertNull(res.getText());
+                continue;
+            }
+            assertTrue(res.isSuccess());
+            assertFalse(res.isTruncated());
+            try (POITextExtractor ext = ExtractorFactory.createExtractor(files.get(i))) {
+                assertEquals(ext.getText(), res.getText());
+            }
+            assertEquals(res.getText().length(), res.getTextLength());
+        }
+    }
+
+    @Test
+    public void testBatchExtractorLimits() throws Exception {
+        BatchExtractor batch = new BatchExtractor();
+        batch.setThreads(2);
+        batch.setIncludeEmbedded(true);
+
+        List<BatchExtractor.Result> results = batch.extract(Arrays.asList(xlsEmb, xls));
+        BatchExtractor.Result res = results.get(0);
+        assertTrue(res.isSuccess());
+        assertEquals(6, res.getEmbeddedDocuments());
+        try (POITextExtractor ext = ExtractorFactory.createExtractor(xlsEmb)) {
+            assertTrue(res.getTextLength() > ext.getText().length());
+        }
+        assertEquals(0, results.get(1).getEmbeddedDocuments());
+
+        batch.setMaxChars(20);
+        for (BatchExtractor.Result r : batch.extract(Arrays.asList(xlsEmb, xlsx))) {
+            assertTrue(r.isSuccess());
+            assertTrue(r.isTruncated());
+            assertEquals(20, r.getTextLength());
+        }
+
+        // the separator in front of the embedded documents counts against the budget
+        String mainText;
+        try (POITextExtractor ext = ExtractorFactory.createExtractor(xlsEmb)) {
+            mainText = ext.getText();
+        }
+        batch.setMaxChars(mainText.length());
+        res = batch.extract(Collections.singletonList(xlsEmb)).get(0);
+        assertTrue(res.isTruncated());
+        assertEquals(mainText, res.getText());
+    }
+
     private static final String[] EXPECTED_FAILURES = {
         // password protected files
         "spreadsheet/password.xls",
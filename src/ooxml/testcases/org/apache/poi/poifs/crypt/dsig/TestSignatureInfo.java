@@ -461,6 +461,44 @@ public class TestSignatureInfo {
         }
     }
 
+    @Test
+    public void testParallelDigests() throws Exception {
+        initKeyPair();
+        String testFile = "hello-world-unsigned.xlsx";
+        try (OPCPackage pkg = OPCPackage.open(copy(testdata.getFile(testFile)), PackageAccess.READ_WRITE)) {
+            SignatureConfig sic = new SignatureConfig();
+            sic.setKey(keyPair.getPrivate());
+            sic.setSigningCertificateChain(Collections.singletonList(x509));
+            sic.setDigestParallelism(4);
+            SignatureInfo si = new SignatureInfo();
+            si.setOpcPackage(pkg);
+            si.setSignatureConfig(sic);
+            si.confirmSignature();
+
+            // the parts digested upfront match the digests of the sequential validation
+            for (int parallelism : new int[]{ 1, 4 }) {
+                SignatureConfig vc = new SignatureConfig();
+                vc.setDigestParallelism(parallelism);
+                SignatureInfo vi = new SignatureInfo();
+                vi.setOpcPackage(pkg);
+                vi.setSignatureConfig(vc);
+                assertTrue(vi.verifySignature());
+            }
+
+            try (CommitableWorkbook wb = new CommitableWorkbook(pkg)) {
+                wb.setSheetName(0, "manipulated");
+                wb.commit();
+
+                SignatureConfig vc = new SignatureConfig();
+                vc.setDigestParallelism(4);
+                SignatureInfo vi = new SignatureInfo();
+                vi.setOpcPackage(pkg);
+                vi.setSignatureConfig(vc);
+                assertFalse("signature should be broken", vi.verifySignature());
+            }
+        }
+    }
+
     @Test
     public void testSignEnvelopingDocument() throws Exception {
         String testFile = "hello-world-unsigned.xlsx";
@@ -33,6 +33,7 @@ import java.io.OutputStream;
 import java.security.DigestInputStream;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
 
@@ -60,6 +61,8 @@ import org.apache.poi.poifs.filesystem.TempFilePOIFSFileSystem;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.NullOutputStream;
 import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.junit.Assume;
@@ -646,6 +649,114 @@ public class TestEncryptor {
         assertTrue(isDeleted);
     }
 
+    @Test
+    public void parallelAgileEncryption() throws IOException, GeneralSecurityException {
+        final String pass = "s3cr3t";
+        // not a multiple of the chunk size and more than a few batches of chunks
+        final byte[] plain = new byte[1_500_003];
+        new Random(4711).nextBytes(plain);
+
+        EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+        Encryptor enc = info.getEncryptor();
+        enc.confirmPassword(pass);
+
+        byte[][] packages = new byte[2][];
+        byte[][] files = new byte[2][];
+        for (int i = 0; i < 2; i++) {
+            enc.setParallelism(i == 0 ? 1 : 4);
+            try (POIFSFileSystem fs = new POIFSFileSystem()) {
+                try (OutputStream os = enc.getDataStream(fs)) {
+                    os.write(plain);
+                }
+                try (InputStream is = fs.createDocumentInputStream(Decryptor.DEFAULT_POIFS_ENTRY)) {
+                    packages[i] = IOUtils.toByteArray(is);
+                }
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                fs.writeFilesystem(bos);
+                files[i] = bos.toByteArray();
+            }
+        }
+        // the parallel encryption produces the same data
+        assertArrayEquals(packages[0], packages[1]);
+
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(files[1]))) {
+            Decryptor dec = new EncryptionInfo(fs).getDecryptor();
+            assertTrue(dec.verifyPassword(pass));
+            dec.setParallelism(4);
+            try (InputStream is = dec.getDataStream(fs)) {
+                assertArrayEquals(plain, IOUtils.toByteArray(is, (int)dec.getLength()));
+            }
+
+            // skip over a few batches
+            try (InputStream is = dec.getDataStream(fs)) {
+                byte[] buf = new byte[100];
+                assertEquals(100, is.read(buf));
+                assertArrayEquals(Arrays.copyOfRange(plain, 0, 100), buf);
+                assertEquals(1_000_000, is.skip(1_000_000));
+                assertEquals(100, is.read(buf));
+                assertArrayEquals(Arrays.copyOfRange(plain, 1_000_100, 1_000_200), buf);
+            }
+        }
+    }
+
+    @Test
+    public void agileEncryptionToFile() throws IOException, GeneralSecurityException {
+        final String pass = "s3cr3t";
+        final byte[] plain = new byte[100_003];
+        new Random(4711).nextBytes(plain);
+
+        EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+        Encryptor enc = info.getEncryptor();
+        enc.confirmPassword(pass);
+
+        File file = TempFile.createTempFile("encrypted", ".xlsx");
+        try {
+            try (OutputStream os = enc.getDataStream(file)) {
+                os.write(plain);
+            }
+
+            // the file matches the encryption via a POIFSFileSystem, including the integrity HMAC
+            try (POIFSFileSystem expFs = new POIFSFileSystem();
+                 POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+                try (OutputStream os = enc.getDataStream(expFs)) {
+                    os.write(plain);
+                }
+                for (String name : new String[]{ Decryptor.DEFAULT_POIFS_ENTRY, "EncryptionInfo" }) {
+                    try (InputStream expIs = expFs.createDocumentInputStream(name);
+                         InputStream is = fs.createDocumentInputStream(name)) {
+                        assertArrayEquals(IOUtils.toByteArray(expIs), IOUtils.toByteArray(is));
+                    }
+                }
+                assertTrue(fs.getRoot().hasEntry("\u0006DataSpaces"));
+
+                Decryptor dec = new EncryptionInfo(fs).getDecryptor();
+                assertTrue(dec.verifyPassword(pass));
+                try (InputStream is = dec.getDataStream(fs)) {
+                    assertArrayEquals(plain, IOUtils.toByteArray(is, (int)dec.getLength()));
+                }
+            }
+
+            // a streamed workbook is encrypted without a temporary copy of the package
+            try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+                wb.createSheet("encrypted").createRow(0).createCell(0).setCellValue("secret");
+                try (OutputStream os = enc.getDataStream(file)) {
+                    wb.write(os);
+                }
+                wb.dispose();
+            }
+            try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+                Decryptor dec = new EncryptionInfo(fs).getDecryptor();
+                assertTrue(dec.verifyPassword(pass));
+                try (InputStream is = dec.getDataStream(fs);
+                     XSSFWorkbook wb = new XSSFWorkbook(is)) {
+                    assertEquals("secret", wb.getSheet("encrypted").getRow(0).getCell(0).getStringCellValue());
+                }
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
     private static final class RandomStream extends InputStream {
         private final Random rand = new Random();
         private final byte[] buf = new byte[1024];
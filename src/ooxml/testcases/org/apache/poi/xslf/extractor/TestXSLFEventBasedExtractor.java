@@ -0,0 +1,264 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xslf.extractor;
+
+import static org.apache.poi.POITestCase.assertContains;
+import static org.apache.poi.POITestCase.assertNotContained;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.SlideLayout;
+import org.apache.poi.xslf.usermodel.XSLFGroupShape;
+import org.apache.poi.xslf.usermodel.XSLFRelation;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFSlideLayout;
+import org.apache.poi.xslf.usermodel.XSLFSlideMaster;
+import org.apache.poi.xslf.usermodel.XSLFTable;
+import org.apache.poi.xslf.usermodel.XSLFTableRow;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xslf.usermodel.XSLFTextParagraph;
+import org.apache.poi.xslf.usermodel.XSLFTextRun;
+import org.junit.Test;
+import org.openxmlformats.schemas.drawingml.x2006.main.STTextCapsType;
+
+/**
+ * Tests for {@link XSLFEventBasedExtractor}
+ */
+public class TestXSLFEventBasedExtractor {
+
+    private static final String PML_NS = "http://schemas.openxmlformats.org/presentationml/2006/main";
+
+    private static byte[] createSlideShow() throws Exception {
+        try (XMLSlideShow ppt = new XMLSlideShow()) {
+            for (int i = 0; i < 20; i++) {
+                XSLFSlide slide = ppt.createSlide();
+                XSLFTextBox box = slide.createTextBox();
+                box.setText("Slide " + i);
+                XSLFTextParagraph para = box.addNewTextParagraph();
+                para.addNewTextRun().setText("first line");
+                para.addLineBreak();
+                para.addNewTextRun().setText("second line");
+
+                if (i % 5 == 0) {
+                    XSLFTable table = slide.createTable();
+                    for (int r = 0; r < 2; r++) {
+                        XSLFTableRow row = table.addRow();
+                        for (int c = 0; c < 3; c++) {
+                            row.addCell().setText((char)('A' + c) + Integer.toString(r + 1));
+                        }
+                    }
+                }
+
+                if (i % 2 == 0) {
+                    XSLFGroupShape group = slide.createGroup();
+                    group.createTextBox().setText("Grouped " + i);
+                }
+
+                if (i % 3 == 0) {
+                    ppt.getNotesSlide(slide).createTextBox().setText("Note " + i);
+                }
+            }
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ppt.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static String getExpectedText(byte[] data, boolean notes) throws Exception {
+        try (XSLFExtractor extractor = new XSLFExtractor(new XMLSlideShow(new ByteArrayInputStream(data)))) {
+            extractor.setNotesByDefault(notes);
+            return extractor.getText();
+        }
+    }
+
+    @Test
+    public void testComparedToXSLFExtractor() throws Exception {
+        byte[] data = createSlideShow();
+        String expected = getExpectedText(data, false);
+        String expectedNotes = getExpectedText(data, true);
+
+        try (XSLFEventBasedExtractor extractor = new XSLFEventBasedExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            String text = extractor.getText();
+            assertEquals(expected, text);
+            assertContains(text, "Slide 0\nfirst line\nsecond line\n");
+            assertContains(text, "A1\tB1\tC1");
+            assertContains(text, "A2\tB2\tC2\n");
+            assertContains(text, "Grouped 18\n");
+            assertNotContained(text, "Note 3");
+
+            extractor.setNotesByDefault(true);
+            assertEquals(expectedNotes, extractor.getText());
+
+            extractor.setThreads(4);
+            assertEquals(expectedNotes, extractor.getText());
+
+            extractor.setSlidesByDefault(false);
+            text = extractor.getText();
+            assertContains(text, "Note 3");
+            assertNotContained(text, "Slide 3");
+        }
+    }
+
+    @Test
+    public void testThreadsWithBudget() throws Exception {
+        byte[] data = createSlideShow();
+        try (XSLFEventBasedExtractor extractor = new XSLFEventBasedExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            extractor.setNotesByDefault(true);
+            String text = extractor.getText();
+            int slide10 = text.indexOf("Slide 10\n");
+            assertTrue(slide10 > 0);
+
+            extractor.setThreads(4);
+            for (int budget : new int[]{ 1, slide10, slide10 + 3, text.length() - 1 }) {
+                StringBuilder sb = new StringBuilder();
+                assertFalse(extractor.extractTo(sb, budget));
+                assertEquals(text.substring(0, budget), sb.toString());
+            }
+
+            StringBuilder sb = new StringBuilder();
+            assertTrue(extractor.extractTo(sb, text.length()));
+            assertEquals(text, sb.toString());
+        }
+    }
+
+    @Test
+    public void testMasterText() throws Exception {
+        byte[] data;
+        try (XMLSlideShow ppt = new XMLSlideShow()) {
+            XSLFSlideMaster master = ppt.getSlideMasters().get(0);
+            master.createTextBox().setText("Master text");
+            XSLFSlideLayout layout = master.getLayout(SlideLayout.TITLE_ONLY);
+            layout.createTextBox().setText("Layout text");
+            for (int i = 0; i < 3; i++) {
+                ppt.createSlide(layout).createTextBox().setText("Slide " + i);
+            }
+            data = toBytes(ppt);
+        }
+
+        try (XSLFEventBasedExtractor extractor = new XSLFEventBasedExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            assertNotContained(extractor.getText(), "Layout text");
+
+            extractor.setMasterByDefault(true);
+            String text = extractor.getText();
+            // the text shapes of the master and the layout follow each slide, but not their placeholders
+            assertContains(text, "Slide 0\nMaster text\nLayout text\n");
+            assertContains(text, "Slide 2\nMaster text\nLayout text\n");
+            assertNotContained(text, "Click to edit Master text styles");
+
+            // the cached master text is shared by the threads
+            extractor.setThreads(3);
+            assertEquals(text, extractor.getText());
+        }
+    }
+
+    @Test
+    public void testComments() throws Exception {
+        byte[] data;
+        try (XMLSlideShow ppt = new XMLSlideShow()) {
+            ppt.createSlide().createTextBox().setText("Commented slide");
+            ppt.createSlide().createTextBox().setText("Plain slide");
+            data = toBytes(ppt);
+        }
+
+        // XMLSlideShow can't create comments, so the parts are added to the package
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+            PackagePart main = pkg.getPart(pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT).getRelationship(0));
+            PackagePartName authors = PackagingURIHelper.createPartName("/ppt/commentAuthors.xml");
+            write(pkg.createPart(authors, XSLFRelation.COMMENT_AUTHORS.getContentType()),
+                "<p:cmAuthorLst xmlns:p=\"" + PML_NS + "\">"
+                + "<p:cmAuthor id=\"0\" name=\"Alice\" initials=\"A\" lastIdx=\"1\" clrIdx=\"0\"/></p:cmAuthorLst>");
+            main.addRelationship(authors, TargetMode.INTERNAL, XSLFRelation.COMMENT_AUTHORS.getRelation());
+
+            PackagePart slide = pkg.getPart(PackagingURIHelper.createPartName("/ppt/slides/slide1.xml"));
+            PackagePartName comments = PackagingURIHelper.createPartName("/ppt/comments/comment1.xml");
+            write(pkg.createPart(comments, XSLFRelation.COMMENTS.getContentType()),
+                "<p:cmLst xmlns:p=\"" + PML_NS + "\"><p:cm authorId=\"0\" dt=\"2019-01-01T00:00:00.000\" idx=\"1\">"
+                + "<p:pos x=\"10\" y=\"10\"/><p:text>A comment</p:text></p:cm></p:cmLst>");
+            slide.addRelationship(comments, TargetMode.INTERNAL, XSLFRelation.COMMENTS.getRelation());
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            pkg.save(bos);
+            pkg.revert();
+            data = bos.toByteArray();
+        }
+
+        String expected;
+        try (XSLFExtractor extractor = new XSLFExtractor(new XMLSlideShow(new ByteArrayInputStream(data)))) {
+            extractor.setCommentsByDefault(true);
+            expected = extractor.getText();
+        }
+
+        try (XSLFEventBasedExtractor extractor = new XSLFEventBasedExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            assertNotContained(extractor.getText(), "A comment");
+
+            extractor.setCommentsByDefault(true);
+            String text = extractor.getText();
+            assertEquals(expected, text);
+            assertEquals("Commented slide\nAlice - A commentPlain slide\n", text);
+        }
+    }
+
+    @Test
+    public void testTextCaps() throws Exception {
+        byte[] data;
+        try (XMLSlideShow ppt = new XMLSlideShow()) {
+            XSLFTextBox box = ppt.createSlide().createTextBox();
+            XSLFTextParagraph para = box.getTextParagraphs().get(0);
+            para.addNewTextRun().setText("Normal ");
+            XSLFTextRun run = para.addNewTextRun();
+            run.setText("All Caps ");
+            run.getRPr(true).setCap(STTextCapsType.ALL);
+            run = para.addNewTextRun();
+            run.setText("Small Caps");
+            run.getRPr(true).setCap(STTextCapsType.SMALL);
+            data = toBytes(ppt);
+        }
+
+        try (XSLFEventBasedExtractor extractor = new XSLFEventBasedExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            String text = extractor.getText();
+            assertEquals(getExpectedText(data, false), text);
+            assertEquals("Normal ALL CAPS small caps\n", text);
+        }
+    }
+
+    private static byte[] toBytes(XMLSlideShow ppt) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ppt.write(bos);
+        return bos.toByteArray();
+    }
+
+    private static void write(PackagePart part, String xml) throws IOException {
+        try (OutputStream os = part.getOutputStream()) {
+            os.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xslf.usermodel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import org.apache.poi.sl.usermodel.PictureData;
+import org.apache.poi.sl.usermodel.PictureData.PictureType;
+import org.apache.poi.sl.usermodel.PictureShape;
+import org.apache.poi.sl.usermodel.Slide;
+import org.apache.poi.sl.usermodel.SlideShow;
+import org.apache.poi.sl.usermodel.SlideShowFactory;
+import org.apache.poi.sl.usermodel.TextBox;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xslf.util.PPTX2PNG;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test class for rendering the slides of PPTX2PNG on several threads
+ */
+public class TestPPTX2PNGThreads {
+    private static boolean xslfOnly;
+
+    @BeforeClass
+    public static void checkHslf() {
+        try {
+            Class.forName("org.apache.poi.hslf.usermodel.HSLFSlideShow");
+        } catch (Exception e) {
+            xslfOnly = true;
+        }
+    }
+
+    @Test
+    public void renderPptx() throws Exception {
+        compareThreads(true);
+    }
+
+    @Test
+    public void renderPpt() throws Exception {
+        assumeFalse("ignore HSLF (.ppt) in no-scratchpad run", xslfOnly);
+        compareThreads(false);
+    }
+
+    private static void compareThreads(boolean xslf) throws Exception {
+        File dir = TempFile.createTempDirectory("pptx2png");
+        File deck = new File(dir, xslf ? "threads.pptx" : "threads.ppt");
+        try (SlideShow<?,?> ppt = SlideShowFactory.create(xslf);
+             OutputStream os = new FileOutputStream(deck)) {
+            createSlides(ppt);
+            ppt.write(os);
+        }
+
+        File single = render(deck, "1");
+        File multi = render(deck, "3");
+
+        String[] names = single.list();
+        assertEquals(5, names.length);
+        for (String name : names) {
+            byte[] expected = Files.readAllBytes(new File(single, name).toPath());
+            byte[] actual = Files.readAllBytes(new File(multi, name).toPath());
+            assertArrayEquals(name, expected, actual);
+        }
+    }
+
+    private static File render(File deck, String threads) throws Exception {
+        File outdir = new File(deck.getParentFile(), "threads-" + threads);
+        assertTrue(outdir.mkdir());
+        PPTX2PNG.main(new String[]{
+            "-format", "png",
+            "-slide", "-1",
+            "-outdir", outdir.getCanonicalPath(),
+            "-quiet",
+            "-scale", "0.5",
+            "-threads", threads,
+            deck.getAbsolutePath()
+        });
+        return outdir;
+    }
+
+    /**
+     * Creates slides, which share their pictures, so the image cache is used by several threads
+     */
+    private static void createSlides(SlideShow<?,?> ppt) throws IOException {
+        PictureData red = ppt.addPicture(createImage(Color.RED), PictureType.PNG);
+        PictureData blue = ppt.addPicture(createImage(Color.BLUE), PictureType.PNG);
+        for (int i = 0; i < 5; i++) {
+            Slide<?,?> slide = ppt.createSlide();
+            TextBox<?,?> tb = slide.createTextBox();
+            tb.setText("Slide " + (i + 1));
+            tb.setAnchor(new Rectangle2D.Double(50, 50, 300, 50));
+
+            PictureShape<?,?> ps = slide.createPicture((i % 2 == 0) ? red : blue);
+            ps.setAnchor(new Rectangle2D.Double(50 + i * 20, 150, 200 + i * 30, 150));
+        }
+    }
+
+    private static byte[] createImage(Color color) throws IOException {
+        BufferedImage img = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, color, 64, 64, Color.WHITE));
+        g.fillRect(0, 0, 64, 64);
+        g.dispose();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", bos);
+        return bos.toByteArray();
+    }
+}
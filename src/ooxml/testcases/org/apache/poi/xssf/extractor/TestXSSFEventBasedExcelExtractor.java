@@ -24,7 +24,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,6 +36,11 @@ import org.apache.poi.extractor.POITextExtractor;
 import org.apache.poi.ooxml.extractor.POIXMLTextExtractor;
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.hssf.extractor.ExcelExtractor;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.junit.Test;
 
@@ -353,4 +362,83 @@ public class TestXSSFEventBasedExcelExtractor {
 		ex.close();
 
 	}
+
+	@Test
+	public void testExtractToAppendable() throws Exception {
+		byte[] data;
+		try (XSSFWorkbook wb = new XSSFWorkbook()) {
+			for (String name : new String[]{ "First", "Second" }) {
+				XSSFSheet sheet = wb.createSheet(name);
+				sheet.getHeader().setCenter(name + " header");
+				sheet.getFooter().setLeft(name + " footer");
+				for (int i = 0; i < 2; i++) {
+					XSSFRow row = sheet.createRow(i);
+					row.createCell(0).setCellValue(name + " row " + i);
+					row.createCell(1).setCellValue(i);
+				}
+			}
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			wb.write(bos);
+			data = bos.toByteArray();
+		}
+
+		try (XSSFEventBasedExcelExtractor extractor = new XSSFEventBasedExcelExtractor(
+				OPCPackage.open(new ByteArrayInputStream(data)))) {
+			// the headers are stored after the rows, so the rows are collected until the sheet is parsed
+			StringWriter sw = new StringWriter();
+			assertTrue(extractor.extractTo(sw));
+			assertEquals("First\nFirst header\nFirst row 0\t0\nFirst row 1\t1\nFirst footer\n"
+				+ "Second\nSecond header\nSecond row 0\t0\nSecond row 1\t1\nSecond footer\n", sw.toString());
+
+			// the rows exceeding the budget are not collected, the output stops within the header
+			StringBuilder sb = new StringBuilder();
+			assertFalse(extractor.extractTo(sb, 12));
+			assertEquals("First\nFirst ", sb.toString());
+
+			sb.setLength(0);
+			assertFalse(extractor.extractTo(sb, 75));
+			assertEquals("First\nFirst header\nFirst row 0\t0\nFirst row 1\t1\nFirst footer\nSecond\nSecond h", sb.toString());
+
+			// neither headers nor sheet names
+			extractor.setIncludeHeadersFooters(false);
+			extractor.setIncludeSheetNames(false);
+			sb.setLength(0);
+			assertTrue(extractor.extractTo(sb));
+			assertEquals("First row 0\t0\nFirst row 1\t1\nSecond row 0\t0\nSecond row 1\t1\n", sb.toString());
+		}
+	}
+
+	@Test
+	public void testMaxTextSizeOfWorkbook() throws Exception {
+		byte[] data;
+		try (XSSFWorkbook wb = new XSSFWorkbook()) {
+			for (String name : new String[]{ "First", "Second" }) {
+				XSSFSheet sheet = wb.createSheet(name);
+				for (int i = 0; i < 3; i++) {
+					sheet.createRow(i).createCell(0).setCellValue(name + " sheet, row " + i);
+				}
+			}
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			wb.write(bos);
+			data = bos.toByteArray();
+		}
+
+		// each sheet fits into the limit, but not the whole workbook
+		long before = ZipSecureFile.getMaxTextSize();
+		ZipSecureFile.setMaxTextSize(80);
+		try {
+			for (boolean headersFooters : new boolean[]{ true, false }) {
+				try (XSSFEventBasedExcelExtractor extractor = new XSSFEventBasedExcelExtractor(
+						OPCPackage.open(new ByteArrayInputStream(data)))) {
+					extractor.setIncludeHeadersFooters(headersFooters);
+					extractor.getText();
+					fail("the text exceeds the max text size");
+				} catch (IllegalStateException e) {
+					assertContains(e.getMessage(), "MAX_TEXT_SIZE");
+				}
+			}
+		} finally {
+			ZipSecureFile.setMaxTextSize(before);
+		}
+	}
 }
@@ -25,6 +25,7 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 
+import org.apache.poi.ss.formula.EvaluationProfiler;
 import org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
@@ -186,6 +187,28 @@ public final class TestSXSSFFormulaEvaluation  extends BaseTestFormulaEvaluator
         wb.close();
     }
 
+    @Test
+    public void testProfiler() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(5)) {
+            SXSSFSheet s = wb.createSheet("Streamed");
+            SXSSFRow r = s.createRow(0);
+            r.createCell(0).setCellValue(4);
+            r.createCell(1).setCellFormula("SQRT(A1)*3");
+            SXSSFCell c = r.createCell(2);
+            c.setCellFormula("B1+1");
+
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            FormulaEvaluator eval = SXSSFFormulaEvaluator.create(wb, null, null, profiler);
+            assertEquals(7, eval.evaluate(c).getNumberValue(), 0);
+
+            assertEquals(2, profiler.getFormulaEvaluations());
+            assertEquals(2, profiler.getMaxDepth());
+            assertEquals("Streamed!C1", profiler.getCellProfiles().stream()
+                .filter(cp -> cp.getColumn() == 2).findFirst().map(EvaluationProfiler.CellProfile::getName).orElse(null));
+            assertEquals(3, profiler.getFunctionProfiles().size());
+        }
+    }
+
     @Test
     public void testUpdateCachedFormulaResultFromErrorToNumber_bug46479() {
         //noinspection ConstantConditions
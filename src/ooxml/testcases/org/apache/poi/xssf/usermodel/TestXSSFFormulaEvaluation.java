@@ -248,15 +248,21 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
     /**
      * If a formula references cells or named ranges in another workbook,
      *  but that isn't available at evaluation time, the cached values
-     *  should be used instead
-     * TODO Add the support then add a unit test
+     *  should be used instead, if an external workbook resolver is set
      * See bug #56752
      */
     @Test
-    @Ignore
-    public void testCachedReferencesToOtherWorkbooks() {
-        // TODO
-        fail("unit test not written yet");
+    public void testCachedReferencesToOtherWorkbooks() throws IOException {
+        try (XSSFWorkbook wb = (XSSFWorkbook) _testDataProvider.openSampleWorkbook("ref2-56737.xlsx")) {
+            XSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            // the resolver can't open any workbook, so the cached values of the external links are used
+            evaluator.setExternalWorkbookResolver(workbookName -> null);
+
+            Row rXSLX = wb.getSheetAt(0).getRow(2);
+            Row rXSL = wb.getSheetAt(0).getRow(4);
+            assertEquals("\"Hello!\"", evaluator.evaluate(rXSLX.getCell(4)).formatAsString());
+            assertEquals("\"Hello!\"", evaluator.evaluate(rXSL.getCell(4)).formatAsString());
+        }
     }
     
     /**
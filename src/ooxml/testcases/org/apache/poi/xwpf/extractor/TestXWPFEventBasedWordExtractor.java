@@ -0,0 +1,296 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xwpf.extractor;
+
+import static org.apache.poi.POITestCase.assertContains;
+import static org.apache.poi.POITestCase.assertNotContained;
+import static org.apache.poi.POITestCase.assertStartsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.xwpf.model.XWPFHeaderFooterPolicy;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFFootnote;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.junit.Test;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+
+/**
+ * Tests for {@link XWPFEventBasedWordExtractor}
+ */
+public class TestXWPFEventBasedWordExtractor {
+
+    private static byte[] createDocument() throws Exception {
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFHeaderFooterPolicy policy = doc.createHeaderFooterPolicy();
+            policy.createHeader(XWPFHeaderFooterPolicy.DEFAULT).createParagraph().createRun().setText("The header");
+            policy.createFooter(XWPFHeaderFooterPolicy.DEFAULT).createParagraph().createRun().setText("The footer");
+
+            XWPFRun run = doc.createParagraph().createRun();
+            run.setText("First paragraph");
+            run.addTab();
+            run.setText("after a tab");
+            run.addBreak();
+            run.setText("after a break");
+
+            XWPFParagraph para = doc.createParagraph();
+            para.createRun().setText("Link: ");
+            para.createHyperlinkRun("http://poi.apache.org/").setText("Apache POI");
+
+            XWPFFootnote note = doc.createFootnote();
+            note.createParagraph().createRun().setText("The footnote");
+            para = doc.createParagraph();
+            para.createRun().setText("Paragraph with a footnote");
+            para.addFootnoteReference(note);
+
+            XWPFTable table = doc.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("A1");
+            table.getRow(0).getCell(1).setText("B1");
+            table.getRow(1).getCell(0).setText("A2");
+            XWPFTableCell cell = table.getRow(1).getCell(1);
+            cell.setText("B2");
+            cell.addParagraph().createRun().setText("second line");
+
+            for (int i = 0; i < 100; i++) {
+                doc.createParagraph().createRun().setText("Paragraph " + i);
+            }
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    @Test
+    public void testComparedToXWPFWordExtractor() throws Exception {
+        byte[] data = createDocument();
+
+        String expected;
+        try (XWPFWordExtractor extractor = new XWPFWordExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            extractor.setFetchHyperlinks(true);
+            expected = extractor.getText();
+        }
+
+        try (XWPFEventBasedWordExtractor extractor = new XWPFEventBasedWordExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            extractor.setFetchHyperlinks(true);
+            String text = extractor.getText();
+            assertEquals(expected, text);
+            assertContains(text, "The header\nFirst paragraph\tafter a tab\nafter a break\n");
+            assertContains(text, "Link: Apache POI <http://poi.apache.org/>\n");
+            assertContains(text, "A1\tB1\nA2\tB2\tsecond line\n");
+            assertContains(text, "Paragraph 99\nThe footer\n");
+
+            extractor.setFetchHyperlinks(false);
+            extractor.setIncludeHeadersFooters(false);
+            text = extractor.getText();
+            assertNotContained(text, "The header");
+            assertNotContained(text, "http://poi.apache.org/");
+        }
+    }
+
+    @Test
+    public void testComments() throws Exception {
+        byte[] data;
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFParagraph para = doc.createParagraph();
+            para.getCTP().addNewCommentRangeStart().setId(BigInteger.ZERO);
+            para.createRun().setText("Commented paragraph");
+            para.getCTP().addNewCommentRangeEnd().setId(BigInteger.ZERO);
+            para.createRun().getCTR().addNewCommentReference().setId(BigInteger.ZERO);
+            doc.createParagraph().createRun().setText("Plain paragraph");
+            data = toBytes(doc);
+        }
+
+        // XWPFDocument can't create comments, so the part is added to the package
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+            PackagePart main = pkg.getPart(pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT).getRelationship(0));
+            PackagePartName name = PackagingURIHelper.createPartName("/word/comments.xml");
+            PackagePart comments = pkg.createPart(name, "application/vnd.openxmlformats-officedocument.wordprocessingml.comments+xml");
+            try (OutputStream os = comments.getOutputStream()) {
+                os.write(("<w:comments xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+                    + "<w:comment w:id=\"0\" w:author=\"Alice\"><w:p><w:r><w:t>A comment</w:t></w:r></w:p>"
+                    + "<w:p><w:r><w:t>second line</w:t></w:r></w:p></w:comment></w:comments>").getBytes(StandardCharsets.UTF_8));
+            }
+            main.addRelationship(name, TargetMode.INTERNAL, XWPFRelation.COMMENT.getRelation());
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            pkg.save(bos);
+            pkg.revert();
+            data = bos.toByteArray();
+        }
+
+        String text = assertSameText(data);
+        assertEquals("Commented paragraph\tComment by Alice: A comment\nsecond line\n\nPlain paragraph\n", text);
+    }
+
+    @Test
+    public void testEndnotes() throws Exception {
+        byte[] data;
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFEndnote endnote = doc.createEndnote();
+            endnote.createParagraph().createRun().setText("The endnote");
+            XWPFParagraph para = doc.createParagraph();
+            para.createRun().setText("Paragraph with an endnote");
+            para.addFootnoteReference(endnote);
+            doc.createParagraph().createRun().setText("Next paragraph");
+            data = toBytes(doc);
+        }
+
+        String text = assertSameText(data);
+        assertContains(text, "Paragraph with an endnote[endnoteRef:1] [1: The endnote] \n\nNext paragraph\n");
+    }
+
+    @Test
+    public void testSectionsAndHeaders() throws Exception {
+        byte[] data;
+        try (XWPFDocument doc = new XWPFDocument()) {
+            doc.createParagraph().createRun().setText("Section 1");
+            doc.createHeaderFooterPolicy().createHeader(XWPFHeaderFooterPolicy.DEFAULT)
+                .createParagraph().createRun().setText("Header 1");
+            // the section properties of the body are moved to the section break
+            CTBody body = doc.getDocument().getBody();
+            doc.createParagraph().getCTP().addNewPPr().setSectPr(body.getSectPr());
+            body.unsetSectPr();
+            body.addNewSectPr();
+
+            doc.createParagraph().createRun().setText("Section 2");
+            XWPFHeaderFooterPolicy policy = new XWPFHeaderFooterPolicy(doc);
+            policy.createHeader(XWPFHeaderFooterPolicy.DEFAULT).createParagraph().createRun().setText("Header 2");
+            policy.createHeader(XWPFHeaderFooterPolicy.FIRST).createParagraph().createRun().setText("First page header");
+            policy.createFooter(XWPFHeaderFooterPolicy.DEFAULT).createParagraph().createRun().setText("Footer 2");
+            data = toBytes(doc);
+        }
+
+        String expected;
+        try (XWPFWordExtractor extractor = new XWPFWordExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            expected = extractor.getText();
+        }
+
+        try (XWPFEventBasedWordExtractor extractor = new XWPFEventBasedWordExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            // the headers of all sections precede the body and the footers follow it
+            String text = extractor.getText();
+            assertEquals("Header 1\nHeader 2\nFirst page header\nSection 1\n\nSection 2\nFooter 2\n", text);
+            // ... while XWPFWordExtractor writes them at the section breaks
+            assertEquals(sortedLines(expected), sortedLines(text));
+
+            extractor.setIncludeHeadersFooters(false);
+            assertEquals("Section 1\n\nSection 2\n", extractor.getText());
+
+            // the budget stops the extraction within the headers, before the body is parsed
+            extractor.setIncludeHeadersFooters(true);
+            StringBuilder sb = new StringBuilder();
+            assertFalse(extractor.extractTo(sb, 12));
+            assertEquals("Header 1\nHea", sb.toString());
+        }
+    }
+
+    @Test
+    public void testNestedTables() throws Exception {
+        byte[] data;
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFTable table = doc.createTable(1, 2);
+            table.getRow(0).getCell(0).setText("outer A");
+            XWPFTableCell cell = table.getRow(0).getCell(1);
+            cell.setText("outer B");
+            XWPFTable inner = new XWPFTable(cell.getCTTc().addNewTbl(), cell, 2, 2);
+            inner.getRow(0).getCell(0).setText("i1");
+            inner.getRow(0).getCell(1).setText("i2");
+            inner.getRow(1).getCell(0).setText("i3");
+            inner.getRow(1).getCell(1).setText("i4");
+            cell.getCTTc().addNewP();
+            doc.createParagraph().createRun().setText("After the table");
+            data = toBytes(doc);
+        }
+
+        // the cells of the nested table are joined, like by XWPFTable.getText()
+        String text = assertSameText(data);
+        assertStartsWith(text, "outer A\touter B\ti1i2i3i4\n");
+        assertContains(text, "\nAfter the table\n");
+    }
+
+    @Test
+    public void testNestedTableInFirstCell() throws Exception {
+        byte[] data;
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFTable table = doc.createTable(2, 2);
+            XWPFTableCell cell = table.getRow(0).getCell(0);
+            cell.setText("outer A");
+            XWPFTable inner = new XWPFTable(cell.getCTTc().addNewTbl(), cell, 2, 2);
+            inner.getRow(0).getCell(0).setText("i1");
+            inner.getRow(0).getCell(1).setText("i2");
+            inner.getRow(1).getCell(0).setText("i3");
+            inner.getRow(1).getCell(1).setText("i4");
+            cell.getCTTc().addNewP();
+            table.getRow(0).getCell(1).setText("outer B");
+            table.getRow(1).getCell(0).setText("outer C");
+            table.getRow(1).getCell(1).setText("outer D");
+            data = toBytes(doc);
+        }
+
+        // the rows of the nested table don't restart the cell count of the outer row
+        String text = assertSameText(data);
+        assertStartsWith(text, "outer A\ti1i2i3i4\n\touter B\nouter C\touter D\n");
+    }
+
+    private static byte[] toBytes(XWPFDocument doc) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        doc.write(bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * @return the text of the event based extractor, after it has been compared to the XWPFWordExtractor
+     */
+    private static String assertSameText(byte[] data) throws Exception {
+        String expected;
+        try (XWPFWordExtractor extractor = new XWPFWordExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            expected = extractor.getText();
+        }
+        try (XWPFEventBasedWordExtractor extractor = new XWPFEventBasedWordExtractor(OPCPackage.open(new ByteArrayInputStream(data)))) {
+            String text = extractor.getText();
+            assertEquals(expected, text);
+            return text;
+        }
+    }
+
+    private static List<String> sortedLines(String text) {
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\n")));
+        Collections.sort(lines);
+        return lines;
+    }
+}
@@ -21,24 +21,34 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.record.BOFRecord;
 import org.apache.poi.hssf.record.BoundSheetRecord;
 import org.apache.poi.hssf.record.ContinueRecord;
 import org.apache.poi.hssf.record.DVALRecord;
 import org.apache.poi.hssf.record.DVRecord;
 import org.apache.poi.hssf.record.EOFRecord;
 import org.apache.poi.hssf.record.FeatHdrRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.SSTRecord;
 import org.apache.poi.hssf.record.SelectionRecord;
 import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.junit.Test;
 
@@ -165,4 +175,140 @@ public final class TestHSSFEventFactory {
             Biff8EncryptionKey.setCurrentUserPassword(null);
         }
     }
+
+    private static byte[] createNumbersAndStrings() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook();
+             ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int s = 0; s < 2; s++) {
+                HSSFSheet sheet = wb.createSheet();
+                for (int r = 0; r < 100; r++) {
+                    sheet.createRow(r).createCell(0).setCellValue(r + 0.5);
+                    sheet.getRow(r).createCell(1).setCellValue("text " + r);
+                }
+            }
+            wb.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static short process(byte[] data, HSSFRequest req) throws IOException, HSSFUserException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(data))) {
+            return new HSSFEventFactory().abortableProcessWorkbookEvents(req, fs);
+        }
+    }
+
+    @Test
+    public void testSkipUnregisteredRecords() throws Exception {
+        byte[] data = createNumbersAndStrings();
+
+        Set<Short> sids = new HashSet<>();
+        List<org.apache.poi.hssf.record.Record> cells = new ArrayList<>();
+        HSSFRequest req = new HSSFRequest() {
+            @Override
+            protected short processRecord(org.apache.poi.hssf.record.Record rec) throws HSSFUserException {
+                sids.add(rec.getSid());
+                return super.processRecord(rec);
+            }
+        };
+        req.addListener(cells::add, NumberRecord.sid);
+        req.addListener(cells::add, LabelSSTRecord.sid);
+
+        assertEquals(0, process(data, req));
+        assertEquals(400, cells.size());
+        assertTrue(sids.contains(SSTRecord.sid));
+
+        // the result is the same, but the other records aren't created
+        List<org.apache.poi.hssf.record.Record> unfiltered = new ArrayList<>(cells);
+        sids.clear();
+        cells.clear();
+        req.setSkipUnregisteredRecords(true);
+        assertEquals(0, process(data, req));
+        assertEquals(unfiltered.toString(), cells.toString());
+        assertFalse(sids.contains(SSTRecord.sid));
+        assertTrue(sids.contains(NumberRecord.sid));
+    }
+
+    @Test
+    public void testRawListener() throws Exception {
+        byte[] data = createNumbersAndStrings();
+
+        for (boolean skip : new boolean[]{false, true}) {
+            double[] sum = {0};
+            int[] bofCount = {0};
+            HSSFRequest req = new HSSFRequest();
+            req.setSkipUnregisteredRecords(skip);
+            req.addRawListener((sid, in) -> {
+                int row = in.readUShort();
+                int col = in.readUShort();
+                in.readUShort();
+                assertEquals(0, col);
+                assertEquals(row + 0.5, in.readDouble(), 0);
+                sum[0] += row + 0.5;
+                return 0;
+            }, NumberRecord.sid);
+            // the first BOF record is read before the filtering starts
+            req.addRawListener((sid, in) -> {
+                bofCount[0]++;
+                return 0;
+            }, BOFRecord.sid);
+            req.addListener(r -> fail("raw listeners take precedence"), NumberRecord.sid);
+
+            assertEquals(0, process(data, req));
+            assertEquals(2 * (100 * 100 / 2), sum[0], 0);
+            assertEquals(3, bofCount[0]);
+        }
+    }
+
+    @Test
+    public void testAbortRawListener() throws Exception {
+        byte[] data = createNumbersAndStrings();
+
+        int[] count = {0};
+        HSSFRequest req = new HSSFRequest();
+        req.setSkipUnregisteredRecords(true);
+        req.addRawListener((sid, in) -> (short)(++count[0] == 10 ? 42 : 0), NumberRecord.sid);
+        assertEquals(42, process(data, req));
+        assertEquals(10, count[0]);
+
+        try {
+            req.addRawListener((sid, in) -> 0, NumberRecord.sid);
+            fail("only one raw listener per sid");
+        } catch (IllegalStateException e) {
+            // expected here
+        }
+    }
+
+    @Test
+    public void testRawListenerWithContinueRecords() throws Exception {
+        byte[] data;
+        try (HSSFWorkbook wb = new HSSFWorkbook();
+             ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            HSSFSheet sheet = wb.createSheet();
+            // enough unique strings to continue the SST record
+            for (int r = 0; r < 1000; r++) {
+                sheet.createRow(r).createCell(0).setCellValue("a longer text in row " + r);
+            }
+            wb.write(bos);
+            data = bos.toByteArray();
+        }
+
+        for (boolean skip : new boolean[]{false, true}) {
+            int[] sstCount = {0};
+            List<org.apache.poi.hssf.record.Record> cells = new ArrayList<>();
+            HSSFRequest req = new HSSFRequest();
+            req.setSkipUnregisteredRecords(skip);
+            // the raw handler leaves the continue records unread
+            req.addRawListener((sid, in) -> {
+                sstCount[0]++;
+                return 0;
+            }, SSTRecord.sid);
+            req.addListener(r -> fail("continue records of raw records are skipped"), ContinueRecord.sid);
+            req.addListener(cells::add, LabelSSTRecord.sid);
+
+            assertEquals(0, process(data, req));
+            assertEquals(1, sstCount[0]);
+            assertEquals(1000, cells.size());
+            assertEquals(999, ((LabelSSTRecord)cells.get(999)).getRow());
+        }
+    }
 }
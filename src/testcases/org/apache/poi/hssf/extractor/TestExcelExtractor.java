@@ -20,16 +20,21 @@ package org.apache.poi.hssf.extractor;
 import static org.apache.poi.POITestCase.assertContains;
 import static org.apache.poi.POITestCase.assertStartsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Locale;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
@@ -166,6 +171,41 @@ public final class TestExcelExtractor {
 		}
 	}
 
+	@Test
+	public void testEventExtractorToAppendable() throws IOException {
+		byte[] workbook;
+		try (HSSFWorkbook wb = new HSSFWorkbook()) {
+			for (String name : new String[]{ "First", "Second" }) {
+				HSSFSheet sheet = wb.createSheet(name);
+				for (int i = 0; i < 3; i++) {
+					HSSFRow row = sheet.createRow(i);
+					row.createCell(0).setCellValue(name + " row " + i);
+					row.createCell(1).setCellValue(i);
+				}
+			}
+			workbook = wb.getBytes();
+		}
+
+		// the workbook stream of some third party programs isn't named "Workbook"
+		try (POIFSFileSystem fs = new POIFSFileSystem()) {
+			fs.createDocument(new ByteArrayInputStream(workbook), "WORKBOOK");
+			try (EventBasedExcelExtractor extractor = new EventBasedExcelExtractor(fs.getRoot())) {
+				extractor.setCloseFilesystem(false);
+				String expected = "First\nFirst row 0\t0\nFirst row 1\t1\nFirst row 2\t2\n"
+					+ "Second\nSecond row 0\t0\nSecond row 1\t1\nSecond row 2\t2\n";
+
+				StringWriter sw = new StringWriter();
+				assertTrue(extractor.extractTo(sw));
+				assertEquals(expected, sw.toString());
+
+				// the record processing is aborted within the second sheet
+				StringBuilder sb = new StringBuilder();
+				assertFalse(extractor.extractTo(sb, expected.indexOf("Second row 1") + 3));
+				assertEquals("First\nFirst row 0\t0\nFirst row 1\t1\nFirst row 2\t2\nSecond\nSecond row 0\t0\nSec", sb.toString());
+			}
+		}
+	}
+
 	@Test
     public void testWithComments() throws IOException {
 		try (ExcelExtractor extractor = createExtractor("SimpleWithComments.xls")) {
@@ -32,12 +32,14 @@ import java.util.Arrays;
 import java.util.Iterator;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.record.common.FormatRun;
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.storage.RawDataUtil;
 import org.apache.poi.util.HexRead;
 import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianOutputStream;
 import org.apache.poi.util.LocaleUtil;
 import org.junit.Test;
 
@@ -204,6 +206,76 @@ public final class TestSSTRecord {
         }
     }
 
+    /**
+     * Streaming the SST yields the same CONTINUE records and EXTSST buckets as the serialization into an array
+     */
+    @Test
+    public void testStreamedSerialization() {
+        SSTRecord record = createLargeSST();
+        byte[] content = record.serialize();
+        byte[] extSST = record.createExtSSTRecord(100).serialize();
+
+        record = createLargeSST();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        int size = record.serialize(new LittleEndianOutputStream(bos));
+        assertEquals(content.length, size);
+        assertArrayEquals(content, bos.toByteArray());
+        assertArrayEquals(extSST, record.createExtSSTRecord(100).serialize());
+    }
+
+    private static SSTRecord createLargeSST() {
+        SSTRecord record = new SSTRecord();
+        for (int k = 0; k < 3000; k++) {
+            record.addString(new UnicodeString((k % 3 == 0 ? "\u2122" : "s") + k));
+        }
+        char[] huge = new char[12000];
+        Arrays.fill(huge, 'h');
+        record.addString(new UnicodeString(new String(huge)));
+        return record;
+    }
+
+    /**
+     * The strings are decoded on demand, check that their offsets are found correctly,
+     * also for strings which are continued and which switch between compressed and
+     * uncompressed data at the continuation
+     */
+    @Test
+    public void testLazyDecoding() {
+        SSTRecord record = new SSTRecord();
+        UnicodeString[] strings = new UnicodeString[3000];
+        for (int i = 0; i < strings.length; i++) {
+            char[] data = new char[(i * 37) % 700];
+            Arrays.fill(data, (i % 3 == 0) ? (char) ('\u2122' + i % 7) : (char) ('a' + i % 26));
+            strings[i] = new UnicodeString(i + new String(data));
+            if (i % 5 == 0) {
+                strings[i].addFormatRun(new FormatRun((short) 1, (short) (i % 4)));
+            }
+            assertEquals(i, record.addString(strings[i]));
+        }
+        byte[] content = record.serialize();
+
+        RecordInputStream recStream = new RecordInputStream(new ByteArrayInputStream(content));
+        recStream.nextRecord();
+        record = new SSTRecord(recStream);
+        assertFalse(recStream.hasNextRecord());
+        assertEquals(strings.length, record.countStrings());
+
+        // access in reverse order, so the strings are not decoded sequentially
+        for (int i = strings.length - 1; i >= 0; i--) {
+            assertEquals(strings[i], record.getString(i));
+            assertEquals(strings[i].getFormatRunCount(), record.getString(i).getFormatRunCount());
+        }
+
+        recStream = new RecordInputStream(new ByteArrayInputStream(content));
+        recStream.nextRecord();
+        record = new SSTRecord(recStream);
+        assertEquals(strings[1234], record.getString(1234));
+        assertArrayEquals(content, new SSTRecord(record).serialize());
+        // adding a string needs the lookup of all strings
+        assertEquals(1234, record.addString(new UnicodeString(strings[1234].getString())));
+        assertEquals(strings.length, record.getNumUniqueStrings());
+    }
+
     /**
      * test SSTRecord boundary conditions
      */
@@ -19,8 +19,10 @@ package org.apache.poi.hssf.record.aggregates;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -36,7 +38,9 @@ import org.apache.poi.hssf.model.RowBlocksReader;
 import org.apache.poi.hssf.record.BlankRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.SharedFormulaRecord;
 import org.apache.poi.hssf.record.WindowTwoRecord;
@@ -201,6 +205,72 @@ public final class TestValueRecordsAggregate {
 		assertArrayEquals(expectedArray, actualArray);
 	}
 
+    @Test
+	public void testCompactCells() {
+		NumberRecord nr = new NumberRecord();
+		nr.setRow(1);
+		nr.setColumn((short) 0);
+		nr.setXFIndex((short) 15);
+		nr.setValue(1.5);
+		LabelSSTRecord lr = new LabelSSTRecord();
+		lr.setRow(1);
+		lr.setColumn((short) 3);
+		lr.setXFIndex((short) 16);
+		lr.setSSTIndex(7);
+		NumberRecord nr2 = new NumberRecord();
+		nr2.setRow(2);
+		nr2.setColumn((short) 5);
+		nr2.setValue(-3);
+
+		List<org.apache.poi.hssf.record.Record> records = new ArrayList<>();
+		records.add(nr);
+		records.add(newBlankRecord(1, 1));
+		records.add(newBlankRecord(2, 1));
+		records.add(lr);
+		records.add(nr2);
+		records.add(new WindowTwoRecord());
+		constructValueRecord(records);
+
+		assertEquals(5, valueRecord.getPhysicalNumberOfCells());
+		assertEquals(0, valueRecord.getFirstCellNum());
+		assertEquals(5, valueRecord.getLastCellNum());
+		assertTrue(valueRecord.rowHasCells(2));
+
+		// the compact cells are serialized like the original records
+		byte[] expected = new byte[nr.getRecordSize() + 14 + lr.getRecordSize() + nr2.getRecordSize()];
+		int offset = nr.serialize(0, expected);
+		offset += new MulBlankRecord(1, 1, new short[]{0, 0}).serialize(offset, expected);
+		offset += lr.serialize(offset, expected);
+		nr2.serialize(offset, expected);
+		assertEquals(expected.length, valueRecord.getRowCellBlockSize(1, 2));
+		byte[] actual = new byte[expected.length];
+		SerializerVisitor sv = new SerializerVisitor(actual);
+		valueRecord.visitCellsForRow(1, sv);
+		valueRecord.visitCellsForRow(2, sv);
+		assertArrayEquals(expected, actual);
+
+		// iterating materializes the records, which are kept afterwards
+		List<CellValueRecordInterface> cvrs = getValueRecords();
+		assertEquals(5, cvrs.size());
+		NumberRecord nrCopy = (NumberRecord) cvrs.get(0);
+		assertEquals(1.5, nrCopy.getValue(), 0);
+		assertEquals(15, nrCopy.getXFIndex());
+		assertEquals(7, ((LabelSSTRecord) cvrs.get(3)).getSSTIndex());
+		assertSame(nrCopy, getValueRecords().get(0));
+
+		nrCopy.setValue(2.5);
+		nr.setValue(2.5);
+		nr.serialize(0, expected);
+		sv = new SerializerVisitor(actual);
+		valueRecord.visitCellsForRow(1, sv);
+		valueRecord.visitCellsForRow(2, sv);
+		assertArrayEquals(expected, actual);
+
+		valueRecord.removeCell(nr2);
+		assertFalse(valueRecord.rowHasCells(2));
+		assertEquals(4, valueRecord.getPhysicalNumberOfCells());
+	}
+
 	private static BlankRecord newBlankRecord() {
 		return newBlankRecord( 2, 2 );
 	}
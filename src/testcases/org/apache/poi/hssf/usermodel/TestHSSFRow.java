@@ -20,6 +20,7 @@ package org.apache.poi.hssf.usermodel;
 import java.io.IOException;
 
 import org.apache.poi.hssf.HSSFITestDataProvider;
+import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.hssf.record.BlankRecord;
 import org.apache.poi.hssf.record.RowRecord;
 import org.apache.poi.ss.SpreadsheetVersion;
@@ -160,4 +161,52 @@ public final class TestHSSFRow extends BaseTestRow {
 
         workbook.close();
     }
+
+    @Test
+    public void cellsOfReadRowsAreCreatedOnFirstAccess() throws IOException {
+        HSSFWorkbook wb1 = new HSSFWorkbook();
+        HSSFSheet sheet1 = wb1.createSheet();
+        for (int rowIx = 0; rowIx < 5; rowIx++) {
+            HSSFRow row = sheet1.createRow(rowIx);
+            row.createCell(2).setCellValue(rowIx);
+            row.createCell(4).setCellValue("text" + rowIx);
+        }
+
+        HSSFWorkbook wb2 = HSSFTestDataSamples.writeOutAndReadBack(wb1);
+        wb1.close();
+        HSSFSheet sheet2 = wb2.getSheetAt(0);
+
+        // the column boundaries are known before the cells are created
+        HSSFRow row0 = sheet2.getRow(0);
+        assertEquals(2, row0.getFirstCellNum());
+        assertEquals(5, row0.getLastCellNum());
+        assertEquals(2, row0.getPhysicalNumberOfCells());
+        assertEquals(0, row0.getCell(2).getNumericCellValue(), 0);
+        assertEquals("text0", row0.getCell(4).getStringCellValue());
+
+        // a new cell doesn't hide the cells, which haven't been created yet
+        HSSFRow row1 = sheet2.getRow(1);
+        row1.createCell(0).setCellValue(true);
+        assertEquals(3, row1.getPhysicalNumberOfCells());
+        assertEquals(1, row1.getCell(2).getNumericCellValue(), 0);
+
+        // the cells move along with their row
+        sheet2.shiftRows(2, 2, 10);
+        assertEquals(0, sheet2.getRow(2).getPhysicalNumberOfCells());
+        assertEquals(2, sheet2.getRow(12).getCell(2).getNumericCellValue(), 0);
+
+        sheet2.removeRow(sheet2.getRow(3));
+
+        HSSFWorkbook wb3 = HSSFTestDataSamples.writeOutAndReadBack(wb2);
+        wb2.close();
+        HSSFSheet sheet3 = wb3.getSheetAt(0);
+        assertTrue(sheet3.getRow(1).getCell(0).getBooleanCellValue());
+        assertEquals("text2", sheet3.getRow(12).getCell(4).getStringCellValue());
+        assertNull(sheet3.getRow(3));
+        // row 4 wasn't touched at all
+        HSSFRow row4 = sheet3.getRow(4);
+        assertEquals(4, row4.getCell(2).getNumericCellValue(), 0);
+        assertEquals("text4", row4.getCell(4).getStringCellValue());
+        wb3.close();
+    }
 }
@@ -20,8 +20,13 @@ package org.apache.poi.hssf.usermodel;
 import static org.apache.poi.hssf.HSSFTestDataSamples.writeOutAndReadBack;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.poi.ddf.EscherDgRecord;
@@ -32,10 +37,13 @@ import org.apache.poi.hssf.model.InternalSheet;
 import org.apache.poi.hssf.model.InternalWorkbook;
 import org.apache.poi.hssf.record.*;
 import org.apache.poi.hssf.record.aggregates.WorksheetProtectionBlock;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.formula.ptg.Area3DPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.AutoFilter;
 import org.apache.poi.ss.usermodel.BaseTestSheet;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataValidation;
 import org.apache.poi.ss.usermodel.DataValidationConstraint;
 import org.apache.poi.ss.usermodel.DataValidationHelper;
@@ -43,6 +51,9 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellRangeAddressList;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.TempFile;
 import org.junit.Test;
 
 /**
@@ -1118,4 +1129,236 @@ public final class TestHSSFSheet extends BaseTestSheet {
             }
         }
     }
+
+    @Test
+    public void flushRows() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            wb.setRandomAccessWindowSize(100);
+            for (int s = 0; s < 2; s++) {
+                HSSFSheet sheet = wb.createSheet("Sheet" + s);
+                assertEquals(100, sheet.getRandomAccessWindowSize());
+                for (int r = 0; r < 5000; r++) {
+                    HSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("s" + s + "r" + (r % 1000));
+                    row.createCell(2).setCellFormula("A" + (r + 1) + "*2");
+                    // the rows are flushed in blocks of 32 rows
+                    assertTrue(sheet.getPhysicalNumberOfRows() <= 100 + 31);
+                }
+                assertTrue(sheet.hasFlushedRows());
+                assertNull(sheet.getRow(0));
+                assertEquals(0, sheet.getFirstRowNum());
+                assertEquals(4999, sheet.getLastRowNum());
+                assertEquals(sheet.getLastFlushedRowNum() + 1, sheet.getRow(sheet.getLastFlushedRowNum() + 1).getRowNum());
+
+                try {
+                    sheet.createRow(sheet.getLastFlushedRowNum());
+                    fail("The row has already been flushed");
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+            wb.getSheetAt(1).flushRows();
+            assertEquals(4999, wb.getSheetAt(1).getLastFlushedRowNum());
+            wb.getSheetAt(1).createRow(5000).createCell(0).setCellValue(5000);
+            wb.write(bos);
+        }
+
+        try (HSSFWorkbook wb = new HSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            for (int s = 0; s < 2; s++) {
+                HSSFSheet sheet = wb.getSheetAt(s);
+                assertEquals(s == 0 ? 5000 : 5001, sheet.getPhysicalNumberOfRows());
+                for (int r = 0; r < 5000; r++) {
+                    HSSFRow row = sheet.getRow(r);
+                    assertEquals(r, row.getCell(0).getNumericCellValue(), 0);
+                    assertEquals("s" + s + "r" + (r % 1000), row.getCell(1).getStringCellValue());
+                    assertEquals(r * 2, fe.evaluate(row.getCell(2)).getNumberValue(), 0);
+                }
+                DimensionsRecord dims = (DimensionsRecord)sheet.getSheet().findFirstRecordBySid(DimensionsRecord.sid);
+                assertEquals(0, dims.getFirstRow());
+                assertEquals(s == 0 ? 5000 : 5001, dims.getLastRow());
+                assertEquals(0, dims.getFirstCol());
+                assertEquals(3, dims.getLastCol());
+            }
+        }
+
+        // the INDEX records need to point to the DBCELL records of the flushed and the other rows
+        byte[] stream;
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bos.toByteArray()));
+             InputStream is = fs.createDocumentInputStream("Workbook")) {
+            stream = IOUtils.toByteArray(is);
+        }
+        int dbCellCount = 0;
+        for (int pos = 0; pos + 4 <= stream.length; ) {
+            int sid = LittleEndian.getUShort(stream, pos);
+            int size = LittleEndian.getUShort(stream, pos + 2);
+            if (sid == IndexRecord.sid) {
+                for (int i = pos + 4 + 16; i < pos + 4 + size; i += 4) {
+                    assertEquals(DBCellRecord.sid, LittleEndian.getUShort(stream, LittleEndian.getInt(stream, i)));
+                    dbCellCount++;
+                }
+            }
+            pos += 4 + size;
+        }
+        // 5000 rows in 157 blocks and the additional row in its own block
+        assertEquals(157 + 158, dbCellCount);
+    }
+
+    @Test
+    public void flushRowsDispose() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet();
+        sheet.setRandomAccessWindowSize(1);
+        for (int r = 0; r < 100; r++) {
+            sheet.createRow(r).createCell(0).setCellValue(r);
+        }
+        assertEquals(95, sheet.getLastFlushedRowNum());
+        assertTrue(wb.dispose());
+        try {
+            wb.write(new ByteArrayOutputStream());
+            fail("The flushed rows have been disposed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        wb.close();
+    }
+
+    @Test
+    public void cloneFlushedRows() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            sheet.setRandomAccessWindowSize(10);
+            for (int r = 0; r < 50; r++) {
+                HSSFRow row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                row.createCell(1).setCellValue("r" + r);
+            }
+            HSSFSheet clone = wb.cloneSheet(0);
+            assertEquals(31, clone.getLastFlushedRowNum());
+            assertEquals(0, clone.getFirstRowNum());
+            assertEquals(49, clone.getLastRowNum());
+            assertEquals("r32", clone.getRow(32).getCell(1).getStringCellValue());
+            HSSFRow row = clone.createRow(50);
+            row.createCell(0).setCellValue(50);
+            row.createCell(1).setCellValue("r50");
+            wb.write(bos);
+        }
+
+        try (HSSFWorkbook wb = new HSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            assertFlushedRows(wb.getSheetAt(0), 50);
+            assertFlushedRows(wb.getSheetAt(1), 51);
+        }
+    }
+
+    @Test
+    public void flushRowsInlineStrings() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        char[] longText = new char[300];
+        Arrays.fill(longText, 'x');
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            sheet.setRandomAccessWindowSize(10);
+            for (int r = 0; r < 200; r++) {
+                sheet.createRow(r).createCell(0).setCellValue("r" + r);
+            }
+            // the strings of the windowed sheet don't end up in the SST
+            assertEquals(0, countSSTStrings(wb));
+
+            HSSFRichTextString formatted = new HSSFRichTextString("formatted");
+            formatted.applyFont(0, 4, wb.createFont());
+            HSSFRow row = sheet.createRow(200);
+            row.createCell(0).setCellValue(formatted);
+            row.createCell(1).setCellValue(new String(longText));
+            HSSFCell cell = row.createCell(2);
+            cell.setCellValue(true);
+            cell.setCellType(CellType.STRING);
+            assertEquals("TRUE", cell.getStringCellValue());
+            assertEquals(2, countSSTStrings(wb));
+            wb.write(bos);
+        }
+
+        try (HSSFWorkbook wb = new HSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            HSSFSheet sheet = wb.getSheetAt(0);
+            for (int r = 0; r < 200; r++) {
+                assertEquals("r" + r, sheet.getRow(r).getCell(0).getStringCellValue());
+            }
+            HSSFRow row = sheet.getRow(200);
+            assertEquals("formatted", row.getCell(0).getStringCellValue());
+            assertEquals(2, row.getCell(0).getRichStringCellValue().numFormattingRuns());
+            assertEquals(new String(longText), row.getCell(1).getStringCellValue());
+            assertEquals("TRUE", row.getCell(2).getStringCellValue());
+        }
+    }
+
+    private static int countSSTStrings(HSSFWorkbook wb) {
+        SSTRecord sst = (SSTRecord) wb.getWorkbook().findFirstRecordBySid(SSTRecord.sid);
+        return (sst == null) ? 0 : sst.getNumUniqueStrings();
+    }
+
+    @Test
+    public void flushRowsEncrypted() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Biff8EncryptionKey.setCurrentUserPassword("flushed");
+        try {
+            try (HSSFWorkbook wb = new HSSFWorkbook()) {
+                HSSFSheet sheet = wb.createSheet("Sheet1");
+                sheet.setRandomAccessWindowSize(10);
+                for (int r = 0; r < 200; r++) {
+                    HSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("r" + r);
+                }
+                assertTrue(sheet.hasFlushedRows());
+                wb.write(bos);
+            }
+
+            try (HSSFWorkbook wb = new HSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+                assertNotNull(wb.getEncryptionInfo());
+                assertFlushedRows(wb.getSheetAt(0), 200);
+            }
+        } finally {
+            Biff8EncryptionKey.setCurrentUserPassword(null);
+        }
+    }
+
+    @Test
+    public void flushRowsInPlace() throws IOException {
+        File file = TempFile.createTempFile("flushRowsInPlace", ".xls");
+        try {
+            try (HSSFWorkbook wb = new HSSFWorkbook()) {
+                wb.createSheet("Sheet1");
+                wb.write(file);
+            }
+
+            try (HSSFWorkbook wb = new HSSFWorkbook(new POIFSFileSystem(file, false))) {
+                HSSFSheet sheet = wb.getSheetAt(0);
+                sheet.setRandomAccessWindowSize(10);
+                for (int r = 0; r < 200; r++) {
+                    HSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("r" + r);
+                }
+                assertTrue(sheet.hasFlushedRows());
+                wb.write();
+            }
+
+            try (HSSFWorkbook wb = new HSSFWorkbook(new POIFSFileSystem(file, true))) {
+                assertFlushedRows(wb.getSheetAt(0), 200);
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private static void assertFlushedRows(HSSFSheet sheet, int rowCount) {
+        assertEquals(rowCount, sheet.getPhysicalNumberOfRows());
+        for (int r = 0; r < rowCount; r++) {
+            HSSFRow row = sheet.getRow(r);
+            assertEquals(r, row.getCell(0).getNumericCellValue(), 0);
+            assertEquals("r" + r, row.getCell(1).getStringCellValue());
+        }
+    }
 }
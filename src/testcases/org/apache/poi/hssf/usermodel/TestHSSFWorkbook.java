@@ -19,6 +19,7 @@ package org.apache.poi.hssf.usermodel;
 
 import static org.apache.poi.POITestCase.assertContains;
 import static org.apache.poi.hssf.HSSFTestDataSamples.openSampleWorkbook;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -48,12 +49,18 @@ import org.apache.poi.hssf.OldExcelFormatException;
 import org.apache.poi.hssf.model.HSSFFormulaParser;
 import org.apache.poi.hssf.model.InternalSheet;
 import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
 import org.apache.poi.hssf.record.CFRuleRecord;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.EOFRecord;
 import org.apache.poi.hssf.record.HSSFRecordTypes;
+import org.apache.poi.hssf.record.IndexRecord;
 import org.apache.poi.hssf.record.NameRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordBase;
 import org.apache.poi.hssf.record.WindowOneRecord;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
 import org.apache.poi.poifs.filesystem.DirectoryEntry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
@@ -69,6 +76,7 @@ import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.TempFile;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -374,6 +382,29 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         assertEquals("selected", expectedSelected, sheet.isSelected());
     }
 
+    @Test
+    public void getBytesWithoutSizingPass() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            for (int sheetIx = 0; sheetIx < 3; sheetIx++) {
+                HSSFSheet sheet = wb.createSheet("Sheet" + sheetIx);
+                for (int rowIx = 0; rowIx < 100; rowIx++) {
+                    HSSFRow row = sheet.createRow(rowIx);
+                    row.createCell(0).setCellValue(rowIx);
+                    row.createCell(1).setCellValue("row" + rowIx);
+                }
+            }
+
+            // the back-patched stream positions match the pre-calculated ones of the sequential output
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            byte[] expected;
+            try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bos.toByteArray()))) {
+                expected = IOUtils.toByteArray(fs.createDocumentInputStream("Workbook"));
+            }
+            assertArrayEquals(expected, wb.getBytes());
+        }
+    }
+
     /**
      * If Sheet.getSize() returns a different result to Sheet.serialize(), this will cause the BOF
      * records to be written with invalid offset indexes.  Excel does not like this, and such
@@ -388,8 +419,9 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         // one way (of many) to cause the discrepancy is with a badly behaved record:
         sheetRecords.add(new BadlyBehavedRecord());
         // There is also much logic inside Sheet that (if buggy) might also cause the discrepancy
+        // getBytes() back-patches the offsets, only the sequential output relies on the pre-calculated sizes
         try {
-            wb.getBytes();
+            wb.write(new ByteArrayOutputStream());
             fail("Identified bug 45066 a");
         } catch (IllegalStateException e) {
             // Expected badly behaved sheet record to cause exception
@@ -1268,6 +1300,270 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         wb.close();
     }
 
+    @Test
+    public void loadSheetsOnDemand() throws IOException {
+        byte[] data;
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            for (int s = 0; s < 3; s++) {
+                HSSFSheet sheet = wb.createSheet("Sheet" + s);
+                for (int r = 0; r < 100; r++) {
+                    HSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(s * 1000 + r);
+                    row.createCell(1).setCellValue("s" + s + "r" + r);
+                }
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            data = bos.toByteArray();
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(data));
+             HSSFWorkbook wb = new HSSFWorkbook(fs.getRoot(), true, true)) {
+            assertTrue(wb._sheets instanceof LazySheetList);
+            LazySheetList sheets = (LazySheetList)wb._sheets;
+            assertEquals(3, wb.getNumberOfSheets());
+            assertEquals("Sheet2", wb.getSheetName(2));
+            assertEquals(2, wb.getSheetIndex("Sheet2"));
+
+            HSSFSheet sheet = wb.getSheet("Sheet1");
+            assertNull(sheets.getLoaded(0));
+            assertNotNull(sheets.getLoaded(1));
+            assertNull(sheets.getLoaded(2));
+            assertEquals(1, wb.getSheetIndex(sheet));
+            assertEquals(1042, sheet.getRow(42).getCell(0).getNumericCellValue(), 0);
+            assertEquals("s1r42", sheet.getRow(42).getCell(1).getStringCellValue());
+
+            // the new strings enlarge the workbook globals, so the unread sheets are moved
+            for (int r = 0; r < 100; r++) {
+                sheet.getRow(r).createCell(2).setCellValue("new" + r);
+            }
+            wb.createSheet("Sheet3").createRow(0).createCell(0).setCellValue("added");
+            wb.write(bos);
+            assertNull(sheets.getLoaded(0));
+            assertNull(sheets.getLoaded(2));
+        }
+
+        try (HSSFWorkbook wb = new HSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            assertEquals(4, wb.getNumberOfSheets());
+            for (int s = 0; s < 3; s++) {
+                HSSFSheet sheet = wb.getSheetAt(s);
+                assertEquals("Sheet" + s, sheet.getSheetName());
+                for (int r = 0; r < 100; r++) {
+                    HSSFRow row = sheet.getRow(r);
+                    assertEquals(s * 1000 + r, row.getCell(0).getNumericCellValue(), 0);
+                    assertEquals("s" + s + "r" + r, row.getCell(1).getStringCellValue());
+                    if (s == 1) {
+                        assertEquals("new" + r, row.getCell(2).getStringCellValue());
+                    } else {
+                        assertNull(row.getCell(2));
+                    }
+                }
+            }
+            assertEquals("added", wb.getSheetAt(3).getRow(0).getCell(0).getStringCellValue());
+        }
+
+        // the DBCELL positions of the INDEX records need to match the moved sheets
+        byte[] stream;
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bos.toByteArray()));
+             InputStream is = fs.createDocumentInputStream("Workbook")) {
+            stream = IOUtils.toByteArray(is);
+        }
+        int indexCount = 0;
+        for (int pos = 0; pos + 4 <= stream.length; ) {
+            int sid = LittleEndian.getUShort(stream, pos);
+            int size = LittleEndian.getUShort(stream, pos + 2);
+            if (sid == IndexRecord.sid) {
+                for (int i = pos + 4 + 16; i < pos + 4 + size; i += 4) {
+                    assertEquals(DBCellRecord.sid, LittleEndian.getUShort(stream, LittleEndian.getInt(stream, i)));
+                }
+                indexCount++;
+            }
+            pos += 4 + size;
+        }
+        assertEquals(4, indexCount);
+    }
+
+    @Test
+    public void writeWorkbookStream() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            for (int s = 0; s < 3; s++) {
+                HSSFSheet sheet = wb.createSheet("Sheet" + s);
+                for (int r = 0; r < 50 + s * 40; r++) {
+                    HSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("s" + s + "r" + r);
+                }
+            }
+
+            // the streamed workbook stream matches the serialized bytes
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            byte[] stream;
+            try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bos.toByteArray()));
+                 InputStream is = fs.createDocumentInputStream("Workbook")) {
+                stream = IOUtils.toByteArray(is);
+            }
+            assertArrayEquals(wb.getBytes(), stream);
+
+            // the sheet positions and the DBCELL positions point to the records in the stream
+            for (int s = 0; s < 3; s++) {
+                int bof = wb.getInternalWorkbook().getSheetBof(s);
+                assertEquals(BOFRecord.sid, LittleEndian.getUShort(stream, bof));
+                int pos = bof + 4 + LittleEndian.getUShort(stream, bof + 2);
+                assertEquals(IndexRecord.sid, LittleEndian.getUShort(stream, pos));
+                int size = LittleEndian.getUShort(stream, pos + 2);
+                assertEquals((50 + s * 40 + 31) / 32, (size - 16) / 4);
+                for (int i = pos + 4 + 16; i < pos + 4 + size; i += 4) {
+                    assertEquals(DBCellRecord.sid, LittleEndian.getUShort(stream, LittleEndian.getInt(stream, i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writeFileBackPatchesPositions() throws IOException {
+        byte[] data;
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            for (int s = 0; s < 3; s++) {
+                HSSFSheet sheet = wb.createSheet("Sheet" + s);
+                for (int r = 0; r < 100; r++) {
+                    HSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(s * 1000 + r);
+                    row.createCell(1).setCellValue("s" + s + "r" + r);
+                }
+            }
+            data = wb.getBytes();
+        }
+
+        File file = TempFile.createTempFile("writeFileBackPatchesPositions", ".xls");
+        try {
+            try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(writeWorkbookStreamOnly(data)));
+                 HSSFWorkbook wb = new HSSFWorkbook(fs.getRoot(), true, true)) {
+                // Sheet0 stays unread, Sheet1 grows the globals, Sheet3 has flushed rows
+                HSSFSheet sheet = wb.getSheet("Sheet1");
+                for (int r = 0; r < 100; r++) {
+                    sheet.getRow(r).createCell(2).setCellValue("new" + r);
+                }
+                HSSFSheet flushed = wb.createSheet("Sheet3");
+                flushed.setRandomAccessWindowSize(10);
+                for (int r = 0; r < 200; r++) {
+                    flushed.createRow(r).createCell(0).setCellValue("f" + r);
+                }
+                assertTrue(flushed.hasFlushedRows());
+
+                wb.write(file);
+                byte[] stream;
+                try (POIFSFileSystem written = new POIFSFileSystem(file);
+                     InputStream is = written.createDocumentInputStream("Workbook")) {
+                    stream = IOUtils.toByteArray(is);
+                }
+                assertStreamPositions(stream, 4, true);
+                // the back-patched stream matches the sized one
+                assertArrayEquals(wb.getBytes(), stream);
+
+                // the sheets serialized by worker threads result in the same stream
+                wb.setSheetSerializationParallelism(4);
+                assertArrayEquals(stream, wb.getBytes());
+            }
+
+            try (POIFSFileSystem fs = new POIFSFileSystem(file);
+                 HSSFWorkbook wb = new HSSFWorkbook(fs)) {
+                assertEquals(4, wb.getNumberOfSheets());
+                for (int s = 0; s < 3; s++) {
+                    HSSFSheet sheet = wb.getSheetAt(s);
+                    for (int r = 0; r < 100; r++) {
+                        HSSFRow row = sheet.getRow(r);
+                        assertEquals(s * 1000 + r, row.getCell(0).getNumericCellValue(), 0);
+                        assertEquals("s" + s + "r" + r, row.getCell(1).getStringCellValue());
+                        if (s == 1) {
+                            assertEquals("new" + r, row.getCell(2).getStringCellValue());
+                        }
+                    }
+                }
+                HSSFSheet flushed = wb.getSheetAt(3);
+                for (int r = 0; r < 200; r++) {
+                    assertEquals("f" + r, flushed.getRow(r).getCell(0).getStringCellValue());
+                }
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void writeFileEncrypted() throws IOException {
+        File file = TempFile.createTempFile("writeFileEncrypted", ".xls");
+        Biff8EncryptionKey.setCurrentUserPassword("patched");
+        try {
+            try (HSSFWorkbook wb = new HSSFWorkbook()) {
+                for (int s = 0; s < 2; s++) {
+                    HSSFSheet sheet = wb.createSheet("Sheet" + s);
+                    for (int r = 0; r < 100; r++) {
+                        sheet.createRow(r).createCell(0).setCellValue("s" + s + "r" + r);
+                    }
+                }
+                wb.write(file);
+            }
+
+            try (POIFSFileSystem fs = new POIFSFileSystem(file);
+                 HSSFWorkbook wb = new HSSFWorkbook(fs)) {
+                assertNotNull(wb.getEncryptionInfo());
+                for (int s = 0; s < 2; s++) {
+                    HSSFSheet sheet = wb.getSheetAt(s);
+                    assertEquals("Sheet" + s, sheet.getSheetName());
+                    for (int r = 0; r < 100; r++) {
+                        assertEquals("s" + s + "r" + r, sheet.getRow(r).getCell(0).getStringCellValue());
+                    }
+                }
+            }
+
+            // the record headers and the sheet positions aren't encrypted
+            try (POIFSFileSystem fs = new POIFSFileSystem(file);
+                 InputStream is = fs.createDocumentInputStream("Workbook")) {
+                assertStreamPositions(IOUtils.toByteArray(is), 2, false);
+            }
+        } finally {
+            Biff8EncryptionKey.setCurrentUserPassword(null);
+            assertTrue(file.delete());
+        }
+    }
+
+    private static byte[] writeWorkbookStreamOnly(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (POIFSFileSystem fs = new POIFSFileSystem()) {
+            fs.createDocument(new ByteArrayInputStream(data), "Workbook");
+            fs.writeFilesystem(bos);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Checks, that the BOUNDSHEET records point to the sheets and the INDEX records to the DBCELL records
+     */
+    private static void assertStreamPositions(byte[] stream, int sheetCount, boolean checkIndex) {
+        List<Integer> bofs = new ArrayList<>();
+        for (int pos = 0; LittleEndian.getUShort(stream, pos) != EOFRecord.sid; ) {
+            if (LittleEndian.getUShort(stream, pos) == BoundSheetRecord.sid) {
+                bofs.add(LittleEndian.getInt(stream, pos + 4));
+            }
+            pos += 4 + LittleEndian.getUShort(stream, pos + 2);
+        }
+        assertEquals(sheetCount, bofs.size());
+        for (int bof : bofs) {
+            assertEquals(BOFRecord.sid, LittleEndian.getUShort(stream, bof));
+            if (!checkIndex) {
+                continue;
+            }
+            int pos = bof + 4 + LittleEndian.getUShort(stream, bof + 2);
+            assertEquals(IndexRecord.sid, LittleEndian.getUShort(stream, pos));
+            int size = LittleEndian.getUShort(stream, pos + 2);
+            for (int i = pos + 4 + 16; i < pos + 4 + size; i += 4) {
+                assertEquals(DBCellRecord.sid, LittleEndian.getUShort(stream, LittleEndian.getInt(stream, i)));
+            }
+        }
+    }
+
     @Ignore
     @Test
     @Override
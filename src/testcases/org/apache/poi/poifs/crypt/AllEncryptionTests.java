@@ -27,6 +27,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     TestBiff8DecryptingStream.class,
     TestCipherAlgorithm.class,
+    TestDerivedKeyCache.class,
     TestXorEncryption.class
 })
 public final class AllEncryptionTests {
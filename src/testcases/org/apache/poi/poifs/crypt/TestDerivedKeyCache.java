@@ -0,0 +1,124 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.poifs.crypt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDerivedKeyCache {
+    private static final byte[] SALT1 = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 };
+    private static final byte[] SALT2 = { 16, 15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+
+    @Before
+    public void enable() {
+        DerivedKeyCache.setMaxEntries(2);
+    }
+
+    @After
+    public void disable() {
+        DerivedKeyCache.setMaxEntries(0);
+    }
+
+    @Test
+    public void hashPassword() {
+        byte[] expected = CryptoFunctions.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 1000);
+        byte[] first = DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 1000);
+        assertArrayEquals(expected, first);
+        assertEquals(1, DerivedKeyCache.size());
+
+        // the cached key is copied, so modifying the result doesn't corrupt the cache
+        first[0]++;
+        assertArrayEquals(expected, DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 1000));
+        assertEquals(1, DerivedKeyCache.size());
+
+        // each parameter is part of the key
+        DerivedKeyCache.hashPassword("foobab", HashAlgorithm.sha1, SALT1, 1000);
+        DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 1001);
+        DerivedKeyCache.hashPassword(null, HashAlgorithm.sha512, SALT2, 1000);
+        assertEquals(2, DerivedKeyCache.size());
+        assertArrayEquals(CryptoFunctions.hashPassword(null, HashAlgorithm.sha512, SALT2, 1000),
+            DerivedKeyCache.hashPassword(null, HashAlgorithm.sha512, SALT2, 1000));
+    }
+
+    @Test
+    public void evict() {
+        DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 10);
+        DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT2, 10);
+        assertEquals(1, DerivedKeyCache.evict(SALT1));
+        assertEquals(0, DerivedKeyCache.evict(SALT1));
+        assertEquals(1, DerivedKeyCache.size());
+
+        DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 10);
+        DerivedKeyCache.setMaxEntries(1);
+        assertEquals(1, DerivedKeyCache.size());
+        DerivedKeyCache.clear();
+        assertEquals(0, DerivedKeyCache.size());
+
+        DerivedKeyCache.setMaxEntries(0);
+        DerivedKeyCache.hashPassword("foobaa", HashAlgorithm.sha1, SALT1, 10);
+        assertEquals(0, DerivedKeyCache.size());
+    }
+
+    @Test
+    public void repeatedDecryption() throws IOException, GeneralSecurityException {
+        byte[] plain = "repeatedly opened document".getBytes("UTF-8");
+        EncryptionInfo infoEnc = new EncryptionInfo(EncryptionMode.standard);
+        Encryptor enc = infoEnc.getEncryptor();
+        enc.confirmPassword("foobaa");
+
+        byte[] encrypted;
+        try (POIFSFileSystem fs = new POIFSFileSystem()) {
+            try (OutputStream os = enc.getDataStream(fs)) {
+                os.write(plain);
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            fs.writeFilesystem(bos);
+            encrypted = bos.toByteArray();
+        }
+        // the encryptor doesn't fill the cache
+        assertEquals(0, DerivedKeyCache.size());
+
+        for (int i = 0; i < 2; i++) {
+            try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(encrypted))) {
+                EncryptionInfo info = new EncryptionInfo(fs);
+                Decryptor dec = info.getDecryptor();
+                assertFalse(dec.verifyPassword("wrong"));
+                assertTrue(dec.verifyPassword("foobaa"));
+                try (InputStream is = dec.getDataStream(fs)) {
+                    assertArrayEquals(plain, IOUtils.toByteArray(is));
+                }
+            }
+        }
+        assertEquals(2, DerivedKeyCache.size());
+    }
+}
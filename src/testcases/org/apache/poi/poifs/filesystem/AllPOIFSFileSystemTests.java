@@ -37,6 +37,7 @@ import org.junit.runners.Suite;
     , TestPOIFSFileSystem.class
     , TestPropertySorter.class
     , TestOle10Native.class
+    , TestStreamingPOIFSWriter.class
 })
 public final class AllPOIFSFileSystemTests {
 }
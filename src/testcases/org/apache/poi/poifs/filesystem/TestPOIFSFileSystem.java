@@ -18,17 +18,21 @@
 package org.apache.poi.poifs.filesystem;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import org.apache.poi.POIDataSamples;
@@ -42,6 +46,7 @@ import org.apache.poi.poifs.common.POIFSConstants;
 import org.apache.poi.poifs.storage.BATBlock;
 import org.apache.poi.poifs.storage.HeaderBlock;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
 import org.junit.Test;
 
 /**
@@ -317,6 +322,51 @@ public final class TestPOIFSFileSystem {
 		}
 	}
 
+	/**
+	 * In-place writes only need to write the changed metadata blocks
+	 */
+	@Test
+	public void testWriteChangedBlocksOnly() throws IOException {
+		File file = TempFile.createTempFile("TestPOIFSFileSystem", ".ole2");
+		try {
+			byte[] big = new byte[20_000];
+			Arrays.fill(big, (byte) 1);
+			try (POIFSFileSystem fs = POIFSFileSystem.create(file)) {
+				fs.createDocument(new ByteArrayInputStream(big), "Big");
+				fs.createDocument(new ByteArrayInputStream(new byte[100]), "Small");
+				fs.writeFilesystem();
+				assertFalse(fs.getBATBlockAndIndex(0).getBlock().isDirty());
+			}
+
+			Arrays.fill(big, (byte) 2);
+			try (POIFSFileSystem fs = new POIFSFileSystem(file, false)) {
+				BATBlock bat = fs.getBATBlockAndIndex(0).getBlock();
+				assertFalse(bat.isDirty());
+
+				// replacing a document with the same size reuses its blocks
+				fs.getRoot().createOrUpdateDocument("Big", new ByteArrayInputStream(big));
+				assertFalse(bat.isDirty());
+				fs.writeFilesystem();
+
+				// a new document needs new blocks
+				fs.createDocument(new ByteArrayInputStream(new byte[5000]), "New");
+				assertTrue(bat.isDirty());
+				fs.writeFilesystem();
+				assertFalse(bat.isDirty());
+			}
+
+			try (POIFSFileSystem fs = new POIFSFileSystem(file)) {
+				try (InputStream is = fs.createDocumentInputStream("Big")) {
+					assertArrayEquals(big, IOUtils.toByteArray(is));
+				}
+				assertEquals(100, ((DocumentEntry) fs.getRoot().getEntry("Small")).getSize());
+				assertEquals(5000, ((DocumentEntry) fs.getRoot().getEntry("New")).getSize());
+			}
+		} finally {
+			assertTrue(file.delete());
+		}
+	}
+
 	private static int recurseDir(DirectoryEntry dir) throws IOException, NoPropertySetStreamException {
 		int count = 0;
 		for (Entry entry : dir) {
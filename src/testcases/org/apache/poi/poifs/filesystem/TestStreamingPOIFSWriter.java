@@ -0,0 +1,252 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.poifs.filesystem;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.poi.hpsf.ClassID;
+import org.apache.poi.poifs.common.POIFSConstants;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+import org.junit.Test;
+
+/**
+ * Tests for the single pass writing of OLE2 files
+ */
+public final class TestStreamingPOIFSWriter {
+
+    private static byte[] data(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte)(i * 31 + seed);
+        }
+        return data;
+    }
+
+    private static byte[] read(DirectoryNode dir, String name) throws IOException {
+        try (InputStream is = dir.createDocumentInputStream(name)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+    private static POIFSWriterListener writer(final byte[] data) {
+        return event -> {
+            try {
+                event.getStream().write(data);
+            } catch (IOException e) {
+                fail("stream exhausted too early");
+            }
+        };
+    }
+
+    @Test
+    public void writeDocuments() throws IOException {
+        final byte[] empty = new byte[0];
+        final byte[] small = data(100, 1);
+        final byte[] border = data(POIFSConstants.BIG_BLOCK_MINIMUM_DOCUMENT_SIZE, 2);
+        final byte[] big = data(100_000, 3);
+        // larger than the memory threshold, so it is spilled to a temporary file
+        final byte[] spilled = data(1_100_000, 4);
+        final ClassID clsid = new ClassID("{00020820-0000-0000-C000-000000000046}");
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (StreamingPOIFSWriter writer = new StreamingPOIFSWriter(bos)) {
+            StreamingPOIFSWriter.Directory root = writer.getRoot();
+            root.setStorageClsid(clsid);
+            root.createDocument("Big", big.length, writer(big));
+            root.createDocument("Small", small.length, writer(small));
+            root.createDocument("Empty", empty.length, writer(empty));
+            StreamingPOIFSWriter.Directory dir = root.createDirectory("Dir");
+            dir.createDocument("Border", border.length, writer(border));
+            dir.createDocument("Spilled", new ByteArrayInputStream(spilled));
+            // a short document is filled up with zeros
+            dir.createDocument("Short", 200, writer(small));
+
+            try {
+                root.createDocument("Small", 1, writer(small));
+                fail("Duplicate names are not allowed");
+            } catch (IOException e) {
+                // expected here
+            }
+
+            writer.write();
+        }
+        assertEquals(0, bos.size() % POIFSConstants.SMALLER_BIG_BLOCK_SIZE);
+
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bos.toByteArray()))) {
+            DirectoryNode root = fs.getRoot();
+            assertEquals(clsid, root.getStorageClsid());
+            assertArrayEquals(big, read(root, "Big"));
+            assertArrayEquals(small, read(root, "Small"));
+            assertArrayEquals(empty, read(root, "Empty"));
+            DirectoryNode dir = (DirectoryNode)root.getEntry("Dir");
+            assertArrayEquals(border, read(dir, "Border"));
+            assertArrayEquals(spilled, read(dir, "Spilled"));
+            byte[] expShort = new byte[200];
+            System.arraycopy(small, 0, expShort, 0, small.length);
+            assertArrayEquals(expShort, read(dir, "Short"));
+
+            // copy the entries into another file and compare them
+            ByteArrayOutputStream bos2 = new ByteArrayOutputStream();
+            try (StreamingPOIFSWriter writer = new StreamingPOIFSWriter(bos2)) {
+                writer.getRoot().copyEntries(root);
+                writer.write();
+            }
+            try (POIFSFileSystem fs2 = new POIFSFileSystem(new ByteArrayInputStream(bos2.toByteArray()))) {
+                assertTrue(EntryUtils.areDirectoriesIdentical(root, fs2.getRoot()));
+                assertEquals(clsid, fs2.getRoot().getStorageClsid());
+            }
+        }
+    }
+
+    @Test
+    public void writeExtendedAllocationTable() throws IOException {
+        // more than 109 allocation table sectors are needed, which don't fit into the header
+        final int size = 120 * 128 * POIFSConstants.SMALLER_BIG_BLOCK_SIZE;
+        final byte[] chunk = data(POIFSConstants.SMALLER_BIG_BLOCK_SIZE, 5);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(size + 100_000);
+        try (StreamingPOIFSWriter writer = new StreamingPOIFSWriter(bos)) {
+            writer.getRoot().createDocument("Huge", size, event -> {
+                try {
+                    for (int i = 0; i < size; i += chunk.length) {
+                        event.getStream().write(chunk);
+                    }
+                } catch (IOException e) {
+                    fail("stream exhausted too early");
+                }
+            });
+            writer.getRoot().createDocument("Small", 10, writer(data(10, 6)));
+            writer.write();
+        }
+
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bos.toByteArray()))) {
+            assertEquals(1, fs.getHeaderBlock().getXBATCount());
+            byte[] huge = read(fs.getRoot(), "Huge");
+            assertEquals(size, huge.length);
+            for (int i = 0; i < size; i += chunk.length) {
+                assertEquals(chunk[0], huge[i]);
+                assertEquals(chunk[chunk.length - 1], huge[i + chunk.length - 1]);
+            }
+            assertArrayEquals(data(10, 6), read(fs.getRoot(), "Small"));
+        }
+    }
+
+    @Test
+    public void streamDocumentToChannel() throws IOException {
+        final byte[] big = data(100_000, 7);
+        final byte[] small = data(100, 8);
+
+        for (byte[] streamed : new byte[][]{ big, small }) {
+            File file = TempFile.createTempFile("streamed", ".ole2");
+            try {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                     StreamingPOIFSWriter writer = new StreamingPOIFSWriter(channel)) {
+                    StreamingPOIFSWriter.Directory root = writer.getRoot();
+                    root.createDocument("Small", small.length, writer(small));
+                    StreamingPOIFSWriter.DocumentStream os = root.createDocumentStream("Streamed");
+                    try {
+                        root.createDocumentStream("Other");
+                        fail("Only one document can be streamed");
+                    } catch (IllegalStateException e) {
+                        // expected here
+                    }
+
+                    // the first bytes are filled in later
+                    os.write(new byte[4]);
+                    os.write(streamed, 4, streamed.length - 4);
+                    os.patch(0, new byte[]{ streamed[0], streamed[1], streamed[2], streamed[3] });
+                    try (InputStream is = os.getInputStream()) {
+                        assertArrayEquals(streamed, IOUtils.toByteArray(is));
+                    }
+                    os.close();
+
+                    root.createDirectory("Dir").createDocument("Big", big.length, writer(big));
+                    writer.write();
+                }
+                assertEquals(0, file.length() % POIFSConstants.SMALLER_BIG_BLOCK_SIZE);
+
+                try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+                    DirectoryNode root = fs.getRoot();
+                    assertArrayEquals(streamed, read(root, "Streamed"));
+                    assertArrayEquals(small, read(root, "Small"));
+                    assertArrayEquals(big, read((DirectoryNode)root.getEntry("Dir"), "Big"));
+                }
+            } finally {
+                assertTrue(file.delete());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void streamDocumentWithoutChannel() throws IOException {
+        try (StreamingPOIFSWriter writer = new StreamingPOIFSWriter(new ByteArrayOutputStream())) {
+            writer.getRoot().createDocumentStream("Streamed");
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createAfterWrite() throws IOException {
+        try (StreamingPOIFSWriter writer = new StreamingPOIFSWriter(new ByteArrayOutputStream())) {
+            writer.write();
+            writer.getRoot().createDirectory("Dir");
+        }
+    }
+
+    @Test
+    public void failingWriterAbortsFile() throws IOException {
+        final byte[] small = data(100, 9);
+        final byte[] big = data(100_000, 10);
+        final int[] bigWrites = { 0 };
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (StreamingPOIFSWriter writer = new StreamingPOIFSWriter(bos)) {
+            StreamingPOIFSWriter.Directory root = writer.getRoot();
+            root.addDocument("Failing", 10_000, os -> {
+                os.write(big, 0, 1000);
+                throw new IOException("no more data");
+            });
+            root.addDocument("Big", big.length, os -> {
+                bigWrites[0]++;
+                os.write(big);
+            });
+            root.addDocument("Small", small.length, os -> os.write(small));
+            try {
+                writer.write();
+                fail("the failing writer aborts the file");
+            } catch (IOException e) {
+                assertEquals("no more data", e.getMessage());
+            }
+        }
+
+        // the file has been aborted at the failing document, instead of being filled up
+        assertEquals(0, bigWrites[0]);
+        assertTrue(bos.size() < 10_000);
+    }
+}
@@ -19,11 +19,14 @@
 
 package org.apache.poi.poifs.nio;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -31,8 +34,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.poi.POIDataSamples;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.TempFile;
 import org.junit.Test;
@@ -126,6 +136,98 @@ public class TestDataSource {
         }
     }
 
+    @Test
+    public void testFileMapped() throws Exception {
+        File temp = TempFile.createTempFile("TestDataSource", ".test");
+        try {
+            byte[] big = new byte[100_000];
+            byte[] small = new byte[100];
+            for (int i = 0; i < big.length; i++) {
+                big[i] = (byte) (i * 31);
+            }
+            Arrays.fill(small, (byte) 42);
+            try (POIFSFileSystem fs = new POIFSFileSystem();
+                 OutputStream os = new FileOutputStream(temp)) {
+                fs.createDocument(new ByteArrayInputStream(big), "Big");
+                fs.createDocument(new ByteArrayInputStream(small), "Small");
+                fs.writeFilesystem(os);
+            }
+
+            FileBackedDataSource ds = new FileBackedDataSource(temp, true, true);
+            try {
+                assertTrue(ds.isMapped());
+                ByteBuffer bs = ds.read(4, 0);
+                assertTrue(bs.isReadOnly());
+                assertEquals(4, bs.remaining());
+                assertEquals(0xd0 - 256, bs.get());
+                assertEquals(0xcf - 256, bs.get());
+
+                // a short read at the end of the file falls back to a heap buffer
+                bs = ds.read(8, ds.size() - 4);
+                assertEquals(8, bs.capacity());
+                assertFalse(bs.isReadOnly());
+            } finally {
+                ds.close();
+            }
+
+            try (POIFSFileSystem fs = POIFSFileSystem.openMapped(temp)) {
+                assertArrayEquals(big, readDocument(fs, "Big"));
+                assertArrayEquals(small, readDocument(fs, "Small"));
+            }
+        } finally {
+            assertTrue(temp.delete());
+        }
+    }
+
+    @Test
+    public void testFileConcurrentReads() throws Exception {
+        File temp = TempFile.createTempFile("TestDataSource", ".test");
+        try {
+            final int docCount = 8;
+            byte[][] docs = new byte[docCount][];
+            try (POIFSFileSystem fs = new POIFSFileSystem();
+                 OutputStream os = new FileOutputStream(temp)) {
+                for (int d = 0; d < docCount; d++) {
+                    // mix big and mini stream documents
+                    docs[d] = new byte[(d % 2 == 0) ? 50_000 + d : 1_000 + d];
+                    for (int i = 0; i < docs[d].length; i++) {
+                        docs[d][i] = (byte) (i * 31 + d);
+                    }
+                    fs.createDocument(new ByteArrayInputStream(docs[d]), "Doc" + d);
+                }
+                fs.writeFilesystem(os);
+            }
+
+            for (boolean mapped : new boolean[]{false, true}) {
+                try (POIFSFileSystem fs = mapped ? POIFSFileSystem.openMapped(temp) : new POIFSFileSystem(temp, true)) {
+                    ExecutorService pool = Executors.newFixedThreadPool(4);
+                    try {
+                        List<Future<byte[]>> results = new ArrayList<>();
+                        for (int run = 0; run < 10; run++) {
+                            for (int d = 0; d < docCount; d++) {
+                                final String name = "Doc" + d;
+                                results.add(pool.submit(() -> readDocument(fs, name)));
+                            }
+                        }
+                        for (int i = 0; i < results.size(); i++) {
+                            assertArrayEquals("mapped: " + mapped, docs[i % docCount], results.get(i).get());
+                        }
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+            }
+        } finally {
+            assertTrue(temp.delete());
+        }
+    }
+
+    private static byte[] readDocument(POIFSFileSystem fs, String name) throws IOException {
+        try (InputStream is = fs.createDocumentInputStream(name)) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
     private void writeDataToFile(File temp) throws IOException {
         try (OutputStream str = new FileOutputStream(temp)) {
             try (InputStream in = data.openResourceAsStream("Notes.ole2")) {
@@ -0,0 +1,127 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.sl.draw;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.apache.poi.sl.usermodel.PictureData.PictureType;
+import org.apache.poi.util.Dimension2DDouble;
+import org.junit.Test;
+
+public class TestImageCache {
+
+    private static byte[] createPng(Color color) throws IOException {
+        BufferedImage img = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 20, 10);
+        g.dispose();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", bos);
+        return bos.toByteArray();
+    }
+
+    @Test
+    public void decodeOnce() throws IOException {
+        ImageCache cache = new ImageCache(1_000_000);
+        byte[] red = createPng(Color.RED);
+        String ct = PictureType.PNG.contentType;
+
+        BitmapImageRenderer renderer1 = new BitmapImageRenderer();
+        renderer1.setImageCache(cache);
+        renderer1.loadImage(red, ct);
+        BitmapImageRenderer renderer2 = new BitmapImageRenderer();
+        renderer2.setImageCache(cache);
+        renderer2.loadImage(red.clone(), ct);
+
+        assertSame(renderer1.getImage(), renderer2.getImage());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertEquals(20 * 10 * 4, cache.getMemoryUsage());
+
+        // the scaled images are cached by their size
+        BufferedImage scaled = renderer1.getImage(new Dimension2DDouble(40, 20));
+        assertEquals(40, scaled.getWidth());
+        assertSame(scaled, renderer2.getImage(new Dimension2DDouble(40, 20)));
+        assertNotSame(scaled, renderer2.getImage(new Dimension2DDouble(10, 5)));
+        assertEquals(3, cache.size());
+
+        // transparent images aren't cached
+        renderer2.setAlpha(0.5);
+        assertNotSame(scaled, renderer2.getImage(new Dimension2DDouble(40, 20)));
+        assertEquals(3, cache.size());
+
+        BitmapImageRenderer renderer3 = new BitmapImageRenderer();
+        renderer3.setImageCache(cache);
+        renderer3.loadImage(createPng(Color.BLUE), ct);
+        assertNotSame(renderer1.getImage(), renderer3.getImage());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws IOException {
+        // room for two images of 10x10 pixels
+        ImageCache cache = new ImageCache(800);
+        AtomicInteger loads = new AtomicInteger();
+        ImageCache.ImageLoader loader = () -> {
+            loads.incrementAndGet();
+            return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        };
+
+        byte[] data1 = { 1 }, data2 = { 2 }, data3 = { 3 };
+        cache.getImage(data1, loader);
+        cache.getImage(data2, loader);
+        cache.getImage(data1, loader);
+        cache.getImage(data3, loader);
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertEquals(800, cache.getMemoryUsage());
+
+        // data2 was evicted, data1 is still cached
+        cache.getImage(data1, loader);
+        assertEquals(3, loads.get());
+        cache.getImage(data2, loader);
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        // images exceeding the limit aren't cached
+        assertNotNull(cache.getImage(new byte[]{ 4 }, () -> new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB)));
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+}
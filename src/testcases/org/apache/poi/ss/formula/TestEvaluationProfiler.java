@@ -0,0 +1,128 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationProfiler.AreaProfile;
+import org.apache.poi.ss.formula.EvaluationProfiler.CellProfile;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.Test;
+
+public class TestEvaluationProfiler {
+
+    @Test
+    public void profile() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Data");
+            for (int i = 0; i < 10; i++) {
+                sheet.createRow(i).createCell(0).setCellValue(i + 1);
+            }
+            Row row = sheet.getRow(0);
+            row.createCell(1).setCellFormula("SUM(A1:A10)");
+            row.createCell(2).setCellFormula("B1*2+SUM(A1:A10)");
+            Cell c3 = row.createCell(3);
+            c3.setCellFormula("C1+B1");
+
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            FormulaEvaluator fe = HSSFFormulaEvaluator.create(wb, null, null, profiler);
+            assertEquals(220, fe.evaluate(c3).getNumberValue(), 0);
+
+            assertEquals(3, profiler.getFormulaEvaluations());
+            assertEquals(3, profiler.getMaxDepth());
+            // B1 is referenced a second time by D1, the plain values are cached by the first SUM
+            assertEquals(11, profiler.getCacheHits());
+            assertEquals(13, profiler.getCacheMisses());
+
+            List<String> cells = profiler.getCellProfiles().stream().map(CellProfile::getName).sorted().collect(Collectors.toList());
+            assertEquals("[Data!B1, Data!C1, Data!D1]", cells.toString());
+            for (CellProfile cp : profiler.getCellProfiles()) {
+                assertEquals(1, cp.getEvaluations());
+                assertTrue(cp.getSelfNanos() <= cp.getTotalNanos());
+            }
+
+            List<String> functions = profiler.getFunctionProfiles().stream()
+                .map(fp -> fp.getName() + "=" + fp.getInvocations()).sorted().collect(Collectors.toList());
+            assertEquals("[*=1, +=2, SUM=2]", functions.toString());
+
+            List<AreaProfile> areas = profiler.getAreaProfiles();
+            assertEquals(1, areas.size());
+            assertEquals("Data!A1:A10", areas.get(0).getName());
+            assertEquals(10, areas.get(0).getCellCount());
+            assertEquals(2, areas.get(0).getReferences());
+
+            String text = profiler.toString();
+            assertTrue(text.contains("Data!D1"));
+            assertTrue(text.contains("SUM"));
+            String json = profiler.toJson();
+            assertTrue(json.contains("\"formulaEvaluations\": 3"));
+            assertTrue(json.contains("\"Data!A1:A10\""));
+
+            // a disabled profiler doesn't collect anything
+            profiler.reset();
+            profiler.setEnabled(false);
+            fe.clearAllCachedResultValues();
+            fe.evaluate(c3);
+            assertEquals(0, profiler.getFormulaEvaluations());
+            assertEquals(0, profiler.getCacheHits());
+            assertTrue(profiler.getCellProfiles().isEmpty());
+
+            profiler.setEnabled(true);
+            fe.clearAllCachedResultValues();
+            fe.evaluate(c3);
+            assertEquals(3, profiler.getFormulaEvaluations());
+        }
+    }
+
+    @Test
+    public void profileSeveralWorkbooks() throws IOException {
+        try (HSSFWorkbook wb1 = new HSSFWorkbook();
+             HSSFWorkbook wb2 = new HSSFWorkbook()) {
+            Cell c1 = wb1.createSheet("Data").createRow(0).createCell(0);
+            c1.setCellFormula("1+2");
+            wb2.createSheet("Other");
+            Cell c2 = wb2.createSheet("Data").createRow(0).createCell(0);
+            c2.setCellFormula("3*4");
+
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            HSSFFormulaEvaluator fe1 = HSSFFormulaEvaluator.create(wb1, null, null, profiler);
+            HSSFFormulaEvaluator fe2 = HSSFFormulaEvaluator.create(wb2, null, null, profiler);
+            // the evaluators of collaborating workbooks share the listener of the profiler
+            CollaboratingWorkbooksEnvironment.setup(new String[]{"wb1.xls", "wb2.xls"},
+                new WorkbookEvaluator[]{fe1._getWorkbookEvaluator(), fe2._getWorkbookEvaluator()});
+
+            assertEquals(3, fe1.evaluate(c1).getNumberValue(), 0);
+            assertEquals(12, fe2.evaluate(c2).getNumberValue(), 0);
+
+            // the cells are keyed by their workbook and sheet
+            List<String> cells = profiler.getCellProfiles().stream()
+                .map(cp -> cp.getWorkbookIndex() + ":" + cp.getName()).sorted().collect(Collectors.toList());
+            assertEquals("[0:Data!A1, 1:[1]Data!A1]", cells.toString());
+        }
+    }
+}
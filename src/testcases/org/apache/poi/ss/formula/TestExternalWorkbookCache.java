@@ -0,0 +1,203 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.Test;
+
+public class TestExternalWorkbookCache {
+
+    private static HSSFWorkbook createExternalWorkbook(double value) {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Row row = wb.createSheet("Data").createRow(0);
+        row.createCell(0).setCellValue(value);
+        Cell formulaCell = row.createCell(1);
+        formulaCell.setCellFormula("A1*2");
+        // a stale cached result, which is only used in the values-only mode
+        formulaCell.setCellValue(-1);
+        return wb;
+    }
+
+    private static HSSFWorkbook createMainWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        wb.linkExternalWorkbook("a.xls", createExternalWorkbook(1));
+        wb.linkExternalWorkbook("b.xls", createExternalWorkbook(2));
+        Row row = wb.createSheet("Main").createRow(0);
+        row.createCell(0).setCellFormula("[a.xls]Data!A1+[a.xls]Data!B1");
+        row.createCell(1).setCellFormula("[b.xls]Data!B1");
+        return wb;
+    }
+
+    @Test
+    public void resolveOnDemand() throws IOException {
+        List<String> loaded = new ArrayList<>();
+        try (HSSFWorkbook wb = createMainWorkbook();
+             ExternalWorkbookCache cache = new ExternalWorkbookCache(1, false, name -> {
+                 loaded.add(name);
+                 return createExternalWorkbook("a.xls".equals(name) ? 10 : 20);
+             })) {
+            Row row = wb.getSheetAt(0).getRow(0);
+
+            HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            try {
+                fe.evaluate(row.getCell(0));
+                fail("The external workbook isn't available without a resolver");
+            } catch (RuntimeException e) {
+                // expected here
+            }
+
+            fe.setExternalWorkbookResolver(cache);
+            assertEquals(30, fe.evaluate(row.getCell(0)).getNumberValue(), 0);
+            assertEquals(40, fe.evaluate(row.getCell(1)).getNumberValue(), 0);
+            assertEquals("[a.xls, b.xls]", loaded.toString());
+            // only the most recently used workbook is kept
+            assertEquals(1, cache.size());
+
+            // the evaluator keeps the resolved workbooks
+            fe.clearAllCachedResultValues();
+            assertEquals(30, fe.evaluate(row.getCell(0)).getNumberValue(), 0);
+            assertEquals(2, loaded.size());
+
+            // a new evaluator shares the cached workbook
+            HSSFFormulaEvaluator fe2 = wb.getCreationHelper().createFormulaEvaluator();
+            fe2.setExternalWorkbookResolver(cache);
+            assertEquals(40, fe2.evaluate(row.getCell(1)).getNumberValue(), 0);
+            assertEquals(2, loaded.size());
+            assertEquals(30, fe2.evaluate(row.getCell(0)).getNumberValue(), 0);
+            assertEquals("[a.xls, b.xls, a.xls]", loaded.toString());
+        }
+    }
+
+    @Test
+    public void snapshotIsDetachedFromWorkbook() throws IOException {
+        List<HSSFWorkbook> loaded = new ArrayList<>();
+        try (HSSFWorkbook wb = createMainWorkbook();
+             ExternalWorkbookCache cache = new ExternalWorkbookCache(1, false, name -> {
+                 HSSFWorkbook ext = createExternalWorkbook(1);
+                 Row other = ext.createSheet("Other").createRow(0);
+                 other.createCell(0).setCellValue(10);
+                 other.createCell(1).setCellValue(5);
+                 Name rate = ext.createName();
+                 rate.setNameName("Rate");
+                 rate.setRefersToFormula("Other!$B$1");
+                 ext.getSheet("Data").getRow(0).getCell(1).setCellFormula("Other!A1+Rate");
+                 loaded.add(ext);
+                 return ext;
+             })) {
+            Cell cell = wb.getSheetAt(0).getRow(0).getCell(0);
+            HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.setExternalWorkbookResolver(cache);
+            assertEquals(16, fe.evaluate(cell).getNumberValue(), 0);
+
+            // the snapshot answers the lookups of the names and sheet references on its own
+            HSSFWorkbook ext = loaded.get(0);
+            ext.removeName(ext.getName("Rate"));
+            ext.removeSheetAt(ext.getSheetIndex("Other"));
+            fe.clearAllCachedResultValues();
+            assertEquals(16, fe.evaluate(cell).getNumberValue(), 0);
+            assertEquals(1, loaded.size());
+        }
+    }
+
+    @Test
+    public void valuesOnly() throws IOException {
+        try (HSSFWorkbook wb = createMainWorkbook();
+             ExternalWorkbookCache cache = new ExternalWorkbookCache(5, true, name -> createExternalWorkbook(10))) {
+            HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.setExternalWorkbookResolver(cache);
+            assertEquals(9, fe.evaluate(wb.getSheetAt(0).getRow(0).getCell(0)).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    public void missingWorkbook() throws IOException {
+        try (HSSFWorkbook wb = createMainWorkbook();
+             ExternalWorkbookCache cache = new ExternalWorkbookCache(5, false, name -> {
+                 if ("a.xls".equals(name)) {
+                     throw new IOException("not found");
+                 }
+                 return null;
+             })) {
+            Cell cell = wb.getSheetAt(0).getRow(0).getCell(0);
+            cell.setCellValue(42);
+            HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.setExternalWorkbookResolver(cache);
+            try {
+                fe.evaluate(cell);
+                fail("The resolver can't provide the workbook");
+            } catch (RuntimeException e) {
+                // expected here
+            }
+
+            // the cached result of the cell is used instead
+            fe.setIgnoreMissingWorkbooks(true);
+            fe.clearAllCachedResultValues();
+            assertEquals(42, fe.evaluate(cell).getNumberValue(), 0);
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void unresolvedWorkbookIsRemembered() throws IOException {
+        List<String> requested = new ArrayList<>();
+        try (HSSFWorkbook wb = createMainWorkbook()) {
+            Cell cell = wb.getSheetAt(0).getRow(0).getCell(0);
+            HSSFFormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.setExternalWorkbookResolver(name -> {
+                requested.add(name);
+                return null;
+            });
+            for (int i = 0; i < 3; i++) {
+                try {
+                    fe.clearAllCachedResultValues();
+                    fe.evaluate(cell);
+                    fail("The resolver can't provide the workbook");
+                } catch (RuntimeException e) {
+                    // expected here
+                }
+            }
+            assertEquals("[a.xls]", requested.toString());
+
+            // a new resolver is asked again
+            fe.setExternalWorkbookResolver(name -> {
+                requested.add(name);
+                return createExternalWorkbook(10).createEvaluationWorkbook();
+            });
+            fe.clearAllCachedResultValues();
+            assertEquals(30, fe.evaluate(cell).getNumberValue(), 0);
+            assertEquals("[a.xls, a.xls]", requested.toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new ExternalWorkbookCache(0, false, name -> (Workbook)null);
+    }
+}
@@ -46,14 +46,14 @@ public class TestPlainCellCache {
                         assertEquals(loc.hashCode(), sameLoc.hashCode());
                         assertEquals(loc, sameLoc);
 
-                        assertNull(cache.get(loc));
+                        assertNull(cache.get(loc.toKey()));
                         PlainValueCellCacheEntry entry = new PlainValueCellCacheEntry(new NumberEval(0));
-                        cache.put(loc, entry);
-                        assertSame(entry, cache.get(loc));
-                        cache.remove(loc);
-                        assertNull(cache.get(loc));
+                        cache.put(loc.toKey(), entry);
+                        assertSame(entry, cache.get(loc.toKey()));
+                        cache.remove(loc.toKey());
+                        assertNull(cache.get(loc.toKey()));
 
-                        cache.put(loc, entry);
+                        cache.put(loc.toKey(), entry);
                     }
                     cache.clear();
                 }
@@ -61,4 +61,29 @@ public class TestPlainCellCache {
 
         }
     }
+
+    @Test
+    public void testRemoveKeepsOtherEntries() {
+        PlainCellCache cache = new PlainCellCache();
+        PlainValueCellCacheEntry[] entries = new PlainValueCellCacheEntry[1000];
+        for (int rowIndex = 0; rowIndex < entries.length; rowIndex++) {
+            entries[rowIndex] = new PlainValueCellCacheEntry(new NumberEval(rowIndex));
+            cache.put(Loc.toKey(0, 0, rowIndex, 0), entries[rowIndex]);
+        }
+        assertEquals(entries.length, cache.size());
+
+        // remove every other entry, the remaining ones must still be found
+        for (int rowIndex = 0; rowIndex < entries.length; rowIndex += 2) {
+            cache.remove(Loc.toKey(0, 0, rowIndex, 0));
+        }
+        assertEquals(entries.length / 2, cache.size());
+        for (int rowIndex = 0; rowIndex < entries.length; rowIndex++) {
+            PlainValueCellCacheEntry expected = (rowIndex % 2 == 0) ? null : entries[rowIndex];
+            assertSame(expected, cache.get(Loc.toKey(0, 0, rowIndex, 0)));
+        }
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(Loc.toKey(0, 0, 1, 0)));
+    }
 }
@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
@@ -652,4 +653,101 @@ public class TestWorkbookEvaluator {
         assertEquals(cellB3.getNumericCellValue(),0, 0.00001);
         assertEquals(cellC3.getStringCellValue(),"3");
     }
+
+    @Test
+    public void testBulkNumberValues() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            for (int i = 0; i < 10; i++) {
+                // leave every third row blank
+                if (i % 3 != 0) {
+                    sheet.createRow(i).createCell(0).setCellValue(i);
+                }
+            }
+            HSSFCell sum = sheet.createRow(20).createCell(2);
+            sum.setCellFormula("SUM(A1:A100)");
+            HSSFCell avg = sheet.getRow(20).createCell(3);
+            avg.setCellFormula("AVERAGE(A1:A100)");
+            HSSFCell sumProduct = sheet.getRow(20).createCell(4);
+            sumProduct.setCellFormula("SUMPRODUCT(A1:A100,A1:A100)");
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            assertEquals(27, fe.evaluate(sum).getNumberValue(), EPSILON);
+            assertEquals(27 / 6.0, fe.evaluate(avg).getNumberValue(), EPSILON);
+            assertEquals(159, fe.evaluate(sumProduct).getNumberValue(), EPSILON);
+
+            // a value beyond the sheet's last row must invalidate the cached results
+            HSSFCell a50 = sheet.createRow(49).createCell(0);
+            a50.setCellValue(5);
+            fe.notifyUpdateCell(a50);
+            assertEquals(32, fe.evaluate(sum).getNumberValue(), EPSILON);
+            assertEquals(184, fe.evaluate(sumProduct).getNumberValue(), EPSILON);
+
+            // non-numeric values fall back to per-cell processing
+            HSSFCell a1 = sheet.createRow(0).createCell(0);
+            a1.setCellValue("text");
+            fe.notifyUpdateCell(a1);
+            assertEquals(32, fe.evaluate(sum).getNumberValue(), EPSILON);
+            assertEquals(184, fe.evaluate(sumProduct).getNumberValue(), EPSILON);
+        }
+    }
+
+    @Test
+    public void testBulkNumberValuesOfWholeColumns() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            for (int i = 0; i < 4; i++) {
+                HSSFRow row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue(2);
+            }
+            HSSFCell sumProduct = sheet.getRow(0).createCell(3);
+            sumProduct.setCellFormula("SUMPRODUCT(A:A,B:B)");
+            HSSFCell mina = sheet.getRow(0).createCell(4);
+            mina.setCellFormula("MINA(A:A)");
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            assertEquals(20, fe.evaluate(sumProduct).getNumberValue(), EPSILON);
+            // the blanks beyond the last row are counted as zeros
+            assertEquals(0, fe.evaluate(mina).getNumberValue(), EPSILON);
+
+            // only the rows up to the sheet's last row are allocated
+            WorkbookEvaluator we = fe._getWorkbookEvaluator();
+            EvaluationTracker tracker = new EvaluationTracker(new EvaluationCache(null));
+            double[] values = we.evaluateNumberValues(we.getSheet(0), 0, 0, 0, 65535, 0, false, tracker);
+            assertArrayEquals(new double[]{1, 2, 3, 4}, values, 0);
+            values = we.evaluateNumberValues(we.getSheet(0), 0, 10, 0, 65535, 1, false, tracker);
+            assertEquals(0, values.length);
+        }
+    }
+
+    @Test
+    public void testBulkNumberValuesTrackPlainNumbers() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            for (int i = 0; i < 4; i++) {
+                sheet.createRow(i).createCell(0).setCellValue(i + 1);
+            }
+            HSSFCell sum = sheet.getRow(0).createCell(1);
+            sum.setCellFormula("SUM(A1:A6)");
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            assertEquals(10, fe.evaluate(sum).getNumberValue(), EPSILON);
+            // the numbers read without a NumberEval are cached and invalidated like other plain values
+            assertEquals(10, fe.evaluate(sum).getNumberValue(), EPSILON);
+            HSSFCell a2 = sheet.getRow(1).getCell(0);
+            a2.setCellValue(12);
+            fe.notifyUpdateCell(a2);
+            assertEquals(20, fe.evaluate(sum).getNumberValue(), EPSILON);
+
+            // the public bulk values contain the blank rows beyond the sheet's last row
+            WorkbookEvaluator we = fe._getWorkbookEvaluator();
+            EvaluationTracker tracker = new EvaluationTracker(new EvaluationCache(null));
+            SheetRangeEvaluator sre = new SheetRangeEvaluator(0, new SheetRefEvaluator(we, tracker, 0));
+            LazyAreaEval area = new LazyAreaEval(0, 0, 5, 0, sre);
+            assertArrayEquals(new double[]{1, 12, 3, 4, 0, 0}, area.getNumberValues(false), 0);
+            assertArrayEquals(new double[]{1, 12, 3, 4}, area.getLeadingNumberValues(false), 0);
+            assertArrayEquals(new double[]{1, 12, 3, 4}, area.getNumberValues(true), 0);
+        }
+    }
 }
@@ -18,17 +18,31 @@
 package org.apache.poi.ss.formula.eval.forked;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.OperationEvaluationContext;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.EvaluationException;
 import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.FreeRefFunction;
+import org.apache.poi.ss.formula.udf.DefaultUDFFinder;
+import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
 import org.junit.Test;
 
 public class BaseTestForkedEvaluator {
@@ -114,4 +128,96 @@ public class BaseTestForkedEvaluator {
 			assertEquals("Underlying cell 'A2' is missing in master sheet.", ex.getMessage());
 		}
 	}
+
+	/**
+	 * Evaluates many scenarios in parallel and compares the results with a {@link ForkedEvaluator}
+	 */
+	@Test
+	public void testScenarios() throws IOException {
+		try (Workbook wb = createWorkbook()) {
+			wb.getSheet("Inputs").getRow(0).createCell(2); // Inputs!C1 - blank
+			Row row = wb.getSheet("Calculations").createRow(1);
+			row.createCell(0).setCellFormula("SUM(Inputs!A1:C1)");        // A2
+			row.createCell(1).setCellFormula("A1+A2");                    // B2
+			row.createCell(2).setCellFormula("B1*10");                    // C2 - independent of inputs
+			row.createCell(3).setCellFormula("IF(Inputs!C1>0,C2,B2)");    // D2
+
+			ScenarioEvaluator se = ScenarioEvaluator.create(wb, null);
+			List<ScenarioEvaluator.Scenario> scenarios = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				ScenarioEvaluator.Scenario scenario = se.createScenario();
+				scenario.updateCell("Inputs", 0, 0, new NumberEval(i));
+				if (i % 2 == 0) {
+					scenario.updateCell("Inputs", 0, 2, new NumberEval(i % 4));
+				}
+				scenarios.add(scenario);
+			}
+
+			CellReference[] outputs = {
+				new CellReference("Calculations!A1"), new CellReference("Calculations!B2"),
+				new CellReference("Calculations!C2"), new CellReference("Calculations!D2"),
+				new CellReference("Calculations!E2")
+			};
+			List<ValueEval[]> results = se.evaluate(scenarios, outputs);
+			assertEquals(scenarios.size(), results.size());
+
+			for (int i = 0; i < scenarios.size(); i++) {
+				ForkedEvaluator fe = ForkedEvaluator.create(wb, null, null);
+				fe.updateCell("Inputs", 0, 0, new NumberEval(i));
+				if (i % 2 == 0) {
+					fe.updateCell("Inputs", 0, 2, new NumberEval(i % 4));
+				}
+				ValueEval[] result = results.get(i);
+				for (int j = 0; j < outputs.length - 1; j++) {
+					CellReference cr = outputs[j];
+					double expected = ((NumberEval) fe.evaluate(cr.getSheetName(), cr.getRow(), cr.getCol())).getNumberValue();
+					assertEquals(cr.formatAsString() + " of scenario " + i, expected, ((NumberEval) result[j]).getNumberValue(), 0.0);
+				}
+				// missing cell
+				assertNull(result[outputs.length - 1]);
+			}
+
+			// the snapshot is unaffected by changes of the master workbook
+			wb.getSheet("Inputs").getRow(0).getCell(1).setCellValue(100);
+			List<ValueEval[]> unchanged = se.evaluate(Collections.singletonList(se.createScenario()), outputs[0]);
+			assertEquals(7.0, ((NumberEval) unchanged.get(0)[0]).getNumberValue(), 0.0);
+		}
+	}
+
+	private static ValueEval doubleIt(ValueEval[] args, OperationEvaluationContext ec) {
+		try {
+			ValueEval ve = OperandResolver.getSingleValue(args[0], ec.getRowIndex(), ec.getColumnIndex());
+			return new NumberEval(2 * OperandResolver.coerceValueToDouble(ve));
+		} catch (EvaluationException e) {
+			return e.getErrorEval();
+		}
+	}
+
+	/**
+	 * The user defined functions of the scenario evaluator are available in the scenarios
+	 */
+	@Test
+	public void testScenariosWithUDF() throws IOException {
+		UDFFinder udfFinder = new DefaultUDFFinder(new String[]{ "doubleIt" },
+			new FreeRefFunction[]{ BaseTestForkedEvaluator::doubleIt });
+
+		try (Workbook wb = createWorkbook()) {
+			wb.getSheet("Calculations").createRow(2).createCell(0).setCellFormula("doubleIt(Inputs!A1)+1");
+
+			ScenarioEvaluator se = ScenarioEvaluator.create(wb, udfFinder);
+			List<ScenarioEvaluator.Scenario> scenarios = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				ScenarioEvaluator.Scenario scenario = se.createScenario();
+				scenario.updateCell("Inputs", 0, 0, new NumberEval(i));
+				scenarios.add(scenario);
+			}
+
+			List<ValueEval[]> results = se.evaluate(scenarios, new CellReference("Calculations!A3"));
+			for (int i = 0; i < scenarios.size(); i++) {
+				ValueEval result = results.get(i)[0];
+				assertNotEquals(ErrorEval.NAME_INVALID, result);
+				assertEquals("scenario " + i, 2.0 * i + 1, ((NumberEval) result).getNumberValue(), 0.0);
+			}
+		}
+	}
 }
@@ -17,11 +17,17 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.EvaluationException;
+import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.MissingArgEval;
 import org.apache.poi.ss.formula.eval.NumberEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
@@ -57,6 +63,39 @@ public class TestMultiOperandNumericFunction {
         assertEquals(1.0, ((NumberEval)result).getNumberValue(), 0);
     }
 
+    @Test
+    public void areaNumberValues() {
+        ValueEval[] values = {
+            new NumberEval(1), BlankEval.instance,
+            new NumberEval(3), new NumberEval(4),
+        };
+        AreaEval ae = EvalFactory.createAreaEval("A1:B2", values);
+        assertArrayEquals(new double[]{1, 3, 4}, ae.getNumberValues(true), 0);
+        assertArrayEquals(new double[]{1, 0, 3, 4}, ae.getNumberValues(false), 0);
+
+        values[1] = BoolEval.TRUE;
+        ae = EvalFactory.createAreaEval("A1:B2", values);
+        assertNull(ae.getNumberValues(true));
+    }
+
+    @Test
+    public void blankPolicyIsAppliedToAreas() throws EvaluationException {
+        ValueEval[] values = {
+            new NumberEval(1), BlankEval.instance, new NumberEval(3),
+        };
+        AreaEval ae = EvalFactory.createAreaEval("A1:A3", values);
+
+        MultiOperandNumericFunction instance = new Stub(true, false, MultiOperandNumericFunction.Policy.SKIP);
+        assertArrayEquals(new double[]{1, 3}, instance.getNumberArray(new ValueEval[]{ae}), 0);
+
+        instance.setBlankEvalPolicy(MultiOperandNumericFunction.Policy.COERCE);
+        assertArrayEquals(new double[]{1, 0, 3}, instance.getNumberArray(new ValueEval[]{ae}), 0);
+
+        instance.setBlankEvalPolicy(MultiOperandNumericFunction.Policy.ERROR);
+        ValueEval result = instance.evaluate(new ValueEval[]{ae}, 0, 0);
+        assertEquals(ErrorEval.VALUE_INVALID, result);
+    }
+
     private static class Stub extends MultiOperandNumericFunction {
         protected Stub(
                 boolean isReferenceBoolCounted, boolean isBlankCounted, MultiOperandNumericFunction.Policy missingArgEvalPolicy) {